@@ -55,6 +55,8 @@ public class ImagingChipActionProvider implements MultiActionProvider {
 
     public static final String ORIGINAL_QUALIFIER = "original";
 
+    public static final String PYRAMID_QUALIFIER = "pyramid";
+
     private GeometryFactory geometryFactory = new GeometryFactory();
 
     @Override
@@ -102,7 +104,7 @@ public class ImagingChipActionProvider implements MultiActionProvider {
             boolean isImageNitf = NITF_IMAGE_METACARD_TYPE
                     .equals(metacard.getMetacardType().getName());
             boolean hasLocation = hasValidLocation(metacard.getLocation());
-            boolean hasDerivedImage = hasOriginalDerivedResource(metacard);
+            boolean hasDerivedImage = hasChippableDerivedResource(metacard);
 
             canHandle = isImageNitf && hasLocation && hasDerivedImage;
         }
@@ -110,7 +112,10 @@ public class ImagingChipActionProvider implements MultiActionProvider {
         return canHandle;
     }
 
-    private boolean hasOriginalDerivedResource(Metacard metacard) { 
+    /**
+     * A chip can be read from the tiles of the pyramid or from the original image.
+     */
+    private boolean hasChippableDerivedResource(Metacard metacard) {
         Attribute attribute = metacard.getAttribute(Core.DERIVED_RESOURCE_URI);
 
         return Stream.of(attribute)
@@ -118,15 +123,16 @@ public class ImagingChipActionProvider implements MultiActionProvider {
                 .flatMap(a -> a.getValues().stream())
                 .filter(String.class::isInstance)
                 .map(String.class::cast)
-                .anyMatch(this::hasOriginalQualifier);
+                .anyMatch(this::hasChippableQualifier);
     }
 
-    private boolean hasOriginalQualifier(String uriString) {
+    private boolean hasChippableQualifier(String uriString) {
         try {
             URI derivedResourceUri = new URI(uriString);
 
-            // find the #original URI fragment
-            if (ORIGINAL_QUALIFIER.equals(derivedResourceUri.getFragment())) {
+            // find the #pyramid or #original URI fragment
+            String fragment = derivedResourceUri.getFragment();
+            if (PYRAMID_QUALIFIER.equals(fragment) || ORIGINAL_QUALIFIER.equals(fragment)) {
                 return true;
             }
         } catch (URISyntaxException use) {
@@ -96,6 +96,13 @@ public class ImageChipActionProviderTest {
         assertThat(imagingChipActionProvider.canHandle(imageMetacard), is(false));
     }
 
+    @Test
+    public void testCanHandlePyramidDerivedResource() {
+        imageMetacard.setAttribute(new AttributeImpl(Core.DERIVED_RESOURCE_URI,
+                "content:73baa01ad925463b962084477d19fde0#pyramid"));
+        assertThat(imagingChipActionProvider.canHandle(imageMetacard), is(true));
+    }
+
     @Test
     public void testCanHandleImageryMetacard() {
         assertThat(imagingChipActionProvider.canHandle(imageMetacard), is(true));
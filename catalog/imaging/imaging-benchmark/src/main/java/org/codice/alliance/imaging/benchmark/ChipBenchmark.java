@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.benchmark;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
+import org.codice.alliance.imaging.chip.service.impl.ChipServiceImpl;
+import org.codice.alliance.imaging.pyramid.ImagePyramidWriter;
+import org.codice.alliance.imaging.pyramid.TiledImagePyramid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+/**
+ * The chipping stage: converting the chip polygon to pixels and cropping it from the original
+ * image in memory, or from the image pyramid stored by the pre-storage plugin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChipBenchmark {
+
+    /**
+     * The corners of the synthetic NITF images, from the upper left clockwise.
+     */
+    private static final String IMAGE_WKT = "POLYGON ((1 2, 2 2, 2 1, 1 1, 1 2))";
+
+    /**
+     * The middle quarter of the image.
+     */
+    private static final String CHIP_WKT =
+            "POLYGON ((1.25 1.75, 1.75 1.75, 1.75 1.25, 1.25 1.25, 1.25 1.75))";
+
+    @Param({"1024", "4096"})
+    public int size;
+
+    private ChipServiceImpl chipService;
+
+    private BufferedImage image;
+
+    private byte[] pyramid;
+
+    private Polygon imagePolygon;
+
+    private Polygon chipPolygon;
+
+    @Setup
+    public void setUp() throws IOException, ParseException {
+        chipService = new ChipServiceImpl();
+
+        image = new BufferedImage(size, size, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLACK, size, size, Color.WHITE));
+        graphics.fillRect(0, 0, size, size);
+        graphics.dispose();
+
+        ImagePyramidWriter pyramidWriter = new ImagePyramidWriter();
+        ByteArrayOutputStream tiles = new ByteArrayOutputStream();
+        pyramidWriter.writeTiles(image, tiles);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        pyramidWriter.writeHeader(outputStream);
+        tiles.writeTo(outputStream);
+        pyramid = outputStream.toByteArray();
+
+        WKTReader wktReader = new WKTReader();
+        imagePolygon = (Polygon) wktReader.read(IMAGE_WKT);
+        chipPolygon = (Polygon) wktReader.read(CHIP_WKT);
+    }
+
+    @Benchmark
+    public BufferedImage chip() throws ChipOutOfBoundsException {
+        return chipService.chip(image, imagePolygon, chipPolygon);
+    }
+
+    @Benchmark
+    public BufferedImage chipPyramid() throws ChipOutOfBoundsException, IOException {
+        try (ImagePyramid imagePyramid = TiledImagePyramid.read(new ByteArrayInputStream(pyramid))) {
+            return chipService.chipPyramid(imagePyramid, imagePolygon, chipPolygon);
+        }
+    }
+}
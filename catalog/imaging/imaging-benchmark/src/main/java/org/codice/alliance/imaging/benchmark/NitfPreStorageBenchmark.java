@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.benchmark;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.transformer.nitf.MetacardFactory;
+import org.codice.alliance.transformer.nitf.image.ImageMetacardType;
+import org.codice.alliance.transformer.nitf.image.NitfPreStoragePlugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteSource;
+
+import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.data.impl.ContentItemImpl;
+import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.content.operation.impl.CreateStorageRequestImpl;
+import ddf.catalog.content.operation.impl.CreateStorageResponseImpl;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.plugin.PluginExecutionException;
+
+/**
+ * The image stages of an ingest: rendering the first image segment and scaling and encoding the
+ * thumbnail, overview, original and pyramid, as the pre-storage plugin does for each NITF.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class NitfPreStorageBenchmark {
+
+    private static final String ID = "101";
+
+    private static final String FILENAME = "synthetic.ntf";
+
+    @Param({"1024", "4096"})
+    public int size;
+
+    @Param({"0"})
+    public int tres;
+
+    private ByteSource nitf;
+
+    private MetacardFactory metacardFactory;
+
+    private NitfPreStoragePlugin nitfPreStoragePlugin;
+
+    @Setup
+    public void setUp() {
+        nitf = ByteSource.wrap(new SyntheticNitf(size, size, 1, tres).toByteArray());
+
+        metacardFactory = new MetacardFactory();
+        metacardFactory.setMetacardType(new ImageMetacardType());
+        nitfPreStoragePlugin = new NitfPreStoragePlugin();
+    }
+
+    @TearDown
+    public void tearDown() {
+        nitfPreStoragePlugin.destroy();
+    }
+
+    @Benchmark
+    public CreateStorageRequest createDerivedImages()
+            throws PluginExecutionException, IOException {
+        Metacard metacard = metacardFactory.createMetacard(ID);
+        ContentItem contentItem = new ContentItemImpl(ID,
+                null,
+                nitf,
+                MetacardFactory.MIME_TYPE.toString(),
+                FILENAME,
+                nitf.size(),
+                metacard);
+
+        List<ContentItem> contentItems = new ArrayList<>();
+        contentItems.add(contentItem);
+
+        Map<String, Serializable> properties = Collections.emptyMap();
+        CreateStorageRequest createStorageRequest = nitfPreStoragePlugin.process(
+                new CreateStorageRequestImpl(contentItems, properties));
+
+        if (createStorageRequest.getContentItems()
+                .size() == 1) {
+            throw new IllegalStateException("no derived images were created");
+        }
+
+        // delete the temporary files of the derived images as the storage of the ingest would
+        nitfPreStoragePlugin.process(new CreateStorageResponseImpl(createStorageRequest,
+                createStorageRequest.getContentItems()));
+
+        return createStorageRequest;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.transformer.nitf.MetacardFactory;
+import org.codice.alliance.transformer.nitf.NitfParserAdapter;
+import org.codice.alliance.transformer.nitf.common.NitfHeaderTransformer;
+import org.codice.alliance.transformer.nitf.image.ImageMetacardType;
+import org.codice.alliance.transformer.nitf.image.NitfImageTransformer;
+import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ddf.catalog.data.Metacard;
+
+/**
+ * The metacard stages of the NITF input transformer: parsing the headers and TREs, and
+ * transforming them into an image metacard, as the transformer route does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NitfTransformBenchmark {
+
+    private static final String ID = "101";
+
+    @Param({"1024"})
+    public int size;
+
+    @Param({"1", "10"})
+    public int segments;
+
+    @Param({"0", "100"})
+    public int tres;
+
+    private byte[] nitf;
+
+    private NitfParserAdapter nitfParserAdapter;
+
+    private NitfHeaderTransformer nitfHeaderTransformer;
+
+    private NitfImageTransformer nitfImageTransformer;
+
+    private MetacardFactory metacardFactory;
+
+    @Setup
+    public void setUp() {
+        nitf = new SyntheticNitf(size, size, segments, tres).toByteArray();
+
+        nitfParserAdapter = new NitfParserAdapter();
+        nitfParserAdapter.setHeaderOnly(true);
+        nitfHeaderTransformer = new NitfHeaderTransformer();
+        nitfImageTransformer = new NitfImageTransformer();
+        metacardFactory = new MetacardFactory();
+        metacardFactory.setMetacardType(new ImageMetacardType());
+    }
+
+    @Benchmark
+    public NitfSegmentsFlow parse() throws NitfFormatException {
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(new ByteArrayInputStream(
+                nitf));
+        nitfParserAdapter.endNitfSegmentsFlow(nitfSegmentsFlow);
+        return nitfSegmentsFlow;
+    }
+
+    @Benchmark
+    public Metacard transform() throws NitfFormatException, IOException {
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(new ByteArrayInputStream(
+                nitf));
+        try {
+            Metacard metacard = metacardFactory.createMetacard(ID);
+            nitfHeaderTransformer.transform(nitfSegmentsFlow, metacard);
+            return nitfImageTransformer.transform(nitfSegmentsFlow, metacard);
+        } finally {
+            nitfParserAdapter.endNitfSegmentsFlow(nitfSegmentsFlow);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes NITF 2.1 files with uncompressed, blocked, 8-bit monochrome image segments of a
+ * configurable size. Every image subheader holds the same number of ACFTB TREs and the same
+ * geographic corners. The files are generated in memory, so the benchmarks do not depend on
+ * sample data.
+ */
+public class SyntheticNitf {
+
+    static final int BLOCK_SIZE = 1024;
+
+    static final String TRE_NAME = "ACFTB";
+
+    private static final int MAX_SEGMENTS = 999;
+
+    private static final int MAX_EXTENDED_HEADER_LENGTH = 99999;
+
+    private static final int OVERFLOW_LENGTH = 3;
+
+    private static final String ACFTB = field("BENCHMARK", 20) + field("SYNTHETIC", 10)
+            + field("201601010000", 12) + field("EO", 4) + field("NITF", 6) + field("0", 1)
+            + field("000001", 6) + field("20160101", 8) + field("000001", 6) + field("00000", 5)
+            + field("001", 3) + field("", 25) + field("000.00", 6) + field("000000", 6)
+            + field("m", 1) + field("", 25) + field("000000", 6) + field("000.000", 7)
+            + field("0000001", 7) + field("f", 1) + field("0000001", 7) + field("f", 1)
+            + field("999.99", 6) + field("000001", 6) + field("1.0", 7) + field("20160101", 8)
+            + field("0000", 4) + field("000", 3);
+
+    private static final int TRE_LENGTH = 6 + 5 + ACFTB.length();
+
+    /**
+     * The number of ACFTB TREs that fit in the extended subheader of an image segment.
+     */
+    public static final int MAX_TRES_PER_SEGMENT =
+            (MAX_EXTENDED_HEADER_LENGTH - OVERFLOW_LENGTH) / TRE_LENGTH;
+
+    private static final String DATE_TIME = "20160101000000";
+
+    private static final String CORNERS =
+            "020000N0010000E" + "020000N0020000E" + "010000N0020000E" + "010000N0010000E";
+
+    private final int width;
+
+    private final int height;
+
+    private final int segments;
+
+    private final int tres;
+
+    /**
+     * @param width    the number of columns of each image segment, must be positive
+     * @param height   the number of rows of each image segment, must be positive
+     * @param segments the number of image segments, between 1 and 999
+     * @param tres     the number of ACFTB TREs of each image segment, between 0 and
+     *                 {@link #MAX_TRES_PER_SEGMENT}
+     */
+    public SyntheticNitf(int width, int height, int segments, int tres) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "the image size must be positive: width=%d height=%d", width, height));
+        }
+        if (segments < 1 || segments > MAX_SEGMENTS) {
+            throw new IllegalArgumentException(String.format(
+                    "the segment count must be between 1 and %d: segments=%d", MAX_SEGMENTS,
+                    segments));
+        }
+        if (tres < 0 || tres > MAX_TRES_PER_SEGMENT) {
+            throw new IllegalArgumentException(String.format(
+                    "the TRE count must be between 0 and %d: tres=%d", MAX_TRES_PER_SEGMENT,
+                    tres));
+        }
+        if ((long) blockCount(width) * blockCount(height) * blockLength(width)
+                * blockLength(height) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format(
+                    "the image is too large to generate in memory: width=%d height=%d", width,
+                    height));
+        }
+
+        this.width = width;
+        this.height = height;
+        this.segments = segments;
+        this.tres = tres;
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            write(outputStream);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    public void write(OutputStream outputStream) throws IOException {
+        byte[] imageData = createImageData();
+        byte[][] subheaders = new byte[segments][];
+        long fileLength = 0;
+        for (int i = 0; i < segments; i++) {
+            subheaders[i] = createImageSubheader(i);
+            fileLength += subheaders[i].length + imageData.length;
+        }
+
+        int headerLength = createFileHeader(0, 0, subheaders, imageData.length).length;
+        fileLength += headerLength;
+
+        outputStream.write(createFileHeader(fileLength,
+                headerLength,
+                subheaders,
+                imageData.length));
+        for (byte[] subheader : subheaders) {
+            outputStream.write(subheader);
+            outputStream.write(imageData);
+        }
+    }
+
+    private byte[] createFileHeader(long fileLength, int headerLength, byte[][] subheaders,
+            int imageDataLength) {
+        Fields fields = new Fields();
+        fields.text("NITF", 4)
+                .text("02.10", 5)
+                .text(complexityLevel(), 2)
+                .text("BF01", 4)
+                .text("BENCHMARK", 10)
+                .text(DATE_TIME, 14)
+                .text("Synthetic NITF", 80)
+                .security()
+                .number(0, 5)
+                .number(0, 5)
+                .text("0", 1)
+                .bytes(new byte[] {0, 0, 0})
+                .text("", 24)
+                .text("", 18)
+                .number(fileLength, 12)
+                .number(headerLength, 6)
+                .number(segments, 3);
+        for (byte[] subheader : subheaders) {
+            fields.number(subheader.length, 6)
+                    .number(imageDataLength, 10);
+        }
+        return fields.number(0, 3)
+                .number(0, 3)
+                .number(0, 3)
+                .number(0, 3)
+                .number(0, 3)
+                .number(0, 5)
+                .number(0, 5)
+                .toByteArray();
+    }
+
+    private byte[] createImageSubheader(int index) {
+        Fields fields = new Fields();
+        fields.text("IM", 2)
+                .text(String.format("IMAGE%03d", index), 10)
+                .text(DATE_TIME, 14)
+                .text("", 17)
+                .text("Synthetic image segment", 80)
+                .security()
+                .text("0", 1)
+                .text("", 42)
+                .number(height, 8)
+                .number(width, 8)
+                .text("INT", 3)
+                .text("MONO", 8)
+                .text("VIS", 8)
+                .number(8, 2)
+                .text("R", 1)
+                .text("G", 1)
+                .text(CORNERS, 60)
+                .number(0, 1)
+                .text("NC", 2)
+                .number(1, 1)
+                .text("M", 2)
+                .text("", 6)
+                .text("N", 1)
+                .text("", 3)
+                .number(0, 1)
+                .number(0, 1)
+                .text("B", 1)
+                .number(blockCount(width), 4)
+                .number(blockCount(height), 4)
+                .number(blockLength(width), 4)
+                .number(blockLength(height), 4)
+                .number(8, 2)
+                .number(index + 1, 3)
+                .number(0, 3)
+                .number(0, 10)
+                .text("1.0", 4)
+                .number(0, 5);
+
+        if (tres == 0) {
+            fields.number(0, 5);
+        } else {
+            fields.number(OVERFLOW_LENGTH + tres * TRE_LENGTH, 5)
+                    .number(0, OVERFLOW_LENGTH);
+            for (int i = 0; i < tres; i++) {
+                fields.text(TRE_NAME, 6)
+                        .number(ACFTB.length(), 5)
+                        .text(ACFTB, ACFTB.length());
+            }
+        }
+
+        return fields.toByteArray();
+    }
+
+    /**
+     * Create the blocks of an image segment in row-major order. Pixels past the edge of the image
+     * in the last row or column of blocks are zero.
+     */
+    private byte[] createImageData() {
+        int blockWidth = blockLength(width);
+        int blockHeight = blockLength(height);
+        byte[] data = new byte[blockCount(width) * blockCount(height) * blockWidth * blockHeight];
+
+        int offset = 0;
+        for (int blockRow = 0; blockRow < blockCount(height); blockRow++) {
+            for (int blockColumn = 0; blockColumn < blockCount(width); blockColumn++) {
+                for (int row = 0; row < blockHeight; row++) {
+                    int y = blockRow * blockHeight + row;
+                    for (int column = 0; column < blockWidth; column++) {
+                        int x = blockColumn * blockWidth + column;
+                        if (x < width && y < height) {
+                            data[offset] = (byte) (x ^ y);
+                        }
+                        offset++;
+                    }
+                }
+            }
+        }
+
+        return data;
+    }
+
+    private String complexityLevel() {
+        int side = Math.max(width, height);
+        if (side <= 2048) {
+            return "03";
+        } else if (side <= 8192) {
+            return "05";
+        } else if (side <= 65536) {
+            return "06";
+        }
+        return "07";
+    }
+
+    private static int blockLength(int length) {
+        return Math.min(length, BLOCK_SIZE);
+    }
+
+    private static int blockCount(int length) {
+        return (length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    private static String field(String value, int length) {
+        if (value.length() > length) {
+            throw new IllegalArgumentException(String.format(
+                    "value does not fit the field: value=%s length=%d", value, length));
+        }
+        return String.format("%-" + length + "s", value);
+    }
+
+    /**
+     * Fixed length NITF fields, text is left justified and padded with spaces, numbers are right
+     * justified and padded with zeros.
+     */
+    private static class Fields {
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        Fields text(String value, int length) {
+            return bytes(field(value, length).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        Fields number(long value, int length) {
+            return text(String.format("%0" + length + "d", value), length);
+        }
+
+        /**
+         * Unclassified security fields of a file header or subheader.
+         */
+        Fields security() {
+            return text("U", 1).text("", 166);
+        }
+
+        Fields bytes(byte[] value) {
+            outputStream.write(value, 0, value.length);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.benchmark;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.core.image.ImageSegment;
+import org.codice.imaging.nitf.core.tre.Tre;
+import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
+import org.codice.imaging.nitf.render.NitfRenderer;
+import org.junit.Test;
+
+public class SyntheticNitfTest {
+
+    @Test
+    public void testHeaders() throws NitfFormatException {
+        List<ImageSegment> imageSegments = parse(new SyntheticNitf(300, 200, 3, 5), false);
+
+        assertThat(imageSegments.size(), is(3));
+        for (ImageSegment imageSegment : imageSegments) {
+            assertThat(imageSegment.getNumberOfColumns(), is(300L));
+            assertThat(imageSegment.getNumberOfRows(), is(200L));
+
+            List<Tre> tres = imageSegment.getTREsRawStructure()
+                    .getTREs();
+            assertThat(tres.size(), is(5));
+            assertThat(tres.get(0)
+                    .getName()
+                    .trim(), is(SyntheticNitf.TRE_NAME));
+        }
+    }
+
+    @Test
+    public void testMaxTres() throws NitfFormatException {
+        List<ImageSegment> imageSegments = parse(new SyntheticNitf(8, 8, 1,
+                SyntheticNitf.MAX_TRES_PER_SEGMENT), false);
+
+        assertThat(imageSegments.get(0)
+                .getTREsRawStructure()
+                .getTREs()
+                .size(), is(SyntheticNitf.MAX_TRES_PER_SEGMENT));
+    }
+
+    @Test
+    public void testRenderPartialBlocks() throws Exception {
+        int width = SyntheticNitf.BLOCK_SIZE + 30;
+        int height = 20;
+        ImageSegment imageSegment = parse(new SyntheticNitf(width, height, 1, 0), true).get(0);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        new NitfRenderer().render(imageSegment, graphics);
+        graphics.dispose();
+
+        for (int y = 0; y < height; y += 7) {
+            for (int x = 0; x < width; x += 97) {
+                assertThat(image.getRGB(x, y) & 0xff, is((x ^ y) & 0xff));
+            }
+        }
+        assertThat(image.getRGB(width - 1, height - 1) & 0xff,
+                is(((width - 1) ^ (height - 1)) & 0xff));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSize() {
+        new SyntheticNitf(0, 10, 1, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSegments() {
+        new SyntheticNitf(10, 10, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyTres() {
+        new SyntheticNitf(10, 10, 1, SyntheticNitf.MAX_TRES_PER_SEGMENT + 1);
+    }
+
+    private List<ImageSegment> parse(SyntheticNitf syntheticNitf, boolean allData)
+            throws NitfFormatException {
+        NitfParserInputFlow nitfParserInputFlow = new NitfParserInputFlow().inputStream(
+                new ByteArrayInputStream(syntheticNitf.toByteArray()));
+
+        List<ImageSegment> imageSegments = new ArrayList<>();
+        (allData ? nitfParserInputFlow.allData() : nitfParserInputFlow.headerOnly())
+                .forEachImageSegment(imageSegments::add);
+        return imageSegments;
+    }
+}
@@ -0,0 +1,438 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.pyramid;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Writes a tiled, multi-resolution image pyramid that can be read with {@link TiledImagePyramid}.
+ * Level 0 holds the image at full resolution, and every following level is half the width and
+ * height of the previous level, down to the first level that fits in a single tile. Every level is
+ * cut into square JPEG tiles.
+ * <p>
+ * The image is written row by row with {@link #startTiles(int, int, OutputStream)},
+ * {@link #writeRows(BufferedImage, int)} and {@link #finishTiles()}, so only one row of tiles of
+ * each level is held in memory. Each pixel of a level is the average of the 2 x 2 pixels of the
+ * previous level it covers, and a row of tiles is written as soon as it is complete, so the tiles
+ * of different levels are interleaved in the stream. The header, which holds the level sizes and
+ * the offset of every tile, is written afterwards with {@link #writeHeader(OutputStream)} and must
+ * be stored in front of the tile data.
+ */
+public class ImagePyramidWriter {
+
+    static final int MAGIC = 0x41505952;
+
+    static final int VERSION = 1;
+
+    public static final int DEFAULT_TILE_SIZE = 512;
+
+    private static final String JPG = "jpg";
+
+    private final int tileSize;
+
+    private final List<Level> levels = new ArrayList<>();
+
+    private CountingStream outputStream;
+
+    private long[] tileOffsets;
+
+    private int[] tileLengths;
+
+    private int[] samples;
+
+    private boolean tilesWritten = false;
+
+    public ImagePyramidWriter() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * @param tileSize the width and height of the tiles, must be positive
+     */
+    public ImagePyramidWriter(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "argument 'tileSize' must be greater than 0. Value was %s.",
+                    tileSize));
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Write the tiles of every level of the pyramid of an image held in memory. The tiles of a
+     * pyramid may only be written once.
+     *
+     * @param image        the image of level 0, may not be null
+     * @param outputStream the stream that receives the tile data, may not be null
+     * @throws IOException when a tile can't be encoded or written
+     */
+    public void writeTiles(BufferedImage image, OutputStream outputStream) throws IOException {
+        validateNotNull(image, "image");
+
+        startTiles(image.getWidth(), image.getHeight(), outputStream);
+        writeRows(image, image.getHeight());
+        finishTiles();
+    }
+
+    /**
+     * Start writing the tiles of the pyramid of an image that is given row by row. The tiles of a
+     * pyramid may only be written once.
+     *
+     * @param width        the width of the image, must be positive
+     * @param height       the height of the image, must be positive
+     * @param outputStream the stream that receives the tile data, may not be null
+     */
+    public void startTiles(int width, int height, OutputStream outputStream) {
+        validateNotNull(outputStream, "outputStream");
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "the image must have at least one pixel. Values were %s x %s.",
+                    width,
+                    height));
+        }
+        if (this.outputStream != null) {
+            throw new IllegalStateException("the tiles of this pyramid have already been written.");
+        }
+
+        this.outputStream = new CountingStream(outputStream);
+
+        int tileCount = 0;
+        for (int[] levelSize : calculateLevelSizes(width, height, tileSize)) {
+            Level level = new Level(levelSize[0], levelSize[1], tileCount);
+            levels.add(level);
+            tileCount += level.columns * TiledImagePyramid.tileCount(level.height, tileSize);
+        }
+
+        tileOffsets = new long[tileCount];
+        tileLengths = new int[tileCount];
+        samples = new int[width * levels.get(0).buffer.getRaster()
+                .getNumBands()];
+    }
+
+    /**
+     * @param rows     the next rows of level 0, as wide as the image, may not be null
+     * @param rowCount the number of rows at the top of the image that belong to level 0
+     * @throws IOException when a tile can't be encoded or written
+     */
+    public void writeRows(BufferedImage rows, int rowCount) throws IOException {
+        validateNotNull(rows, "rows");
+        if (outputStream == null || tilesWritten) {
+            throw new IllegalStateException("the pyramid is not being written.");
+        }
+
+        Level level = levels.get(0);
+        if (rows.getWidth() != level.width) {
+            throw new IllegalArgumentException(String.format(
+                    "the rows must be %s pixels wide. Value was %s.",
+                    level.width,
+                    rows.getWidth()));
+        }
+        if (level.rowCount + rowCount > level.height) {
+            throw new IllegalStateException(String.format("the image only has %s rows.",
+                    level.height));
+        }
+
+        BufferedImage bgrRows = toBgr(rows, rowCount);
+        for (int y = 0; y < rowCount; y++) {
+            bgrRows.getRaster()
+                    .getPixels(0, y, level.width, 1, samples);
+            addRow(0, samples);
+        }
+    }
+
+    /**
+     * Finish writing the tiles.
+     *
+     * @throws IOException when not every row of the image was written, or the stream can't be
+     *                     flushed
+     */
+    public void finishTiles() throws IOException {
+        if (outputStream == null || tilesWritten) {
+            throw new IllegalStateException("the pyramid is not being written.");
+        }
+
+        Level level = levels.get(0);
+        if (level.rowCount != level.height) {
+            throw new IOException(String.format(
+                    "only %s of the %s rows of the image were written.",
+                    level.rowCount,
+                    level.height));
+        }
+
+        tilesWritten = true;
+        levels.forEach(Level::release);
+        outputStream.flush();
+    }
+
+    /**
+     * @return the number of pixels held while the pyramid of an image of this size is written
+     */
+    public long getBufferedPixels(int width, int height) {
+        long pixels = 0;
+        for (int[] levelSize : calculateLevelSizes(width, height, tileSize)) {
+            pixels += (long) levelSize[0] * Math.min(tileSize, levelSize[1]);
+        }
+        return pixels;
+    }
+
+    /**
+     * Write the header that describes the tiles written by {@link #finishTiles()}.
+     *
+     * @param outputStream the stream that receives the header, may not be null
+     * @throws IOException when the header can't be written
+     */
+    public void writeHeader(OutputStream outputStream) throws IOException {
+        validateNotNull(outputStream, "outputStream");
+
+        if (!tilesWritten) {
+            throw new IllegalStateException(
+                    "the tiles must be written before the header of the pyramid.");
+        }
+
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeInt(MAGIC);
+        dataOutputStream.writeInt(VERSION);
+        dataOutputStream.writeInt(tileSize);
+        dataOutputStream.writeInt(levels.size());
+        for (Level level : levels) {
+            dataOutputStream.writeInt(level.width);
+            dataOutputStream.writeInt(level.height);
+        }
+        for (int i = 0; i < tileOffsets.length; i++) {
+            dataOutputStream.writeLong(tileOffsets[i]);
+            dataOutputStream.writeInt(tileLengths[i]);
+        }
+        dataOutputStream.flush();
+    }
+
+    /**
+     * @return the number of bytes written by {@link #writeHeader(OutputStream)}
+     */
+    public long getHeaderLength() {
+        return 16L + 8L * levels.size() + 12L * (tileOffsets == null ? 0 : tileOffsets.length);
+    }
+
+    private static List<int[]> calculateLevelSizes(int width, int height, int tileSize) {
+        List<int[]> levelSizes = new ArrayList<>();
+        int levelWidth = width;
+        int levelHeight = height;
+        while (true) {
+            levelSizes.add(new int[] {levelWidth, levelHeight});
+
+            if (levelWidth <= tileSize && levelHeight <= tileSize) {
+                return levelSizes;
+            }
+
+            levelWidth = Math.max(1, (levelWidth + 1) / 2);
+            levelHeight = Math.max(1, (levelHeight + 1) / 2);
+        }
+    }
+
+    /**
+     * Add the next row of a level, write its row of tiles once it is complete and pass the
+     * average of every two rows on to the next level.
+     */
+    private void addRow(int levelIndex, int[] row) throws IOException {
+        Level level = levels.get(levelIndex);
+
+        level.buffer.getRaster()
+                .setPixels(0, level.bufferRowCount, level.width, 1, row);
+        level.bufferRowCount++;
+        level.rowCount++;
+
+        boolean lastRow = level.rowCount == level.height;
+        if (level.bufferRowCount == level.buffer.getHeight() || lastRow) {
+            writeTileRow(level);
+        }
+
+        if (levelIndex + 1 == levels.size()) {
+            return;
+        }
+
+        if (level.hasPendingRow) {
+            level.hasPendingRow = false;
+            addRow(levelIndex + 1, level.halve(level.pendingRow, row));
+        } else if (lastRow) {
+            addRow(levelIndex + 1, level.halve(row, row));
+        } else {
+            System.arraycopy(row, 0, level.pendingRow, 0, level.pendingRow.length);
+            level.hasPendingRow = true;
+        }
+    }
+
+    private void writeTileRow(Level level) throws IOException {
+        for (int column = 0; column < level.columns; column++) {
+            int x = column * tileSize;
+            BufferedImage tile = level.buffer.getSubimage(x,
+                    0,
+                    Math.min(tileSize, level.width - x),
+                    level.bufferRowCount);
+
+            long offset = outputStream.getCount();
+            if (!ImageIO.write(tile, JPG, outputStream)) {
+                throw new IOException("no JPEG writer is available to encode the tiles.");
+            }
+
+            int index = level.firstTile + level.tileRow * level.columns + column;
+            tileOffsets[index] = offset;
+            tileLengths[index] = (int) (outputStream.getCount() - offset);
+        }
+
+        level.tileRow++;
+        level.bufferRowCount = 0;
+    }
+
+    private static BufferedImage toBgr(BufferedImage image, int rowCount) {
+        if (image.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+            return image;
+        }
+
+        BufferedImage bgrImage = new BufferedImage(image.getWidth(),
+                rowCount,
+                BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = bgrImage.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return bgrImage;
+    }
+
+    private void validateNotNull(Object value, String argumentName) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("argument '%s' may not be null.",
+                    argumentName));
+        }
+    }
+
+    /**
+     * The row of tiles of a level that is being filled.
+     */
+    private final class Level {
+
+        private final int width;
+
+        private final int height;
+
+        private final int columns;
+
+        private final int firstTile;
+
+        private BufferedImage buffer;
+
+        private int[] pendingRow;
+
+        private int[] halvedRow;
+
+        private boolean hasPendingRow = false;
+
+        private int bufferRowCount = 0;
+
+        private int rowCount = 0;
+
+        private int tileRow = 0;
+
+        private Level(int width, int height, int firstTile) {
+            this.width = width;
+            this.height = height;
+            this.columns = TiledImagePyramid.tileCount(width, tileSize);
+            this.firstTile = firstTile;
+            this.buffer = new BufferedImage(width,
+                    Math.min(tileSize, height),
+                    BufferedImage.TYPE_3BYTE_BGR);
+
+            int bandCount = buffer.getRaster()
+                    .getNumBands();
+            this.pendingRow = new int[width * bandCount];
+            this.halvedRow = new int[Math.max(1, (width + 1) / 2) * bandCount];
+        }
+
+        /**
+         * @return the average of every 2 x 2 pixels of the two rows, the last column is averaged
+         * with itself when the width is odd
+         */
+        private int[] halve(int[] upperRow, int[] lowerRow) {
+            WritableRaster raster = buffer.getRaster();
+            int bandCount = raster.getNumBands();
+            int halvedWidth = halvedRow.length / bandCount;
+
+            for (int x = 0; x < halvedWidth; x++) {
+                int left = 2 * x * bandCount;
+                int right = Math.min(2 * x + 1, width - 1) * bandCount;
+                for (int band = 0; band < bandCount; band++) {
+                    int sum = upperRow[left + band] + upperRow[right + band]
+                            + lowerRow[left + band] + lowerRow[right + band];
+                    halvedRow[x * bandCount + band] = (sum + 2) / 4;
+                }
+            }
+            return halvedRow;
+        }
+
+        private void release() {
+            buffer = null;
+            pendingRow = null;
+            halvedRow = null;
+        }
+    }
+
+    /**
+     * Counts the bytes written and keeps ImageIO from closing the caller's stream.
+     */
+    private static class CountingStream extends OutputStream {
+
+        private final OutputStream outputStream;
+
+        private long count = 0;
+
+        CountingStream(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
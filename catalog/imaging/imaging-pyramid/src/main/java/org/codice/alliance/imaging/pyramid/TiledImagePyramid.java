@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.pyramid;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
+
+/**
+ * Reads an image pyramid written by {@link ImagePyramidWriter}. Only the header is read when the
+ * pyramid is opened. {@link #readRegion(int, Rectangle)} then reads and decodes only the tiles
+ * that intersect the requested region.
+ * <p>
+ * The tiles are read from the stream in a single forward pass, skipping the tiles that are not
+ * needed. A region may be read more than once only if its tiles come after the tiles that have
+ * already been read. The rows of tiles of the levels are interleaved in the stream, so reading a
+ * second region of another level generally needs the pyramid to be read again.
+ */
+public class TiledImagePyramid implements ImagePyramid {
+
+    private final DataInputStream inputStream;
+
+    private final int tileSize;
+
+    private final int[][] levelSizes;
+
+    private final int[] levelFirstTile;
+
+    private final long[] tileOffsets;
+
+    private final int[] tileLengths;
+
+    private long position = 0;
+
+    private TiledImagePyramid(DataInputStream inputStream, int tileSize, int[][] levelSizes,
+            long[] tileOffsets, int[] tileLengths) {
+        this.inputStream = inputStream;
+        this.tileSize = tileSize;
+        this.levelSizes = levelSizes;
+        this.tileOffsets = tileOffsets;
+        this.tileLengths = tileLengths;
+
+        levelFirstTile = new int[levelSizes.length];
+        int tileIndex = 0;
+        for (int level = 0; level < levelSizes.length; level++) {
+            levelFirstTile[level] = tileIndex;
+            tileIndex += getColumnCount(level) * getRowCount(level);
+        }
+    }
+
+    /**
+     * Read the header of a pyramid. The stream is kept open to read the tiles and is closed by
+     * {@link #close()}.
+     *
+     * @param inputStream the pyramid data, may not be null
+     * @return the pyramid
+     * @throws IOException when the header can't be read or the stream does not contain a pyramid
+     */
+    public static TiledImagePyramid read(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("argument 'inputStream' may not be null.");
+        }
+
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+
+        if (dataInputStream.readInt() != ImagePyramidWriter.MAGIC) {
+            throw new IOException("the stream does not contain an image pyramid.");
+        }
+
+        int version = dataInputStream.readInt();
+        if (version != ImagePyramidWriter.VERSION) {
+            throw new IOException(String.format("unsupported image pyramid version: %s",
+                    version));
+        }
+
+        int tileSize = dataInputStream.readInt();
+        int levelCount = dataInputStream.readInt();
+        if (tileSize <= 0 || levelCount <= 0) {
+            throw new IOException(String.format(
+                    "invalid image pyramid header: tileSize=%s levelCount=%s",
+                    tileSize,
+                    levelCount));
+        }
+
+        int[][] levelSizes = new int[levelCount][];
+        long tileCount = 0;
+        for (int level = 0; level < levelCount; level++) {
+            int width = dataInputStream.readInt();
+            int height = dataInputStream.readInt();
+            if (width <= 0 || height <= 0) {
+                throw new IOException(String.format(
+                        "invalid image pyramid level size: level=%s width=%s height=%s",
+                        level,
+                        width,
+                        height));
+            }
+            levelSizes[level] = new int[] {width, height};
+            tileCount += (long) tileCount(width, tileSize) * tileCount(height, tileSize);
+        }
+
+        if (tileCount > Integer.MAX_VALUE) {
+            throw new IOException(String.format("invalid image pyramid tile count: %s",
+                    tileCount));
+        }
+
+        long[] tileOffsets = new long[(int) tileCount];
+        int[] tileLengths = new int[(int) tileCount];
+        for (int i = 0; i < tileCount; i++) {
+            tileOffsets[i] = dataInputStream.readLong();
+            tileLengths[i] = dataInputStream.readInt();
+        }
+
+        return new TiledImagePyramid(dataInputStream,
+                tileSize,
+                levelSizes,
+                tileOffsets,
+                tileLengths);
+    }
+
+    static int tileCount(int length, int tileSize) {
+        return (length + tileSize - 1) / tileSize;
+    }
+
+    @Override
+    public int getWidth() {
+        return getLevelWidth(0);
+    }
+
+    @Override
+    public int getHeight() {
+        return getLevelHeight(0);
+    }
+
+    @Override
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    @Override
+    public int getLevelCount() {
+        return levelSizes.length;
+    }
+
+    @Override
+    public int getLevelWidth(int level) {
+        return levelSizes[validateLevel(level)][0];
+    }
+
+    @Override
+    public int getLevelHeight(int level) {
+        return levelSizes[validateLevel(level)][1];
+    }
+
+    @Override
+    public BufferedImage readRegion(int level, Rectangle region) throws IOException {
+        if (region == null) {
+            throw new IllegalArgumentException("argument 'region' may not be null.");
+        }
+
+        Rectangle clipped = region.intersection(new Rectangle(getLevelWidth(level),
+                getLevelHeight(level)));
+
+        if (clipped.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                    "the region %s does not intersect level %s of the pyramid.",
+                    region,
+                    level));
+        }
+
+        int firstColumn = clipped.x / tileSize;
+        int lastColumn = (clipped.x + clipped.width - 1) / tileSize;
+        int firstRow = clipped.y / tileSize;
+        int lastRow = (clipped.y + clipped.height - 1) / tileSize;
+        int columnCount = getColumnCount(level);
+
+        int[] tiles = IntStream.rangeClosed(firstRow, lastRow)
+                .flatMap(row -> IntStream.rangeClosed(firstColumn, lastColumn)
+                        .map(column -> levelFirstTile[level] + row * columnCount + column))
+                .boxed()
+                .sorted(Comparator.comparingLong(tile -> tileOffsets[tile]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        BufferedImage output = new BufferedImage(clipped.width,
+                clipped.height,
+                BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = output.createGraphics();
+        try {
+            for (int tile : tiles) {
+                int tileInLevel = tile - levelFirstTile[level];
+                int x = (tileInLevel % columnCount) * tileSize;
+                int y = (tileInLevel / columnCount) * tileSize;
+
+                BufferedImage tileImage = readTile(tile);
+                graphics.drawImage(tileImage, x - clipped.x, y - clipped.y, null);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        return output;
+    }
+
+    private BufferedImage readTile(int tile) throws IOException {
+        long offset = tileOffsets[tile];
+        if (offset < position) {
+            throw new IllegalStateException(String.format(
+                    "tile %s of the pyramid has already been passed by the stream.",
+                    tile));
+        }
+
+        skipFully(offset - position);
+
+        byte[] bytes = new byte[tileLengths[tile]];
+        inputStream.readFully(bytes);
+        position = offset + bytes.length;
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (image == null) {
+            throw new IOException(String.format("unable to decode tile %s of the pyramid.",
+                    tile));
+        }
+        return image;
+    }
+
+    private void skipFully(long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() < 0) {
+                    throw new EOFException("the image pyramid stream ended before a tile.");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private int getColumnCount(int level) {
+        return tileCount(levelSizes[level][0], tileSize);
+    }
+
+    private int getRowCount(int level) {
+        return tileCount(levelSizes[level][1], tileSize);
+    }
+
+    private int validateLevel(int level) {
+        if (level < 0 || level >= levelSizes.length) {
+            throw new IllegalArgumentException(String.format(
+                    "argument 'level' must be between 0 and %s. Value was %s.",
+                    levelSizes.length - 1,
+                    level));
+        }
+        return level;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.pyramid;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TiledImagePyramidTest {
+
+    private static final int TILE_SIZE = 32;
+
+    private BufferedImage image;
+
+    @Before
+    public void setUp() {
+        image = new BufferedImage(100, 70, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 50, 70);
+        graphics.dispose();
+    }
+
+    @Test
+    public void testLevels() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            assertThat(pyramid.getTileSize(), is(TILE_SIZE));
+            assertThat(pyramid.getWidth(), is(100));
+            assertThat(pyramid.getHeight(), is(70));
+            assertThat(pyramid.getLevelCount(), is(3));
+            assertThat(pyramid.getLevelWidth(1), is(50));
+            assertThat(pyramid.getLevelHeight(1), is(35));
+            assertThat(pyramid.getLevelWidth(2), is(25));
+            assertThat(pyramid.getLevelHeight(2), is(18));
+        }
+    }
+
+    @Test
+    public void testReadRegion() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            BufferedImage region = pyramid.readRegion(0, new Rectangle(40, 20, 20, 40));
+            assertThat(region.getWidth(), is(20));
+            assertThat(region.getHeight(), is(40));
+            assertThat(isWhite(region.getRGB(2, 10)), is(true));
+            assertThat(isWhite(region.getRGB(17, 10)), is(false));
+        }
+    }
+
+    @Test
+    public void testReadRegionClipped() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            BufferedImage region = pyramid.readRegion(1, new Rectangle(-10, -10, 1000, 1000));
+            assertThat(region.getWidth(), is(50));
+            assertThat(region.getHeight(), is(35));
+        }
+    }
+
+    @Test
+    public void testReadRegionsInOrder() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            pyramid.readRegion(0, new Rectangle(0, 0, 10, 10));
+            BufferedImage region = pyramid.readRegion(2, new Rectangle(0, 0, 10, 10));
+            assertThat(region.getWidth(), is(10));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadRegionAlreadyPassed() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            pyramid.readRegion(2, new Rectangle(0, 0, 10, 10));
+            pyramid.readRegion(0, new Rectangle(0, 0, 10, 10));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadRegionOutside() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            pyramid.readRegion(0, new Rectangle(200, 200, 10, 10));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() throws IOException {
+        try (TiledImagePyramid pyramid = TiledImagePyramid.read(write(image))) {
+            pyramid.getLevelWidth(3);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAPyramid() throws IOException {
+        TiledImagePyramid.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHeaderBeforeTiles() throws IOException {
+        new ImagePyramidWriter(TILE_SIZE).writeHeader(new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void testHeaderLength() throws IOException {
+        ImagePyramidWriter pyramidWriter = new ImagePyramidWriter(TILE_SIZE);
+        pyramidWriter.writeTiles(image, new ByteArrayOutputStream());
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        pyramidWriter.writeHeader(header);
+        assertThat((long) header.size(), is(pyramidWriter.getHeaderLength()));
+    }
+
+    /**
+     * Test that a pyramid written row by row holds the same tiles as one written from the whole
+     * image.
+     */
+    @Test
+    public void testWriteRows() throws IOException {
+        ImagePyramidWriter pyramidWriter = new ImagePyramidWriter(TILE_SIZE);
+        ByteArrayOutputStream tiles = new ByteArrayOutputStream();
+        BufferedImage band = new BufferedImage(100, 7, BufferedImage.TYPE_3BYTE_BGR);
+
+        pyramidWriter.startTiles(100, 70, tiles);
+        for (int y = 0; y < 70; y += 7) {
+            band.getRaster()
+                    .setRect(0, -y, image.getRaster()
+                            .createChild(0, y, 100, 7, 0, y, null));
+            pyramidWriter.writeRows(band, 7);
+        }
+        pyramidWriter.finishTiles();
+
+        ByteArrayOutputStream pyramid = new ByteArrayOutputStream();
+        pyramidWriter.writeHeader(pyramid);
+        tiles.writeTo(pyramid);
+
+        for (int level = 0; level < 3; level++) {
+            try (TiledImagePyramid rowPyramid = TiledImagePyramid.read(new ByteArrayInputStream(
+                    pyramid.toByteArray()));
+                    TiledImagePyramid imagePyramid = TiledImagePyramid.read(write(image))) {
+                assertThat(rowPyramid.getLevelCount(), is(3));
+                Rectangle region = new Rectangle(rowPyramid.getLevelWidth(level),
+                        rowPyramid.getLevelHeight(level));
+                BufferedImage expected = imagePyramid.readRegion(level, region);
+                BufferedImage actual = rowPyramid.readRegion(level, region);
+                for (int y = 0; y < region.height; y++) {
+                    for (int x = 0; x < region.width; x++) {
+                        assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingRows() throws IOException {
+        ImagePyramidWriter pyramidWriter = new ImagePyramidWriter(TILE_SIZE);
+        pyramidWriter.startTiles(100, 70, new ByteArrayOutputStream());
+        pyramidWriter.writeRows(image, 69);
+        pyramidWriter.finishTiles();
+    }
+
+    @Test
+    public void testBufferedPixels() {
+        assertThat(new ImagePyramidWriter(TILE_SIZE).getBufferedPixels(100, 70),
+                is(100L * 32 + 50 * 32 + 25 * 18));
+    }
+
+    private boolean isWhite(int rgb) {
+        return (rgb & 0xff) > 200;
+    }
+
+    private InputStream write(BufferedImage image) throws IOException {
+        ImagePyramidWriter pyramidWriter = new ImagePyramidWriter(TILE_SIZE);
+        ByteArrayOutputStream tiles = new ByteArrayOutputStream();
+        pyramidWriter.writeTiles(image, tiles);
+        ByteArrayOutputStream pyramid = new ByteArrayOutputStream();
+        pyramidWriter.writeHeader(pyramid);
+        tiles.writeTo(pyramid);
+        return new ByteArrayInputStream(pyramid.toByteArray());
+    }
+}
@@ -14,6 +14,7 @@
 package org.codice.alliance.imaging.chip.service.api;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 
 import com.vividsolutions.jts.geom.Polygon;
 
@@ -51,4 +52,39 @@ public interface ChipService {
      * @throws ChipOutOfBoundsException when x &gt; image width, y &gt; image height, w &lt; 0 or h &lt; 0.
      */
     BufferedImage crop(BufferedImage inputImage, int x, int y, int w, int h) throws ChipOutOfBoundsException;
+
+    /**
+     * The same as {@link #chip(BufferedImage, Polygon, Polygon)}, but reads only the tiles of the
+     * pyramid that intersect the chip.
+     *
+     * @param pyramid           The tiled pyramid of the source image.
+     * @param inputImagePolygon A polygon representing the coordinates of the source image.
+     * @param chipPolygon       A polygon representing the coordinates of the region to be chipped.
+     * @return A BufferedImage containing the chipped region's pixels.
+     * @throws ChipOutOfBoundsException when the chip's envelope crosses the boundary of the
+     *                                  inputImagePolygon, or when the chip holds more pixels than
+     *                                  the service allows.
+     * @throws IOException              when the tiles can't be read from the pyramid.
+     */
+    BufferedImage chipPyramid(ImagePyramid pyramid, Polygon inputImagePolygon,
+            Polygon chipPolygon) throws ChipOutOfBoundsException, IOException;
+
+    /**
+     * The same as {@link #crop(BufferedImage, int, int, int, int)}, but reads only the tiles of
+     * the pyramid that intersect the crop area. The crop area is read from level 0 of the
+     * pyramid, at the full resolution of the image.
+     *
+     * @param pyramid The tiled pyramid of the image to be cropped.
+     * @param x       The x coordinate of the top left corner of the crop area.
+     * @param y       The y coordinate of the top left corner of the crop area.
+     * @param w       The width of the crop region.
+     * @param h       The height of the crop region.
+     * @return The portion of the image inside the crop area.
+     * @throws ChipOutOfBoundsException when x &gt; image width, y &gt; image height, w &lt; 0 or h &lt; 0,
+     *                                  or when the crop area holds more pixels than the service
+     *                                  allows.
+     * @throws IOException              when the tiles can't be read from the pyramid.
+     */
+    BufferedImage cropPyramid(ImagePyramid pyramid, int x, int y, int w, int h)
+            throws ChipOutOfBoundsException, IOException;
 }
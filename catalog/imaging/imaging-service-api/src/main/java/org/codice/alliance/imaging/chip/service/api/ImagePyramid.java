@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.service.api;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A tiled, multi-resolution image pyramid. Level 0 holds the image at its full resolution and
+ * every following level is half the width and height of the previous level. Reading a region
+ * only decodes the tiles that intersect it, so the cost of a read depends on the size of the
+ * region and not on the size of the image.
+ */
+public interface ImagePyramid extends Closeable {
+
+    /**
+     * @return the width of level 0, the most detailed level
+     */
+    int getWidth();
+
+    /**
+     * @return the height of level 0, the most detailed level
+     */
+    int getHeight();
+
+    /**
+     * @return the width and height of the tiles
+     */
+    int getTileSize();
+
+    int getLevelCount();
+
+    /**
+     * @param level the level, 0 is the most detailed level
+     * @return the width of the level
+     * @throws IllegalArgumentException when the pyramid does not have the level
+     */
+    int getLevelWidth(int level);
+
+    /**
+     * @param level the level, 0 is the most detailed level
+     * @return the height of the level
+     * @throws IllegalArgumentException when the pyramid does not have the level
+     */
+    int getLevelHeight(int level);
+
+    /**
+     * Read a region of one level of the pyramid. Only the tiles that intersect the region are
+     * read and decoded.
+     *
+     * @param level  the level to read from, 0 is the most detailed level
+     * @param region the region in the pixel coordinates of the level, may not be null. It is
+     *               clipped to the bounds of the level.
+     * @return the pixels inside the region
+     * @throws IOException when a tile can't be read or decoded
+     */
+    BufferedImage readRegion(int level, Rectangle region) throws IOException;
+}
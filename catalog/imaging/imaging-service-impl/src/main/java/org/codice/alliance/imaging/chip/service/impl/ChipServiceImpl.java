@@ -13,7 +13,9 @@
  */
 package org.codice.alliance.imaging.chip.service.impl;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -21,6 +23,7 @@ import java.util.stream.Stream;
 
 import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
 import org.codice.alliance.imaging.chip.service.api.ChipService;
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
 import org.la4j.Vector;
 import org.la4j.vector.dense.BasicVector;
 
@@ -31,6 +34,30 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 public class ChipServiceImpl implements ChipService {
 
+    /**
+     * The default limit on the number of pixels read from a pyramid for one chip.
+     */
+    public static final long DEFAULT_MAX_CHIP_PIXELS = 16L * 1024 * 1024;
+
+    private long maxChipPixels = DEFAULT_MAX_CHIP_PIXELS;
+
+    /**
+     * @param maxChipPixels the maximum number of pixels read from a pyramid for one chip. Larger
+     *                      chips are rejected. Must be greater than 0.
+     */
+    public void setMaxChipPixels(long maxChipPixels) {
+        if (maxChipPixels <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "argument 'maxChipPixels' must be greater than 0. Value was %s.",
+                    maxChipPixels));
+        }
+        this.maxChipPixels = maxChipPixels;
+    }
+
+    public long getMaxChipPixels() {
+        return maxChipPixels;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -39,13 +66,41 @@ public class ChipServiceImpl implements ChipService {
             Polygon chipPolygon) throws ChipOutOfBoundsException {
 
         validateNotNull(inputImage, "inputImage");
+
+        Rectangle chipArea = toPixelArea(inputImage.getWidth(),
+                inputImage.getHeight(),
+                inputImagePolygon,
+                chipPolygon);
+
+        return crop(inputImage, chipArea.x, chipArea.y, chipArea.width, chipArea.height);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BufferedImage chipPyramid(ImagePyramid pyramid, Polygon inputImagePolygon,
+            Polygon chipPolygon) throws ChipOutOfBoundsException, IOException {
+
+        validateNotNull(pyramid, "pyramid");
+
+        Rectangle chipArea = toPixelArea(pyramid.getWidth(),
+                pyramid.getHeight(),
+                inputImagePolygon,
+                chipPolygon);
+
+        return cropPyramid(pyramid, chipArea.x, chipArea.y, chipArea.width, chipArea.height);
+    }
+
+    private Rectangle toPixelArea(int width, int height, Polygon inputImagePolygon,
+            Polygon chipPolygon) {
         validateNotNull(inputImagePolygon, "inputImagePolygon");
         validateNotNull(chipPolygon, "chipPolygon");
 
         List<Vector> imageVectors = createVectorListFromPolygon(inputImagePolygon);
         List<Vector> chipVectors = createVectorListFromPolygon(chipPolygon);
 
-        CoordinateConverter converter = new CoordinateConverter(inputImage, imageVectors);
+        CoordinateConverter converter = new CoordinateConverter(width, height, imageVectors);
         List<Vector> pixels = converter.toPixels(chipVectors);
 
         int maxX = findMax(pixels, v -> v.get(0));
@@ -53,7 +108,7 @@ public class ChipServiceImpl implements ChipService {
         int minX = findMin(pixels, v -> v.get(0));
         int minY = findMin(pixels, v -> v.get(1));
 
-        return crop(inputImage, minX, minY, maxX - minX, maxY - minY);
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
     }
 
     private int findMin(List<Vector> vectors, Function<Vector, Double> selector) {
@@ -78,6 +133,34 @@ public class ChipServiceImpl implements ChipService {
             throws ChipOutOfBoundsException {
         validateNotNull(inputImage, "inputImage");
 
+        Rectangle cropArea = clip(inputImage.getWidth(), inputImage.getHeight(), x, y, w, h);
+
+        return inputImage.getSubimage(cropArea.x, cropArea.y, cropArea.width, cropArea.height);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BufferedImage cropPyramid(ImagePyramid pyramid, int x, int y, int w, int h)
+            throws ChipOutOfBoundsException, IOException {
+        validateNotNull(pyramid, "pyramid");
+
+        Rectangle cropArea = clip(pyramid.getWidth(), pyramid.getHeight(), x, y, w, h);
+
+        if ((long) cropArea.width * cropArea.height > maxChipPixels) {
+            throw new ChipOutOfBoundsException(String.format(
+                    "the crop area of %s x %s pixels holds more than the maximum of %s pixels.",
+                    cropArea.width,
+                    cropArea.height,
+                    maxChipPixels));
+        }
+
+        return pyramid.readRegion(0, cropArea);
+    }
+
+    private Rectangle clip(int width, int height, int x, int y, int w, int h)
+            throws ChipOutOfBoundsException {
         if (w < 0 || h < 0) {
             throw new ChipOutOfBoundsException(String.format(
                     "method arguments 'w', 'h' may not be less than 0. Values were %s and %s.",
@@ -85,11 +168,11 @@ public class ChipServiceImpl implements ChipService {
                     h));
         }
 
-        if (x > inputImage.getWidth() || y > inputImage.getHeight()) {
+        if (x > width || y > height) {
             throw new ChipOutOfBoundsException(String.format(
                     "method arguments 'x' and 'y' may not be greater than the width and height of the supplied image."
                     + "\n   image width = %s, x = %s\n   image height = %s, y = %s",
-                    inputImage.getWidth(), x, inputImage.getHeight(), y));
+                    width, x, height, y));
         }
 
         if (x < 0) {
@@ -100,15 +183,15 @@ public class ChipServiceImpl implements ChipService {
             y = 0;
         }
 
-        if (x + w > inputImage.getWidth()) {
-            w = inputImage.getWidth() - x;
+        if (x + w > width) {
+            w = width - x;
         }
 
-        if (y + h > inputImage.getHeight()) {
-            h = inputImage.getHeight() - y;
+        if (y + h > height) {
+            h = height - y;
         }
 
-        return inputImage.getSubimage(x, y, w, h);
+        return new Rectangle(x, y, w, h);
     }
 
     private List<Vector> createVectorListFromPolygon(Polygon polygon) {
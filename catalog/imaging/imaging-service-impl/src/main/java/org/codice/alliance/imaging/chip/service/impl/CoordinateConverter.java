@@ -39,11 +39,20 @@ class CoordinateConverter {
      * @param boundary a List of vectors that represent the Lat/Lon of the image.
      */
     public CoordinateConverter(BufferedImage image, List<Vector> boundary) {
-        calculateBasis(boundary, image);
+        this(image.getWidth(), image.getHeight(), boundary);
+    }
+
+    /**
+     * @param width    the width of the image in pixels.
+     * @param height   the height of the image in pixels.
+     * @param boundary a List of vectors that represent the Lat/Lon of the image.
+     */
+    public CoordinateConverter(int width, int height, List<Vector> boundary) {
+        calculateBasis(boundary, width, height);
         this.boundary = boundary;
     }
 
-    private void calculateBasis(List<Vector> boundary, BufferedImage image) {
+    private void calculateBasis(List<Vector> boundary, int width, int height) {
 
         // Move to origin
         Vector xAxis = boundary.get(1)
@@ -53,8 +62,8 @@ class CoordinateConverter {
 
         // The xAxis is the width of the image and the yAxis is the height
         // We want our vectors to be 1 pixel in length
-        Vector xBasis = xAxis.multiply(1.0 / image.getWidth());
-        Vector yBasis = yAxis.multiply(1.0 / image.getHeight());
+        Vector xBasis = xAxis.multiply(1.0 / width);
+        Vector yBasis = yAxis.multiply(1.0 / height);
 
         basis = new Basic2DMatrix(2, 2);
         basis.setColumn(0, xBasis);
@@ -18,6 +18,8 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -26,6 +28,9 @@ import javax.imageio.ImageIO;
 
 import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
 import org.codice.alliance.imaging.chip.service.api.ChipService;
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
+import org.codice.alliance.imaging.pyramid.ImagePyramidWriter;
+import org.codice.alliance.imaging.pyramid.TiledImagePyramid;
 import org.junit.Before;
 import org.junit.Test;
 import org.la4j.Vector;
@@ -100,6 +105,79 @@ public class ChipServiceImplTest {
         assertThat(result.getHeight(), is(102));
     }
 
+    @Test
+    public void testCropPyramid() throws ChipOutOfBoundsException, IOException {
+        try (ImagePyramid pyramid = createPyramid(64)) {
+            BufferedImage result = chipService.cropPyramid(pyramid, 70, 30, 100, 50);
+            assertThat(result.getWidth(), is(100));
+            assertThat(result.getHeight(), is(50));
+        }
+    }
+
+    @Test
+    public void testCropPyramidExtremeWidthHeight() throws ChipOutOfBoundsException, IOException {
+        try (ImagePyramid pyramid = createPyramid(64)) {
+            BufferedImage result = chipService.cropPyramid(pyramid, -100, -100, 10_000, 10_000);
+            assertThat(result.getWidth(), is(inputImage.getWidth()));
+            assertThat(result.getHeight(), is(inputImage.getHeight()));
+        }
+    }
+
+    @Test
+    public void testCropPyramidMaxChipPixels() throws ChipOutOfBoundsException, IOException {
+        ChipServiceImpl chipServiceImpl = new ChipServiceImpl();
+        chipServiceImpl.setMaxChipPixels(100 * 100);
+        try (ImagePyramid pyramid = createPyramid(64)) {
+            BufferedImage result = chipServiceImpl.cropPyramid(pyramid, 0, 0, 100, 100);
+            assertThat(result.getWidth(), is(100));
+            assertThat(result.getHeight(), is(100));
+        }
+    }
+
+    @Test(expected = ChipOutOfBoundsException.class)
+    public void testCropPyramidTooLarge() throws ChipOutOfBoundsException, IOException {
+        ChipServiceImpl chipServiceImpl = new ChipServiceImpl();
+        chipServiceImpl.setMaxChipPixels(100 * 100 / 4);
+        try (ImagePyramid pyramid = createPyramid(64)) {
+            chipServiceImpl.cropPyramid(pyramid, 0, 0, 100, 100);
+        }
+    }
+
+    @Test(expected = ChipOutOfBoundsException.class)
+    public void testCropPyramidInvalidX() throws ChipOutOfBoundsException, IOException {
+        try (ImagePyramid pyramid = createPyramid(64)) {
+            chipService.cropPyramid(pyramid, 10_000, 10, 100, 100);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxChipPixelsInvalid() {
+        new ChipServiceImpl().setMaxChipPixels(0);
+    }
+
+    @Test
+    public void testChipPyramid() throws ChipOutOfBoundsException, ParseException, IOException {
+        Boundary mainImage = new Boundary(52.0, 15.0, 100, Math.toRadians(30));
+        Boundary chip = new Boundary(52.0, 15.0, 10, Math.toRadians(30));
+        Polygon mainPolygon = createPolygon(mainImage.getBoundary());
+        Polygon chipPolygon = createPolygon(chip.getBoundary());
+        try (ImagePyramid pyramid = createPyramid(64)) {
+            BufferedImage result = chipService.chipPyramid(pyramid, mainPolygon, chipPolygon);
+            assertThat(result.getWidth(), is(102));
+            assertThat(result.getHeight(), is(102));
+        }
+    }
+
+    private ImagePyramid createPyramid(int tileSize) throws IOException {
+        ImagePyramidWriter pyramidWriter = new ImagePyramidWriter(tileSize);
+        ByteArrayOutputStream tiles = new ByteArrayOutputStream();
+        pyramidWriter.writeTiles(inputImage, tiles);
+        ByteArrayOutputStream pyramid = new ByteArrayOutputStream();
+        pyramidWriter.writeHeader(pyramid);
+        tiles.writeTo(pyramid);
+        return TiledImagePyramid.read(new ByteArrayInputStream(pyramid.toByteArray()));
+    }
+
     private Polygon createPolygon(List<Vector> vectors) throws ParseException {
         StringBuilder stringBuilder = new StringBuilder("POLYGON ((");
 
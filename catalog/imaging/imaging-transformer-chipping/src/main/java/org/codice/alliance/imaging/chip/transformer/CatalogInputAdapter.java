@@ -65,6 +65,35 @@ public class CatalogInputAdapter {
                 Metacard.DERIVED_RESOURCE_URI));
     }
 
+    /**
+     * @param metacard  the Metacard to check. May not be null.
+     * @param qualifier the qualifier of the derived resource. May not be null.
+     * @return true if the metacard has exactly one derived resource URI with the qualifier.
+     */
+    public boolean hasDerivedResource(Metacard metacard, String qualifier) {
+
+        if (metacard == null) {
+            throw new IllegalArgumentException("method argument 'metacard' may not be null.");
+        }
+
+        if (qualifier == null) {
+            throw new IllegalArgumentException("method argument 'qualifier' may not be null.");
+        }
+
+        Attribute attribute = metacard.getAttribute(Metacard.DERIVED_RESOURCE_URI);
+
+        if (attribute == null || attribute.getValues() == null) {
+            return false;
+        }
+
+        return attribute.getValues()
+                .stream()
+                .map(String::valueOf)
+                .map(URI::create)
+                .filter(uri -> qualifier.equals(uri.getFragment()))
+                .count() == 1;
+    }
+
     private URI findDerivedResourceUri(List<Serializable> values, String qualifier) {
         List<URI> qualifiedUri = values.stream()
                 .map(String::valueOf)
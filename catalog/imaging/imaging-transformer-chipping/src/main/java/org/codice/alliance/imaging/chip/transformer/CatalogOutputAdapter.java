@@ -13,18 +13,28 @@
  */
 package org.codice.alliance.imaging.chip.transformer;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Iterator;
 
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import javax.imageio.ImageIO;
-import javax.imageio.stream.ImageOutputStream;
-import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
+import org.codice.alliance.imaging.pyramid.TiledImagePyramid;
+
+import com.google.common.io.CountingOutputStream;
+import com.google.common.io.FileBackedOutputStream;
 
 import ddf.catalog.data.BinaryContent;
 import ddf.catalog.data.impl.BinaryContentImpl;
@@ -42,6 +52,36 @@ public class CatalogOutputAdapter {
 
     private static final String JPG = "jpg";
 
+    /**
+     * Encoded chips larger than this are written to a temporary file.
+     */
+    private static final int ENCODED_IMAGE_MEMORY_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The default limit on the number of pixels decoded for one region.
+     */
+    public static final long DEFAULT_MAX_REGION_PIXELS = 16L * 1024 * 1024;
+
+    private long maxRegionPixels = DEFAULT_MAX_REGION_PIXELS;
+
+    /**
+     * @param maxRegionPixels the maximum number of pixels decoded by
+     *                        {@link #getImageRegion(ImageReader, int, int, int, int)}. Larger
+     *                        regions are subsampled while they are decoded. Must be greater than 0.
+     */
+    public void setMaxRegionPixels(long maxRegionPixels) {
+        if (maxRegionPixels <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "argument 'maxRegionPixels' must be greater than 0. Value was %s.",
+                    maxRegionPixels));
+        }
+        this.maxRegionPixels = maxRegionPixels;
+    }
+
+    public long getMaxRegionPixels() {
+        return maxRegionPixels;
+    }
+
     /**
      * @param resourceResponse a ResourceResponse object returned by CatalogFramework.
      * @return the requested BufferedImage.
@@ -60,20 +100,193 @@ public class CatalogOutputAdapter {
         return image;
     }
 
+    /**
+     * @param resourceResponse a ResourceResponse object returned by CatalogFramework.
+     * @return an ImageReader for the image. Only the image header is read when the width or
+     * height is requested, the pixels are decoded by
+     * {@link #getImageRegion(ImageReader, int, int, int, int)}. The reader should be released
+     * with {@link #dispose(ImageReader)} when it is no longer needed.
+     * @throws IOException when there's no reader for the image format or the stream can't be
+     *                     opened.
+     */
+    public ImageReader getImageReader(ResourceResponse resourceResponse) throws IOException {
+        validateArgument(resourceResponse, "resourceResponse");
+        validateArgument(resourceResponse.getResource(), "resourceResponse.resource");
+        validateObjectState(resourceResponse.getResource()
+                .getInputStream(), "resourceResponse.resource.inputStream");
+
+        InputStream inputStream = resourceResponse.getResource()
+                .getInputStream();
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream);
+
+        if (imageInputStream == null) {
+            inputStream.close();
+            throw new IOException("unable to create an image input stream for the resource.");
+        }
+
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+
+        if (!readers.hasNext()) {
+            imageInputStream.close();
+            throw new IOException("no image reader is available for the resource.");
+        }
+
+        ImageReader imageReader = readers.next();
+        imageReader.setInput(imageInputStream, true, true);
+        return imageReader;
+    }
+
+    /**
+     * Decode only the pixels inside a region of the image. The region is clipped to the image in
+     * the same way as
+     * {@link org.codice.alliance.imaging.chip.service.api.ChipService#crop(BufferedImage, int, int, int, int)}.
+     * A region that holds more than {@link #getMaxRegionPixels()} pixels is subsampled while it
+     * is decoded, so the returned image may be smaller than the region.
+     *
+     * @param imageReader the reader returned by {@link #getImageReader(ResourceResponse)}.
+     * @param x           The x coordinate of the top left corner of the region.
+     * @param y           The y coordinate of the top left corner of the region.
+     * @param w           The width of the region.
+     * @param h           The height of the region.
+     * @return the pixels inside the region.
+     * @throws IOException              when the image can't be decoded.
+     * @throws ChipOutOfBoundsException when x &gt; image width, y &gt; image height, w &lt; 0 or
+     *                                  h &lt; 0.
+     */
+    public BufferedImage getImageRegion(ImageReader imageReader, int x, int y, int w, int h)
+            throws IOException, ChipOutOfBoundsException {
+        validateArgument(imageReader, "imageReader");
+
+        int width = imageReader.getWidth(0);
+        int height = imageReader.getHeight(0);
+
+        if (w < 0 || h < 0) {
+            throw new ChipOutOfBoundsException(String.format(
+                    "method arguments 'w', 'h' may not be less than 0. Values were %s and %s.",
+                    w,
+                    h));
+        }
+
+        if (x > width || y > height) {
+            throw new ChipOutOfBoundsException(String.format(
+                    "method arguments 'x' and 'y' may not be greater than the width and height of the supplied image."
+                            + "\n   image width = %s, x = %s\n   image height = %s, y = %s",
+                    width, x, height, y));
+        }
+
+        Rectangle region = new Rectangle(x, y, w, h).intersection(new Rectangle(width, height));
+
+        if (region.isEmpty()) {
+            throw new ChipOutOfBoundsException(String.format(
+                    "the region x = %s, y = %s, w = %s, h = %s does not intersect the image.",
+                    x, y, w, h));
+        }
+
+        ImageReadParam imageReadParam = imageReader.getDefaultReadParam();
+        imageReadParam.setSourceRegion(region);
+
+        int subsampling = calculateSubsampling(region.width, region.height, maxRegionPixels);
+        if (subsampling > 1) {
+            imageReadParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        }
+
+        return imageReader.read(0, imageReadParam);
+    }
+
+    /**
+     * @return the smallest subsampling factor that keeps the decoded region within the limit.
+     */
+    static int calculateSubsampling(int width, int height, long maxPixels) {
+        double pixels = (double) width * height;
+        if (pixels <= maxPixels) {
+            return 1;
+        }
+        return (int) Math.ceil(Math.sqrt(pixels / maxPixels));
+    }
+
+    /**
+     * @param imageReader the reader to be released and its stream closed. Nothing is done if it is
+     *                    null.
+     * @throws IOException when the stream can't be closed.
+     */
+    public void dispose(ImageReader imageReader) throws IOException {
+        if (imageReader == null) {
+            return;
+        }
+
+        Object input = imageReader.getInput();
+        imageReader.dispose();
+
+        if (input instanceof ImageInputStream) {
+            ((ImageInputStream) input).close();
+        }
+    }
+
+    /**
+     * @param resourceResponse a ResourceResponse object returned by CatalogFramework that holds
+     *                         a tiled image pyramid.
+     * @return the pyramid. Only the header has been read, the tiles are read on demand. The
+     * pyramid should be closed with {@link #close(Closeable)} when it is no longer needed.
+     * @throws IOException when there's a problem reading the pyramid header from the
+     *                     ResourceResponse InputStream.
+     */
+    public ImagePyramid getImagePyramid(ResourceResponse resourceResponse) throws IOException {
+        validateArgument(resourceResponse, "resourceResponse");
+        validateArgument(resourceResponse.getResource(), "resourceResponse.resource");
+        validateObjectState(resourceResponse.getResource()
+                .getInputStream(), "resourceResponse.resource.inputStream");
+
+        InputStream inputStream = resourceResponse.getResource()
+                .getInputStream();
+        return TiledImagePyramid.read(new BufferedInputStream(inputStream));
+    }
+
+    /**
+     * @param resourceResponse a ResourceResponse object returned by CatalogFramework whose
+     *                         resource stream is to be closed. Nothing is done if the response,
+     *                         its resource or its stream is null.
+     * @throws IOException when the stream can't be closed.
+     */
+    public void closeResource(ResourceResponse resourceResponse) throws IOException {
+        if (resourceResponse != null && resourceResponse.getResource() != null) {
+            close(resourceResponse.getResource()
+                    .getInputStream());
+        }
+    }
+
+    /**
+     * @param closeable the object to be closed. Nothing is done if it is null.
+     * @throws IOException when the object can't be closed.
+     */
+    public void close(Closeable closeable) throws IOException {
+        if (closeable != null) {
+            closeable.close();
+        }
+    }
+
     /**
      * @param image the BufferedImage to be converted.
-     * @return a BinaryContent object containing the image data.
-     * @throws IOException            when the BufferedImage can't be written to temporary in-memory space.
+     * @return a BinaryContent object containing the image data. The image is encoded once, to a
+     * stream that spills to a temporary file, and the content reads that stream without copying
+     * it into another buffer.
+     * @throws IOException            when the BufferedImage can't be encoded.
      * @throws MimeTypeParseException
      */
     public BinaryContent getBinaryContent(BufferedImage image)
             throws IOException, MimeTypeParseException {
         validateArgument(image, "image");
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
-        ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(os);
-        ImageIO.write(image, JPG, imageOutputStream);
-        InputStream fis = new ByteArrayInputStream(os.toByteArray());
-        BinaryContent binaryContent = new BinaryContentImpl(fis, new MimeType(IMAGE_JPG));
+        FileBackedOutputStream fileBackedOutputStream = new FileBackedOutputStream(
+                ENCODED_IMAGE_MEMORY_THRESHOLD,
+                true);
+        long size;
+        try (CountingOutputStream outputStream = new CountingOutputStream(
+                fileBackedOutputStream)) {
+            ImageIO.write(image, JPG, outputStream);
+            size = outputStream.getCount();
+        }
+        BinaryContentImpl binaryContent = new BinaryContentImpl(new ResettingInputStream(
+                fileBackedOutputStream), new MimeType(IMAGE_JPG));
+        binaryContent.setSize(size);
         return binaryContent;
     }
 
@@ -99,4 +312,60 @@ public class CatalogOutputAdapter {
     public void wrapException(Exception exception) throws CatalogTransformerException {
         throw new CatalogTransformerException(exception);
     }
+
+    /**
+     * Reads the encoded chip and deletes its temporary file once the chip has been read to the end
+     * or the stream is closed, whichever comes first. Reads after that return the end of the
+     * stream.
+     */
+    private static final class ResettingInputStream extends FilterInputStream {
+
+        private final FileBackedOutputStream fileBackedOutputStream;
+
+        private boolean reset;
+
+        private ResettingInputStream(FileBackedOutputStream fileBackedOutputStream)
+                throws IOException {
+            super(fileBackedOutputStream.asByteSource()
+                    .openStream());
+            this.fileBackedOutputStream = fileBackedOutputStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (reset) {
+                return -1;
+            }
+            int b = super.read();
+            if (b < 0) {
+                close();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (reset) {
+                return -1;
+            }
+            int count = super.read(bytes, offset, length);
+            if (count < 0) {
+                close();
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (reset) {
+                return;
+            }
+            reset = true;
+            try {
+                super.close();
+            } finally {
+                fileBackedOutputStream.reset();
+            }
+        }
+    }
 }
@@ -0,0 +1,563 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.io.ByteStreams;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.BinaryContent;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.BinaryContentImpl;
+import ddf.catalog.data.types.Core;
+
+/**
+ * A bounded cache of encoded chips and of the decoded source images that chips are scaled from.
+ * Chips are kept in memory and, when a disk directory is configured, chips evicted from memory
+ * move to a disk tier that is bounded as well. A chip larger than a quarter of the memory bound is
+ * not cached, so a single large chip is never read into the heap. Entries are keyed by the
+ * metacard id and modified time, so a chip of an updated metacard is never served from the cache,
+ * and {@link #invalidate(String)} drops the entries of a metacard as soon as it is updated or
+ * deleted.
+ * <p>
+ * The keys do not identify the subject, so the cache does not decide who may read a chip. The
+ * chipping route reads the overview through the catalog framework, which runs the resource access
+ * and policy plugins, before it looks up a cached chip.
+ * <p>
+ * Hit, miss and eviction counts are logged at debug level and are available from the getters.
+ */
+public class ChipCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChipCache.class);
+
+    public static final long DEFAULT_MAX_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_SOURCE_IMAGE_BYTES = 64L * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_DISK_BYTES = 1024L * 1024 * 1024;
+
+    private static final String JPG = "jpg";
+
+    private static final String IMAGE_JPG = "image/jpg";
+
+    private static final String CHIP_FILE_SUFFIX = ".chip";
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * A chip may take at most this fraction of the memory bound.
+     */
+    private static final int MAX_CHIP_FRACTION = 4;
+
+    private long maxMemoryBytes = DEFAULT_MAX_MEMORY_BYTES;
+
+    private long maxSourceImageBytes = DEFAULT_MAX_SOURCE_IMAGE_BYTES;
+
+    private long maxDiskBytes = DEFAULT_MAX_DISK_BYTES;
+
+    private File diskDirectory;
+
+    private Cache<ChipCacheKey, byte[]> chips;
+
+    private Cache<ChipCacheKey, BufferedImage> sourceImages;
+
+    /**
+     * The disk tier in least recently used order. Guarded by itself.
+     */
+    private final LinkedHashMap<ChipCacheKey, File> diskEntries = new LinkedHashMap<>(16,
+            0.75f,
+            true);
+
+    private long diskBytes = 0;
+
+    private final AtomicLong diskHitCount = new AtomicLong();
+
+    private final AtomicLong diskEvictionCount = new AtomicLong();
+
+    public ChipCache() {
+        init();
+    }
+
+    /**
+     * Build the cache from the current settings. Entries cached before this call are dropped.
+     */
+    public void init() {
+        destroy();
+
+        // a single segment, so the byte bound applies to the whole cache and not to each segment
+        chips = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxMemoryBytes)
+                .weigher((ChipCacheKey key, byte[] value) -> value.length)
+                .removalListener(this::onChipRemoval)
+                .recordStats()
+                .build();
+
+        sourceImages = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxSourceImageBytes)
+                .weigher((ChipCacheKey key, BufferedImage value) -> weigh(value))
+                .recordStats()
+                .build();
+
+        LOGGER.debug("created chip cache: {}", this);
+    }
+
+    /**
+     * Drop every entry and delete the files of the disk tier.
+     */
+    public void destroy() {
+        if (chips != null) {
+            chips.invalidateAll();
+        }
+        if (sourceImages != null) {
+            sourceImages.invalidateAll();
+        }
+        synchronized (diskEntries) {
+            diskEntries.values()
+                    .forEach(this::deleteFile);
+            diskEntries.clear();
+            diskBytes = 0;
+        }
+    }
+
+    /**
+     * @param metacard the metacard being chipped, may not be null
+     * @param args     the chip arguments (x, y, w, h) as taken from the overview image
+     * @return the key of the chip, or null if the arguments do not describe a chip
+     */
+    public ChipCacheKey createChipKey(Metacard metacard, Map<String, Serializable> args) {
+        validateNotNull(metacard, "metacard");
+
+        if (args == null) {
+            return null;
+        }
+
+        try {
+            String region = String.format("%d,%d,%d,%d",
+                    parseArg(args, "x"),
+                    parseArg(args, "y"),
+                    parseArg(args, "w"),
+                    parseArg(args, "h"));
+            return new ChipCacheKey(metacard.getId(), getModified(metacard), region, JPG);
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("unable to create a chip cache key: args={}", args, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param metacard  the metacard of the source image, may not be null
+     * @param qualifier the qualifier of the derived resource that holds the source image
+     * @return the key of the decoded source image
+     */
+    public ChipCacheKey createSourceKey(Metacard metacard, String qualifier) {
+        validateNotNull(metacard, "metacard");
+        return new ChipCacheKey(metacard.getId(), getModified(metacard), qualifier, null);
+    }
+
+    /**
+     * @param key the key of the chip, may be null
+     * @return the cached chip, or null if the chip is not cached
+     */
+    public BinaryContent getChip(ChipCacheKey key) throws MimeTypeParseException {
+        if (key == null) {
+            return null;
+        }
+
+        byte[] bytes = chips.getIfPresent(key);
+
+        if (bytes == null) {
+            bytes = readFromDisk(key);
+            if (bytes != null) {
+                diskHitCount.incrementAndGet();
+                chips.put(key, bytes);
+            }
+        }
+
+        logStats();
+
+        return bytes == null ? null : toBinaryContent(bytes);
+    }
+
+    /**
+     * Cache an encoded chip. A chip that is larger than the entry bound is not cached and stays
+     * streamed. When the size of the content is not known, the content is read only up to the
+     * entry bound, so the returned content must be used in place of the supplied one.
+     *
+     * @param key     the key of the chip, nothing is cached if it is null
+     * @param content the encoded chip, may not be null
+     * @return the chip content
+     */
+    public BinaryContent putChip(ChipCacheKey key, BinaryContent content)
+            throws IOException, MimeTypeParseException {
+        validateNotNull(content, "content");
+
+        if (key == null) {
+            return content;
+        }
+
+        long maxChipBytes = getMaxChipBytes();
+        if (content.getSize() > maxChipBytes) {
+            LOGGER.debug("not caching a chip larger than {} bytes: size={} key={}",
+                    maxChipBytes,
+                    content.getSize(),
+                    key);
+            return content;
+        }
+
+        InputStream inputStream = content.getInputStream();
+        byte[] bytes = ByteStreams.toByteArray(ByteStreams.limit(inputStream, maxChipBytes + 1));
+
+        if (bytes.length > maxChipBytes) {
+            LOGGER.debug("not caching a chip larger than {} bytes: key={}", maxChipBytes, key);
+            BinaryContentImpl binaryContent = new BinaryContentImpl(new SequenceInputStream(
+                    new ByteArrayInputStream(bytes),
+                    inputStream), content.getMimeType());
+            binaryContent.setSize(content.getSize());
+            return binaryContent;
+        }
+
+        chips.put(key, bytes);
+        return toBinaryContent(bytes);
+    }
+
+    /**
+     * @return the size of the largest chip that is cached
+     */
+    private long getMaxChipBytes() {
+        return Math.min(Integer.MAX_VALUE - 8, maxMemoryBytes / MAX_CHIP_FRACTION);
+    }
+
+    /**
+     * @param key the key of the source image, may be null
+     * @return the cached source image, or null if it is not cached
+     */
+    public BufferedImage getSourceImage(ChipCacheKey key) {
+        if (key == null) {
+            return null;
+        }
+        return sourceImages.getIfPresent(key);
+    }
+
+    /**
+     * @param key   the key of the source image, nothing is cached if it is null
+     * @param image the decoded source image, may not be null. It must not be modified after it is
+     *              cached.
+     * @return the image
+     */
+    public BufferedImage putSourceImage(ChipCacheKey key, BufferedImage image) {
+        validateNotNull(image, "image");
+
+        if (key != null) {
+            sourceImages.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Drop every entry of a metacard.
+     *
+     * @param metacardId the id of the metacard, may not be null
+     */
+    public void invalidate(String metacardId) {
+        validateNotNull(metacardId, "metacardId");
+
+        chips.asMap()
+                .keySet()
+                .removeIf(key -> metacardId.equals(key.getMetacardId()));
+        sourceImages.asMap()
+                .keySet()
+                .removeIf(key -> metacardId.equals(key.getMetacardId()));
+
+        synchronized (diskEntries) {
+            Iterator<Map.Entry<ChipCacheKey, File>> iterator = diskEntries.entrySet()
+                    .iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<ChipCacheKey, File> entry = iterator.next();
+                if (metacardId.equals(entry.getKey()
+                        .getMetacardId())) {
+                    diskBytes -= entry.getValue()
+                            .length();
+                    deleteFile(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        }
+
+        LOGGER.debug("invalidated chip cache entries: metacardId={}", metacardId);
+    }
+
+    private void onChipRemoval(RemovalNotification<ChipCacheKey, byte[]> notification) {
+        if (notification.wasEvicted() && diskDirectory != null) {
+            writeToDisk(notification.getKey(), notification.getValue());
+        }
+    }
+
+    private void writeToDisk(ChipCacheKey key, byte[] bytes) {
+        if (key == null || bytes == null || bytes.length > maxDiskBytes) {
+            return;
+        }
+
+        File file = new File(diskDirectory, UUID.randomUUID() + CHIP_FILE_SUFFIX);
+
+        try {
+            Files.write(file.toPath(), bytes);
+        } catch (IOException e) {
+            LOGGER.debug("unable to write a chip to the disk cache: file={}", file, e);
+            return;
+        }
+
+        synchronized (diskEntries) {
+            File previous = diskEntries.put(key, file);
+            if (previous != null) {
+                diskBytes -= previous.length();
+                deleteFile(previous);
+            }
+            diskBytes += bytes.length;
+
+            Iterator<File> iterator = diskEntries.values()
+                    .iterator();
+            while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+                File eldest = iterator.next();
+                diskBytes -= eldest.length();
+                deleteFile(eldest);
+                iterator.remove();
+                diskEvictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    private byte[] readFromDisk(ChipCacheKey key) {
+        File file;
+        synchronized (diskEntries) {
+            file = diskEntries.remove(key);
+            if (file == null) {
+                return null;
+            }
+            diskBytes -= file.length();
+        }
+
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+            LOGGER.debug("unable to read a chip from the disk cache: file={}", file, e);
+            return null;
+        } finally {
+            deleteFile(file);
+        }
+    }
+
+    private void deleteFile(File file) {
+        if (!file.delete() && file.exists()) {
+            LOGGER.debug("unable to delete a chip cache file: {}", file);
+        }
+    }
+
+    private void logStats() {
+        if (LOGGER.isDebugEnabled()) {
+            CacheStats stats = chips.stats();
+            LOGGER.debug("chip cache: hits={} misses={} diskHits={} evictions={} diskEvictions={}",
+                    stats.hitCount(),
+                    stats.missCount(),
+                    diskHitCount.get(),
+                    stats.evictionCount(),
+                    diskEvictionCount.get());
+        }
+    }
+
+    private BinaryContent toBinaryContent(byte[] bytes) throws MimeTypeParseException {
+        BinaryContentImpl binaryContent = new BinaryContentImpl(new ByteArrayInputStream(bytes),
+                new MimeType(IMAGE_JPG));
+        binaryContent.setSize(bytes.length);
+        return binaryContent;
+    }
+
+    private static int weigh(BufferedImage image) {
+        return (int) Math.min(Integer.MAX_VALUE,
+                (long) image.getWidth() * image.getHeight() * BYTES_PER_PIXEL);
+    }
+
+    private static long getModified(Metacard metacard) {
+        long modified = toTime(metacard.getModifiedDate());
+        Attribute attribute = metacard.getAttribute(Core.METACARD_MODIFIED);
+        if (attribute != null && attribute.getValue() instanceof Date) {
+            modified = Math.max(modified, toTime((Date) attribute.getValue()));
+        }
+        return modified;
+    }
+
+    private static long toTime(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+    private static int parseArg(Map<String, Serializable> args, String key) {
+        Serializable value = args.get(key);
+
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("argument '%s' may not be null.", key));
+        }
+
+        return Integer.valueOf(value.toString());
+    }
+
+    private void validateNotNull(Object value, String argumentName) {
+        if (value == null) {
+            throw new IllegalArgumentException(String.format("argument '%s' may not be null.",
+                    argumentName));
+        }
+    }
+
+    public long getHitCount() {
+        return chips.stats()
+                .hitCount() + diskHitCount.get();
+    }
+
+    public long getMissCount() {
+        return chips.stats()
+                .missCount() - diskHitCount.get();
+    }
+
+    public long getEvictionCount() {
+        return chips.stats()
+                .evictionCount();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public long getDiskEvictionCount() {
+        return diskEvictionCount.get();
+    }
+
+    public long getSourceImageHitCount() {
+        return sourceImages.stats()
+                .hitCount();
+    }
+
+    public long getSourceImageMissCount() {
+        return sourceImages.stats()
+                .missCount();
+    }
+
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+
+    /**
+     * @param maxMemoryBytes the maximum number of bytes of encoded chips kept in memory, must not
+     *                       be negative. A chip larger than a quarter of it is not cached. Takes
+     *                       effect when {@link #init()} is called.
+     */
+    public void setMaxMemoryBytes(long maxMemoryBytes) {
+        validateNotNegative(maxMemoryBytes, "maxMemoryBytes");
+        this.maxMemoryBytes = maxMemoryBytes;
+    }
+
+    public long getMaxSourceImageBytes() {
+        return maxSourceImageBytes;
+    }
+
+    /**
+     * @param maxSourceImageBytes the maximum number of bytes of decoded source images kept in
+     *                            memory, must not be negative. Takes effect when {@link #init()}
+     *                            is called.
+     */
+    public void setMaxSourceImageBytes(long maxSourceImageBytes) {
+        validateNotNegative(maxSourceImageBytes, "maxSourceImageBytes");
+        this.maxSourceImageBytes = maxSourceImageBytes;
+    }
+
+    public long getMaxDiskBytes() {
+        return maxDiskBytes;
+    }
+
+    /**
+     * @param maxDiskBytes the maximum number of bytes of chips kept in the disk tier, must not be
+     *                     negative
+     */
+    public void setMaxDiskBytes(long maxDiskBytes) {
+        validateNotNegative(maxDiskBytes, "maxDiskBytes");
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    public String getDiskDirectory() {
+        return diskDirectory == null ? "" : diskDirectory.getPath();
+    }
+
+    /**
+     * @param diskDirectory the directory of the disk tier. The disk tier is disabled if it is
+     *                      blank. The directory is created if it does not exist.
+     */
+    public void setDiskDirectory(String diskDirectory) {
+        if (StringUtils.isBlank(diskDirectory)) {
+            this.diskDirectory = null;
+            return;
+        }
+
+        File directory = new File(diskDirectory);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.warn("unable to create the chip cache directory, the disk tier is disabled: {}",
+                    directory);
+            this.diskDirectory = null;
+            return;
+        }
+        this.diskDirectory = directory;
+    }
+
+    private void validateNotNegative(long value, String argumentName) {
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "argument '%s' may not be negative. Value was %s.",
+                    argumentName,
+                    value));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChipCache{" +
+                "maxMemoryBytes=" + maxMemoryBytes +
+                ", maxSourceImageBytes=" + maxSourceImageBytes +
+                ", maxDiskBytes=" + maxDiskBytes +
+                ", diskDirectory=" + diskDirectory +
+                '}';
+    }
+}
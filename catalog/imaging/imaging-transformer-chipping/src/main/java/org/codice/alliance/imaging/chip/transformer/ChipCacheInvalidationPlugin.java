@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import java.util.Objects;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.CreateResponse;
+import ddf.catalog.operation.DeleteResponse;
+import ddf.catalog.operation.Update;
+import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.plugin.PluginExecutionException;
+import ddf.catalog.plugin.PostIngestPlugin;
+
+/**
+ * Drops the {@link ChipCache} entries of metacards that are updated or deleted.
+ */
+public class ChipCacheInvalidationPlugin implements PostIngestPlugin {
+
+    private final ChipCache chipCache;
+
+    /**
+     * @param chipCache the cache to invalidate, may not be null
+     */
+    public ChipCacheInvalidationPlugin(ChipCache chipCache) {
+        if (chipCache == null) {
+            throw new IllegalArgumentException("argument 'chipCache' may not be null.");
+        }
+        this.chipCache = chipCache;
+    }
+
+    @Override
+    public CreateResponse process(CreateResponse input) throws PluginExecutionException {
+        return input;
+    }
+
+    @Override
+    public UpdateResponse process(UpdateResponse input) throws PluginExecutionException {
+        if (input != null && input.getUpdatedMetacards() != null) {
+            input.getUpdatedMetacards()
+                    .stream()
+                    .map(Update::getOldMetacard)
+                    .filter(Objects::nonNull)
+                    .map(Metacard::getId)
+                    .filter(Objects::nonNull)
+                    .forEach(chipCache::invalidate);
+        }
+        return input;
+    }
+
+    @Override
+    public DeleteResponse process(DeleteResponse input) throws PluginExecutionException {
+        if (input != null && input.getDeletedMetacards() != null) {
+            input.getDeletedMetacards()
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .map(Metacard::getId)
+                    .filter(Objects::nonNull)
+                    .forEach(chipCache::invalidate);
+        }
+        return input;
+    }
+}
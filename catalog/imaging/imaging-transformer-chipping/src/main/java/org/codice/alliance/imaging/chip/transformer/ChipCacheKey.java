@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import java.util.Objects;
+
+/**
+ * Identifies an entry of the {@link ChipCache}. A key holds the metacard id and modified time, so
+ * an updated metacard never matches the entries of the previous version, and a description of the
+ * cached content: the normalized chip region and output format, or the qualifier of a decoded
+ * source image.
+ */
+public final class ChipCacheKey {
+
+    private final String metacardId;
+
+    private final long modified;
+
+    private final String content;
+
+    private final String format;
+
+    ChipCacheKey(String metacardId, long modified, String content, String format) {
+        this.metacardId = metacardId;
+        this.modified = modified;
+        this.content = content;
+        this.format = format;
+    }
+
+    public String getMetacardId() {
+        return metacardId;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ChipCacheKey that = (ChipCacheKey) o;
+        return modified == that.modified && Objects.equals(metacardId, that.metacardId)
+                && Objects.equals(content, that.content) && Objects.equals(format, that.format);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(metacardId, modified, content, format);
+    }
+
+    @Override
+    public String toString() {
+        return "ChipCacheKey{" +
+                "metacardId='" + metacardId + '\'' +
+                ", modified=" + modified +
+                ", content='" + content + '\'' +
+                ", format='" + format + '\'' +
+                '}';
+    }
+}
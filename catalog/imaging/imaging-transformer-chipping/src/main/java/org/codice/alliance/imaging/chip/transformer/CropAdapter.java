@@ -14,9 +14,14 @@
 package org.codice.alliance.imaging.chip.transformer;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map;
 
+import javax.imageio.ImageReader;
+
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
+
 /**
  * Does the translation from chip coordinates of the overview image to the chip coordinates
  * on the full-size image.
@@ -32,6 +37,38 @@ public class CropAdapter {
      */
     public int[] scaleChip(BufferedImage original, BufferedImage overview, Map<String, Serializable> args) {
 
+        return scaleChipByWidth(original == null ? null : original.getWidth(), overview, args);
+    }
+
+    /**
+     * @param pyramid  the tiled pyramid of the full-sized image that the chip will be taken from.
+     * @param overview a scaled-down version of the same image.
+     * @param args     A map containing values for the top left corner of the chip (x, y) and the
+     *                 height and width of the chip (w, h) as taken from the overview image.
+     * @return a vector of [x, y, w, h] translated to the full size image.
+     */
+    public int[] scalePyramidChip(ImagePyramid pyramid, BufferedImage overview,
+            Map<String, Serializable> args) {
+        return scaleChipByWidth(pyramid == null ? null : pyramid.getWidth(), overview, args);
+    }
+
+    /**
+     * @param original a reader for the full-sized image that the chip will be taken from. Only
+     *                 the image header is read.
+     * @param overview a scaled-down version of the same image.
+     * @param args     A map containing values for the top left corner of the chip (x, y) and the
+     *                 height and width of the chip (w, h) as taken from the overview image.
+     * @return a vector of [x, y, w, h] translated to the full size image.
+     * @throws IOException when the width of the image can't be read.
+     */
+    public int[] scaleReaderChip(ImageReader original, BufferedImage overview,
+            Map<String, Serializable> args) throws IOException {
+        return scaleChipByWidth(original == null ? null : original.getWidth(0), overview, args);
+    }
+
+    private int[] scaleChipByWidth(Integer originalWidth, BufferedImage overview,
+            Map<String, Serializable> args) {
+
         if (args == null) {
             throw new IllegalArgumentException("method argument 'args' may not be null.");
         }
@@ -43,8 +80,8 @@ public class CropAdapter {
 
         double scaleFactor = 1.0;
 
-        if (original != null && overview != null) {
-            scaleFactor = original.getWidth() / ((double) overview.getWidth());
+        if (originalWidth != null && overview != null) {
+            scaleFactor = originalWidth / ((double) overview.getWidth());
         }
 
         return new int[] {multiply(scaleFactor, x), multiply(scaleFactor, y), multiply(scaleFactor,
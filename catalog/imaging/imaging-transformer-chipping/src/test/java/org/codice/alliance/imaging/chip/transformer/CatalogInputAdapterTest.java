@@ -89,4 +89,18 @@ public class CatalogInputAdapterTest {
         assertThat(request.getAttributeValue()
                 .toString(), is("content:10101#overview"));
     }
+
+    @Test
+    public void testHasDerivedResource() {
+        attributeValues.add("content:10101#overview");
+        attributeValues.add("content:10101#pyramid");
+        assertThat(catalogInputAdapter.hasDerivedResource(mockMetacard, "pyramid"), is(true));
+        assertThat(catalogInputAdapter.hasDerivedResource(mockMetacard, "original"), is(false));
+    }
+
+    @Test
+    public void testHasDerivedResourceNullAttribute() {
+        when(mockMetacard.getAttribute(anyString())).thenReturn(null);
+        assertThat(catalogInputAdapter.hasDerivedResource(mockMetacard, "pyramid"), is(false));
+    }
 }
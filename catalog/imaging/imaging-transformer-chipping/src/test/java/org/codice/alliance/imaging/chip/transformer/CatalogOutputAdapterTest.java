@@ -18,6 +18,7 @@ import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.awt.image.BufferedImage;
@@ -26,7 +27,10 @@ import java.io.InputStream;
 
 import javax.activation.MimeTypeParseException;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
 
+import org.apache.commons.io.IOUtils;
+import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -91,11 +95,138 @@ public class CatalogOutputAdapterTest {
         assertThat(binaryContent, is(notNullValue()));
         assertThat(binaryContent.getInputStream(), is(notNullValue()));
 
+        assertThat(binaryContent.getSize() > 0, is(true));
+
         BufferedImage returnedImage = ImageIO.read(binaryContent.getInputStream());
         assertThat(returnedImage.getWidth(), is(1024));
         assertThat(returnedImage.getHeight(), is(1024));
     }
 
+    /**
+     * Test that the encoded chip can be read to the end once, after which its stream is released.
+     */
+    @Test
+    public void testGetBinaryContentReadToEnd() throws IOException, MimeTypeParseException {
+        BufferedImage suppliedImage = new BufferedImage(512, 512, BufferedImage.TYPE_3BYTE_BGR);
+        BinaryContent binaryContent = catalogOutputAdapter.getBinaryContent(suppliedImage);
+        InputStream inputStream = binaryContent.getInputStream();
+
+        byte[] bytes = IOUtils.toByteArray(inputStream);
+
+        assertThat((long) bytes.length, is(binaryContent.getSize()));
+        assertThat(inputStream.read(), is(-1));
+        inputStream.close();
+        inputStream.close();
+    }
+
+    @Test
+    public void testGetImageRegion() throws IOException, ChipOutOfBoundsException {
+        ImageReader imageReader = catalogOutputAdapter.getImageReader(createResourceResponse());
+        try {
+            BufferedImage image = catalogOutputAdapter.getImageRegion(imageReader,
+                    100,
+                    200,
+                    300,
+                    150);
+            assertThat(image.getWidth(), is(300));
+            assertThat(image.getHeight(), is(150));
+        } finally {
+            catalogOutputAdapter.dispose(imageReader);
+        }
+    }
+
+    @Test
+    public void testGetImageRegionClipped() throws IOException, ChipOutOfBoundsException {
+        ImageReader imageReader = catalogOutputAdapter.getImageReader(createResourceResponse());
+        try {
+            BufferedImage image = catalogOutputAdapter.getImageRegion(imageReader,
+                    -100,
+                    924,
+                    200,
+                    10_000);
+            assertThat(image.getWidth(), is(100));
+            assertThat(image.getHeight(), is(100));
+        } finally {
+            catalogOutputAdapter.dispose(imageReader);
+        }
+    }
+
+    @Test
+    public void testGetImageRegionSubsampled() throws IOException, ChipOutOfBoundsException {
+        catalogOutputAdapter.setMaxRegionPixels(512 * 512);
+        ImageReader imageReader = catalogOutputAdapter.getImageReader(createResourceResponse());
+        try {
+            BufferedImage image = catalogOutputAdapter.getImageRegion(imageReader,
+                    0,
+                    0,
+                    1024,
+                    1024);
+            assertThat(image.getWidth(), is(512));
+            assertThat(image.getHeight(), is(512));
+        } finally {
+            catalogOutputAdapter.dispose(imageReader);
+        }
+    }
+
+    @Test(expected = ChipOutOfBoundsException.class)
+    public void testGetImageRegionInvalidX() throws IOException, ChipOutOfBoundsException {
+        ImageReader imageReader = catalogOutputAdapter.getImageReader(createResourceResponse());
+        try {
+            catalogOutputAdapter.getImageRegion(imageReader, 10_000, 0, 100, 100);
+        } finally {
+            catalogOutputAdapter.dispose(imageReader);
+        }
+    }
+
+    @Test(expected = ChipOutOfBoundsException.class)
+    public void testGetImageRegionInvalidWidth() throws IOException, ChipOutOfBoundsException {
+        ImageReader imageReader = catalogOutputAdapter.getImageReader(createResourceResponse());
+        try {
+            catalogOutputAdapter.getImageRegion(imageReader, 0, 0, -1, 100);
+        } finally {
+            catalogOutputAdapter.dispose(imageReader);
+        }
+    }
+
+    @Test
+    public void testCloseResource() throws IOException {
+        InputStream inputStream = mock(InputStream.class);
+        Resource resource = mock(Resource.class);
+        when(resource.getInputStream()).thenReturn(inputStream);
+        ResourceResponse resourceResponse = mock(ResourceResponse.class);
+        when(resourceResponse.getResource()).thenReturn(resource);
+
+        catalogOutputAdapter.closeResource(resourceResponse);
+
+        verify(inputStream).close();
+    }
+
+    @Test
+    public void testCloseResourceNull() throws IOException {
+        catalogOutputAdapter.closeResource(null);
+        catalogOutputAdapter.closeResource(mock(ResourceResponse.class));
+    }
+
+    @Test
+    public void testCalculateSubsampling() {
+        assertThat(CatalogOutputAdapter.calculateSubsampling(100, 100, 10_000), is(1));
+        assertThat(CatalogOutputAdapter.calculateSubsampling(200, 200, 10_000), is(2));
+        assertThat(CatalogOutputAdapter.calculateSubsampling(201, 200, 10_000), is(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxRegionPixelsInvalid() {
+        catalogOutputAdapter.setMaxRegionPixels(0);
+    }
+
+    private ResourceResponse createResourceResponse() throws IOException {
+        ResourceResponse resourceResponse = mock(ResourceResponse.class);
+        Resource resource = mock(Resource.class);
+        when(resourceResponse.getResource()).thenReturn(resource);
+        when(resource.getInputStream()).thenReturn(getInputStream(I_3001A));
+        return resourceResponse;
+    }
+
     private InputStream getInputStream(String filename) {
         assertNotNull("Test file missing", getClass().getResource(filename));
         return getClass().getResourceAsStream(filename);
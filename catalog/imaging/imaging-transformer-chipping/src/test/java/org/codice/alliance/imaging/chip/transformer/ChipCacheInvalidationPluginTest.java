@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.CreateResponse;
+import ddf.catalog.operation.DeleteResponse;
+import ddf.catalog.operation.Update;
+import ddf.catalog.operation.UpdateResponse;
+import ddf.catalog.plugin.PluginExecutionException;
+
+public class ChipCacheInvalidationPluginTest {
+
+    private static final String METACARD_ID = "101ABC";
+
+    private ChipCache chipCache;
+
+    private ChipCacheInvalidationPlugin plugin;
+
+    private Metacard metacard;
+
+    @Before
+    public void setUp() {
+        chipCache = mock(ChipCache.class);
+        plugin = new ChipCacheInvalidationPlugin(chipCache);
+        metacard = mock(Metacard.class);
+        when(metacard.getId()).thenReturn(METACARD_ID);
+    }
+
+    @Test
+    public void testCreate() throws PluginExecutionException {
+        CreateResponse createResponse = mock(CreateResponse.class);
+        assertThat(plugin.process(createResponse), is(createResponse));
+        verify(chipCache, never()).invalidate(anyString());
+    }
+
+    @Test
+    public void testUpdate() throws PluginExecutionException {
+        Update update = mock(Update.class);
+        when(update.getOldMetacard()).thenReturn(metacard);
+        UpdateResponse updateResponse = mock(UpdateResponse.class);
+        when(updateResponse.getUpdatedMetacards()).thenReturn(Collections.singletonList(update));
+
+        assertThat(plugin.process(updateResponse), is(updateResponse));
+        verify(chipCache).invalidate(METACARD_ID);
+    }
+
+    @Test
+    public void testDelete() throws PluginExecutionException {
+        DeleteResponse deleteResponse = mock(DeleteResponse.class);
+        when(deleteResponse.getDeletedMetacards()).thenReturn(Collections.singletonList(metacard));
+
+        assertThat(plugin.process(deleteResponse), is(deleteResponse));
+        verify(chipCache).invalidate(METACARD_ID);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullChipCache() {
+        new ChipCacheInvalidationPlugin(null);
+    }
+}
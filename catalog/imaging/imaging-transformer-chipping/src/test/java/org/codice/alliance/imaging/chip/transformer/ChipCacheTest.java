@@ -0,0 +1,282 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ddf.catalog.data.BinaryContent;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.BinaryContentImpl;
+
+public class ChipCacheTest {
+
+    private static final String METACARD_ID = "101ABC";
+
+    /**
+     * Holds four chips of {@link #CHIP_SIZE} bytes, the largest chip it caches.
+     */
+    private static final long MAX_MEMORY_BYTES = 400;
+
+    private static final int CHIP_SIZE = 100;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private ChipCache chipCache;
+
+    private Metacard metacard;
+
+    private Map<String, Serializable> args;
+
+    @Before
+    public void setUp() {
+        chipCache = new ChipCache();
+        metacard = mock(Metacard.class);
+        when(metacard.getId()).thenReturn(METACARD_ID);
+        when(metacard.getModifiedDate()).thenReturn(new Date(1000));
+        args = new HashMap<>();
+        args.put("x", 10);
+        args.put("y", "20");
+        args.put("w", 30);
+        args.put("h", 40);
+    }
+
+    @Test
+    public void testChipKeyIsNormalized() {
+        Map<String, Serializable> otherArgs = new HashMap<>();
+        otherArgs.put("x", "10");
+        otherArgs.put("y", 20);
+        otherArgs.put("w", "30");
+        otherArgs.put("h", "40");
+        assertThat(chipCache.createChipKey(metacard, otherArgs),
+                is(chipCache.createChipKey(metacard, args)));
+    }
+
+    @Test
+    public void testChipKeyChangesWithModifiedDate() {
+        ChipCacheKey key = chipCache.createChipKey(metacard, args);
+        when(metacard.getModifiedDate()).thenReturn(new Date(2000));
+        assertThat(chipCache.createChipKey(metacard, args), is(not(key)));
+    }
+
+    @Test
+    public void testChipKeyMissingArgument() {
+        args.remove("h");
+        assertThat(chipCache.createChipKey(metacard, args), is(nullValue()));
+        assertThat(chipCache.createChipKey(metacard, null), is(nullValue()));
+    }
+
+    @Test
+    public void testGetChip() throws IOException, MimeTypeParseException {
+        ChipCacheKey key = chipCache.createChipKey(metacard, args);
+
+        assertThat(chipCache.getChip(key), is(nullValue()));
+
+        BinaryContent content = chipCache.putChip(key, createContent(100));
+        assertThat(content.getByteArray().length, is(100));
+
+        BinaryContent cached = chipCache.getChip(key);
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getByteArray().length, is(100));
+        assertThat(chipCache.getHitCount(), is(1L));
+        assertThat(chipCache.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void testPutChipNullKey() throws IOException, MimeTypeParseException {
+        BinaryContent content = createContent(10);
+        assertThat(chipCache.putChip(null, content), is(content));
+        assertThat(chipCache.getChip(null), is(nullValue()));
+    }
+
+    @Test
+    public void testEvictionWithoutDiskTier() throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.init();
+
+        ChipCacheKey first = putChips(5);
+
+        assertThat(chipCache.getChip(first), is(nullValue()));
+        assertThat(chipCache.getEvictionCount(), is(1L));
+    }
+
+    @Test
+    public void testEvictionToDiskTier() throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.setDiskDirectory(temporaryFolder.getRoot()
+                .getPath());
+        chipCache.init();
+
+        ChipCacheKey first = putChips(5);
+
+        BinaryContent cached = chipCache.getChip(first);
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getByteArray().length, is(CHIP_SIZE));
+        assertThat(chipCache.getDiskHitCount(), is(1L));
+    }
+
+    @Test
+    public void testDiskTierEviction() throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.setMaxDiskBytes(150);
+        chipCache.setDiskDirectory(temporaryFolder.getRoot()
+                .getPath());
+        chipCache.init();
+
+        ChipCacheKey first = putChips(6);
+
+        assertThat(chipCache.getChip(first), is(nullValue()));
+        assertThat(chipCache.getDiskEvictionCount(), is(1L));
+        assertThat(temporaryFolder.getRoot()
+                .list().length, is(1));
+    }
+
+    @Test
+    public void testInvalidate() throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.setDiskDirectory(temporaryFolder.getRoot()
+                .getPath());
+        chipCache.init();
+
+        ChipCacheKey first = putChips(4);
+        ChipCacheKey second = chipCache.createChipKey(metacard, args);
+        chipCache.putChip(second, createContent(CHIP_SIZE));
+        ChipCacheKey source = chipCache.createSourceKey(metacard, "overview");
+        chipCache.putSourceImage(source, new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR));
+
+        chipCache.invalidate(METACARD_ID);
+
+        assertThat(chipCache.getChip(second), is(nullValue()));
+        assertThat(chipCache.getSourceImage(source), is(nullValue()));
+        assertThat(chipCache.getChip(first), is(notNullValue()));
+    }
+
+    @Test
+    public void testInvalidateDiskTier() throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.setDiskDirectory(temporaryFolder.getRoot()
+                .getPath());
+        chipCache.init();
+
+        ChipCacheKey first = putChips(5);
+
+        chipCache.invalidate("1");
+
+        assertThat(chipCache.getChip(first), is(nullValue()));
+        assertThat(temporaryFolder.getRoot()
+                .list().length, is(0));
+    }
+
+    /**
+     * Test that a chip larger than the entry bound is returned as it was given and not cached.
+     */
+    @Test
+    public void testPutChipLargerThanEntryBound() throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.init();
+        ChipCacheKey key = chipCache.createChipKey(metacard, args);
+        BinaryContentImpl content = (BinaryContentImpl) createContent(CHIP_SIZE + 1);
+        content.setSize(CHIP_SIZE + 1);
+
+        assertThat(chipCache.putChip(key, content), is(content));
+        assertThat(chipCache.getChip(key), is(nullValue()));
+    }
+
+    /**
+     * Test that a chip of unknown size is only read up to the entry bound and streamed on when it
+     * is larger.
+     */
+    @Test
+    public void testPutChipOfUnknownSizeLargerThanEntryBound()
+            throws IOException, MimeTypeParseException {
+        chipCache.setMaxMemoryBytes(MAX_MEMORY_BYTES);
+        chipCache.init();
+        ChipCacheKey key = chipCache.createChipKey(metacard, args);
+
+        BinaryContent content = chipCache.putChip(key, createContent(CHIP_SIZE + 1));
+
+        assertThat(content.getByteArray().length, is(CHIP_SIZE + 1));
+        assertThat(chipCache.getChip(key), is(nullValue()));
+    }
+
+    @Test
+    public void testSourceImage() {
+        ChipCacheKey key = chipCache.createSourceKey(metacard, "overview");
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR);
+
+        assertThat(chipCache.getSourceImage(key), is(nullValue()));
+        assertThat(chipCache.putSourceImage(key, image), is(image));
+        assertThat(chipCache.getSourceImage(key), is(image));
+        assertThat(chipCache.getSourceImageHitCount(), is(1L));
+        assertThat(chipCache.getSourceImageMissCount(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxMemoryBytesNegative() {
+        chipCache.setMaxMemoryBytes(-1);
+    }
+
+    @Test
+    public void testDiskDirectoryBlank() {
+        chipCache.setDiskDirectory(" ");
+        assertThat(chipCache.getDiskDirectory(), is(""));
+    }
+
+    /**
+     * @return the key of the first chip put
+     */
+    private ChipCacheKey putChips(int count) throws IOException, MimeTypeParseException {
+        ChipCacheKey first = putChip("1", CHIP_SIZE);
+        for (int i = 2; i <= count; i++) {
+            putChip(String.valueOf(i), CHIP_SIZE);
+        }
+        return first;
+    }
+
+    private ChipCacheKey putChip(String metacardId, int size)
+            throws IOException, MimeTypeParseException {
+        Metacard other = mock(Metacard.class);
+        when(other.getId()).thenReturn(metacardId);
+        ChipCacheKey key = chipCache.createChipKey(other, args);
+        chipCache.putChip(key, createContent(size));
+        return key;
+    }
+
+    private BinaryContent createContent(int size) throws MimeTypeParseException {
+        return new BinaryContentImpl(new ByteArrayInputStream(new byte[size]),
+                new MimeType("image/jpg"));
+    }
+}
@@ -19,10 +19,14 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map;
 
+import javax.imageio.ImageReader;
+
 import org.apache.commons.collections.map.HashedMap;
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -132,4 +136,40 @@ public class CropAdapterTest {
             assertThat(scaledValues[i], is(values[i] * 2));
         }
     }
+
+    @Test
+    public void testScalePyramidChip() {
+        ImagePyramid pyramid = mock(ImagePyramid.class);
+        when(pyramid.getWidth()).thenReturn(4096);
+        when(overviewImage.getWidth()).thenReturn(1024);
+        int[] values = new int[]{100, 100, 400, 400};
+        args.put("x", values[0]);
+        args.put("y", values[1]);
+        args.put("w", values[2]);
+        args.put("h", values[3]);
+
+        int[] scaledValues = cropAdapter.scalePyramidChip(pyramid, overviewImage, args);
+
+        for (int i = 0; i < values.length; i++) {
+            assertThat(scaledValues[i], is(values[i] * 4));
+        }
+    }
+
+    @Test
+    public void testScaleReaderChip() throws IOException {
+        ImageReader imageReader = mock(ImageReader.class);
+        when(imageReader.getWidth(0)).thenReturn(2048);
+        when(overviewImage.getWidth()).thenReturn(1024);
+        int[] values = new int[]{100, 100, 400, 400};
+        args.put("x", values[0]);
+        args.put("y", values[1]);
+        args.put("w", values[2]);
+        args.put("h", values[3]);
+
+        int[] scaledValues = cropAdapter.scaleReaderChip(imageReader, overviewImage, args);
+
+        for (int i = 0; i < values.length; i++) {
+            assertThat(scaledValues[i], is(values[i] * 2));
+        }
+    }
 }
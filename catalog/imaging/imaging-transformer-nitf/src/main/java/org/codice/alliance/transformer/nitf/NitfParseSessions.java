@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.Validate;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Shares the parse of a NITF between the input transformer and the pre-storage plugin during an
+ * ingest. The transformer route parses a NITF with image segments once, headers and segment data,
+ * and offers the parsed segments under the id of the metacard it creates. Other NITFs are parsed
+ * header only and are not shared. The pre-storage plugin takes them under
+ * the id of the content item, which is the same id, and renders the image segment without
+ * reading and parsing the content a second time.
+ * <p>
+ * A session that is never taken, e.g. when the transformer is called outside of an ingest, is
+ * ended when it expires or when more than {@link #setMaxSessions(int)} sessions are open, so the
+ * temporary files of the parse are not left behind. Expired sessions are also ended by a periodic
+ * clean up, so they do not wait for the next ingest.
+ * <p>
+ * The transformer runs before the pre-storage plugin, so it cannot know whether a session will be
+ * taken. {@link #isConsumed()} tells it whether the last session was taken. After a session ends
+ * untaken, the segment data is not parsed for sharing until the plugin asks for a session that was
+ * not offered.
+ */
+public class NitfParseSessions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NitfParseSessions.class);
+
+    static final long DEFAULT_EXPIRATION_SECONDS = 60;
+
+    static final int DEFAULT_MAX_SESSIONS = 16;
+
+    static final long CLEAN_UP_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final Ticker ticker;
+
+    private long expirationSeconds = DEFAULT_EXPIRATION_SECONDS;
+
+    private int maxSessions = DEFAULT_MAX_SESSIONS;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile Cache<String, NitfSegmentsFlow> sessions;
+
+    private final AtomicBoolean consumed = new AtomicBoolean(true);
+
+    public NitfParseSessions() {
+        this(Ticker.systemTicker(), CLEAN_UP_PERIOD_MILLIS);
+    }
+
+    NitfParseSessions(Ticker ticker, long cleanUpPeriodMillis) {
+        this.ticker = ticker;
+        this.sessions = createSessions();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "nitf-parse-sessions-clean-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::cleanUp,
+                cleanUpPeriodMillis,
+                cleanUpPeriodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public long getExpirationSeconds() {
+        return expirationSeconds;
+    }
+
+    /**
+     * @param expirationSeconds must be positive, the time after which an untaken session is ended
+     */
+    public void setExpirationSeconds(long expirationSeconds) {
+        Validate.isTrue(expirationSeconds > 0, "expirationSeconds must be positive");
+        this.expirationSeconds = expirationSeconds;
+        replaceSessions();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * @param maxSessions must be positive, each open session may hold the image data of a NITF
+     */
+    public void setMaxSessions(int maxSessions) {
+        Validate.isTrue(maxSessions > 0, "maxSessions must be positive");
+        this.maxSessions = maxSessions;
+        replaceSessions();
+    }
+
+    /**
+     * Offer the parsed segments of a NITF to a later stage of the same ingest. If the id is blank,
+     * the segments cannot be taken and are ended immediately.
+     *
+     * @param id               the metacard id, may be null
+     * @param nitfSegmentsFlow the parsed segments, may be null
+     */
+    public void offer(String id, NitfSegmentsFlow nitfSegmentsFlow) {
+        if (nitfSegmentsFlow == null) {
+            return;
+        }
+
+        if (StringUtils.isBlank(id)) {
+            nitfSegmentsFlow.end();
+            return;
+        }
+
+        sessions.put(id, nitfSegmentsFlow);
+        sessions.cleanUp();
+    }
+
+    /**
+     * Take the parsed segments offered under the id. The caller owns the segments and must
+     * {@link NitfSegmentsFlow#end()} them.
+     *
+     * @param id the content item id, may be null
+     * @return the parsed segments, or empty if none were offered or they have expired
+     */
+    public Optional<NitfSegmentsFlow> take(String id) {
+        if (StringUtils.isBlank(id)) {
+            return Optional.empty();
+        }
+
+        sessions.cleanUp();
+        Optional<NitfSegmentsFlow> nitfSegmentsFlow = Optional.ofNullable(sessions.asMap()
+                .remove(id));
+        consumed.set(true);
+        return nitfSegmentsFlow;
+    }
+
+    /**
+     * @return false if the last session offered ended without being taken and no session has been
+     * asked for since, in which case a parse is not worth sharing
+     */
+    public boolean isConsumed() {
+        return consumed.get();
+    }
+
+    /**
+     * @return the number of sessions that have been offered and not yet taken or ended
+     */
+    public long size() {
+        sessions.cleanUp();
+        return sessions.size();
+    }
+
+    /**
+     * Stop the periodic clean up and end every open session.
+     */
+    public void destroy() {
+        scheduler.shutdownNow();
+        endAll(sessions);
+    }
+
+    /**
+     * End the expired sessions. An exception is logged so that it does not stop the periodic
+     * clean up.
+     */
+    private void cleanUp() {
+        try {
+            sessions.cleanUp();
+        } catch (RuntimeException e) {
+            LOGGER.debug("unable to clean up the NITF parse sessions", e);
+        }
+    }
+
+    private void replaceSessions() {
+        Cache<String, NitfSegmentsFlow> oldSessions = sessions;
+        sessions = createSessions();
+        endAll(oldSessions);
+    }
+
+    private void endAll(Cache<String, NitfSegmentsFlow> cache) {
+        List<NitfSegmentsFlow> flows = new ArrayList<>(cache.asMap()
+                .values());
+        cache.invalidateAll();
+        flows.forEach(NitfSegmentsFlow::end);
+    }
+
+    private Cache<String, NitfSegmentsFlow> createSessions() {
+        return CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterWrite(expirationSeconds, TimeUnit.SECONDS)
+                .maximumSize(maxSessions)
+                .removalListener(this::onRemoval)
+                .build();
+    }
+
+    private void onRemoval(RemovalNotification<String, NitfSegmentsFlow> notification) {
+        if (notification.wasEvicted() || notification.getCause() == RemovalCause.REPLACED) {
+            LOGGER.debug("ending untaken NITF parse session: id={} cause={}",
+                    notification.getKey(),
+                    notification.getCause());
+            consumed.set(false);
+            notification.getValue()
+                    .end();
+        }
+    }
+}
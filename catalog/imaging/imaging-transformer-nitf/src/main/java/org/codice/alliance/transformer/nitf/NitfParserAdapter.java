@@ -13,25 +13,130 @@
  */
 package org.codice.alliance.transformer.nitf;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+import org.apache.commons.lang.StringUtils;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
 import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import ddf.catalog.transform.CatalogTransformerException;
 
 public class NitfParserAdapter {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(NitfParserAdapter.class);
+
+    /**
+     * The number of image segments (NUMI) follows the fixed length fields of the NITF 2.0,
+     * NITF 2.1 and NSIF 1.0 file headers at this offset. A NITF 2.0 header with a security
+     * downgrade event has {@link #DOWNGRADE_EVENT_LENGTH} more bytes before it.
+     */
+    private static final int IMAGE_SEGMENT_COUNT_OFFSET = 360;
+
+    private static final int IMAGE_SEGMENT_COUNT_LENGTH = 3;
+
+    private static final int NITF_20_DOWNGRADE_OFFSET = 280;
+
+    private static final String NITF_20_DOWNGRADE_EVENT = "999998";
+
+    private static final int DOWNGRADE_EVENT_LENGTH = 40;
+
+    private static final int FILE_HEADER_PEEK_LENGTH =
+            IMAGE_SEGMENT_COUNT_OFFSET + DOWNGRADE_EVENT_LENGTH + IMAGE_SEGMENT_COUNT_LENGTH;
+
+    private static final String NITF_20 = "NITF02.00";
+
+    private static final String NITF_21 = "NITF02.10";
+
+    private static final String NSIF_10 = "NSIF01.00";
+
+    private final Set<NitfSegmentsFlow> sharedFlows =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    private boolean headerOnly = true;
+
+    private NitfParseSessions parseSessions;
+
+    public boolean isHeaderOnly() {
+        return headerOnly;
+    }
+
+    /**
+     * @param headerOnly if true (the default), only the file and segment headers are parsed and
+     *                   the image, graphic and text data is skipped. The metacard transformers only
+     *                   use headers and TREs, so reading the segment data is only needed by
+     *                   callers that render or copy it.
+     */
+    public void setHeaderOnly(boolean headerOnly) {
+        this.headerOnly = headerOnly;
+    }
+
+    public NitfParseSessions getParseSessions() {
+        return parseSessions;
+    }
+
+    /**
+     * @param parseSessions if set, a NITF with image segments that is transformed with a metacard
+     *                      id while the sessions are being consumed is parsed with its segment
+     *                      data and the parsed segments are shared with the pre-storage plugin of
+     *                      the same ingest instead of being ended, may be null
+     */
+    public void setParseSessions(NitfParseSessions parseSessions) {
+        this.parseSessions = parseSessions;
+    }
+
     public NitfSegmentsFlow parseNitf(InputStream inputStream) throws NitfFormatException {
+        return parseNitf(inputStream, null);
+    }
+
+    /**
+     * Parse the NITF headers, or the headers and segment data if {@link #isHeaderOnly()} is false.
+     * The segment data is also parsed if the parse can be shared with the pre-storage plugin,
+     * which is the case when the NITF has image segments, is transformed with an id and the
+     * plugin takes the sessions it is offered.
+     *
+     * @param inputStream the NITF
+     * @param id          the id of the metacard being created, may be null
+     */
+    public NitfSegmentsFlow parseNitf(InputStream inputStream, String id)
+            throws NitfFormatException {
 
         if (inputStream == null) {
             throw new IllegalArgumentException("method argument 'inputStream' may not be null.");
         }
 
-        return new NitfParserInputFlow().inputStream(inputStream)
+        if (!headerOnly) {
+            return new NitfParserInputFlow().inputStream(inputStream)
+                    .allData();
+        }
+
+        if (!isShareable(id) || !parseSessions.isConsumed()) {
+            return new NitfParserInputFlow().inputStream(inputStream)
+                    .headerOnly();
+        }
+
+        BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream,
+                FILE_HEADER_PEEK_LENGTH);
+
+        if (!hasImageSegments(bufferedInputStream)) {
+            return new NitfParserInputFlow().inputStream(bufferedInputStream)
+                    .headerOnly();
+        }
+
+        NitfSegmentsFlow nitfSegmentsFlow = new NitfParserInputFlow().inputStream(
+                bufferedInputStream)
                 .allData();
+        sharedFlows.add(nitfSegmentsFlow);
+        return nitfSegmentsFlow;
     }
 
     /**
@@ -48,7 +153,73 @@ public class NitfParserAdapter {
      *                           delete any temp files created by this route.
      */
     public void endNitfSegmentsFlow(NitfSegmentsFlow nitfSegmentsFlow) {
+        sharedFlows.remove(nitfSegmentsFlow);
         Optional.of(nitfSegmentsFlow)
                 .ifPresent(flow -> flow.end());
     }
+
+    /**
+     * @param nitfSegmentsFlow the NitfSegmentsFlow object to share with the pre-storage plugin, or
+     *                         to end if it was not parsed for sharing.
+     * @param id               the id of the metacard that was created, may be null
+     */
+    public void shareNitfSegmentsFlow(NitfSegmentsFlow nitfSegmentsFlow, String id) {
+        if (sharedFlows.remove(nitfSegmentsFlow) && isShareable(id)) {
+            parseSessions.offer(id, nitfSegmentsFlow);
+        } else {
+            endNitfSegmentsFlow(nitfSegmentsFlow);
+        }
+    }
+
+    private boolean isShareable(String id) {
+        return parseSessions != null && StringUtils.isNotBlank(id);
+    }
+
+    /**
+     * Read the image segment count from the file header without consuming the stream. The
+     * pre-storage plugin only renders image segments, so a parse is only worth sharing if there
+     * are any. If the count cannot be read, the NITF is treated as having none and the plugin
+     * parses it itself.
+     */
+    private boolean hasImageSegments(BufferedInputStream inputStream) {
+        byte[] header = new byte[FILE_HEADER_PEEK_LENGTH];
+        int length = 0;
+        inputStream.mark(FILE_HEADER_PEEK_LENGTH);
+        try {
+            int count = 0;
+            while (length < header.length && count >= 0) {
+                count = inputStream.read(header, length, header.length - length);
+                length += Math.max(count, 0);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("unable to read the NITF file header", e);
+            return false;
+        } finally {
+            try {
+                inputStream.reset();
+            } catch (IOException e) {
+                LOGGER.debug("unable to reset the NITF input stream", e);
+            }
+        }
+
+        String fileHeader = new String(header, 0, length, StandardCharsets.US_ASCII);
+        int offset;
+        if (fileHeader.startsWith(NITF_21) || fileHeader.startsWith(NSIF_10)) {
+            offset = IMAGE_SEGMENT_COUNT_OFFSET;
+        } else if (fileHeader.startsWith(NITF_20)) {
+            offset = fileHeader.startsWith(NITF_20_DOWNGRADE_EVENT, NITF_20_DOWNGRADE_OFFSET) ?
+                    IMAGE_SEGMENT_COUNT_OFFSET + DOWNGRADE_EVENT_LENGTH :
+                    IMAGE_SEGMENT_COUNT_OFFSET;
+        } else {
+            return false;
+        }
+
+        if (length < offset + IMAGE_SEGMENT_COUNT_LENGTH) {
+            return false;
+        }
+
+        String imageSegmentCount = fileHeader.substring(offset,
+                offset + IMAGE_SEGMENT_COUNT_LENGTH);
+        return StringUtils.isNumeric(imageSegmentCount) && Integer.parseInt(imageSegmentCount) > 0;
+    }
 }
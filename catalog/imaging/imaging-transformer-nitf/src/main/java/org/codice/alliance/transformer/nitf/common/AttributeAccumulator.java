@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+
+/**
+ * Collects the values of metacard attributes while segments and TREs are handled and sets each
+ * attribute on the metacard once, when the values are committed. Adding a value to a metacard
+ * attribute copies the attribute, so adding the values one at a time costs time quadratic in the
+ * number of values, e.g. for the thousands of target groups of a GMTI file.
+ * <p>
+ * An added value is appended to the values of the attribute, a set value replaces them, the same
+ * as setting the attributes on the metacard in the same order.
+ */
+public class AttributeAccumulator {
+
+    private final Map<String, List<Serializable>> values = new LinkedHashMap<>();
+
+    private final Set<String> replaced = new HashSet<>();
+
+    /**
+     * @param attributeName the name of the attribute
+     * @param value         the value to append to the attribute
+     */
+    public void add(String attributeName, Serializable value) {
+        values.computeIfAbsent(attributeName, name -> new ArrayList<>())
+                .add(value);
+    }
+
+    /**
+     * @param attributeName the name of the attribute
+     * @param value         the value that replaces the values of the attribute
+     */
+    public void set(String attributeName, Serializable value) {
+        List<Serializable> attributeValues = new ArrayList<>();
+        attributeValues.add(value);
+        values.put(attributeName, attributeValues);
+        replaced.add(attributeName);
+    }
+
+    /**
+     * Set the collected attributes on the metacard and clear them.
+     *
+     * @param metacard the metacard to update
+     */
+    public void commit(Metacard metacard) {
+        values.forEach((attributeName, attributeValues) -> {
+            Attribute currentAttribute = metacard.getAttribute(attributeName);
+
+            if (currentAttribute == null || replaced.contains(attributeName)) {
+                metacard.setAttribute(new AttributeImpl(attributeName, attributeValues));
+            } else {
+                List<Serializable> newValues = new ArrayList<>(currentAttribute.getValues());
+                newValues.addAll(attributeValues);
+                metacard.setAttribute(new AttributeImpl(attributeName, newValues));
+            }
+        });
+
+        values.clear();
+        replaced.clear();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+}
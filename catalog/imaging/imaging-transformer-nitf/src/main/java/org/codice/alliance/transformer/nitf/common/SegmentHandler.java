@@ -25,10 +25,8 @@ import org.codice.imaging.nitf.core.tre.Tre;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ddf.catalog.data.Attribute;
 import ddf.catalog.data.AttributeDescriptor;
 import ddf.catalog.data.Metacard;
-import ddf.catalog.data.impl.AttributeImpl;
 import ddf.catalog.data.impl.BasicTypes;
 
 public class SegmentHandler {
@@ -37,7 +35,9 @@ public class SegmentHandler {
 
     protected <T> void handleSegmentHeader(Metacard metacard, T segment,
             List<NitfAttribute<T>> attributes) {
-        attributes.forEach(attribute -> handleValue(metacard, attribute, segment));
+        AttributeAccumulator accumulator = new AttributeAccumulator();
+        handleSegmentHeader(accumulator, segment, attributes);
+        accumulator.commit(metacard);
     }
 
     protected <T> void handleSegmentHeader(Metacard metacard, T segment,
@@ -45,19 +45,45 @@ public class SegmentHandler {
         handleSegmentHeader(metacard, segment, Arrays.asList(attributes));
     }
 
+    /**
+     * Collect the attribute values of the segment. The values are set on the metacard when the
+     * accumulator is committed.
+     */
+    protected <T> void handleSegmentHeader(AttributeAccumulator accumulator, T segment,
+            List<NitfAttribute<T>> attributes) {
+        attributes.forEach(attribute -> handleValue(accumulator, attribute, segment));
+    }
+
+    protected <T> void handleSegmentHeader(AttributeAccumulator accumulator, T segment,
+            NitfAttribute[] attributes) {
+        handleSegmentHeader(accumulator, segment, Arrays.asList(attributes));
+    }
+
     protected void handleTres(Metacard metacard,
             TaggedRecordExtensionHandler taggedRecordextensionHandler) {
+        AttributeAccumulator accumulator = new AttributeAccumulator();
+        handleTres(accumulator, taggedRecordextensionHandler);
+        accumulator.commit(metacard);
+    }
+
+    /**
+     * Collect the attribute values of the TREs. The values are set on the metacard when the
+     * accumulator is committed.
+     */
+    protected void handleTres(AttributeAccumulator accumulator,
+            TaggedRecordExtensionHandler taggedRecordextensionHandler) {
         List<Tre> tres = taggedRecordextensionHandler.getTREsRawStructure()
                 .getTREs();
 
         tres.forEach(tre -> Optional.ofNullable(TreDescriptor.forName(tre.getName()
                 .trim()))
-                .ifPresent(treDescriptor -> handleSegmentHeader(metacard,
+                .ifPresent(treDescriptor -> handleSegmentHeader(accumulator,
                         tre,
                         treDescriptor.getValues())));
     }
 
-    private <T> void handleValue(Metacard metacard, NitfAttribute attribute, T segment) {
+    private <T> void handleValue(AttributeAccumulator accumulator, NitfAttribute attribute,
+            T segment) {
         Function<T, Serializable> accessor = attribute.getAccessorFunction();
         Serializable value = accessor.apply(segment);
 
@@ -79,29 +105,11 @@ public class SegmentHandler {
 
         for (AttributeDescriptor descriptor : descriptors) {
             if (value != null) {
-                Attribute catalogAttribute = populateAttribute(metacard,
-                        descriptor.getName(),
-                        value);
                 LOGGER.trace("Setting the metacard attribute [{}, {}]",
                         descriptor.getName(),
                         value);
-                metacard.setAttribute(catalogAttribute);
+                accumulator.add(descriptor.getName(), value);
             }
         }
     }
-
-    private Attribute populateAttribute(Metacard metacard, String attributeName,
-            Serializable value) {
-        Attribute currentAttribute = metacard.getAttribute(attributeName);
-
-        if (currentAttribute == null) {
-            currentAttribute = new AttributeImpl(attributeName, value);
-        } else {
-            AttributeImpl newAttribute = new AttributeImpl(currentAttribute);
-            newAttribute.addValue(value);
-            currentAttribute = newAttribute;
-        }
-
-        return currentAttribute;
-    }
 }
@@ -15,6 +15,9 @@ package org.codice.alliance.transformer.nitf.common;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.codice.alliance.transformer.nitf.gmti.MtirpbAttribute;
 import org.codice.imaging.nitf.core.tre.Tre;
@@ -28,6 +31,9 @@ public enum TreDescriptor {
     CSDIDA(CsdidaAttribute.getAttributes()),
     HISTOA(HistoaAttribute.getAttributes());
 
+    private static final Map<String, TreDescriptor> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toMap(TreDescriptor::name, Function.identity()));
+
     private List<NitfAttribute<Tre>> nitfAttributes;
 
     TreDescriptor(List<NitfAttribute<Tre>> nitfAttributes) {
@@ -35,11 +41,7 @@ public enum TreDescriptor {
     }
 
     public static TreDescriptor forName(String name) {
-        return Arrays.stream(TreDescriptor.values())
-                .filter(treDescriptor -> treDescriptor.name()
-                        .equals(name))
-                .findFirst()
-                .orElse(null);
+        return name == null ? null : BY_NAME.get(name);
     }
 
     public List<NitfAttribute<Tre>> getValues() {
@@ -19,6 +19,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
+import org.codice.alliance.transformer.nitf.common.AttributeAccumulator;
 import org.codice.alliance.transformer.nitf.common.SegmentHandler;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.core.common.TaggedRecordExtensionHandler;
@@ -51,7 +52,10 @@ public class NitfGmtiTransformer extends SegmentHandler {
     private static final String LOCATION_REGEX =
             "([+\\-]\\d{2}+\\.\\d{6,7}+)([+\\-]\\d{3}+\\.\\d{6,7})";
 
-    private static final Pattern LOCATION_PATTERN = Pattern.compile(LOCATION_REGEX);
+    static final Pattern LOCATION_PATTERN = Pattern.compile(LOCATION_REGEX);
+
+    private static final IndexedMtirpbAttribute TARGET_LOCATION =
+            IndexedMtirpbAttribute.INDEXED_TARGET_LOCATION;
 
     private GeometryFactory geometryFactory;
 
@@ -66,20 +70,25 @@ public class NitfGmtiTransformer extends SegmentHandler {
             throw new IllegalArgumentException("argument 'metacard' may not be null.");
         }
 
-        nitfSegmentsFlow.fileHeader(header -> handleHeader(header, metacard))
+        TargetLocations targetLocations = new TargetLocations();
+
+        nitfSegmentsFlow.fileHeader(header -> handleHeader(header, metacard, targetLocations))
                 .end();
 
-        transformTargetLocation(metacard);
+        transformTargetLocation(metacard, targetLocations);
         transformAircraftLocation(metacard);
 
         return metacard;
     }
 
-    private void handleHeader(TaggedRecordExtensionHandler header, Metacard metacard) {
+    private void handleHeader(TaggedRecordExtensionHandler header, Metacard metacard,
+            TargetLocations targetLocations) {
         List<Tre> tres = header.getTREsRawStructure()
                 .getTREs();
 
-        handleTres(metacard, header);
+        AttributeAccumulator accumulator = new AttributeAccumulator();
+
+        handleTres(accumulator, header);
 
         tres.stream()
                 .filter(tre -> MTIRPB.equals(tre.getName()
@@ -89,64 +98,45 @@ public class NitfGmtiTransformer extends SegmentHandler {
                         List<TreGroup> targets = tre.getEntry(TARGETS)
                                 .getGroups();
 
-                        targets.forEach(group -> handleSegmentHeader(metacard,
-                                group,
-                                IndexedMtirpbAttribute.getAttributes()));
+                        targets.forEach(group -> {
+                            handleSegmentHeader(accumulator,
+                                    group,
+                                    IndexedMtirpbAttribute.getAttributes());
+                            targetLocations.add(TARGET_LOCATION.getAccessorFunction()
+                                    .apply(group));
+                        });
                     } catch (NitfFormatException e) {
                         LOGGER.debug(
                                 "Could not parse NITF target information: {} " + e.getMessage(), e);
                     }
                 });
-    }
-
-    private void transformTargetLocation(Metacard metacard) {
-        String locationString = formatTargetLocation(metacard);
 
-        try {
-            LOGGER.debug("Formatted Target Location(s) = " + locationString);
-
-            if (locationString != null) {
-                // validate the wkt
-                WKTReader wktReader = new WKTReader(geometryFactory);
-                Geometry geometry = wktReader.read(locationString);
-
-                LOGGER.debug("Setting the metacard attribute [{}, {}]",
-                        Core.LOCATION,
-                        geometry.toText());
-                IndexedMtirpbAttribute.INDEXED_TARGET_LOCATION.getAttributeDescriptors()
-                        .forEach(descriptor -> setMetacardAttribute(metacard,
-                                descriptor.getName(),
-                                geometry.toText()));
-            }
+        accumulator.commit(metacard);
+    }
 
-        } catch (ParseException e) {
-            LOGGER.debug(e.getMessage(), e);
+    /**
+     * Set the target locations as a single multipoint, built directly from the coordinates that
+     * were collected from the target groups.
+     */
+    private void transformTargetLocation(Metacard metacard, TargetLocations targetLocations) {
+        if (targetLocations.isEmpty()) {
+            return;
         }
-    }
 
-    private String formatTargetLocation(Metacard metacard) {
-        Attribute locationAttribute =
-                IndexedMtirpbAttribute.INDEXED_TARGET_LOCATION.getAttributeDescriptors()
-                        .stream()
-                        .map(descriptor -> metacard.getAttribute(descriptor.getName()))
-                        .findFirst()
-                        .orElse(null);
-
-        if (locationAttribute != null) {
-            StringBuilder stringBuilder = new StringBuilder("MULTIPOINT (");
-
-            locationAttribute.getValues()
-                    .forEach(value -> {
-                        parseLocation(stringBuilder, value.toString());
-                        stringBuilder.append(",");
-                    });
-
-            stringBuilder.deleteCharAt(stringBuilder.lastIndexOf(","));
-            stringBuilder.append(")");
-            return stringBuilder.toString();
+        if (!targetLocations.isValid()) {
+            LOGGER.debug("Unable to parse target location: {}",
+                    targetLocations.getInvalidLocation());
+            return;
         }
 
-        return null;
+        String locationText = targetLocations.toMultiPoint(geometryFactory)
+                .toText();
+
+        LOGGER.debug("Setting the metacard attribute [{}, {}]", Core.LOCATION, locationText);
+        IndexedMtirpbAttribute.INDEXED_TARGET_LOCATION.getAttributeDescriptors()
+                .forEach(descriptor -> setMetacardAttribute(metacard,
+                        descriptor.getName(),
+                        locationText));
     }
 
     private void transformAircraftLocation(Metacard metacard) {
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.gmti;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+/**
+ * Collects the coordinates of the GMTI target locations in primitive arrays, so a multipoint of
+ * tens of thousands of targets is built without formatting and parsing WKT. The values are in
+ * the order of the {@link NitfGmtiTransformer#LOCATION_PATTERN} groups. If a location cannot be
+ * parsed, no multipoint is built.
+ */
+final class TargetLocations {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private double[] first = new double[INITIAL_CAPACITY];
+
+    private double[] second = new double[INITIAL_CAPACITY];
+
+    private int size;
+
+    private String invalidLocation;
+
+    /**
+     * @param value the TGT_LOC value of a target group, may be null
+     */
+    void add(Serializable value) {
+        if (value == null || invalidLocation != null) {
+            return;
+        }
+
+        String location = value.toString();
+        if (location.isEmpty()) {
+            return;
+        }
+
+        Matcher matcher = NitfGmtiTransformer.LOCATION_PATTERN.matcher(location);
+        if (!matcher.matches()) {
+            invalidLocation = location;
+            return;
+        }
+
+        if (size == first.length) {
+            first = Arrays.copyOf(first, size * 2);
+            second = Arrays.copyOf(second, size * 2);
+        }
+
+        first[size] = Double.parseDouble(matcher.group(1));
+        second[size] = Double.parseDouble(matcher.group(2));
+        size++;
+    }
+
+    /**
+     * @return true if no location was added
+     */
+    boolean isEmpty() {
+        return size == 0 && invalidLocation == null;
+    }
+
+    boolean isValid() {
+        return invalidLocation == null;
+    }
+
+    String getInvalidLocation() {
+        return invalidLocation;
+    }
+
+    MultiPoint toMultiPoint(GeometryFactory geometryFactory) {
+        PrecisionModel precisionModel = geometryFactory.getPrecisionModel();
+        Coordinate[] coordinates = new Coordinate[size];
+
+        for (int i = 0; i < size; i++) {
+            coordinates[i] = new Coordinate(precisionModel.makePrecise(first[i]),
+                    precisionModel.makePrecise(second[i]));
+        }
+
+        return geometryFactory.createMultiPoint(coordinates);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * Reduces an image that arrives as consecutive bands of rows to at most a given number of pixels.
+ * Every pixel of the reduced image is the average of a square of {@link #getFactor()} pixels on a
+ * side, so only the reduced image and the sums of one of its rows are held.
+ */
+final class AreaAveragingDownsampler {
+
+    private final int width;
+
+    private final int height;
+
+    private final int factor;
+
+    private final BufferedImage image;
+
+    private final int bandCount;
+
+    private final long[] sums;
+
+    private final int[] row;
+
+    private final int[] reducedRow;
+
+    private int rowCount;
+
+    /**
+     * @param width     the width of the image
+     * @param height    the height of the image
+     * @param maxPixels the maximum number of pixels in the reduced image
+     */
+    AreaAveragingDownsampler(int width, int height, long maxPixels) {
+        if (width <= 0 || height <= 0 || maxPixels <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "the image and the reduced image must have pixels. Values were %s x %s and %s.",
+                    width,
+                    height,
+                    maxPixels));
+        }
+
+        this.width = width;
+        this.height = height;
+        this.factor = calculateFactor(width, height, maxPixels);
+        this.image = new BufferedImage(ceilDiv(width, factor),
+                ceilDiv(height, factor),
+                BufferedImage.TYPE_3BYTE_BGR);
+        this.bandCount = image.getRaster()
+                .getNumBands();
+        this.sums = new long[image.getWidth() * bandCount];
+        this.row = new int[width * bandCount];
+        this.reducedRow = new int[sums.length];
+    }
+
+    /**
+     * @return the smallest factor that reduces the image to at most the given number of pixels
+     */
+    static int calculateFactor(long width, long height, long maxPixels) {
+        int factor = (int) Math.max(1, Math.ceil(Math.sqrt((double) width * height / maxPixels)));
+        while ((long) ceilDiv(width, factor) * ceilDiv(height, factor) > maxPixels) {
+            factor++;
+        }
+        return factor;
+    }
+
+    /**
+     * @param band     the next rows of the image, of the same type as the reduced image
+     * @param rowCount the number of rows at the top of the band that belong to the image
+     */
+    void addRows(BufferedImage band, int rowCount) {
+        if (band.getWidth() != width || band.getType() != image.getType()) {
+            throw new IllegalArgumentException(String.format(
+                    "the band must be a %s pixel wide image of type %s.",
+                    width,
+                    image.getType()));
+        }
+        if (this.rowCount + rowCount > height) {
+            throw new IllegalStateException(String.format("the image only has %s rows.", height));
+        }
+
+        Raster raster = band.getRaster();
+        for (int y = 0; y < rowCount; y++) {
+            raster.getPixels(0, y, width, 1, row);
+            for (int x = 0; x < width; x++) {
+                int sum = (x / factor) * bandCount;
+                int sample = x * bandCount;
+                for (int b = 0; b < bandCount; b++) {
+                    sums[sum + b] += row[sample + b];
+                }
+            }
+
+            this.rowCount++;
+            if (this.rowCount % factor == 0 || this.rowCount == height) {
+                writeReducedRow();
+            }
+        }
+    }
+
+    private void writeReducedRow() {
+        int reducedY = (this.rowCount - 1) / factor;
+        int rows = this.rowCount - reducedY * factor;
+        int reducedWidth = image.getWidth();
+
+        for (int x = 0; x < reducedWidth; x++) {
+            int columns = Math.min(factor, width - x * factor);
+            long area = (long) columns * rows;
+            for (int b = 0; b < bandCount; b++) {
+                int sum = x * bandCount + b;
+                reducedRow[sum] = (int) ((sums[sum] + area / 2) / area);
+                sums[sum] = 0;
+            }
+        }
+
+        WritableRaster raster = image.getRaster();
+        raster.setPixels(0, reducedY, reducedWidth, 1, reducedRow);
+    }
+
+    /**
+     * @return the number of pixels on a side of the square that each reduced pixel averages
+     */
+    int getFactor() {
+        return factor;
+    }
+
+    /**
+     * @return the reduced image, complete once every row of the image has been added
+     */
+    BufferedImage getImage() {
+        return image;
+    }
+
+    private static int ceilDiv(long dividend, long divisor) {
+        return (int) ((dividend + divisor - 1) / divisor);
+    }
+}
@@ -16,9 +16,11 @@ package org.codice.alliance.transformer.nitf.image;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import org.apache.commons.lang.StringUtils;
 import org.codice.alliance.catalog.core.api.types.Isr;
+import org.codice.alliance.transformer.nitf.common.AttributeAccumulator;
 import org.codice.alliance.transformer.nitf.common.SegmentHandler;
 import org.codice.imaging.nitf.core.image.ImageCoordinates;
 import org.codice.imaging.nitf.core.image.ImageCoordinatesRepresentation;
@@ -67,24 +69,27 @@ public class NitfImageTransformer extends SegmentHandler {
         validateArgument(metacard, "metacard");
 
         List<Polygon> polygonList = new ArrayList<>();
+        AttributeAccumulator accumulator = new AttributeAccumulator();
 
-        nitfSegmentsFlow.forEachImageSegment(segment -> handleImageSegmentHeader(metacard,
+        nitfSegmentsFlow.forEachImageSegment(segment -> handleImageSegmentHeader(accumulator,
                 segment,
                 polygonList))
-                .forEachGraphicSegment(segment -> handleSegmentHeader(metacard,
+                .forEachGraphicSegment(segment -> handleSegmentHeader(accumulator,
                         segment,
                         GraphicAttribute.values()))
-                .forEachTextSegment(segment -> handleSegmentHeader(metacard,
+                .forEachTextSegment(segment -> handleSegmentHeader(accumulator,
                         segment,
                         TextAttribute.values()))
-                .forEachSymbolSegment(segment -> handleSegmentHeader(metacard,
+                .forEachSymbolSegment(segment -> handleSegmentHeader(accumulator,
                         segment,
                         SymbolAttribute.values()))
-                .forEachLabelSegment(segment -> handleSegmentHeader(metacard,
+                .forEachLabelSegment(segment -> handleSegmentHeader(accumulator,
                         segment,
                         LabelAttribute.values()))
                 .end();
 
+        accumulator.commit(metacard);
+
         // Set GEOGRAPHY from discovered polygons
         if (polygonList.size() == 1) {
             metacard.setAttribute(new AttributeImpl(Core.LOCATION,
@@ -97,20 +102,30 @@ public class NitfImageTransformer extends SegmentHandler {
         }
     }
 
-    private void handleImageSegmentHeader(Metacard metacard, ImageSegment imagesegmentHeader,
-            List<Polygon> polygons) {
+    private void handleImageSegmentHeader(AttributeAccumulator accumulator,
+            ImageSegment imagesegmentHeader, List<Polygon> polygons) {
 
-        handleSegmentHeader(metacard, imagesegmentHeader, ImageAttribute.getAttributes());
+        handleSegmentHeader(accumulator, imagesegmentHeader, ImageAttribute.getAttributes());
 
         // custom handling of image header fields
-        handleGeometry(metacard, imagesegmentHeader, polygons);
-        handleMissionIdentifier(metacard, imagesegmentHeader.getImageIdentifier2());
-        handleComments(metacard, imagesegmentHeader.getImageComments());
-        handleTres(metacard, imagesegmentHeader);
+        handleGeometry(imagesegmentHeader, polygons);
+        getMissionIdentifier(imagesegmentHeader.getImageIdentifier2()).ifPresent(missionId -> {
+            LOGGER.debug("Setting the metacard attribute [{}, {}]", Isr.MISSION_ID, missionId);
+            accumulator.set(Isr.MISSION_ID, missionId);
+        });
+        getComments(imagesegmentHeader.getImageComments()).ifPresent(comments -> {
+            LOGGER.trace("Setting the metacard attribute [{}, {}]", Isr.COMMENTS, comments);
+            accumulator.set(Isr.COMMENTS, comments);
+        });
+        handleTres(accumulator, imagesegmentHeader);
     }
 
     protected void handleGeometry(Metacard metacard, ImageSegment imageSegmentHeader,
             List<Polygon> polygons) {
+        handleGeometry(imageSegmentHeader, polygons);
+    }
+
+    private void handleGeometry(ImageSegment imageSegmentHeader, List<Polygon> polygons) {
         ImageCoordinatesRepresentation imageCoordinatesRepresentation =
                 imageSegmentHeader.getImageCoordinatesRepresentation();
 
@@ -129,21 +144,34 @@ public class NitfImageTransformer extends SegmentHandler {
      * Extracts the mission identifier from the image segment IID2 field
      */
     protected void handleMissionIdentifier(Metacard metacard, String imageIdentifier2) {
+        getMissionIdentifier(imageIdentifier2).ifPresent(missionId -> {
+            LOGGER.debug("Setting the metacard attribute [{}, {}]", Isr.MISSION_ID, missionId);
+            metacard.setAttribute(new AttributeImpl(Isr.MISSION_ID, missionId));
+        });
+    }
+
+    private Optional<String> getMissionIdentifier(String imageIdentifier2) {
         final int startIndex = 7; // inclusive
         final int endIndex = 11; // exclusive
 
         if (StringUtils.isNotBlank(imageIdentifier2) && imageIdentifier2.length() > endIndex) {
-            String missionId = imageIdentifier2.substring(startIndex, endIndex);
-
-            LOGGER.debug("Setting the metacard attribute [{}, {}]", Isr.MISSION_ID, missionId);
-            metacard.setAttribute(new AttributeImpl(Isr.MISSION_ID, missionId));
+            return Optional.of(imageIdentifier2.substring(startIndex, endIndex));
         }
+
+        return Optional.empty();
     }
 
     /*
      * Appends the ICOMn fields together to form a single block comment
      */
     protected void handleComments(Metacard metacard, List<String> comments) {
+        getComments(comments).ifPresent(comment -> {
+            LOGGER.trace("Setting the metacard attribute [{}, {}]", Isr.COMMENTS, comment);
+            metacard.setAttribute(new AttributeImpl(Isr.COMMENTS, comment));
+        });
+    }
+
+    private Optional<String> getComments(List<String> comments) {
         if (comments.size() > 0) {
             StringBuilder sb = new StringBuilder();
             comments.forEach(comment -> {
@@ -152,9 +180,10 @@ public class NitfImageTransformer extends SegmentHandler {
                 }
             });
 
-            LOGGER.trace("Setting the metacard attribute [{}, {}]", Isr.COMMENTS, sb.toString());
-            metacard.setAttribute(new AttributeImpl(Isr.COMMENTS, sb.toString()));
+            return Optional.of(sb.toString());
         }
+
+        return Optional.empty();
     }
 
     private Polygon getPolygonForSegment(ImageSegment segment, GeometryFactory geomFactory) {
@@ -15,10 +15,23 @@ package org.codice.alliance.transformer.nitf.image;
 
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 import javax.activation.MimeTypeParseException;
 import javax.imageio.ImageIO;
@@ -26,20 +39,31 @@ import javax.imageio.spi.IIORegistry;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
+import org.codice.alliance.imaging.pyramid.ImagePyramidWriter;
 import org.codice.alliance.transformer.nitf.MetacardFactory;
+import org.codice.alliance.transformer.nitf.NitfParseSessions;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.core.image.ImageSegment;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
 import org.codice.imaging.nitf.render.NitfRenderer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.jaiimageio.jpeg2000.impl.J2KImageReaderSpi;
 import com.google.common.io.ByteSource;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.io.FileBackedOutputStream;
 
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.data.impl.ContentItemImpl;
 import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.content.operation.CreateStorageResponse;
+import ddf.catalog.content.operation.StorageRequest;
 import ddf.catalog.content.operation.UpdateStorageRequest;
+import ddf.catalog.content.operation.UpdateStorageResponse;
+import ddf.catalog.content.plugin.PostCreateStoragePlugin;
+import ddf.catalog.content.plugin.PostUpdateStoragePlugin;
 import ddf.catalog.content.plugin.PreCreateStoragePlugin;
 import ddf.catalog.content.plugin.PreUpdateStoragePlugin;
 import ddf.catalog.data.Attribute;
@@ -52,11 +76,35 @@ import net.coobird.thumbnailator.Thumbnails;
 /**
  * This pre-storage plugin creates and stores the NITF thumbnail and NITF overview images. The
  * thumbnail is stored with the Metacard while the overview is stored in the content store.
+ * <p>
+ * A tiled, multi-resolution pyramid of the original image is stored in the content store as well,
+ * so chips can be read from the tiles that intersect them instead of from the whole image.
+ * <p>
+ * The first image segment is rendered block by block and handed on in bands of rows, so the heap
+ * used does not depend on the size of the NITF image. The original and the pyramid are encoded
+ * from the bands at full resolution, and the bands are reduced to a preview of at most
+ * {@link #setMaxPreviewPixels(int)} pixels that the thumbnail and overview are created from. A
+ * segment wider or higher than JPEG allows has no original. The derived images are
+ * encoded to streams that spill to temporary files, which are deleted once the request has been
+ * stored.
+ * <p>
+ * The content items of a request are rendered on a pool of {@link #setDerivativeThreads(int)}
+ * threads and the derived images of each item are encoded in parallel. The bands and the preview
+ * of an image are only allocated once the pixels of all images being rendered or encoded fit in
+ * {@link #setMaxConcurrentPixels(int)}, so the heap used does not grow with the parallelism.
+ * <p>
+ * When the input transformer of the same ingest shared its parse through
+ * {@link NitfParseSessions}, the image segment is rendered from it and the content item is not
+ * read again.
  */
-public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateStoragePlugin {
+public class NitfPreStoragePlugin
+        implements PreCreateStoragePlugin, PreUpdateStoragePlugin, PostCreateStoragePlugin,
+        PostUpdateStoragePlugin {
 
     private static final String IMAGE_JPEG = "image/jpeg";
 
+    private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+
     private static final int THUMBNAIL_WIDTH = 200;
 
     private static final int THUMBNAIL_HEIGHT = 200;
@@ -69,6 +117,10 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
 
     private static final String ORIGINAL = "original";
 
+    private static final String PYRAMID = "pyramid";
+
+    private static final String PYR = "pyr";
+
     private static final String DERIVED_IMAGE_FILENAME_PATTERN = "%s-%s.%s";
 
     // non-word characters equivalent to [^a-zA-Z0-9_]
@@ -76,8 +128,46 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
 
     private static final double DEFAULT_MAX_SIDE_LENGTH = 1024.0;
 
+    /**
+     * Four times the largest overview of the default size, about 12MB of heap for a 3-byte image.
+     */
+    private static final int DEFAULT_MAX_PREVIEW_PIXELS = 4 * 1024 * 1024;
+
+    /**
+     * About 400MB of heap for 3-byte images.
+     */
+    private static final int DEFAULT_MAX_CONCURRENT_PIXELS = 128 * 1024 * 1024;
+
+    private static final int DEFAULT_DERIVATIVE_THREADS = Runtime.getRuntime()
+            .availableProcessors();
+
+    /**
+     * Encoded derived images larger than this are written to a temporary file.
+     */
+    private static final int DERIVED_IMAGE_MEMORY_THRESHOLD = 1024 * 1024;
+
     private double maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
 
+    private int maxPreviewPixels = DEFAULT_MAX_PREVIEW_PIXELS;
+
+    private NitfParseSessions parseSessions;
+
+    private int derivativeThreads = DEFAULT_DERIVATIVE_THREADS;
+
+    private ForkJoinPool derivativePool = new ForkJoinPool(DEFAULT_DERIVATIVE_THREADS);
+
+    private int maxConcurrentPixels = DEFAULT_MAX_CONCURRENT_PIXELS;
+
+    private final PixelAdmission pixelAdmission = new PixelAdmission(
+            DEFAULT_MAX_CONCURRENT_PIXELS);
+
+    /**
+     * The streams of the derived images of each request that has not been stored yet. A request
+     * that fails to be stored is dropped once it is no longer referenced.
+     */
+    private final Map<StorageRequest, List<FileBackedOutputStream>> derivedImageStreams =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     static {
         IIORegistry.getDefaultInstance().registerServiceProvider(new J2KImageReaderSpi());
     }
@@ -90,7 +180,7 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
                     "process(): argument 'createStorageRequest' may not be null.");
         }
 
-        process(createStorageRequest.getContentItems());
+        process(createStorageRequest, createStorageRequest.getContentItems());
         return createStorageRequest;
     }
 
@@ -102,10 +192,54 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
                     "process(): argument 'updateStorageRequest' may not be null.");
         }
 
-        process(updateStorageRequest.getContentItems());
+        process(updateStorageRequest, updateStorageRequest.getContentItems());
         return updateStorageRequest;
     }
 
+    @Override
+    public CreateStorageResponse process(CreateStorageResponse createStorageResponse)
+        throws PluginExecutionException {
+        if (createStorageResponse == null) {
+            throw new PluginExecutionException(
+                    "process(): argument 'createStorageResponse' may not be null.");
+        }
+
+        resetDerivedImageStreams(createStorageResponse.getRequest());
+        return createStorageResponse;
+    }
+
+    @Override
+    public UpdateStorageResponse process(UpdateStorageResponse updateStorageResponse)
+        throws PluginExecutionException {
+        if (updateStorageResponse == null) {
+            throw new PluginExecutionException(
+                    "process(): argument 'updateStorageResponse' may not be null.");
+        }
+
+        resetDerivedImageStreams(updateStorageResponse.getRequest());
+        return updateStorageResponse;
+    }
+
+    /**
+     * The derived images have been copied to the content store, so delete their temporary files.
+     */
+    private void resetDerivedImageStreams(StorageRequest storageRequest) {
+        List<FileBackedOutputStream> streams = derivedImageStreams.remove(storageRequest);
+        if (streams == null) {
+            return;
+        }
+
+        streams.forEach(NitfPreStoragePlugin::reset);
+    }
+
+    private static void reset(FileBackedOutputStream stream) {
+        try {
+            stream.reset();
+        } catch (IOException e) {
+            LOGGER.debug("unable to delete the temporary file of a derived image", e);
+        }
+    }
+
     private boolean isNitfMimeType(String rawMimeType) {
         try {
             return MetacardFactory.MIME_TYPE.match(rawMimeType);
@@ -118,126 +252,263 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         return false;
     }
 
-    private void process(List<ContentItem> contentItems) {
+    /**
+     * Create the derivatives of every NITF content item on the derivative pool and add them to the
+     * request in the order of the content items. The streams of the derived images are kept until
+     * the request has been stored.
+     */
+    private void process(StorageRequest storageRequest, List<ContentItem> contentItems) {
+        List<ContentItem> nitfContentItems = new ArrayList<>();
+        List<Future<Derivatives>> futures = new ArrayList<>();
+
+        for (ContentItem contentItem : contentItems) {
+            if (isNitfMimeType(contentItem.getMimeTypeRawData())) {
+                nitfContentItems.add(contentItem);
+                futures.add(derivativePool.submit(() -> createDerivatives(contentItem)));
+            } else {
+                LOGGER.debug("skipping content item: filename={} mimeType={}",
+                        contentItem.getFilename(), contentItem.getMimeTypeRawData());
+            }
+        }
+
         List<ContentItem> newContentItems = new ArrayList<>();
-        contentItems.forEach(contentItem -> process(contentItem, newContentItems));
+        List<FileBackedOutputStream> streams = new ArrayList<>();
+        for (int i = 0; i < nitfContentItems.size(); i++) {
+            Derivatives derivatives = getDerivatives(futures.get(i));
+            if (derivatives != null) {
+                addDerivatives(nitfContentItems.get(i), derivatives, newContentItems);
+                derivatives.addStreams(streams);
+            }
+        }
+
         contentItems.addAll(newContentItems);
+
+        if (!streams.isEmpty()) {
+            derivedImageStreams.put(storageRequest, streams);
+        }
     }
 
-    private void process(ContentItem contentItem, List<ContentItem> contentItems) {
-        Metacard metacard = contentItem.getMetacard();
+    private Derivatives getDerivatives(Future<Derivatives> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            future.cancel(true);
+        } catch (ExecutionException e) {
+            LOGGER.debug(e.getMessage(), e);
+        }
+        return null;
+    }
 
-        if (!isNitfMimeType(contentItem.getMimeTypeRawData())) {
-            LOGGER.debug("skipping content item: filename={} mimeType={}",
-                    contentItem.getFilename(), contentItem.getMimeTypeRawData());
-            return;
+    /**
+     * Render the content item, encoding the original and the pyramid while it is rendered, and
+     * encode the images derived from the preview in parallel. Runs on the derivative pool and only
+     * reads the rendered image, the metacard is updated by the caller.
+     */
+    private Derivatives createDerivatives(ContentItem contentItem) {
+        try (SegmentEncoder segmentEncoder = new SegmentEncoder()) {
+            if (!renderImage(contentItem, segmentEncoder)) {
+                return null;
+            }
+
+            int width = segmentEncoder.width;
+            int height = segmentEncoder.height;
+            BufferedImage preview = segmentEncoder.preview.getImage();
+
+            ForkJoinTask<byte[]> thumbnail = fork(() -> createThumbnail(preview));
+            EncodedImage overview = encodeImage(preview,
+                    calculateOverviewWidth(width, height),
+                    calculateOverviewHeight(width, height));
+
+            return new Derivatives(thumbnail.join(),
+                    overview,
+                    segmentEncoder.original.take(),
+                    segmentEncoder.pyramid.take());
+        } catch (IOException | ParseException | NitfFormatException | RuntimeException e) {
+            LOGGER.debug(e.getMessage(), e);
         }
 
-        try {
-            BufferedImage renderedImage = renderImage(contentItem);
+        return null;
+    }
 
-            if (renderedImage != null) {
-                addThumbnailToMetacard(metacard, renderedImage);
+    private static <T> ForkJoinTask<T> fork(Callable<T> callable) {
+        return ForkJoinTask.adapt(callable)
+                .fork();
+    }
 
-                ContentItem overviewContentItem = createDerivedImage(contentItem.getId(), OVERVIEW,
-                        renderedImage, metacard, calculateOverviewWidth(renderedImage),
-                        calculateOverviewHeight(renderedImage));
+    private void addDerivatives(ContentItem contentItem, Derivatives derivatives,
+            List<ContentItem> contentItems) {
+        Metacard metacard = contentItem.getMetacard();
 
-                contentItems.add(overviewContentItem);
+        if (derivatives.thumbnail.length > 0) {
+            metacard.setAttribute(new AttributeImpl(Core.THUMBNAIL, derivatives.thumbnail));
+        }
 
-                ContentItem originalImageContentItem = createDerivedImage(contentItem.getId(),
-                        ORIGINAL, renderedImage, metacard, renderedImage.getWidth(),
-                        renderedImage.getHeight());
+        addDerivedImage(contentItems,
+                contentItem.getId(),
+                OVERVIEW,
+                derivatives.overview,
+                IMAGE_JPEG,
+                buildDerivedImageTitle(metacard.getTitle(), OVERVIEW),
+                metacard);
+        addDerivedImage(contentItems,
+                contentItem.getId(),
+                ORIGINAL,
+                derivatives.original,
+                IMAGE_JPEG,
+                buildDerivedImageTitle(metacard.getTitle(), ORIGINAL),
+                metacard);
+        addDerivedImage(contentItems,
+                contentItem.getId(),
+                PYRAMID,
+                derivatives.pyramid,
+                APPLICATION_OCTET_STREAM,
+                buildDerivedImageTitle(metacard.getTitle(), PYRAMID, PYR),
+                metacard);
+    }
 
-                contentItems.add(originalImageContentItem);
-            }
-        } catch (IOException | ParseException | NitfFormatException | UnsupportedOperationException e) {
+    private void addDerivedImage(List<ContentItem> contentItems, String id, String qualifier,
+            EncodedImage encodedImage, String mimeType, String filename, Metacard metacard) {
+        if (encodedImage == null) {
+            return;
+        }
+
+        try {
+            ContentItem contentItem = new ContentItemImpl(id, qualifier, encodedImage.source,
+                    mimeType, filename, encodedImage.size, metacard);
+
+            addDerivedResourceAttribute(metacard, contentItem);
+
+            contentItems.add(contentItem);
+        } catch (IllegalArgumentException e) {
             LOGGER.debug(e.getMessage(), e);
         }
     }
 
-    private BufferedImage renderImage(ContentItem contentItem)
+    /**
+     * @return true if the first image segment with pixels was rendered into the encoder
+     */
+    private boolean renderImage(ContentItem contentItem, SegmentEncoder segmentEncoder)
         throws IOException, ParseException, NitfFormatException {
 
-        final ThreadLocal<BufferedImage> bufferedImage = new ThreadLocal<>();
+        if (contentItem == null) {
+            return false;
+        }
+
+        NitfSegmentsFlow nitfSegmentsFlow = takeParseSession(contentItem).orElse(null);
 
-        if (contentItem != null && contentItem.getInputStream() != null) {
+        if (nitfSegmentsFlow == null && contentItem.getInputStream() != null) {
+            nitfSegmentsFlow = new NitfParserInputFlow().inputStream(contentItem.getInputStream())
+                    .allData();
+        }
+
+        if (nitfSegmentsFlow != null) {
             NitfRenderer renderer = new NitfRenderer();
 
-            new NitfParserInputFlow().inputStream(contentItem.getInputStream()).allData()
-                    .forEachImageSegment(segment -> {
-                        if (bufferedImage.get() == null) {
-                            try {
-                                bufferedImage.set(renderer.render(segment));
-                            } catch (IOException e) {
-                                LOGGER.debug(e.getMessage(), e);
-                            }
-                        }
-                    }).end();
+            nitfSegmentsFlow.forEachImageSegment(segment -> {
+                if (!segmentEncoder.isStarted()) {
+                    try {
+                        segmentEncoder.render(renderer, segment);
+                    } catch (IOException e) {
+                        LOGGER.debug(e.getMessage(), e);
+                    }
+                }
+            }).end();
         }
 
-        return bufferedImage.get();
+        return segmentEncoder.isRendered();
     }
 
-    private void addThumbnailToMetacard(Metacard metacard, BufferedImage bufferedImage) {
-        try {
-            byte[] thumbnailImage = scaleImage(bufferedImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+    /**
+     * @return the segments parsed by the input transformer of the same ingest, if they were shared
+     */
+    private Optional<NitfSegmentsFlow> takeParseSession(ContentItem contentItem) {
+        if (parseSessions == null) {
+            return Optional.empty();
+        }
 
-            if (thumbnailImage.length > 0) {
-                metacard.setAttribute(new AttributeImpl(Core.THUMBNAIL, thumbnailImage));
-            }
+        String id = contentItem.getId();
+        Optional<NitfSegmentsFlow> nitfSegmentsFlow = parseSessions.take(id);
+        LOGGER.debug("NITF parse session: id={} shared={}", id, nitfSegmentsFlow.isPresent());
+        return nitfSegmentsFlow;
+    }
+
+    private byte[] createThumbnail(BufferedImage bufferedImage) {
+        try {
+            return scaleImage(bufferedImage, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
         } catch (IOException e) {
             LOGGER.debug(e.getMessage(), e);
         }
+
+        return new byte[0];
     }
 
-    private ContentItem createDerivedImage(String id, String qualifier, BufferedImage image,
-            Metacard metacard, int maxWidth, int maxHeight) {
+    private EncodedImage encodeImage(BufferedImage image, int maxWidth, int maxHeight) {
+        FileBackedOutputStream fileBackedOutputStream = new FileBackedOutputStream(
+                DERIVED_IMAGE_MEMORY_THRESHOLD,
+                true);
         try {
-            byte[] overviewBytes = scaleImage(image, maxWidth, maxHeight);
-
-            ByteSource source = ByteSource.wrap(overviewBytes);
-            ContentItem contentItem = new ContentItemImpl(id, qualifier, source, IMAGE_JPEG,
-                    buildDerivedImageTitle(metacard.getTitle(), qualifier), overviewBytes.length,
-                    metacard);
-
-            addDerivedResourceAttribute(metacard, contentItem);
+            long size;
+            try (CountingOutputStream outputStream = new CountingOutputStream(
+                    fileBackedOutputStream)) {
+                scaleImage(image, maxWidth, maxHeight, outputStream);
+                size = outputStream.getCount();
+            }
 
-            return contentItem;
+            return new EncodedImage(fileBackedOutputStream.asByteSource(),
+                    size,
+                    fileBackedOutputStream);
         } catch (IOException e) {
             LOGGER.debug(e.getMessage(), e);
+            reset(fileBackedOutputStream);
         }
 
         return null;
     }
 
     String buildDerivedImageTitle(String title, String qualifier) {
+        return buildDerivedImageTitle(title, qualifier, JPG);
+    }
+
+    String buildDerivedImageTitle(String title, String qualifier, String extension) {
         String rootFileName = FilenameUtils.getBaseName(title);
 
         // title must contain some alphanumeric, human readable characters, or use default filename
         if (StringUtils.isNotBlank(rootFileName)
                 && StringUtils.isNotBlank(rootFileName.replaceAll("[^A-Za-z0-9]", ""))) {
             String strippedFilename = rootFileName.replaceAll(INVALID_FILENAME_CHARACTER_REGEX, "");
-            return String.format(DERIVED_IMAGE_FILENAME_PATTERN, qualifier, strippedFilename, JPG)
+            return String.format(DERIVED_IMAGE_FILENAME_PATTERN,
+                    qualifier,
+                    strippedFilename,
+                    extension)
                     .toLowerCase();
         }
 
-        return String.format("%s.%s", qualifier, JPG).toLowerCase();
+        return String.format("%s.%s", qualifier, extension).toLowerCase();
     }
 
     private byte[] scaleImage(final BufferedImage bufferedImage, int width, int height)
         throws IOException {
-        BufferedImage thumbnail = Thumbnails.of(bufferedImage).size(width, height).outputFormat(JPG)
-                .imageType(BufferedImage.TYPE_3BYTE_BGR).asBufferedImage();
-
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        ImageIO.write(thumbnail, JPG, outputStream);
+        scaleImage(bufferedImage, width, height, outputStream);
         outputStream.flush();
         byte[] thumbnailBytes = outputStream.toByteArray();
         outputStream.close();
         return thumbnailBytes;
     }
 
+    private void scaleImage(final BufferedImage bufferedImage, int width, int height,
+            OutputStream outputStream) throws IOException {
+        BufferedImage scaledImage = bufferedImage;
+        if (bufferedImage.getWidth() != width || bufferedImage.getHeight() != height) {
+            scaledImage = Thumbnails.of(bufferedImage).size(width, height).outputFormat(JPG)
+                    .imageType(BufferedImage.TYPE_3BYTE_BGR).asBufferedImage();
+        }
+
+        ImageIO.write(scaledImage, JPG, outputStream);
+    }
+
     private void addDerivedResourceAttribute(Metacard metacard, ContentItem contentItem) {
         Attribute attribute = metacard.getAttribute(Core.DERIVED_RESOURCE_URI);
         if (attribute == null) {
@@ -251,10 +522,7 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         metacard.setAttribute(attribute);
     }
 
-    private int calculateOverviewHeight(BufferedImage image) {
-        final int width = image.getWidth();
-        final int height = image.getHeight();
-
+    private int calculateOverviewHeight(int width, int height) {
         if (width >= height) {
             return (int) Math.round(height * (maxSideLength / width));
         }
@@ -262,10 +530,7 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         return Math.min(height, (int) maxSideLength);
     }
 
-    private int calculateOverviewWidth(BufferedImage image) {
-        final int width = image.getWidth();
-        final int height = image.getHeight();
-
+    private int calculateOverviewWidth(int width, int height) {
         if (width >= height) {
             return Math.min(width, (int) maxSideLength);
         }
@@ -284,4 +549,391 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
             this.maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
         }
     }
+
+    /**
+     * @param maxPreviewPixels the maximum number of pixels in the preview that the thumbnail and
+     *                         overview are created from. Larger images are reduced while they are
+     *                         rendered, the original and the pyramid keep the full resolution.
+     *                         Values that are not positive use the default.
+     */
+    public void setMaxPreviewPixels(int maxPreviewPixels) {
+        if (maxPreviewPixels > 0) {
+            LOGGER.trace("Setting derived image maxPreviewPixels to {}", maxPreviewPixels);
+            this.maxPreviewPixels = maxPreviewPixels;
+        } else {
+            LOGGER.debug(
+                    "Invalid `maxPreviewPixels` value [{}], must be greater than zero. Default value [{}] will be used instead.",
+                    maxPreviewPixels, DEFAULT_MAX_PREVIEW_PIXELS);
+            this.maxPreviewPixels = DEFAULT_MAX_PREVIEW_PIXELS;
+        }
+    }
+
+    /**
+     * @param parseSessions if set, the segments parsed by the input transformer of the same ingest
+     *                      are rendered instead of parsing the content item again, may be null
+     */
+    public void setParseSessions(NitfParseSessions parseSessions) {
+        this.parseSessions = parseSessions;
+    }
+
+    public int getDerivativeThreads() {
+        return derivativeThreads;
+    }
+
+    /**
+     * @param derivativeThreads the number of threads that render and encode derived images. Values
+     *                          that are not positive use the number of processors.
+     */
+    public void setDerivativeThreads(int derivativeThreads) {
+        int threads = derivativeThreads > 0 ? derivativeThreads : DEFAULT_DERIVATIVE_THREADS;
+
+        if (threads != this.derivativeThreads) {
+            LOGGER.trace("Setting derivativeThreads to {}", threads);
+            ForkJoinPool oldPool = derivativePool;
+            this.derivativeThreads = threads;
+            this.derivativePool = new ForkJoinPool(threads);
+            oldPool.shutdown();
+        }
+    }
+
+    public int getMaxConcurrentPixels() {
+        return maxConcurrentPixels;
+    }
+
+    /**
+     * @param maxConcurrentPixels the maximum number of pixels in the bands, previews and pyramid
+     *                            tile rows of all rendered images held at once. An image that
+     *                            needs more is rendered on its own. Values that are not positive
+     *                            use the default.
+     */
+    public void setMaxConcurrentPixels(int maxConcurrentPixels) {
+        if (maxConcurrentPixels > 0) {
+            LOGGER.trace("Setting maxConcurrentPixels to {}", maxConcurrentPixels);
+            this.maxConcurrentPixels = maxConcurrentPixels;
+        } else {
+            LOGGER.debug(
+                    "Invalid `maxConcurrentPixels` value [{}], must be greater than zero. Default value [{}] will be used instead.",
+                    maxConcurrentPixels, DEFAULT_MAX_CONCURRENT_PIXELS);
+            this.maxConcurrentPixels = DEFAULT_MAX_CONCURRENT_PIXELS;
+        }
+        pixelAdmission.setMaxPixels(this.maxConcurrentPixels);
+    }
+
+    /**
+     * Stop the derivative threads once the running tasks have finished.
+     */
+    public void destroy() {
+        derivativePool.shutdown();
+    }
+
+    /**
+     * Receives the bands of the rendered image segment. The original and the pyramid are encoded
+     * from each band while the band is added to the preview.
+     */
+    private final class SegmentEncoder implements RowBandGraphics.BandConsumer, Closeable {
+
+        private int width;
+
+        private int height;
+
+        private boolean started;
+
+        private boolean rendered;
+
+        private PixelAdmission.Permit permit;
+
+        private AreaAveragingDownsampler preview;
+
+        private final DerivedImageEncoder original = new DerivedImageEncoder();
+
+        private final DerivedImageEncoder pyramid = new DerivedImageEncoder();
+
+        private boolean isStarted() {
+            return started;
+        }
+
+        private boolean isRendered() {
+            return rendered;
+        }
+
+        private void render(NitfRenderer renderer, ImageSegment segment) throws IOException {
+            long columns = segment.getNumberOfColumns();
+            long rows = segment.getNumberOfRows();
+
+            if (columns <= 0 || rows <= 0 || columns > Integer.MAX_VALUE
+                    || rows > Integer.MAX_VALUE) {
+                return;
+            }
+
+            LOGGER.debug("rendering image segment: columns={} rows={}", columns, rows);
+
+            started = true;
+            width = (int) columns;
+            height = (int) rows;
+
+            RowBandGraphics graphics = new RowBandGraphics(width, height, this);
+            try {
+                renderer.render(segment, graphics);
+                graphics.finish();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                graphics.dispose();
+            }
+
+            original.finish();
+            pyramid.finish();
+            rendered = true;
+        }
+
+        /**
+         * Acquire the pixels of a band, a strip of the original, the rows of tiles of the pyramid
+         * and the preview, then allocate them.
+         */
+        @Override
+        public void start(int bandHeight) throws IOException {
+            ImagePyramidWriter pyramidWriter = new ImagePyramidWriter();
+            boolean encodeOriginal = width <= StripedJpegWriter.MAX_SIDE_LENGTH
+                    && height <= StripedJpegWriter.MAX_SIDE_LENGTH;
+
+            long pixels = (long) width * bandHeight + Math.min(maxPreviewPixels,
+                    (long) width * height) + pyramidWriter.getBufferedPixels(width, height);
+            if (encodeOriginal) {
+                pixels += (long) width * StripedJpegWriter.STRIP_ROWS;
+            }
+
+            try {
+                permit = pixelAdmission.acquire(pixels);
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+                throw new InterruptedIOException("interrupted while waiting for pixel admission");
+            }
+
+            preview = new AreaAveragingDownsampler(width, height, maxPreviewPixels);
+
+            if (encodeOriginal) {
+                original.start(outputStream -> {
+                    StripedJpegWriter jpegWriter = new StripedJpegWriter(width,
+                            height,
+                            outputStream);
+                    return new BandWriter() {
+                        @Override
+                        public void writeRows(BufferedImage band, int rowCount)
+                            throws IOException {
+                            jpegWriter.writeRows(band, rowCount);
+                        }
+
+                        @Override
+                        public byte[] finish() throws IOException {
+                            jpegWriter.finish();
+                            return new byte[0];
+                        }
+
+                        @Override
+                        public void close() {
+                            jpegWriter.close();
+                        }
+                    };
+                });
+            } else {
+                LOGGER.debug("image segment too large for a JPEG original: columns={} rows={}",
+                        width,
+                        height);
+            }
+
+            pyramid.start(outputStream -> {
+                pyramidWriter.startTiles(width, height, outputStream);
+                return new BandWriter() {
+                    @Override
+                    public void writeRows(BufferedImage band, int rowCount) throws IOException {
+                        pyramidWriter.writeRows(band, rowCount);
+                    }
+
+                    @Override
+                    public byte[] finish() throws IOException {
+                        pyramidWriter.finishTiles();
+
+                        ByteArrayOutputStream headerOutputStream = new ByteArrayOutputStream();
+                        pyramidWriter.writeHeader(headerOutputStream);
+                        return headerOutputStream.toByteArray();
+                    }
+                };
+            });
+        }
+
+        @Override
+        public void consume(BufferedImage band, int rowCount) {
+            ForkJoinTask<Void> originalRows = fork(() -> {
+                original.writeRows(band, rowCount);
+                return null;
+            });
+
+            pyramid.writeRows(band, rowCount);
+            preview.addRows(band, rowCount);
+
+            originalRows.join();
+        }
+
+        /**
+         * Release the pixels and delete the derived images that were not taken.
+         */
+        @Override
+        public void close() {
+            original.close();
+            pyramid.close();
+            Optional.ofNullable(permit)
+                    .ifPresent(PixelAdmission.Permit::close);
+        }
+    }
+
+    /**
+     * Writes the bands of a derived image to the stream of a {@link DerivedImageEncoder}.
+     */
+    private interface BandWriter {
+
+        void writeRows(BufferedImage band, int rowCount) throws IOException;
+
+        /**
+         * @return the bytes to store in front of the bytes written to the stream
+         */
+        byte[] finish() throws IOException;
+
+        default void close() {
+        }
+    }
+
+    private interface BandWriterFactory {
+
+        BandWriter create(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Encodes a derived image from the bands into a stream that spills to a temporary file. A
+     * derived image that fails to encode is dropped without stopping the others.
+     */
+    private static final class DerivedImageEncoder implements Closeable {
+
+        private FileBackedOutputStream stream;
+
+        private CountingOutputStream countingStream;
+
+        private BandWriter bandWriter;
+
+        private EncodedImage encodedImage;
+
+        private void start(BandWriterFactory bandWriterFactory) {
+            stream = new FileBackedOutputStream(DERIVED_IMAGE_MEMORY_THRESHOLD, true);
+            countingStream = new CountingOutputStream(stream);
+            try {
+                bandWriter = bandWriterFactory.create(countingStream);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void writeRows(BufferedImage band, int rowCount) {
+            if (bandWriter == null) {
+                return;
+            }
+
+            try {
+                bandWriter.writeRows(band, rowCount);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void finish() {
+            if (bandWriter == null) {
+                return;
+            }
+
+            try {
+                byte[] header = bandWriter.finish();
+                countingStream.close();
+
+                ByteSource source = stream.asByteSource();
+                if (header.length > 0) {
+                    source = ByteSource.concat(ByteSource.wrap(header), source);
+                }
+                encodedImage = new EncodedImage(source,
+                        header.length + countingStream.getCount(),
+                        stream);
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Exception e) {
+            LOGGER.debug(e.getMessage(), e);
+            close();
+        }
+
+        /**
+         * @return the encoded image, which is no longer deleted when the encoder is closed, or
+         * null if it failed
+         */
+        private EncodedImage take() {
+            EncodedImage taken = encodedImage;
+            encodedImage = null;
+            stream = null;
+            return taken;
+        }
+
+        @Override
+        public void close() {
+            if (bandWriter != null) {
+                bandWriter.close();
+                bandWriter = null;
+            }
+            if (stream != null) {
+                reset(stream);
+                stream = null;
+            }
+            encodedImage = null;
+        }
+    }
+
+    private static final class EncodedImage {
+
+        private final ByteSource source;
+
+        private final long size;
+
+        private final FileBackedOutputStream stream;
+
+        private EncodedImage(ByteSource source, long size, FileBackedOutputStream stream) {
+            this.source = source;
+            this.size = size;
+            this.stream = stream;
+        }
+    }
+
+    private static final class Derivatives {
+
+        private final byte[] thumbnail;
+
+        private final EncodedImage overview;
+
+        private final EncodedImage original;
+
+        private final EncodedImage pyramid;
+
+        private Derivatives(byte[] thumbnail, EncodedImage overview, EncodedImage original,
+                EncodedImage pyramid) {
+            this.thumbnail = thumbnail;
+            this.overview = overview;
+            this.original = original;
+            this.pyramid = pyramid;
+        }
+
+        private void addStreams(List<FileBackedOutputStream> streams) {
+            for (EncodedImage encodedImage : new EncodedImage[] {overview, original, pyramid}) {
+                if (encodedImage != null) {
+                    streams.add(encodedImage.stream);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Bounds the number of pixels in the images that are rendered at the same time. A caller acquires
+ * a permit for the pixels of an image before allocating it and closes the permit once the image
+ * is no longer used. Waiting callers are admitted in order, so a large image is not starved by
+ * small ones. A request for more pixels than the limit waits until it can run alone.
+ * <p>
+ * The limit can be changed while permits are outstanding, the outstanding permits stay counted
+ * against the new limit. Callers wait through {@link ForkJoinPool#managedBlock}, so a fork/join
+ * pool can start another worker while one of its workers waits for pixels.
+ */
+final class PixelAdmission {
+
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+
+    private int maxPixels;
+
+    private long usedPixels;
+
+    PixelAdmission(int maxPixels) {
+        Validate.isTrue(maxPixels > 0, "maxPixels must be positive");
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * @param pixels the number of pixels in the image
+     * @return the permit, which must be closed once the image is no longer used
+     * @throws InterruptedException if interrupted while waiting for the pixels to be available
+     */
+    Permit acquire(long pixels) throws InterruptedException {
+        Waiter waiter = new Waiter(pixels);
+        synchronized (this) {
+            waiters.add(waiter);
+        }
+        try {
+            ForkJoinPool.managedBlock(waiter);
+        } catch (InterruptedException e) {
+            synchronized (this) {
+                waiters.remove(waiter);
+                notifyAll();
+            }
+            throw e;
+        }
+        return waiter.permit;
+    }
+
+    /**
+     * @param maxPixels the new limit, the waiting callers are admitted against it
+     */
+    synchronized void setMaxPixels(int maxPixels) {
+        Validate.isTrue(maxPixels > 0, "maxPixels must be positive");
+        this.maxPixels = maxPixels;
+        notifyAll();
+    }
+
+    /**
+     * @return the pixels that can be acquired without waiting, negative while the outstanding
+     * permits exceed a limit that was lowered
+     */
+    synchronized int getAvailablePixels() {
+        return (int) (maxPixels - usedPixels);
+    }
+
+    private synchronized void release(int pixels) {
+        usedPixels -= pixels;
+        notifyAll();
+    }
+
+    private final class Waiter implements ForkJoinPool.ManagedBlocker {
+
+        private final long pixels;
+
+        private Permit permit;
+
+        private Waiter(long pixels) {
+            this.pixels = pixels;
+        }
+
+        /**
+         * Admit this waiter when it is the first in line and its pixels fit in the limit.
+         */
+        @Override
+        public boolean isReleasable() {
+            synchronized (PixelAdmission.this) {
+                if (permit != null) {
+                    return true;
+                }
+                int permits = (int) Math.max(1, Math.min(pixels, maxPixels));
+                if (waiters.peek() != this || usedPixels + permits > maxPixels) {
+                    return false;
+                }
+                waiters.remove();
+                usedPixels += permits;
+                permit = new Permit(permits);
+                PixelAdmission.this.notifyAll();
+                return true;
+            }
+        }
+
+        @Override
+        public boolean block() throws InterruptedException {
+            synchronized (PixelAdmission.this) {
+                while (!isReleasable()) {
+                    PixelAdmission.this.wait();
+                }
+            }
+            return true;
+        }
+    }
+
+    final class Permit implements AutoCloseable {
+
+        private final int permits;
+
+        private boolean released;
+
+        private Permit(int permits) {
+            this.permits = permits;
+        }
+
+        int getPixels() {
+            return permits;
+        }
+
+        @Override
+        public void close() {
+            synchronized (PixelAdmission.this) {
+                if (!released) {
+                    released = true;
+                    release(permits);
+                }
+            }
+        }
+    }
+}
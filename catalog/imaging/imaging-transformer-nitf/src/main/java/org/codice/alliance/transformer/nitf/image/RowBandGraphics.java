@@ -0,0 +1,635 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.DataBufferByte;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.AttributedCharacterIterator;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A graphics context that an image is rendered into block by block, which hands the rendered
+ * image to a {@link BandConsumer} as consecutive bands of full-width rows instead of holding the
+ * whole image. The height of a band is the height of the first image drawn, normally one row of
+ * blocks, and a band is handed on once an image is drawn below it. Images must therefore be
+ * drawn in row order and may not cross the bottom of a band.
+ * <p>
+ * Only images are captured, other drawing operations are ignored. The transform, clip and
+ * rendering hints apply to the images as they would to a {@link BufferedImage} of the full size.
+ */
+final class RowBandGraphics extends Graphics2D {
+
+    private final Bands bands;
+
+    private final Graphics2D delegate;
+
+    /**
+     * @param width    the width of the rendered image
+     * @param height   the height of the rendered image
+     * @param consumer receives the rows of the rendered image, may not be null
+     */
+    RowBandGraphics(int width, int height, BandConsumer consumer) {
+        this(new Bands(width, height, consumer),
+                new BufferedImage(1, 1, BufferedImage.TYPE_3BYTE_BGR).createGraphics());
+    }
+
+    private RowBandGraphics(Bands bands, Graphics2D delegate) {
+        this.bands = bands;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Hand on the remaining rows. Rows that no image was drawn into are black.
+     *
+     * @throws IOException when no image was drawn or the consumer fails
+     */
+    void finish() throws IOException {
+        bands.finish();
+    }
+
+    private boolean capture(Rectangle2D bounds, Predicate<Graphics2D> draw) {
+        Rectangle deviceBounds = delegate.getTransform()
+                .createTransformedShape(bounds)
+                .getBounds();
+
+        try {
+            return bands.draw(deviceBounds, graphics -> {
+                graphics.transform(delegate.getTransform());
+                graphics.setRenderingHints(delegate.getRenderingHints());
+                graphics.setComposite(delegate.getComposite());
+                graphics.setBackground(delegate.getBackground());
+                graphics.setClip(delegate.getClip());
+                return draw.test(graphics);
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Rectangle2D bounds(Image image, double x, double y) {
+        return new Rectangle2D.Double(x, y, image.getWidth(null), image.getHeight(null));
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        return capture(bounds(img, x, y), graphics -> graphics.drawImage(img, x, y, observer));
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+        return capture(bounds(img, x, y),
+                graphics -> graphics.drawImage(img, x, y, bgcolor, observer));
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height,
+            ImageObserver observer) {
+        return capture(new Rectangle(x, y, width, height),
+                graphics -> graphics.drawImage(img, x, y, width, height, observer));
+    }
+
+    @Override
+    public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor,
+            ImageObserver observer) {
+        return capture(new Rectangle(x, y, width, height),
+                graphics -> graphics.drawImage(img, x, y, width, height, bgcolor, observer));
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1,
+            int sx2, int sy2, ImageObserver observer) {
+        return capture(destinationBounds(dx1, dy1, dx2, dy2),
+                graphics -> graphics.drawImage(img,
+                        dx1,
+                        dy1,
+                        dx2,
+                        dy2,
+                        sx1,
+                        sy1,
+                        sx2,
+                        sy2,
+                        observer));
+    }
+
+    @Override
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1,
+            int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+        return capture(destinationBounds(dx1, dy1, dx2, dy2),
+                graphics -> graphics.drawImage(img,
+                        dx1,
+                        dy1,
+                        dx2,
+                        dy2,
+                        sx1,
+                        sy1,
+                        sx2,
+                        sy2,
+                        bgcolor,
+                        observer));
+    }
+
+    private static Rectangle destinationBounds(int dx1, int dy1, int dx2, int dy2) {
+        return new Rectangle(Math.min(dx1, dx2),
+                Math.min(dy1, dy2),
+                Math.abs(dx2 - dx1),
+                Math.abs(dy2 - dy1));
+    }
+
+    @Override
+    public boolean drawImage(Image img, AffineTransform xform, ImageObserver observer) {
+        return capture(xform.createTransformedShape(bounds(img, 0, 0))
+                .getBounds2D(), graphics -> graphics.drawImage(img, xform, observer));
+    }
+
+    @Override
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+        Rectangle2D bounds = op.getBounds2D(img);
+        capture(new Rectangle2D.Double(bounds.getX() + x,
+                bounds.getY() + y,
+                bounds.getWidth(),
+                bounds.getHeight()), graphics -> {
+            graphics.drawImage(img, op, x, y);
+            return true;
+        });
+    }
+
+    @Override
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+        capture(xform.createTransformedShape(new Rectangle(img.getMinX(),
+                img.getMinY(),
+                img.getWidth(),
+                img.getHeight()))
+                .getBounds2D(), graphics -> {
+            graphics.drawRenderedImage(img, xform);
+            return true;
+        });
+    }
+
+    @Override
+    public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+        capture(xform.createTransformedShape(new Rectangle2D.Float(img.getMinX(),
+                img.getMinY(),
+                img.getWidth(),
+                img.getHeight()))
+                .getBounds2D(), graphics -> {
+            graphics.drawRenderableImage(img, xform);
+            return true;
+        });
+    }
+
+    @Override
+    public Graphics create() {
+        return new RowBandGraphics(bands, (Graphics2D) delegate.create());
+    }
+
+    @Override
+    public void dispose() {
+        delegate.dispose();
+    }
+
+    @Override
+    public void draw(Shape s) {
+        delegate.draw(s);
+    }
+
+    @Override
+    public void drawString(String str, int x, int y) {
+        delegate.drawString(str, x, y);
+    }
+
+    @Override
+    public void drawString(String str, float x, float y) {
+        delegate.drawString(str, x, y);
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        delegate.drawString(iterator, x, y);
+    }
+
+    @Override
+    public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+        delegate.drawString(iterator, x, y);
+    }
+
+    @Override
+    public void drawGlyphVector(GlyphVector g, float x, float y) {
+        delegate.drawGlyphVector(g, x, y);
+    }
+
+    @Override
+    public void fill(Shape s) {
+        delegate.fill(s);
+    }
+
+    @Override
+    public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+        return delegate.hit(rect, s, onStroke);
+    }
+
+    @Override
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return delegate.getDeviceConfiguration();
+    }
+
+    @Override
+    public void setComposite(Composite comp) {
+        delegate.setComposite(comp);
+    }
+
+    @Override
+    public void setPaint(Paint paint) {
+        delegate.setPaint(paint);
+    }
+
+    @Override
+    public void setStroke(Stroke s) {
+        delegate.setStroke(s);
+    }
+
+    @Override
+    public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+        delegate.setRenderingHint(hintKey, hintValue);
+    }
+
+    @Override
+    public Object getRenderingHint(RenderingHints.Key hintKey) {
+        return delegate.getRenderingHint(hintKey);
+    }
+
+    @Override
+    public void setRenderingHints(Map<?, ?> hints) {
+        delegate.setRenderingHints(hints);
+    }
+
+    @Override
+    public void addRenderingHints(Map<?, ?> hints) {
+        delegate.addRenderingHints(hints);
+    }
+
+    @Override
+    public RenderingHints getRenderingHints() {
+        return delegate.getRenderingHints();
+    }
+
+    @Override
+    public void translate(int x, int y) {
+        delegate.translate(x, y);
+    }
+
+    @Override
+    public void translate(double tx, double ty) {
+        delegate.translate(tx, ty);
+    }
+
+    @Override
+    public void rotate(double theta) {
+        delegate.rotate(theta);
+    }
+
+    @Override
+    public void rotate(double theta, double x, double y) {
+        delegate.rotate(theta, x, y);
+    }
+
+    @Override
+    public void scale(double sx, double sy) {
+        delegate.scale(sx, sy);
+    }
+
+    @Override
+    public void shear(double shx, double shy) {
+        delegate.shear(shx, shy);
+    }
+
+    @Override
+    public void transform(AffineTransform tx) {
+        delegate.transform(tx);
+    }
+
+    @Override
+    public void setTransform(AffineTransform tx) {
+        delegate.setTransform(tx);
+    }
+
+    @Override
+    public AffineTransform getTransform() {
+        return delegate.getTransform();
+    }
+
+    @Override
+    public Paint getPaint() {
+        return delegate.getPaint();
+    }
+
+    @Override
+    public Composite getComposite() {
+        return delegate.getComposite();
+    }
+
+    @Override
+    public void setBackground(Color color) {
+        delegate.setBackground(color);
+    }
+
+    @Override
+    public Color getBackground() {
+        return delegate.getBackground();
+    }
+
+    @Override
+    public Stroke getStroke() {
+        return delegate.getStroke();
+    }
+
+    @Override
+    public void clip(Shape s) {
+        delegate.clip(s);
+    }
+
+    @Override
+    public FontRenderContext getFontRenderContext() {
+        return delegate.getFontRenderContext();
+    }
+
+    @Override
+    public Color getColor() {
+        return delegate.getColor();
+    }
+
+    @Override
+    public void setColor(Color c) {
+        delegate.setColor(c);
+    }
+
+    @Override
+    public void setPaintMode() {
+        delegate.setPaintMode();
+    }
+
+    @Override
+    public void setXORMode(Color c1) {
+        delegate.setXORMode(c1);
+    }
+
+    @Override
+    public Font getFont() {
+        return delegate.getFont();
+    }
+
+    @Override
+    public void setFont(Font font) {
+        delegate.setFont(font);
+    }
+
+    @Override
+    public FontMetrics getFontMetrics(Font f) {
+        return delegate.getFontMetrics(f);
+    }
+
+    @Override
+    public Rectangle getClipBounds() {
+        return delegate.getClipBounds();
+    }
+
+    @Override
+    public void clipRect(int x, int y, int width, int height) {
+        delegate.clipRect(x, y, width, height);
+    }
+
+    @Override
+    public void setClip(int x, int y, int width, int height) {
+        delegate.setClip(x, y, width, height);
+    }
+
+    @Override
+    public Shape getClip() {
+        return delegate.getClip();
+    }
+
+    @Override
+    public void setClip(Shape clip) {
+        delegate.setClip(clip);
+    }
+
+    @Override
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        delegate.copyArea(x, y, width, height, dx, dy);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        delegate.drawLine(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        delegate.fillRect(x, y, width, height);
+    }
+
+    @Override
+    public void clearRect(int x, int y, int width, int height) {
+        delegate.clearRect(x, y, width, height);
+    }
+
+    @Override
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth,
+            int arcHeight) {
+        delegate.drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+    }
+
+    @Override
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth,
+            int arcHeight) {
+        delegate.fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+    }
+
+    @Override
+    public void drawOval(int x, int y, int width, int height) {
+        delegate.drawOval(x, y, width, height);
+    }
+
+    @Override
+    public void fillOval(int x, int y, int width, int height) {
+        delegate.fillOval(x, y, width, height);
+    }
+
+    @Override
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        delegate.drawArc(x, y, width, height, startAngle, arcAngle);
+    }
+
+    @Override
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        delegate.fillArc(x, y, width, height, startAngle, arcAngle);
+    }
+
+    @Override
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        delegate.drawPolyline(xPoints, yPoints, nPoints);
+    }
+
+    @Override
+    public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        delegate.drawPolygon(xPoints, yPoints, nPoints);
+    }
+
+    @Override
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        delegate.fillPolygon(xPoints, yPoints, nPoints);
+    }
+
+    /**
+     * Receives the rows of a rendered image in order.
+     */
+    interface BandConsumer {
+
+        /**
+         * Called once before the first band is allocated.
+         *
+         * @param bandHeight the number of rows in a band
+         * @throws IOException when the consumer can't accept the bands
+         */
+        void start(int bandHeight) throws IOException;
+
+        /**
+         * @param band     the band, as wide as the image. It is reused for the next band once
+         *                 this returns.
+         * @param rowCount the number of rows at the top of the band that belong to the image
+         * @throws IOException when the consumer fails
+         */
+        void consume(BufferedImage band, int rowCount) throws IOException;
+    }
+
+    /**
+     * The band being drawn, shared by the graphics contexts created from the first.
+     */
+    private static final class Bands {
+
+        private final int width;
+
+        private final int height;
+
+        private final BandConsumer consumer;
+
+        private BufferedImage band;
+
+        private int bandHeight;
+
+        private int bandTop;
+
+        private Bands(int width, int height, BandConsumer consumer) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException(String.format(
+                        "the image must have at least one pixel. Values were %s x %s.",
+                        width,
+                        height));
+            }
+            if (consumer == null) {
+                throw new IllegalArgumentException("argument 'consumer' may not be null.");
+            }
+
+            this.width = width;
+            this.height = height;
+            this.consumer = consumer;
+        }
+
+        private boolean draw(Rectangle deviceBounds, Predicate<Graphics2D> draw)
+            throws IOException {
+            int top = Math.max(0, deviceBounds.y);
+            int bottom = Math.min(height, deviceBounds.y + deviceBounds.height);
+            if (top >= bottom || deviceBounds.x >= width
+                    || deviceBounds.x + deviceBounds.width <= 0) {
+                return true;
+            }
+
+            if (band == null) {
+                bandHeight = bottom - top;
+                bandTop = top - top % bandHeight;
+                consumer.start(bandHeight);
+                band = new BufferedImage(width, bandHeight, BufferedImage.TYPE_3BYTE_BGR);
+                for (int row = 0; row < bandTop; row += bandHeight) {
+                    consumer.consume(band, bandHeight);
+                }
+            } else if (top < bandTop) {
+                throw new IllegalStateException(String.format(
+                        "the image at row %s was drawn after the rows up to %s were handed on.",
+                        top,
+                        bandTop));
+            }
+
+            while (top >= bandTop + bandHeight) {
+                handOn();
+            }
+
+            if (bottom > bandTop + bandHeight) {
+                throw new IllegalStateException(String.format(
+                        "the image from row %s to %s crosses the bottom of the band at row %s.",
+                        top,
+                        bottom,
+                        bandTop + bandHeight));
+            }
+
+            Graphics2D graphics = band.createGraphics();
+            try {
+                graphics.translate(0, -bandTop);
+                return draw.test(graphics);
+            } finally {
+                graphics.dispose();
+            }
+        }
+
+        private void handOn() throws IOException {
+            consumer.consume(band, Math.min(bandHeight, height - bandTop));
+            Arrays.fill(((DataBufferByte) band.getRaster()
+                    .getDataBuffer()).getData(), (byte) 0);
+            bandTop += bandHeight;
+        }
+
+        private void finish() throws IOException {
+            if (band == null) {
+                throw new IOException("no image was drawn.");
+            }
+
+            while (bandTop < height) {
+                handOn();
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Encodes an image that arrives as consecutive bands of rows into a single baseline JPEG, without
+ * holding the whole image in memory. Every {@link #STRIP_ROWS} rows are encoded on their own by
+ * the ImageIO JPEG writer and their entropy-coded data is joined into one scan, with a restart
+ * marker in front of every strip. A decoder resets the DC predictions at every restart marker, as
+ * the writer did at the start of every strip, so the result is the same image the writer would
+ * have encoded in one piece.
+ * <p>
+ * JPEG limits the width and height of an image to 65535 pixels.
+ */
+final class StripedJpegWriter implements Closeable {
+
+    static final int MAX_SIDE_LENGTH = 0xFFFF;
+
+    /**
+     * A multiple of the height of a minimum coded unit for every chroma subsampling.
+     */
+    static final int STRIP_ROWS = 16;
+
+    private static final int MARKER = 0xFF;
+
+    private static final int SOI = 0xD8;
+
+    private static final int EOI = 0xD9;
+
+    private static final int SOF0 = 0xC0;
+
+    private static final int DHT = 0xC4;
+
+    private static final int DAC = 0xCC;
+
+    private static final int JPG = 0xC8;
+
+    private static final int SOS = 0xDA;
+
+    private static final int DRI = 0xDD;
+
+    private static final int RST0 = 0xD0;
+
+    private final int width;
+
+    private final int height;
+
+    private final OutputStream outputStream;
+
+    private final ImageWriter imageWriter;
+
+    private final BufferedImage strip;
+
+    private int stripRowCount;
+
+    private int rowCount;
+
+    private int stripCount;
+
+    private byte[] header;
+
+    private int sofHeightOffset;
+
+    /**
+     * @param width        the width of the image, between 1 and {@link #MAX_SIDE_LENGTH}
+     * @param height       the height of the image, between 1 and {@link #MAX_SIDE_LENGTH}
+     * @param outputStream the stream that receives the JPEG, may not be null
+     * @throws IOException when no JPEG writer is available
+     */
+    StripedJpegWriter(int width, int height, OutputStream outputStream) throws IOException {
+        if (width <= 0 || height <= 0 || width > MAX_SIDE_LENGTH || height > MAX_SIDE_LENGTH) {
+            throw new IllegalArgumentException(String.format(
+                    "a JPEG image must be 1 to %s pixels wide and high. Values were %s x %s.",
+                    MAX_SIDE_LENGTH,
+                    width,
+                    height));
+        }
+        if (outputStream == null) {
+            throw new IllegalArgumentException("argument 'outputStream' may not be null.");
+        }
+
+        Iterator<ImageWriter> imageWriters = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!imageWriters.hasNext()) {
+            throw new IOException("no JPEG writer is available to encode the image.");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.outputStream = outputStream;
+        this.imageWriter = imageWriters.next();
+        this.strip = new BufferedImage(width, STRIP_ROWS, BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    /**
+     * @param band     the next rows of the image, as wide as the image
+     * @param rowCount the number of rows at the top of the band that belong to the image
+     * @throws IOException when a strip can't be encoded or written
+     */
+    void writeRows(BufferedImage band, int rowCount) throws IOException {
+        if (band.getWidth() != width) {
+            throw new IllegalArgumentException(String.format(
+                    "the band must be %s pixels wide. Value was %s.",
+                    width,
+                    band.getWidth()));
+        }
+        if (this.rowCount + stripRowCount + rowCount > height) {
+            throw new IllegalStateException(String.format(
+                    "the image only has %s rows.",
+                    height));
+        }
+
+        int row = 0;
+        while (row < rowCount) {
+            int count = Math.min(rowCount - row, STRIP_ROWS - stripRowCount);
+            strip.getRaster()
+                    .setRect(0,
+                            stripRowCount - row,
+                            band.getRaster()
+                                    .createChild(0, row, width, count, 0, row, null));
+            stripRowCount += count;
+            row += count;
+
+            if (stripRowCount == STRIP_ROWS) {
+                writeStrip();
+            }
+        }
+    }
+
+    /**
+     * Encode the last rows and end the image.
+     *
+     * @throws IOException when not every row of the image was written, or the JPEG can't be
+     *                     written
+     */
+    void finish() throws IOException {
+        if (stripRowCount > 0) {
+            writeStrip();
+        }
+        if (rowCount != height) {
+            throw new IOException(String.format(
+                    "only %s of the %s rows of the image were written.",
+                    rowCount,
+                    height));
+        }
+        outputStream.write(MARKER);
+        outputStream.write(EOI);
+        outputStream.flush();
+    }
+
+    /**
+     * Release the JPEG writer. The output stream is not closed.
+     */
+    @Override
+    public void close() {
+        imageWriter.dispose();
+    }
+
+    private void writeStrip() throws IOException {
+        BufferedImage image = stripRowCount == STRIP_ROWS ?
+                strip :
+                strip.getSubimage(0, 0, width, stripRowCount);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(
+                byteArrayOutputStream)) {
+            imageWriter.setOutput(imageOutputStream);
+            imageWriter.write(null, new IIOImage(image, null, null), null);
+        }
+
+        appendStrip(byteArrayOutputStream.toByteArray());
+
+        rowCount += stripRowCount;
+        stripRowCount = 0;
+        stripCount++;
+    }
+
+    /**
+     * Write the headers of the first strip, with the height of the whole image and a restart
+     * interval of one strip, and the entropy-coded data of every strip.
+     */
+    private void appendStrip(byte[] jpeg) throws IOException {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != MARKER || (jpeg[1] & 0xFF) != SOI
+                || (jpeg[jpeg.length - 2] & 0xFF) != MARKER
+                || (jpeg[jpeg.length - 1] & 0xFF) != EOI) {
+            throw new IOException("the JPEG writer did not write a complete image.");
+        }
+
+        int position = 2;
+        int sofOffset = -1;
+        int restartInterval = 0;
+        while (true) {
+            if (position + 4 > jpeg.length || (jpeg[position] & 0xFF) != MARKER) {
+                throw new IOException("unable to find the scan of the encoded strip.");
+            }
+            int marker = jpeg[position + 1] & 0xFF;
+            int length = readUnsignedShort(jpeg, position + 2);
+
+            if (marker == SOS) {
+                break;
+            } else if (marker == SOF0) {
+                sofOffset = position;
+                restartInterval = calculateRestartInterval(jpeg, position);
+            } else if (marker == DRI || (marker > SOF0 && marker <= 0xCF && marker != DHT
+                    && marker != JPG && marker != DAC)) {
+                throw new IOException(String.format(
+                        "unsupported JPEG marker in the encoded strip: %x",
+                        marker));
+            }
+            position += 2 + length;
+        }
+
+        if (sofOffset < 0) {
+            throw new IOException("the encoded strip is not a baseline JPEG.");
+        }
+
+        int scanOffset = position + 2 + readUnsignedShort(jpeg, position + 2);
+
+        if (header == null) {
+            header = Arrays.copyOf(jpeg, scanOffset);
+            sofHeightOffset = sofOffset + 5;
+
+            byte[] firstHeader = Arrays.copyOf(header, header.length);
+            firstHeader[sofHeightOffset] = (byte) (height >> 8);
+            firstHeader[sofHeightOffset + 1] = (byte) height;
+
+            outputStream.write(firstHeader, 0, position);
+            outputStream.write(new byte[] {(byte) MARKER, (byte) DRI, 0, 4,
+                    (byte) (restartInterval >> 8), (byte) restartInterval});
+            outputStream.write(firstHeader, position, scanOffset - position);
+        } else {
+            if (!isSameHeader(jpeg, scanOffset)) {
+                throw new IOException(
+                        "the JPEG writer encoded a strip with different tables than the first.");
+            }
+            outputStream.write(MARKER);
+            outputStream.write(RST0 + (stripCount - 1) % 8);
+        }
+
+        outputStream.write(jpeg, scanOffset, jpeg.length - 2 - scanOffset);
+    }
+
+    /**
+     * @return the number of minimum coded units in a strip
+     */
+    private int calculateRestartInterval(byte[] jpeg, int sofOffset) throws IOException {
+        int componentCount = jpeg[sofOffset + 9] & 0xFF;
+        int maxHorizontal = 1;
+        int maxVertical = 1;
+        for (int i = 0; i < componentCount; i++) {
+            int sampling = jpeg[sofOffset + 11 + 3 * i] & 0xFF;
+            maxHorizontal = Math.max(maxHorizontal, sampling >> 4);
+            maxVertical = Math.max(maxVertical, sampling & 0x0F);
+        }
+
+        int unitWidth = 8 * maxHorizontal;
+        int unitHeight = 8 * maxVertical;
+        if (STRIP_ROWS % unitHeight != 0) {
+            throw new IOException(String.format(
+                    "unsupported JPEG minimum coded unit height: %s",
+                    unitHeight));
+        }
+
+        long restartInterval =
+                (long) ((width + unitWidth - 1) / unitWidth) * (STRIP_ROWS / unitHeight);
+        if (restartInterval > 0xFFFF) {
+            throw new IOException(String.format(
+                    "the image is too wide for a restart interval of one strip: %s",
+                    width));
+        }
+        return (int) restartInterval;
+    }
+
+    private boolean isSameHeader(byte[] jpeg, int scanOffset) {
+        if (scanOffset != header.length) {
+            return false;
+        }
+        for (int i = 0; i < scanOffset; i++) {
+            if (i != sofHeightOffset && i != sofHeightOffset + 1 && jpeg[i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUnsignedShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+}
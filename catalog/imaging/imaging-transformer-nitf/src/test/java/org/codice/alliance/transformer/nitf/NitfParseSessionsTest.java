@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+public class NitfParseSessionsTest {
+
+    private static final String ID = "101ABC";
+
+    private static final long CLEAN_UP_PERIOD_MILLIS = 10;
+
+    private AtomicLong nanos;
+
+    private NitfParseSessions parseSessions;
+
+    @Before
+    public void setUp() {
+        nanos = new AtomicLong();
+        parseSessions = new NitfParseSessions(new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        }, CLEAN_UP_PERIOD_MILLIS);
+    }
+
+    @After
+    public void tearDown() {
+        parseSessions.destroy();
+    }
+
+    @Test
+    public void testOfferAndTake() {
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+
+        parseSessions.offer(ID, nitfSegmentsFlow);
+
+        assertThat(parseSessions.size(), is(1L));
+        assertThat(parseSessions.take(ID), is(Optional.of(nitfSegmentsFlow)));
+        assertThat(parseSessions.take(ID), is(Optional.empty()));
+        assertThat(parseSessions.size(), is(0L));
+        verify(nitfSegmentsFlow, never()).end();
+    }
+
+    @Test
+    public void testTakeUnknownId() {
+        assertThat(parseSessions.take(ID), is(Optional.empty()));
+        assertThat(parseSessions.take(null), is(Optional.empty()));
+    }
+
+    @Test
+    public void testOfferBlankIdEnds() {
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+
+        parseSessions.offer(" ", nitfSegmentsFlow);
+
+        verify(nitfSegmentsFlow).end();
+        assertThat(parseSessions.size(), is(0L));
+    }
+
+    @Test
+    public void testOfferNullFlow() {
+        parseSessions.offer(ID, null);
+
+        assertThat(parseSessions.size(), is(0L));
+    }
+
+    @Test
+    public void testReplacedSessionEnds() {
+        NitfSegmentsFlow first = mock(NitfSegmentsFlow.class);
+        NitfSegmentsFlow second = mock(NitfSegmentsFlow.class);
+
+        parseSessions.offer(ID, first);
+        parseSessions.offer(ID, second);
+
+        verify(first).end();
+        assertThat(parseSessions.take(ID), is(Optional.of(second)));
+    }
+
+    @Test
+    public void testExpiredSessionEnds() {
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+
+        parseSessions.offer(ID, nitfSegmentsFlow);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(
+                NitfParseSessions.DEFAULT_EXPIRATION_SECONDS + 1));
+
+        assertThat(parseSessions.take(ID), is(Optional.empty()));
+        verify(nitfSegmentsFlow).end();
+    }
+
+    /**
+     * Test that an expired session is ended by the periodic clean up, without another call.
+     */
+    @Test
+    public void testExpiredSessionCleanedUp() {
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+
+        parseSessions.offer(ID, nitfSegmentsFlow);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(
+                NitfParseSessions.DEFAULT_EXPIRATION_SECONDS + 1));
+
+        verify(nitfSegmentsFlow, timeout(1000)).end();
+    }
+
+    /**
+     * Test that the sessions are not consumed once a session expires untaken, until a session is
+     * asked for again.
+     */
+    @Test
+    public void testConsumed() {
+        assertThat(parseSessions.isConsumed(), is(true));
+
+        parseSessions.offer(ID, mock(NitfSegmentsFlow.class));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(
+                NitfParseSessions.DEFAULT_EXPIRATION_SECONDS + 1));
+
+        assertThat(parseSessions.size(), is(0L));
+        assertThat(parseSessions.isConsumed(), is(false));
+
+        parseSessions.take(ID);
+
+        assertThat(parseSessions.isConsumed(), is(true));
+    }
+
+    @Test
+    public void testMaxSessions() {
+        parseSessions.setMaxSessions(1);
+        NitfSegmentsFlow first = mock(NitfSegmentsFlow.class);
+        NitfSegmentsFlow second = mock(NitfSegmentsFlow.class);
+
+        parseSessions.offer("1", first);
+        parseSessions.offer("2", second);
+
+        verify(first).end();
+        verify(second, never()).end();
+        assertThat(parseSessions.size(), is(1L));
+        assertThat(parseSessions.getMaxSessions(), is(1));
+    }
+
+    @Test
+    public void testSetExpirationSecondsEndsOpenSessions() {
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+        parseSessions.offer(ID, nitfSegmentsFlow);
+
+        parseSessions.setExpirationSeconds(10);
+
+        verify(nitfSegmentsFlow).end();
+        assertThat(parseSessions.size(), is(0L));
+        assertThat(parseSessions.getExpirationSeconds(), is(10L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxSessionsNotPositive() {
+        parseSessions.setMaxSessions(0);
+    }
+
+    @Test
+    public void testDestroy() {
+        NitfSegmentsFlow nitfSegmentsFlow = mock(NitfSegmentsFlow.class);
+        parseSessions.offer(ID, nitfSegmentsFlow);
+
+        parseSessions.destroy();
+
+        verify(nitfSegmentsFlow).end();
+        assertThat(parseSessions.size(), is(0L));
+    }
+}
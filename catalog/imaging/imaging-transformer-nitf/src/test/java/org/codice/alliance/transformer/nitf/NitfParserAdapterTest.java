@@ -14,11 +14,16 @@
 package org.codice.alliance.transformer.nitf;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
 
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.codice.imaging.nitf.core.common.NitfFormatException;
 import org.codice.imaging.nitf.fluent.NitfSegmentsFlow;
@@ -30,6 +35,8 @@ import ddf.catalog.transform.CatalogTransformerException;
 public class NitfParserAdapterTest {
     private static final String GEO_NITF = "/i_3001a.ntf";
 
+    private static final String GMTI_NITF = "/gmti-test.ntf";
+
     private NitfParserAdapter nitfParserAdapter = null;
 
     @Before
@@ -50,6 +57,149 @@ public class NitfParserAdapterTest {
 
     }
 
+    @Test
+    public void testParseNitfHeaderOnly() throws NitfFormatException {
+        assertThat(nitfParserAdapter.isHeaderOnly(), is(true));
+
+        AtomicInteger imageSegmentCount = new AtomicInteger();
+        AtomicReference<String> fileTitle = new AtomicReference<>();
+
+        nitfParserAdapter.parseNitf(getInputStream(GEO_NITF))
+                .fileHeader(header -> fileTitle.set(header.getFileTitle()))
+                .forEachImageSegment(segment -> imageSegmentCount.incrementAndGet());
+
+        assertThat(fileTitle.get(), is(notNullValue()));
+        assertThat(imageSegmentCount.get(), is(greaterThan(0)));
+    }
+
+    @Test
+    public void testParseNitfAllData() throws NitfFormatException {
+        nitfParserAdapter.setHeaderOnly(false);
+
+        AtomicInteger imageSegmentCount = new AtomicInteger();
+
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(getInputStream(GEO_NITF));
+        nitfSegmentsFlow.forEachImageSegment(segment -> imageSegmentCount.incrementAndGet());
+        nitfParserAdapter.endNitfSegmentsFlow(nitfSegmentsFlow);
+
+        assertThat(nitfParserAdapter.isHeaderOnly(), is(false));
+        assertThat(imageSegmentCount.get(), is(greaterThan(0)));
+    }
+
+    /**
+     * Test that a parse with a metacard id reads the segment data and is shared instead of ended.
+     */
+    @Test
+    public void testShareNitfSegmentsFlow() throws NitfFormatException {
+        NitfParseSessions parseSessions = new NitfParseSessions();
+        nitfParserAdapter.setParseSessions(parseSessions);
+
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(getInputStream(GEO_NITF),
+                "101ABC");
+        nitfParserAdapter.shareNitfSegmentsFlow(nitfSegmentsFlow, "101ABC");
+
+        assertThat(nitfParserAdapter.getParseSessions(), is(parseSessions));
+        assertThat(parseSessions.take("101ABC")
+                .isPresent(), is(true));
+        nitfSegmentsFlow.end();
+    }
+
+    /**
+     * Test that a transform outside of an ingest parses the headers only, even if parses can be
+     * shared.
+     */
+    @Test
+    public void testParseNitfWithoutIdHeaderOnly() throws NitfFormatException {
+        nitfParserAdapter.setParseSessions(new NitfParseSessions());
+
+        AtomicInteger imageSegmentCount = new AtomicInteger();
+
+        nitfParserAdapter.parseNitf(getInputStream(GEO_NITF), null)
+                .forEachImageSegment(segment -> {
+                    imageSegmentCount.incrementAndGet();
+                    assertThat(segment.getData(), is(nullValue()));
+                });
+
+        assertThat(imageSegmentCount.get(), is(greaterThan(0)));
+    }
+
+    /**
+     * Test that the parse of an ingested image NITF reads the image data for the pre-storage
+     * plugin.
+     */
+    @Test
+    public void testParseNitfWithIdAllData() throws NitfFormatException {
+        nitfParserAdapter.setParseSessions(new NitfParseSessions());
+
+        AtomicInteger imageSegmentCount = new AtomicInteger();
+
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(getInputStream(GEO_NITF),
+                "101ABC");
+        nitfSegmentsFlow.forEachImageSegment(segment -> {
+            imageSegmentCount.incrementAndGet();
+            assertThat(segment.getData(), is(notNullValue()));
+        });
+        nitfParserAdapter.endNitfSegmentsFlow(nitfSegmentsFlow);
+
+        assertThat(imageSegmentCount.get(), is(greaterThan(0)));
+    }
+
+    /**
+     * Test that an image NITF transformed with an id is parsed header only and is not shared while
+     * the sessions offered are not taken by the pre-storage plugin.
+     */
+    @Test
+    public void testParseNitfWithIdHeaderOnlyWhenNotConsumed() throws NitfFormatException {
+        NitfParseSessions parseSessions = new NitfParseSessions();
+        nitfParserAdapter.setParseSessions(parseSessions);
+        parseSessions.offer("1", mock(NitfSegmentsFlow.class));
+        parseSessions.offer("1", mock(NitfSegmentsFlow.class));
+
+        AtomicInteger imageSegmentCount = new AtomicInteger();
+
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(getInputStream(GEO_NITF),
+                "101ABC");
+        nitfSegmentsFlow.forEachImageSegment(segment -> {
+            imageSegmentCount.incrementAndGet();
+            assertThat(segment.getData(), is(nullValue()));
+        });
+        nitfParserAdapter.shareNitfSegmentsFlow(nitfSegmentsFlow, "101ABC");
+
+        assertThat(imageSegmentCount.get(), is(greaterThan(0)));
+        assertThat(parseSessions.size(), is(1L));
+        parseSessions.destroy();
+    }
+
+    /**
+     * Test that an ingested NITF without image segments, which the pre-storage plugin does not
+     * render, is parsed header only and is not shared.
+     */
+    @Test
+    public void testShareNitfSegmentsFlowWithoutImages() throws NitfFormatException {
+        NitfParseSessions parseSessions = new NitfParseSessions();
+        nitfParserAdapter.setParseSessions(parseSessions);
+
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(getInputStream(GMTI_NITF),
+                "101ABC");
+        nitfParserAdapter.shareNitfSegmentsFlow(nitfSegmentsFlow, "101ABC");
+
+        assertThat(parseSessions.size(), is(0L));
+        assertThat(parseSessions.take("101ABC")
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testShareNitfSegmentsFlowWithoutId() throws NitfFormatException {
+        NitfParseSessions parseSessions = new NitfParseSessions();
+        nitfParserAdapter.setParseSessions(parseSessions);
+
+        NitfSegmentsFlow nitfSegmentsFlow = nitfParserAdapter.parseNitf(getInputStream(GEO_NITF),
+                null);
+        nitfParserAdapter.shareNitfSegmentsFlow(nitfSegmentsFlow, null);
+
+        assertThat(parseSessions.size(), is(0L));
+    }
+
     @Test(expected = CatalogTransformerException.class)
     public void testWrapException() throws CatalogTransformerException {
         nitfParserAdapter.wrapException(new NullPointerException("Test Null Pointer Exception"));
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class AttributeAccumulatorTest {
+
+    private static final String NAME = "name";
+
+    private AttributeAccumulator accumulator;
+
+    private Metacard metacard;
+
+    @Before
+    public void setUp() {
+        accumulator = new AttributeAccumulator();
+        metacard = new MetacardImpl();
+    }
+
+    @Test
+    public void testAddValues() {
+        for (int i = 0; i < 1000; i++) {
+            accumulator.add(NAME, i);
+        }
+
+        assertThat(metacard.getAttribute(NAME), is(nullValue()));
+
+        accumulator.commit(metacard);
+
+        assertThat(metacard.getAttribute(NAME)
+                .getValues()
+                .size(), is(1000));
+        assertThat(accumulator.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testAddAppendsToExistingAttribute() {
+        metacard.setAttribute(new AttributeImpl(NAME, "a"));
+
+        accumulator.add(NAME, "b");
+        accumulator.add(NAME, "c");
+        accumulator.commit(metacard);
+
+        assertThat(metacard.getAttribute(NAME)
+                .getValues(), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void testSetReplacesValues() {
+        metacard.setAttribute(new AttributeImpl(NAME, "a"));
+
+        accumulator.set(NAME, "b");
+        accumulator.add(NAME, "c");
+        accumulator.set(NAME, "d");
+        accumulator.add(NAME, "e");
+        accumulator.commit(metacard);
+
+        assertThat(metacard.getAttribute(NAME)
+                .getValues(), contains("d", "e"));
+    }
+
+    @Test
+    public void testCommitSetsEachAttributeOnce() {
+        Metacard mockMetacard = mock(Metacard.class);
+
+        for (int i = 0; i < 100; i++) {
+            accumulator.add(NAME, i);
+            accumulator.add("other", i);
+        }
+        accumulator.commit(mockMetacard);
+        accumulator.commit(mockMetacard);
+
+        verify(mockMetacard, times(2)).setAttribute(any(Attribute.class));
+    }
+
+}
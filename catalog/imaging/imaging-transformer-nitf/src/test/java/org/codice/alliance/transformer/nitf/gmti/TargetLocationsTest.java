@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.gmti;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class TargetLocationsTest {
+
+    private GeometryFactory geometryFactory;
+
+    private TargetLocations targetLocations;
+
+    @Before
+    public void setUp() {
+        geometryFactory = new GeometryFactory();
+        targetLocations = new TargetLocations();
+    }
+
+    @Test
+    public void testSingleLocation() {
+        targetLocations.add("+52.1234567-004.1234567");
+
+        assertThat(targetLocations.isEmpty(), is(false));
+        assertThat(targetLocations.isValid(), is(true));
+        assertThat(targetLocations.toMultiPoint(geometryFactory)
+                .toText(), is("MULTIPOINT ((52.1234567 -4.1234567))"));
+    }
+
+    /**
+     * Test that the multipoint matches the one parsed from the equivalent WKT.
+     */
+    @Test
+    public void testManyLocations() throws ParseException {
+        int count = 10000;
+        StringBuilder wkt = new StringBuilder("MULTIPOINT (");
+
+        for (int i = 0; i < count; i++) {
+            String lat = String.format("+%02d.%06d", i % 90, i);
+            String lon = String.format("-%03d.%06d", i % 180, count - i);
+            targetLocations.add(lat + lon);
+            wkt.append(i == 0 ? "" : ",")
+                    .append(lat)
+                    .append(" ")
+                    .append(lon);
+        }
+        wkt.append(")");
+
+        MultiPoint multiPoint = targetLocations.toMultiPoint(geometryFactory);
+
+        assertThat(multiPoint.getNumGeometries(), is(count));
+        assertThat(multiPoint.toText(),
+                is(new WKTReader(geometryFactory).read(wkt.toString())
+                        .toText()));
+    }
+
+    @Test
+    public void testEmptyValuesAreSkipped() {
+        targetLocations.add(null);
+        targetLocations.add("");
+
+        assertThat(targetLocations.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testInvalidLocation() {
+        targetLocations.add("+52.1234567-004.1234567");
+        targetLocations.add("invalid");
+
+        assertThat(targetLocations.isEmpty(), is(false));
+        assertThat(targetLocations.isValid(), is(false));
+        assertThat(targetLocations.getInvalidLocation(), is("invalid"));
+    }
+}
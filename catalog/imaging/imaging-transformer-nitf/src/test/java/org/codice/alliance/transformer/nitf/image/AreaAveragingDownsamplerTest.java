@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+public class AreaAveragingDownsamplerTest {
+
+    @Test
+    public void testCalculateFactor() {
+        assertThat(AreaAveragingDownsampler.calculateFactor(10, 10, 100), is(1));
+        assertThat(AreaAveragingDownsampler.calculateFactor(40, 10, 100), is(2));
+        assertThat(AreaAveragingDownsampler.calculateFactor(11, 11, 100), is(2));
+    }
+
+    /**
+     * Test that each reduced pixel is the average of the pixels it covers, including the partial
+     * squares at the right and bottom edges.
+     */
+    @Test
+    public void testAverages() {
+        BufferedImage band = new BufferedImage(3, 1, BufferedImage.TYPE_3BYTE_BGR);
+        AreaAveragingDownsampler downsampler = new AreaAveragingDownsampler(3, 3, 4);
+
+        band.setRGB(0, 0, 0x000000);
+        band.setRGB(1, 0, 0x040404);
+        band.setRGB(2, 0, 0x101010);
+        downsampler.addRows(band, 1);
+        band.setRGB(0, 0, 0x080808);
+        band.setRGB(1, 0, 0x0C0C0C);
+        band.setRGB(2, 0, 0x202020);
+        downsampler.addRows(band, 1);
+        band.setRGB(0, 0, 0x646464);
+        band.setRGB(1, 0, 0x000000);
+        band.setRGB(2, 0, 0xFFFFFF);
+        downsampler.addRows(band, 1);
+
+        BufferedImage image = downsampler.getImage();
+        assertThat(downsampler.getFactor(), is(2));
+        assertThat(image.getWidth(), is(2));
+        assertThat(image.getHeight(), is(2));
+        assertThat(image.getRGB(0, 0) & 0xFFFFFF, is(0x060606));
+        assertThat(image.getRGB(1, 0) & 0xFFFFFF, is(0x181818));
+        assertThat(image.getRGB(0, 1) & 0xFFFFFF, is(0x323232));
+        assertThat(image.getRGB(1, 1) & 0xFFFFFF, is(0xFFFFFF));
+    }
+}
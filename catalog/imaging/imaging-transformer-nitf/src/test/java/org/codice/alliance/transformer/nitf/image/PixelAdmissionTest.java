@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class PixelAdmissionTest {
+
+    @Test
+    public void testAcquireAndClose() throws InterruptedException {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+
+        PixelAdmission.Permit permit = pixelAdmission.acquire(40);
+
+        assertThat(permit.getPixels(), is(40));
+        assertThat(pixelAdmission.getAvailablePixels(), is(60));
+
+        permit.close();
+        permit.close();
+
+        assertThat(pixelAdmission.getAvailablePixels(), is(100));
+    }
+
+    @Test
+    public void testAcquireMoreThanLimit() throws InterruptedException {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+
+        try (PixelAdmission.Permit permit = pixelAdmission.acquire(1000)) {
+            assertThat(permit.getPixels(), is(100));
+            assertThat(pixelAdmission.getAvailablePixels(), is(0));
+        }
+    }
+
+    @Test
+    public void testAcquireWaitsForRoom() throws InterruptedException {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+        PixelAdmission.Permit first = pixelAdmission.acquire(80);
+        CountDownLatch admitted = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try (PixelAdmission.Permit second = pixelAdmission.acquire(50)) {
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+        });
+        thread.start();
+
+        assertThat(admitted.await(100, TimeUnit.MILLISECONDS), is(false));
+
+        first.close();
+
+        assertThat(admitted.await(5, TimeUnit.SECONDS), is(true));
+        thread.join();
+    }
+
+    @Test
+    public void testSetMaxPixelsKeepsOutstandingPermits() throws InterruptedException {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+        PixelAdmission.Permit permit = pixelAdmission.acquire(80);
+
+        pixelAdmission.setMaxPixels(50);
+
+        assertThat(pixelAdmission.getAvailablePixels(), is(-30));
+
+        permit.close();
+
+        assertThat(pixelAdmission.getAvailablePixels(), is(50));
+    }
+
+    @Test
+    public void testSetMaxPixelsAdmitsWaiting() throws InterruptedException {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+        PixelAdmission.Permit first = pixelAdmission.acquire(80);
+        CountDownLatch admitted = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try (PixelAdmission.Permit second = pixelAdmission.acquire(150)) {
+                assertThat(second.getPixels(), is(150));
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+        });
+        thread.start();
+
+        assertThat(admitted.await(100, TimeUnit.MILLISECONDS), is(false));
+
+        pixelAdmission.setMaxPixels(300);
+
+        assertThat(admitted.await(5, TimeUnit.SECONDS), is(true));
+        thread.join();
+        first.close();
+        assertThat(pixelAdmission.getAvailablePixels(), is(300));
+    }
+
+    /**
+     * Test that a waiting worker does not keep the other tasks of its pool from running.
+     */
+    @Test
+    public void testAcquireOnForkJoinPool() throws Exception {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+        PixelAdmission.Permit first = pixelAdmission.acquire(100);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            Future<Integer> waiting = pool.submit(() -> {
+                try (PixelAdmission.Permit second = pixelAdmission.acquire(10)) {
+                    return second.getPixels();
+                }
+            });
+            CountDownLatch ran = new CountDownLatch(1);
+            pool.execute(ran::countDown);
+
+            assertThat(ran.await(5, TimeUnit.SECONDS), is(true));
+            assertThat(waiting.isDone(), is(false));
+
+            first.close();
+
+            assertThat(waiting.get(5, TimeUnit.SECONDS), is(10));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAcquireInterrupted() throws InterruptedException {
+        PixelAdmission pixelAdmission = new PixelAdmission(100);
+        PixelAdmission.Permit first = pixelAdmission.acquire(100);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        Thread thread = new Thread(() -> {
+            try {
+                pixelAdmission.acquire(50);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        thread.start();
+        thread.interrupt();
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS), is(true));
+        thread.join();
+        first.close();
+
+        try (PixelAdmission.Permit permit = pixelAdmission.acquire(100)) {
+            assertThat(permit.getPixels(), is(100));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxPixelsNotPositive() {
+        new PixelAdmission(100).setMaxPixels(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotPositive() {
+        new PixelAdmission(0);
+    }
+}
@@ -133,6 +133,33 @@ public class PreStoragePluginMultiTest {
 
     }
 
+    /**
+     * Test that content items rendered in parallel, with room for only one rendered image at a
+     * time, each get their derived images in the order of the content items.
+     */
+    @Test
+    public void testParallelDerivativesWithPixelAdmission()
+            throws IOException, PluginExecutionException {
+        nitfPreStoragePlugin.setDerivativeThreads(2);
+        nitfPreStoragePlugin.setMaxConcurrentPixels(1);
+        makeNitf(contentItem1, metacard1);
+        makeNitf(contentItem2, metacard2);
+        List<ContentItem> contentItems = createStorageRequest.getContentItems();
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        validateNitf(contentItem1, metacard1);
+        validateNitf(contentItem2, metacard2);
+        assertThat(contentItems.size(), is(8));
+        assertThat(contentItems.get(2)
+                .getMetacard(), is(metacard1));
+        assertThat(contentItems.get(5)
+                .getMetacard(), is(metacard2));
+        assertThat(nitfPreStoragePlugin.getDerivativeThreads(), is(2));
+        assertThat(nitfPreStoragePlugin.getMaxConcurrentPixels(), is(1));
+        nitfPreStoragePlugin.destroy();
+    }
+
     private InputStream getInputStream(String filename) {
         assertNotNull("Test file missing", getClass().getResource(filename));
         return getClass().getResourceAsStream(filename);
@@ -144,8 +171,8 @@ public class PreStoragePluginMultiTest {
     }
 
     private void validateNitf(ContentItem contentItem, Metacard metacard) {
-        verify(contentItem, times(2)).getId();
-        verify(metacard, times(3)).setAttribute(attributeArgumentCaptor.capture());
+        verify(contentItem, times(3)).getId();
+        verify(metacard, times(4)).setAttribute(attributeArgumentCaptor.capture());
         Attribute thumbnail1 = attributeArgumentCaptor.getAllValues()
                 .get(0);
         Attribute overview1 = attributeArgumentCaptor.getAllValues()
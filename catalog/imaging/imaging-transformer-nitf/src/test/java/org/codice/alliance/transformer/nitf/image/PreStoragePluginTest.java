@@ -17,25 +17,38 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.imageio.ImageIO;
+
+import org.apache.commons.io.IOUtils;
+import org.codice.alliance.imaging.chip.service.api.ImagePyramid;
+import org.codice.alliance.imaging.pyramid.TiledImagePyramid;
 import org.codice.alliance.transformer.nitf.MetacardFactory;
+import org.codice.alliance.transformer.nitf.NitfParseSessions;
+import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.content.operation.CreateStorageResponse;
 import ddf.catalog.content.operation.UpdateStorageRequest;
+import ddf.catalog.content.operation.UpdateStorageResponse;
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.types.Core;
@@ -93,6 +106,16 @@ public class PreStoragePluginTest {
         validate();
     }
 
+    @Test(expected = PluginExecutionException.class)
+    public void testNullInputOnPostCreate() throws PluginExecutionException {
+        nitfPreStoragePlugin.process((CreateStorageResponse) null);
+    }
+
+    @Test(expected = PluginExecutionException.class)
+    public void testNullInputOnPostUpdate() throws PluginExecutionException {
+        nitfPreStoragePlugin.process((UpdateStorageResponse) null);
+    }
+
     @Test
     public void testCreateStorageRequest() throws PluginExecutionException {
         nitfPreStoragePlugin.process(createStorageRequest);
@@ -105,6 +128,126 @@ public class PreStoragePluginTest {
         validate();
     }
 
+    /**
+     * Test that an image larger than the preview pixel limit keeps its full resolution in the
+     * original and the pyramid while the overview is created from the reduced preview.
+     */
+    @Test
+    public void testMaxPreviewPixels() throws PluginExecutionException, IOException {
+        nitfPreStoragePlugin.setMaxPreviewPixels(100);
+        List<ContentItem> contentItems = createStorageRequest.getContentItems();
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        validate();
+        ContentItem overview = contentItems.get(1);
+        assertThat(overview.getSize() > 0, is(true));
+        ContentItem original = contentItems.get(2);
+        BufferedImage originalImage = ImageIO.read(original.getInputStream());
+        assertThat(originalImage.getWidth(), is(1024));
+        assertThat(originalImage.getHeight(), is(1024));
+        ContentItem pyramid = contentItems.get(3);
+        try (ImagePyramid imagePyramid = TiledImagePyramid.read(pyramid.getInputStream())) {
+            assertThat(imagePyramid.getWidth(), is(1024));
+            assertThat(imagePyramid.getHeight(), is(1024));
+        }
+    }
+
+    /**
+     * Test that the streams of the derived images are reset once the request has been stored.
+     */
+    @Test
+    public void testPostCreateResetsDerivedImages() throws PluginExecutionException, IOException {
+        List<ContentItem> contentItems = createStorageRequest.getContentItems();
+        CreateStorageResponse createStorageResponse = mock(CreateStorageResponse.class);
+        when(createStorageResponse.getRequest()).thenReturn(createStorageRequest);
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        ContentItem overview = contentItems.get(1);
+        assertThat(IOUtils.toByteArray(overview.getInputStream()).length > 0, is(true));
+
+        nitfPreStoragePlugin.process(createStorageResponse);
+
+        assertThat(IOUtils.toByteArray(overview.getInputStream()).length, is(0));
+    }
+
+    /**
+     * Test that the streams of the derived images are reset once the update has been stored.
+     */
+    @Test
+    public void testPostUpdateResetsDerivedImages() throws PluginExecutionException, IOException {
+        List<ContentItem> contentItems = updateStorageRequest.getContentItems();
+        UpdateStorageResponse updateStorageResponse = mock(UpdateStorageResponse.class);
+        when(updateStorageResponse.getRequest()).thenReturn(updateStorageRequest);
+
+        nitfPreStoragePlugin.process(updateStorageRequest);
+
+        ContentItem original = contentItems.get(2);
+        assertThat(IOUtils.toByteArray(original.getInputStream()).length > 0, is(true));
+
+        nitfPreStoragePlugin.process(updateStorageResponse);
+
+        assertThat(IOUtils.toByteArray(original.getInputStream()).length, is(0));
+    }
+
+    /**
+     * Test that a tiled pyramid of the original image is stored as a derived resource.
+     */
+    @Test
+    public void testPyramid() throws PluginExecutionException, IOException {
+        List<ContentItem> contentItems = createStorageRequest.getContentItems();
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        validate();
+        ContentItem original = contentItems.get(2);
+        ContentItem pyramid = contentItems.get(3);
+        assertThat(pyramid.getQualifier(), is("pyramid"));
+        assertThat(pyramid.getSize() > 0, is(true));
+
+        BufferedImage originalImage = ImageIO.read(original.getInputStream());
+        try (ImagePyramid imagePyramid = TiledImagePyramid.read(pyramid.getInputStream())) {
+            assertThat(imagePyramid.getWidth(), is(originalImage.getWidth()));
+            assertThat(imagePyramid.getHeight(), is(originalImage.getHeight()));
+        }
+    }
+
+    /**
+     * Test that the segments shared by the input transformer are rendered instead of parsing the
+     * content item again.
+     */
+    @Test
+    public void testSharedParseSession() throws PluginExecutionException, NitfFormatException {
+        NitfParseSessions parseSessions = new NitfParseSessions();
+        parseSessions.offer("101ABC",
+                new NitfParserInputFlow().inputStream(getInputStream(GEO_NITF))
+                        .allData());
+        nitfPreStoragePlugin.setParseSessions(parseSessions);
+        List<ContentItem> contentItems = createStorageRequest.getContentItems();
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        verify(contentItem, never()).getInputStream();
+        verify(metacard, times(4)).setAttribute(attributeArgumentCaptor.capture());
+        assertThat(contentItems.size(), is(4));
+        assertThat(parseSessions.size(), is(0L));
+    }
+
+    /**
+     * Test that the content item is parsed when no parse was shared for it.
+     */
+    @Test
+    public void testNoSharedParseSession() throws PluginExecutionException {
+        NitfParseSessions parseSessions = new NitfParseSessions();
+        nitfPreStoragePlugin.setParseSessions(parseSessions);
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        verify(contentItem, atLeastOnce()).getInputStream();
+        verify(metacard, times(4)).setAttribute(attributeArgumentCaptor.capture());
+    }
+
     /**
      * Test that the plugin handles non-nitf content items
      *
@@ -122,8 +265,8 @@ public class PreStoragePluginTest {
     }
 
     private void validate() {
-        verify(contentItem, times(2)).getId();
-        verify(metacard, times(3)).setAttribute(attributeArgumentCaptor.capture());
+        verify(contentItem, times(3)).getId();
+        verify(metacard, times(4)).setAttribute(attributeArgumentCaptor.capture());
         Attribute thumbnail = attributeArgumentCaptor.getAllValues()
                 .get(0);
         Attribute overview = attributeArgumentCaptor.getAllValues()
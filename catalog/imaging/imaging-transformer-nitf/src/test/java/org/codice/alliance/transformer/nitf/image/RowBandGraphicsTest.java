@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RowBandGraphicsTest {
+
+    /**
+     * Test that the bands hold the same rows as the image rendered in one piece, with the blocks
+     * at the edges cut off and the rows of a missing block left black.
+     */
+    @Test
+    public void testBandsMatchImage() throws IOException {
+        int width = 100;
+        int height = 70;
+        BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage actual = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        List<Integer> bandHeights = new ArrayList<>();
+        int[] rowCount = new int[1];
+
+        RowBandGraphics graphics = new RowBandGraphics(width,
+                height,
+                new RowBandGraphics.BandConsumer() {
+                    @Override
+                    public void start(int bandHeight) {
+                        bandHeights.add(bandHeight);
+                    }
+
+                    @Override
+                    public void consume(BufferedImage band, int count) {
+                        actual.getRaster()
+                                .setRect(0,
+                                        rowCount[0],
+                                        band.getRaster()
+                                                .createChild(0, 0, width, count, 0, 0, null));
+                        rowCount[0] += count;
+                    }
+                });
+        Graphics2D expectedGraphics = expected.createGraphics();
+
+        BufferedImage block = StripedJpegWriterTest.createImage(32, 32);
+        for (int y = 0; y < height; y += 32) {
+            for (int x = 0; x < width; x += 32) {
+                if (x == 32 && y == 32) {
+                    continue;
+                }
+                graphics.drawImage(block, x, y, null);
+                expectedGraphics.drawImage(block, x, y, null);
+            }
+        }
+        graphics.finish();
+        graphics.dispose();
+        expectedGraphics.dispose();
+
+        assertThat(bandHeights.size(), is(1));
+        assertThat(bandHeights.get(0), is(32));
+        assertThat(rowCount[0], is(height));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBlocksOutOfRowOrder() {
+        RowBandGraphics graphics = new RowBandGraphics(10, 20, new NullBandConsumer());
+        BufferedImage block = new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR);
+
+        graphics.drawImage(block, 0, 10, null);
+        graphics.drawImage(block, 0, 0, null);
+    }
+
+    @Test(expected = IOException.class)
+    public void testNothingDrawn() throws IOException {
+        new RowBandGraphics(10, 20, new NullBandConsumer()).finish();
+    }
+
+    private static class NullBandConsumer implements RowBandGraphics.BandConsumer {
+
+        @Override
+        public void start(int bandHeight) {
+        }
+
+        @Override
+        public void consume(BufferedImage band, int rowCount) {
+        }
+    }
+}
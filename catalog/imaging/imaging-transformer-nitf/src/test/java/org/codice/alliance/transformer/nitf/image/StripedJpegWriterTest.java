@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+
+public class StripedJpegWriterTest {
+
+    /**
+     * Test that the strips decode to the same pixels as the image encoded in one piece.
+     */
+    @Test
+    public void testSameAsWholeImage() throws IOException {
+        BufferedImage image = createImage(333, 250);
+
+        BufferedImage striped = decode(writeStriped(image, 7));
+        ByteArrayOutputStream whole = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", whole);
+        BufferedImage expected = decode(whole.toByteArray());
+
+        assertThat(striped.getWidth(), is(333));
+        assertThat(striped.getHeight(), is(250));
+        assertThat(countDifferentPixels(striped, expected), is(0));
+    }
+
+    @Test
+    public void testBandsLargerThanStrip() throws IOException {
+        BufferedImage image = createImage(100, 90);
+
+        BufferedImage striped = decode(writeStriped(image, 64));
+
+        assertThat(striped.getWidth(), is(100));
+        assertThat(striped.getHeight(), is(90));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingRows() throws IOException {
+        try (StripedJpegWriter writer = new StripedJpegWriter(10,
+                20,
+                new ByteArrayOutputStream())) {
+            writer.writeRows(new BufferedImage(10, 16, BufferedImage.TYPE_3BYTE_BGR), 16);
+            writer.finish();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooWide() throws IOException {
+        new StripedJpegWriter(StripedJpegWriter.MAX_SIDE_LENGTH + 1,
+                1,
+                new ByteArrayOutputStream());
+    }
+
+    private static byte[] writeStriped(BufferedImage image, int bandHeight) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BufferedImage band = new BufferedImage(width, bandHeight, BufferedImage.TYPE_3BYTE_BGR);
+
+        try (StripedJpegWriter writer = new StripedJpegWriter(width, height, outputStream)) {
+            for (int y = 0; y < height; y += bandHeight) {
+                int rowCount = Math.min(bandHeight, height - y);
+                band.getRaster()
+                        .setRect(0,
+                                -y,
+                                image.getRaster()
+                                        .createChild(0, y, width, rowCount, 0, y, null));
+                writer.writeRows(band, rowCount);
+            }
+            writer.finish();
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    static BufferedImage createImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, ((x * 3 + y) & 0xFF) << 16 | ((x ^ y) & 0xFF) << 8 | (y & 0xFF));
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage decode(byte[] jpeg) throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg));
+    }
+
+    private static int countDifferentPixels(BufferedImage image, BufferedImage expected) {
+        int count = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) != expected.getRGB(x, y)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.common;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.codice.alliance.nsili.common.UCO.Edge;
+import org.codice.alliance.nsili.common.UCO.Node;
+
+/**
+ * Builds a {@link DAG} straight from its nodes and edges, without an intermediate graph.
+ * <p>
+ * The DAG is the same as the one produced by building a jgrapht {@code DirectedAcyclicGraph} with
+ * the same calls and converting it with {@link NsiliCommonUtils}: the nodes and edges are in the
+ * order they were added, the node ids are assigned in depth first order starting at the root,
+ * visiting the children of a node starting with the last one added, and the edges refer to the
+ * node ids with an empty relationship type.
+ * <p>
+ * Nodes are compared by identity. This class is not thread-safe.
+ */
+public class DAGBuilder {
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    private final List<Node> edgeStarts = new ArrayList<>();
+
+    private final List<Node> edgeEnds = new ArrayList<>();
+
+    /**
+     * The children of each node in the order their edges were added. Nodes without children map
+     * to null.
+     */
+    private final Map<Node, List<Node>> children = new IdentityHashMap<>();
+
+    /**
+     * The children of each node that has any, so an edge can be found without scanning the
+     * children of a node with many of them.
+     */
+    private final Map<Node, Set<Node>> childSets = new IdentityHashMap<>();
+
+    /**
+     * Add a node. Nothing is changed if the node was already added.
+     *
+     * @param node the node, non-null
+     */
+    public void addVertex(Node node) {
+        if (!children.containsKey(node)) {
+            nodes.add(node);
+            children.put(node, null);
+        }
+    }
+
+    /**
+     * Add an edge from a parent node to a child node. Nothing is changed if the edge was already
+     * added.
+     *
+     * @param parent the start node of the edge, must have been added
+     * @param child  the end node of the edge, must have been added
+     * @throws IllegalArgumentException if either node was not added, or if both are the same node
+     */
+    public void addEdge(Node parent, Node child) {
+        if (!children.containsKey(parent) || !children.containsKey(child)) {
+            throw new IllegalArgumentException("Both nodes of an edge must be added first.");
+        }
+        if (parent == child) {
+            throw new IllegalArgumentException("A node cannot be its own child.");
+        }
+
+        Set<Node> childSet = childSets.computeIfAbsent(parent,
+                node -> Collections.newSetFromMap(new IdentityHashMap<>()));
+        if (childSet.add(child)) {
+            children.computeIfAbsent(parent, node -> new ArrayList<>())
+                    .add(child);
+            edgeStarts.add(parent);
+            edgeEnds.add(child);
+        }
+    }
+
+    /**
+     * Remove the edge from a parent node to a child node, if it was added.
+     */
+    public void removeEdge(Node parent, Node child) {
+        Set<Node> childSet = childSets.get(parent);
+        if (childSet == null || !childSet.remove(child)) {
+            return;
+        }
+        removeLast(children.get(parent), child);
+
+        for (int i = edgeStarts.size() - 1; i >= 0; i--) {
+            if (edgeStarts.get(i) == parent && edgeEnds.get(i) == child) {
+                edgeStarts.remove(i);
+                edgeEnds.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove a node and its edges, if it was added. The nodes are searched from the last one
+     * added, so removing a node that was just added is cheap.
+     */
+    public void removeVertex(Node node) {
+        if (!children.containsKey(node)) {
+            return;
+        }
+
+        for (int i = edgeStarts.size() - 1; i >= 0; i--) {
+            if (edgeStarts.get(i) == node || edgeEnds.get(i) == node) {
+                if (edgeEnds.get(i) == node) {
+                    childSets.get(edgeStarts.get(i))
+                            .remove(node);
+                    removeLast(children.get(edgeStarts.get(i)), node);
+                }
+                edgeStarts.remove(i);
+                edgeEnds.remove(i);
+            }
+        }
+
+        children.remove(node);
+        childSets.remove(node);
+        removeLast(nodes, node);
+    }
+
+    /**
+     * Assign the node ids and create the DAG. The root is expected to be the first node added.
+     * Nodes that cannot be reached from the root get ids after the nodes that can, and edges that
+     * end at such a node refer to node 0.
+     *
+     * @param root the root node of the DAG, must have been added
+     * @return the DAG, which shares its nodes with this builder
+     */
+    public DAG build(Node root) {
+        nodes.forEach(node -> node.id = -1);
+
+        int id = assignIds(root, 0);
+        int rootComponentSize = id;
+        for (Node node : nodes) {
+            if (node.id < 0) {
+                id = assignIds(node, id);
+            }
+        }
+
+        Edge[] edges = new Edge[edgeStarts.size()];
+        for (int i = 0; i < edges.length; i++) {
+            Node start = edgeStarts.get(i);
+            Node end = edgeEnds.get(i);
+            if (end.id < rootComponentSize) {
+                edges[i] = new Edge(start.id, end.id, "");
+            } else {
+                edges[i] = new Edge(0, 0, "");
+            }
+        }
+
+        DAG dag = new DAG();
+        dag.nodes = nodes.toArray(new Node[nodes.size()]);
+        dag.edges = edges;
+        return dag;
+    }
+
+    /**
+     * Number the nodes that can be reached from the start node and are not numbered yet.
+     *
+     * @return the next id
+     */
+    private int assignIds(Node start, int firstId) {
+        int id = firstId;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(start);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.id >= 0) {
+                continue;
+            }
+
+            node.id = id++;
+            List<Node> nodeChildren = children.get(node);
+            if (nodeChildren != null) {
+                for (Node child : nodeChildren) {
+                    if (child.id < 0) {
+                        stack.push(child);
+                    }
+                }
+            }
+        }
+
+        return id;
+    }
+
+    private static boolean removeLast(List<Node> list, Node node) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == node) {
+                list.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -93,8 +93,7 @@ public class ResultDAGConverter {
         Double resultScore = result.getRelevanceScore();
         Metacard metacard = result.getMetacard();
 
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         ProductImpl productImpl = new ProductImpl();
 
@@ -183,17 +182,10 @@ public class ResultDAGConverter {
             }
         }
 
-        graph.addVertex(productNode);
-
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
-
-        return dag;
+        return graph.build(productNode);
     }
 
-    public static List<String> addCardNodeWithAttributes(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addCardNodeWithAttributes(DAGBuilder graph,
             Node productNode, Metacard metacard, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
@@ -298,7 +290,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addFileNodeWithAttributes(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addFileNodeWithAttributes(DAGBuilder graph,
             Node productNode, Metacard metacard, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
 
@@ -443,7 +435,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addSecurityNodeWithAttributes(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addSecurityNodeWithAttributes(DAGBuilder graph,
             Node productNode, Metacard metacard, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
@@ -549,7 +541,7 @@ public class ResultDAGConverter {
     }
 
     public static List<String> addMetadataSecurityNodeWithAttributes(
-            DirectedAcyclicGraph<Node, Edge> graph, Node productNode, Metacard metacard, ORB orb,
+            DAGBuilder graph, Node productNode, Metacard metacard, ORB orb,
             String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any any = orb.create_any();
@@ -660,7 +652,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addParts(DirectedAcyclicGraph<Node, Edge> graph, Node productNode,
+    public static List<String> addParts(DAGBuilder graph, Node productNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any any = orb.create_any();
@@ -776,7 +768,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addImageryPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addImageryPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any imageryAny = orb.create_any();
@@ -969,7 +961,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addVideoPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addVideoPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any videoAny = orb.create_any();
@@ -1125,7 +1117,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addTdlPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addTdlPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any tdlAny = orb.create_any();
@@ -1182,7 +1174,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addGmtiPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addGmtiPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any gmtiAny = orb.create_any();
@@ -1227,7 +1219,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addReportPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addReportPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any reportAny = orb.create_any();
@@ -1307,7 +1299,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addRfiPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addRfiPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any rfiAny = orb.create_any();
@@ -1395,7 +1387,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addTaskPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addTaskPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any taskAny = orb.create_any();
@@ -1430,7 +1422,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addCbrnPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addCbrnPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any cbrnAny = orb.create_any();
@@ -1537,7 +1529,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addIntRepPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addIntRepPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any intRepAny = orb.create_any();
@@ -1565,7 +1557,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addEntityPart(DirectedAcyclicGraph<Node, Edge> graph, Node partNode,
+    public static List<String> addEntityPart(DAGBuilder graph, Node partNode,
             Metacard metacard, ORB orb, String parentAttrName, List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
         Any entityAny = orb.create_any();
@@ -1622,7 +1614,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addExploitationInfoPart(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addExploitationInfoPart(DAGBuilder graph,
             Node partNode, Metacard metacard, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
@@ -1692,7 +1684,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addCommonNodeWithAttributes(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addCommonNodeWithAttributes(DAGBuilder graph,
             Node partNode, Metacard metacard, String type, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
@@ -1833,7 +1825,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addCoverageNodeWithAttributes(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addCoverageNodeWithAttributes(DAGBuilder graph,
             Node partNode, Metacard metacard, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
@@ -1933,7 +1925,7 @@ public class ResultDAGConverter {
         return addedAttributes;
     }
 
-    public static List<String> addThumbnailRelatedFile(DirectedAcyclicGraph<Node, Edge> graph,
+    public static List<String> addThumbnailRelatedFile(DAGBuilder graph,
             Node productNode, Metacard metacard, ORB orb, String parentAttrName,
             List<String> resultAttributes) {
         List<String> addedAttributes = new ArrayList<>();
@@ -2053,7 +2045,7 @@ public class ResultDAGConverter {
         return new Node(0, NodeType.ROOT_NODE, NsiliConstants.NSIL_PRODUCT, orb.create_any());
     }
 
-    public static void addStringAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addStringAttribute(DAGBuilder graph, Node parentNode,
             String key, String value, ORB orb) {
         Any any = orb.create_any();
         any.insert_string(value);
@@ -2062,7 +2054,7 @@ public class ResultDAGConverter {
         graph.addEdge(parentNode, node);
     }
 
-    public static void addIntegerAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addIntegerAttribute(DAGBuilder graph, Node parentNode,
             String key, Integer integer, ORB orb) {
         Any any = orb.create_any();
         any.insert_ulong(integer);
@@ -2071,7 +2063,7 @@ public class ResultDAGConverter {
         graph.addEdge(parentNode, node);
     }
 
-    public static void addShortAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addShortAttribute(DAGBuilder graph, Node parentNode,
             String key, Short shortVal, ORB orb) {
         Any any = orb.create_any();
         any.insert_short(shortVal);
@@ -2080,7 +2072,7 @@ public class ResultDAGConverter {
         graph.addEdge(parentNode, node);
     }
 
-    public static void addDoubleAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addDoubleAttribute(DAGBuilder graph, Node parentNode,
             String key, Double doubleVal, ORB orb) {
         Any any = orb.create_any();
         any.insert_double(doubleVal);
@@ -2089,7 +2081,7 @@ public class ResultDAGConverter {
         graph.addEdge(parentNode, node);
     }
 
-    public static void addBooleanAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addBooleanAttribute(DAGBuilder graph, Node parentNode,
             String key, Boolean boolVal, ORB orb) {
         Any any = orb.create_any();
         any.insert_boolean(boolVal);
@@ -2098,14 +2090,14 @@ public class ResultDAGConverter {
         graph.addEdge(parentNode, node);
     }
 
-    public static void addAnyAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addAnyAttribute(DAGBuilder graph, Node parentNode,
             String key, Any any, ORB orb) {
         Node node = new Node(0, NodeType.ATTRIBUTE_NODE, key, any);
         graph.addVertex(node);
         graph.addEdge(parentNode, node);
     }
 
-    public static void addDateAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addDateAttribute(DAGBuilder graph, Node parentNode,
             String key, Date date, ORB orb) {
         Any any = orb.create_any();
         AbsTimeHelper.insert(any, getAbsTime(date));
@@ -2114,7 +2106,7 @@ public class ResultDAGConverter {
         graph.addEdge(parentNode, node);
     }
 
-    public static void addGeomAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addGeomAttribute(DAGBuilder graph, Node parentNode,
             String key, Rectangle rectangle, ORB orb) {
         if (rectangle != null) {
             Any any = orb.create_any();
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.common;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.codice.alliance.nsili.common.UCO.Edge;
+import org.codice.alliance.nsili.common.UCO.Node;
+import org.codice.alliance.nsili.common.UCO.NodeType;
+import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
+import org.junit.Test;
+
+public class DAGBuilderTest {
+
+    private static final String[] NODE_NAMES =
+            {"root", "a", "b", "c", "d", "e", "f", "removed"};
+
+    @Test
+    public void testSameAsGraph() {
+        Node[] graphNodes = createNodes();
+        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        for (Node node : graphNodes) {
+            graph.addVertex(node);
+        }
+        graph.addEdge(graphNodes[0], graphNodes[1]);
+        graph.addEdge(graphNodes[0], graphNodes[2]);
+        graph.addEdge(graphNodes[1], graphNodes[3]);
+        graph.addEdge(graphNodes[2], graphNodes[3]);
+        graph.addEdge(graphNodes[2], graphNodes[4]);
+        graph.addEdge(graphNodes[5], graphNodes[6]);
+        graph.addEdge(graphNodes[5], graphNodes[3]);
+        graph.addEdge(graphNodes[2], graphNodes[7]);
+        graph.removeEdge(graphNodes[2], graphNodes[7]);
+        graph.removeVertex(graphNodes[7]);
+        NsiliCommonUtils.setUCOEdgeIds(graph);
+        NsiliCommonUtils.setUCOEdges(graphNodes[0], graph);
+        Node[] expectedNodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        Edge[] expectedEdges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
+
+        Node[] builderNodes = createNodes();
+        DAGBuilder builder = new DAGBuilder();
+        for (Node node : builderNodes) {
+            builder.addVertex(node);
+        }
+        builder.addEdge(builderNodes[0], builderNodes[1]);
+        builder.addEdge(builderNodes[0], builderNodes[2]);
+        builder.addEdge(builderNodes[1], builderNodes[3]);
+        builder.addEdge(builderNodes[2], builderNodes[3]);
+        builder.addEdge(builderNodes[2], builderNodes[4]);
+        builder.addEdge(builderNodes[5], builderNodes[6]);
+        builder.addEdge(builderNodes[5], builderNodes[3]);
+        builder.addEdge(builderNodes[2], builderNodes[7]);
+        builder.removeEdge(builderNodes[2], builderNodes[7]);
+        builder.removeVertex(builderNodes[7]);
+        DAG dag = builder.build(builderNodes[0]);
+
+        assertThat(describeNodes(dag.nodes), is(describeNodes(expectedNodes)));
+        assertThat(describeEdges(dag.edges), is(describeEdges(expectedEdges)));
+    }
+
+    @Test
+    public void testDuplicatesIgnored() {
+        Node[] nodes = createNodes();
+        DAGBuilder builder = new DAGBuilder();
+        builder.addVertex(nodes[0]);
+        builder.addVertex(nodes[1]);
+        builder.addVertex(nodes[0]);
+        builder.addEdge(nodes[0], nodes[1]);
+        builder.addEdge(nodes[0], nodes[1]);
+
+        DAG dag = builder.build(nodes[0]);
+
+        assertThat(dag.nodes.length, is(2));
+        assertThat(describeEdges(dag.edges), is(Collections.singletonList("0->1:")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEdgeToUnknownNode() {
+        Node[] nodes = createNodes();
+        DAGBuilder builder = new DAGBuilder();
+        builder.addVertex(nodes[0]);
+
+        builder.addEdge(nodes[0], nodes[1]);
+    }
+
+    private Node[] createNodes() {
+        Node[] nodes = new Node[NODE_NAMES.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Node(0, NodeType.ENTITY_NODE, NODE_NAMES[i], null);
+        }
+        return nodes;
+    }
+
+    private List<String> describeNodes(Node[] nodes) {
+        List<String> descriptions = new ArrayList<>();
+        for (Node node : nodes) {
+            descriptions.add(node.attribute_name + "=" + node.id);
+        }
+        return descriptions;
+    }
+
+    private List<String> describeEdges(Edge[] edges) {
+        List<String> descriptions = new ArrayList<>();
+        for (Edge edge : edges) {
+            descriptions.add(edge.start_node + "->" + edge.end_node + ":"
+                    + edge.relationship_type);
+        }
+        return descriptions;
+    }
+}
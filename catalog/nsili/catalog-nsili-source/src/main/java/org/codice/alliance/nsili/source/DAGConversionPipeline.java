@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.source;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ddf.catalog.data.Result;
+
+/**
+ * Converts the DAGs of one query response to results on a worker pool that is shared by all
+ * queries of a source. At most {@code maxParallelConversions} DAGs of the response are converted
+ * at the same time, so a large response does not queue all of its conversions ahead of the other
+ * queries. Each result is passed on in the order of the DAGs as soon as it and the results before
+ * it are converted.
+ */
+class DAGConversionPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DAGConversionPipeline.class);
+
+    private final ExecutorService executorService;
+
+    private final int maxParallelConversions;
+
+    private final Function<DAG, Result> converter;
+
+    /**
+     * @param executorService        the worker pool, non-null
+     * @param maxParallelConversions the number of DAGs converted at the same time, at least 1
+     * @param converter              converts a DAG to a result, or returns null if the DAG
+     *                               cannot be converted, non-null
+     */
+    DAGConversionPipeline(ExecutorService executorService, int maxParallelConversions,
+            Function<DAG, Result> converter) {
+        this.executorService = executorService;
+        this.maxParallelConversions = Math.max(maxParallelConversions, 1);
+        this.converter = converter;
+    }
+
+    /**
+     * Convert the DAGs and pass each result to the consumer on the calling thread. DAGs that cannot
+     * be converted are skipped. If the calling thread is interrupted, the remaining conversions are
+     * cancelled and the interrupt status is restored.
+     *
+     * @param dags     the DAGs of a query response, non-null
+     * @param consumer receives the results in the order of the DAGs, non-null
+     */
+    void convert(DAG[] dags, Consumer<Result> consumer) {
+        Deque<Future<Result>> conversions = new ArrayDeque<>(maxParallelConversions);
+        int next = 0;
+
+        while (next < dags.length || !conversions.isEmpty()) {
+            while (next < dags.length && conversions.size() < maxParallelConversions) {
+                DAG dag = dags[next++];
+                conversions.add(executorService.submit(() -> converter.apply(dag)));
+            }
+
+            Future<Result> conversion = conversions.remove();
+            try {
+                Result result = conversion.get();
+                if (result != null) {
+                    consumer.accept(result);
+                }
+            } catch (ExecutionException e) {
+                LOGGER.debug("Unable to create result.", e);
+            } catch (InterruptedException e) {
+                LOGGER.debug("Interrupted while converting results.", e);
+                conversion.cancel(true);
+                conversions.forEach(remaining -> remaining.cancel(true));
+                Thread.currentThread()
+                        .interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -28,15 +28,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.MapUtils;
@@ -76,6 +72,8 @@ import org.codice.alliance.nsili.common.UCO.SystemFault;
 import org.codice.alliance.nsili.orb.api.CorbaOrb;
 import org.codice.alliance.nsili.orb.api.CorbaServiceListener;
 import org.codice.alliance.nsili.transformer.DAGConverter;
+import org.codice.alliance.nsili.transformer.PendingThumbnails;
+import org.codice.alliance.nsili.transformer.ThumbnailRetriever;
 import org.codice.ddf.cxf.SecureCxfClientFactory;
 import org.codice.ddf.spatial.ogc.catalog.common.AvailabilityCommand;
 import org.codice.ddf.spatial.ogc.catalog.common.AvailabilityTask;
@@ -134,6 +132,24 @@ public class NsiliSource extends MaskableImpl
 
     public static final String ACCESS_LICENSE_KEY = "accessLicenseKey";
 
+    public static final String MAX_CONCURRENT_QUERIES = "maxConcurrentQueries";
+
+    public static final String SKIP_HIT_COUNT = "skipHitCount";
+
+    public static final String MAX_CONVERSIONS_PER_QUERY = "maxConversionsPerQuery";
+
+    public static final String THUMBNAIL_TIMEOUT = "thumbnailTimeout";
+
+    public static final String MAX_THUMBNAIL_RETRIEVALS_PER_HOST = "maxThumbnailRetrievalsPerHost";
+
+    public static final String THUMBNAIL_CACHE_TTL = "thumbnailCacheTtl";
+
+    public static final int DEFAULT_MAX_CONCURRENT_QUERIES = 4;
+
+    public static final int DEFAULT_MAX_CONVERSIONS_PER_QUERY = 2;
+
+    public static final int DEFAULT_THUMBNAIL_TIMEOUT = 5;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(NsiliSource.class);
 
     private static final String DESCRIBABLE_PROPERTIES_FILE = "/describable.properties";
@@ -252,14 +268,22 @@ public class NsiliSource extends MaskableImpl
 
     private ExecutorService executorService;
 
-    private CompletionService<Result> completionService;
+    private int maxConversionsPerQuery = DEFAULT_MAX_CONVERSIONS_PER_QUERY;
 
     private CorbaOrb corbaOrb = null;
 
-    private Object queryLockObj = new Object();
+    private int maxConcurrentQueries = DEFAULT_MAX_CONCURRENT_QUERIES;
+
+    private Semaphore querySemaphore = new Semaphore(DEFAULT_MAX_CONCURRENT_QUERIES, true);
+
+    private boolean skipHitCount = false;
 
     private MetacardType nsiliMetacardType = null;
 
+    private final ThumbnailRetriever thumbnailRetriever = new ThumbnailRetriever(null);
+
+    private int thumbnailTimeout = DEFAULT_THUMBNAIL_TIMEOUT;
+
     static {
         try (InputStream properties = NsiliSource.class.getResourceAsStream(
                 DESCRIBABLE_PROPERTIES_FILE)) {
@@ -653,6 +677,7 @@ public class NsiliSource extends MaskableImpl
         }
         availabilityPollFuture.cancel(true);
         scheduler.shutdownNow();
+        thumbnailRetriever.destroy();
     }
 
     public void refresh(Map<String, Object> configuration) {
@@ -707,6 +732,32 @@ public class NsiliSource extends MaskableImpl
         if (StringUtils.isNotBlank(accessLicenseKey)) {
             setAccessLicenseKey(accessLicenseKey);
         }
+        Integer maxConcurrentQueries = (Integer) configuration.get(MAX_CONCURRENT_QUERIES);
+        if (maxConcurrentQueries != null && maxConcurrentQueries != this.maxConcurrentQueries) {
+            setMaxConcurrentQueries(maxConcurrentQueries);
+        }
+        Integer maxConversionsPerQuery = (Integer) configuration.get(MAX_CONVERSIONS_PER_QUERY);
+        if (maxConversionsPerQuery != null) {
+            setMaxConversionsPerQuery(maxConversionsPerQuery);
+        }
+        Boolean skipHitCount = (Boolean) configuration.get(SKIP_HIT_COUNT);
+        if (skipHitCount != null) {
+            setSkipHitCount(skipHitCount);
+        }
+        Integer thumbnailTimeout = (Integer) configuration.get(THUMBNAIL_TIMEOUT);
+        if (thumbnailTimeout != null) {
+            setThumbnailTimeout(thumbnailTimeout);
+        }
+        Integer maxThumbnailRetrievalsPerHost = (Integer) configuration.get(
+                MAX_THUMBNAIL_RETRIEVALS_PER_HOST);
+        if (maxThumbnailRetrievalsPerHost != null) {
+            setMaxThumbnailRetrievalsPerHost(maxThumbnailRetrievalsPerHost);
+        }
+        Integer thumbnailCacheTtl = (Integer) configuration.get(THUMBNAIL_CACHE_TTL);
+        if (thumbnailCacheTtl != null
+                && thumbnailCacheTtl != thumbnailRetriever.getCacheTtlMinutes()) {
+            setThumbnailCacheTtl(thumbnailCacheTtl);
+        }
         init();
     }
 
@@ -769,10 +820,8 @@ public class NsiliSource extends MaskableImpl
             NameValue[] properties) {
         IntHolder intHolder = new IntHolder();
         try {
-            synchronized (queryLockObj) {
-                HitCountRequest hitCountRequest = catalogMgr.hit_count(query, properties);
-                hitCountRequest.complete(intHolder);
-            }
+            HitCountRequest hitCountRequest = catalogMgr.hit_count(query, properties);
+            hitCountRequest.complete(intHolder);
         } catch (ProcessingFault | SystemFault | InvalidInputParameter e) {
             LOGGER.debug("{} : Unable to get hit count for query. : {}",
                     getId(),
@@ -785,7 +834,9 @@ public class NsiliSource extends MaskableImpl
     }
 
     /**
-     * Submits and completes a BQS Query to the STANAG 4559 server and returns the response.
+     * Submits and completes a BQS Query to the STANAG 4559 server and returns the response. At
+     * most {@link #setMaxConcurrentQueries(int)} queries are sent to the server at once, the other
+     * queries wait for one of them to complete.
      *
      * @param queryRequest     - the query request generated from the search
      * @param query            - a BQS query
@@ -801,19 +852,41 @@ public class NsiliSource extends MaskableImpl
 
         SourceResponseImpl sourceResponse = null;
 
+        int offset = Math.max(queryRequest.getQuery()
+                .getStartIndex(), 1) - 1;
+        int pageSize = getRemotePageSize(queryRequest.getQuery()
+                .getPageSize());
+
+        Semaphore semaphore = querySemaphore;
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            LOGGER.debug("{} : Interrupted while waiting to query source.", id, e);
+            return null;
+        }
+
         long numHits = 0;
         try {
-            synchronized (queryLockObj) {
-                LOGGER.debug("{} : Submit query: {}", id, query.bqs_query);
-                LOGGER.debug("{} : Requesting result attributes: {}", id, Arrays.toString(resultAttributes));
-                LOGGER.debug("{} : Sort Attributes: {}", id, Arrays.toString(sortAttributes));
-                LOGGER.debug("{} : Properties: {}", id, Arrays.toString(properties));
+            LOGGER.debug("{} : Submit query: {}", id, query.bqs_query);
+            LOGGER.debug("{} : Requesting result attributes: {}", id, Arrays.toString(resultAttributes));
+            LOGGER.debug("{} : Sort Attributes: {}", id, Arrays.toString(sortAttributes));
+            LOGGER.debug("{} : Properties: {}", id, Arrays.toString(properties));
+            LOGGER.debug("{} : Start index: {}, page size: {}", id, offset + 1, pageSize);
+
+            boolean sorted = true;
+            if (!skipHitCount) {
                 HitCountRequest hitCountRequest = catalogMgr.hit_count(query, properties);
                 IntHolder hitHolder = new IntHolder();
                 hitCountRequest.complete(hitHolder);
                 numHits = hitHolder.value;
+                sorted = hitHolder.value > 1;
+            }
+
+            if (skipHitCount || offset < numHits) {
                 SubmitQueryRequest submitQueryRequest;
-                if (hitHolder.value > 1) {
+                if (sorted) {
                     submitQueryRequest = catalogMgr.submit_query(query,
                             resultAttributes,
                             sortAttributes,
@@ -825,51 +898,54 @@ public class NsiliSource extends MaskableImpl
                             new NameValue[0]);
                 }
                 submitQueryRequest.set_user_info(ddfOrgName);
-                submitQueryRequest.set_number_of_hits(maxHitCount);
+                skipHits(submitQueryRequest, offset);
+                submitQueryRequest.set_number_of_hits(pageSize);
                 submitQueryRequest.complete_DAG_results(dagListHolder);
+            } else {
+                LOGGER.debug("{} : Start index {} is past the {} hit(s) of the query.",
+                        id,
+                        offset + 1,
+                        numHits);
+                dagListHolder.value = new DAG[0];
+            }
+
+            if (skipHitCount && dagListHolder.value != null) {
+                numHits = offset + dagListHolder.value.length;
+                // a full page may be followed by more hits, so claim one more to keep paging
+                if (dagListHolder.value.length >= pageSize) {
+                    numHits++;
+                }
             }
         } catch (ProcessingFault | SystemFault | InvalidInputParameter e) {
             LOGGER.debug("{} : Unable to query source. {}",
                     id,
                     NsilCorbaExceptionUtil.getExceptionDetails(e),
                     e);
+        } finally {
+            semaphore.release();
         }
 
         if (dagListHolder.value != null) {
-            List<Result> results = new ArrayList<>();
+            List<Result> results = new ArrayList<>(dagListHolder.value.length);
             String id = getId();
-            List<Future> futures = new ArrayList<>(dagListHolder.value.length);
-
-            for (DAG dag : dagListHolder.value) {
-                Callable<Result> convertRunner = () -> {
-                    DAGConverter dagConverter = new DAGConverter(resourceReader);
-                    dagConverter.setNsiliMetacardType(nsiliMetacardType);
-                    Metacard card = dagConverter.convertDAG(dag, swapCoordinates, id);
-                    if (card != null) {
-                        if (LOGGER.isTraceEnabled()) {
-                            DAGConverter.logMetacard(card, getId());
-                        }
-                        return new ResultImpl(card);
-                    } else {
-                        LOGGER.debug("{} : Unable to convert DAG to metacard, returned card is null",
-                                getId());
-                    }
-                    return null;
-                };
-                futures.add(completionService.submit(convertRunner));
-            }
+            DAGConverter dagConverter = new DAGConverter(resourceReader);
+            dagConverter.setNsiliMetacardType(nsiliMetacardType);
+            dagConverter.setThumbnailRetriever(thumbnailRetriever);
+            PendingThumbnails pendingThumbnails = new PendingThumbnails(thumbnailTimeout,
+                    TimeUnit.SECONDS);
 
-            Future<Result> completedFuture;
-            while (!futures.isEmpty()) {
-                try {
-                    completedFuture = completionService.take();
-                    futures.remove(completedFuture);
-                    results.add(completedFuture.get());
-                } catch (ExecutionException e) {
-                    LOGGER.debug("Unable to create result.", e);
-                } catch (InterruptedException ignore) {
-                    //ignore
-                }
+            new DAGConversionPipeline(executorService,
+                    maxConversionsPerQuery,
+                    dag -> convertDAG(dagConverter, dag, id, pendingThumbnails)).convert(
+                    dagListHolder.value,
+                    results::add);
+
+            int missedThumbnails = pendingThumbnails.await();
+            if (missedThumbnails > 0) {
+                LOGGER.debug("{} : {} thumbnails were not retrieved within {} seconds.",
+                        id,
+                        missedThumbnails,
+                        thumbnailTimeout);
             }
 
             sourceResponse = new SourceResponseImpl(queryRequest, results, numHits);
@@ -881,6 +957,46 @@ public class NsiliSource extends MaskableImpl
         return sourceResponse;
     }
 
+    private Result convertDAG(DAGConverter dagConverter, DAG dag, String id,
+            PendingThumbnails pendingThumbnails) {
+        Metacard card = dagConverter.convertDAG(dag, swapCoordinates, id, pendingThumbnails);
+        if (card != null) {
+            if (LOGGER.isTraceEnabled()) {
+                DAGConverter.logMetacard(card, id);
+            }
+            return new ResultImpl(card);
+        } else {
+            LOGGER.debug("{} : Unable to convert DAG to metacard, returned card is null", id);
+        }
+        return null;
+    }
+
+    /**
+     * Each completion of a {@link SubmitQueryRequest} returns the next hits of the query, and
+     * there is no way to request hits from a start index. The hits before the start index are
+     * therefore completed as one page of the same request and discarded without converting them.
+     */
+    private void skipHits(SubmitQueryRequest submitQueryRequest, int offset)
+            throws ProcessingFault, SystemFault, InvalidInputParameter {
+        if (offset > 0) {
+            submitQueryRequest.set_number_of_hits(offset);
+            submitQueryRequest.complete_DAG_results(new DAGListHolder());
+        }
+    }
+
+    /**
+     * @param pageSize the page size of the DDF query, or 0 or less for the maximum hit count
+     * @return the page size of the DDF query, limited to the maximum hit count if one is set
+     */
+    private int getRemotePageSize(int pageSize) {
+        if (pageSize <= 0) {
+            return maxHitCount;
+        }
+        return maxHitCount != null && maxHitCount > 0 ?
+                Math.min(pageSize, maxHitCount) :
+                pageSize;
+    }
+
     private void setFilterDelegate() {
         nsiliFilterDelegate = new NsiliFilterDelegate(queryableAttributes,
                 NsiliConstants.NSIL_ALL_VIEW);
@@ -1077,7 +1193,6 @@ public class NsiliSource extends MaskableImpl
         }
 
         executorService = Executors.newFixedThreadPool(numberWorkerThreads);
-        completionService = new ExecutorCompletionService(executorService);
         if (waitingTasks != null) {
             for (Runnable task : waitingTasks) {
                 executorService.submit(task);
@@ -1085,8 +1200,93 @@ public class NsiliSource extends MaskableImpl
         }
     }
 
+    public int getMaxConcurrentQueries() {
+        return maxConcurrentQueries;
+    }
+
+    /**
+     * @param maxConcurrentQueries the number of queries that may be sent to the server at the same
+     *                             time, at least 1
+     */
+    public void setMaxConcurrentQueries(int maxConcurrentQueries) {
+        if (maxConcurrentQueries < 1) {
+            LOGGER.debug("{} : Invalid max concurrent queries {}, using 1.",
+                    id,
+                    maxConcurrentQueries);
+        }
+        this.maxConcurrentQueries = Math.max(maxConcurrentQueries, 1);
+        this.querySemaphore = new Semaphore(this.maxConcurrentQueries, true);
+    }
+
+    public int getMaxConversionsPerQuery() {
+        return maxConversionsPerQuery;
+    }
+
+    /**
+     * @param maxConversionsPerQuery the number of results of one query that are converted on the
+     *                               worker threads at the same time, at least 1. Lower than the
+     *                               number of worker threads, so a large response leaves threads
+     *                               for the results of other queries.
+     */
+    public void setMaxConversionsPerQuery(int maxConversionsPerQuery) {
+        if (maxConversionsPerQuery < 1) {
+            LOGGER.debug("{} : Invalid max conversions per query {}, using 1.",
+                    id,
+                    maxConversionsPerQuery);
+        }
+        this.maxConversionsPerQuery = Math.max(maxConversionsPerQuery, 1);
+    }
+
+    public boolean getSkipHitCount() {
+        return skipHitCount;
+    }
+
+    /**
+     * @param skipHitCount if true, the hit count of a query is not requested from the server
+     *                     before submitting it, and the hits of the response are the hits up to
+     *                     the end of the returned page, plus one if the page is full
+     */
+    public void setSkipHitCount(boolean skipHitCount) {
+        this.skipHitCount = skipHitCount;
+    }
+
     public void setResourceReader(ResourceReader resourceReader) {
         this.resourceReader = resourceReader;
+        thumbnailRetriever.setResourceReader(resourceReader);
+    }
+
+    public int getThumbnailTimeout() {
+        return thumbnailTimeout;
+    }
+
+    /**
+     * @param thumbnailTimeout the seconds a query waits for the thumbnails of its results once they
+     *                         are converted. Results whose thumbnail is not retrieved in time are
+     *                         returned without it, and the thumbnail is cached when it arrives.
+     */
+    public void setThumbnailTimeout(int thumbnailTimeout) {
+        this.thumbnailTimeout = Math.max(thumbnailTimeout, 0);
+    }
+
+    public int getMaxThumbnailRetrievalsPerHost() {
+        return thumbnailRetriever.getMaxRetrievalsPerHost();
+    }
+
+    public void setMaxThumbnailRetrievalsPerHost(int maxThumbnailRetrievalsPerHost) {
+        thumbnailRetriever.setMaxRetrievalsPerHost(maxThumbnailRetrievalsPerHost);
+    }
+
+    public long getThumbnailCacheTtl() {
+        return thumbnailRetriever.getCacheTtlMinutes();
+    }
+
+    /**
+     * @param thumbnailCacheTtl the minutes a retrieved thumbnail is cached. Changing it drops the
+     *                          cached thumbnails.
+     */
+    public void setThumbnailCacheTtl(int thumbnailCacheTtl) {
+        thumbnailRetriever.setCacheTtlMinutes(thumbnailCacheTtl);
+        thumbnailRetriever.init();
     }
 
     public void setPollInterval(Integer interval) {
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.source;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.codice.alliance.nsili.common.UCO.DAG;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.data.Result;
+
+public class DAGConversionPipelineTest {
+
+    private ExecutorService executorService;
+
+    private DAG[] dags;
+
+    private Map<DAG, Result> expectedResults;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(8);
+
+        dags = new DAG[20];
+        expectedResults = new IdentityHashMap<>();
+        for (int i = 0; i < dags.length; i++) {
+            dags[i] = new DAG();
+            expectedResults.put(dags[i], mock(Result.class));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testResultsInDagOrder() {
+        // the first DAGs take the longest to convert
+        List<Result> results = convert(3, dag -> {
+            sleep(indexOf(dag) < 3 ? 50 : 0);
+            return expectedResults.get(dag);
+        });
+
+        assertThat(results, contains(expectedResultsInOrder()));
+    }
+
+    @Test
+    public void testMaxParallelConversions() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<Result> results = convert(3, dag -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(10);
+            inFlight.decrementAndGet();
+            return expectedResults.get(dag);
+        });
+
+        assertThat(results.size(), is(dags.length));
+        assertThat(maxInFlight.get(), lessThanOrEqualTo(3));
+    }
+
+    @Test
+    public void testFailedConversionsSkipped() {
+        List<Result> results = convert(4, dag -> {
+            int index = indexOf(dag);
+            if (index == 0) {
+                return null;
+            } else if (index == 1) {
+                throw new IllegalStateException("unable to convert");
+            }
+            return expectedResults.get(dag);
+        });
+
+        assertThat(results.size(), is(dags.length - 2));
+        assertThat(results.get(0), is(expectedResults.get(dags[2])));
+    }
+
+    @Test
+    public void testInterrupted() {
+        Thread.currentThread()
+                .interrupt();
+
+        List<Result> results = convert(2, dag -> {
+            sleep(TimeUnit.SECONDS.toMillis(10));
+            return expectedResults.get(dag);
+        });
+
+        assertThat(Thread.interrupted(), is(true));
+        assertThat(results.isEmpty(), is(true));
+    }
+
+    private List<Result> convert(int maxParallelConversions,
+            Function<DAG, Result> converter) {
+        List<Result> results = new ArrayList<>();
+        new DAGConversionPipeline(executorService, maxParallelConversions, converter).convert(
+                dags,
+                results::add);
+        return results;
+    }
+
+    private Result[] expectedResultsInOrder() {
+        Result[] results = new Result[dags.length];
+        for (int i = 0; i < dags.length; i++) {
+            results[i] = expectedResults.get(dags[i]);
+        }
+        return results;
+    }
+
+    private int indexOf(DAG dag) {
+        for (int i = 0; i < dags.length; i++) {
+            if (dags[i] == dag) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+        }
+    }
+}
@@ -16,10 +16,13 @@ package org.codice.alliance.nsili.source;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +31,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.core.Response;
 
@@ -98,6 +107,8 @@ public class NsiliSourceTest {
 
     private CatalogMgr catalogMgr = mock(CatalogMgr.class);
 
+    private SubmitQueryRequest submitQueryRequest = mock(SubmitQueryRequest.class);
+
     private final GeotoolsFilterBuilder builder = new GeotoolsFilterBuilder();
 
     private NsiliSource source;
@@ -312,6 +323,151 @@ public class NsiliSourceTest {
         assertThat(argumentCaptor.getValue().bqs_query, is(GMTI_LIKE_FILTER));
     }
 
+    @Test
+    public void testQueryPage() throws Exception {
+        QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
+                .is()
+                .like()
+                .text("*"));
+        query.setStartIndex(11);
+        query.setPageSize(5);
+
+        SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+        verify(submitQueryRequest).set_number_of_hits(10);
+        verify(submitQueryRequest).set_number_of_hits(5);
+        verify(submitQueryRequest, times(2)).complete_DAG_results(any(DAGListHolder.class));
+        assertThat(sourceResponse.getHits(), is(LONG));
+    }
+
+    @Test
+    public void testQueryPageSizeLimitedToMaxHitCount() throws Exception {
+        QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
+                .is()
+                .like()
+                .text("*"));
+        query.setPageSize(MAX_HIT_COUNT + 1);
+
+        source.query(new QueryRequestImpl(query));
+
+        verify(submitQueryRequest).set_number_of_hits(anyInt());
+        verify(submitQueryRequest).set_number_of_hits(MAX_HIT_COUNT);
+    }
+
+    @Test
+    public void testQueryStartIndexPastHits() throws Exception {
+        QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
+                .is()
+                .like()
+                .text("*"));
+        query.setStartIndex((int) LONG + 1);
+
+        SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+        verify(catalogMgr, never()).submit_query(any(Query.class),
+                any(String[].class),
+                any(SortAttribute[].class),
+                any(NameValue[].class));
+        assertThat(sourceResponse.getHits(), is(LONG));
+        assertThat(sourceResponse.getResults()
+                .isEmpty(), is(true));
+    }
+
+    @Test
+    public void testQuerySkipHitCount() throws Exception {
+        source.setSkipHitCount(true);
+        QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
+                .is()
+                .like()
+                .text("*"));
+        query.setStartIndex(11);
+        query.setPageSize(5);
+
+        SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+        verify(catalogMgr, never()).hit_count(any(Query.class), any(NameValue[].class));
+        verify(catalogMgr).submit_query(any(Query.class),
+                any(String[].class),
+                any(SortAttribute[].class),
+                any(NameValue[].class));
+        assertThat(sourceResponse.getHits(), is(10L));
+    }
+
+    @Test
+    public void testQuerySkipHitCountFullPage() throws Exception {
+        source.setSkipHitCount(true);
+        when(submitQueryRequest.complete_DAG_results(any(DAGListHolder.class))).thenAnswer((
+                InvocationOnMock invocationOnMock) -> {
+            DAGListHolder dagListHolder = (DAGListHolder) invocationOnMock.getArguments()[0];
+            dagListHolder.value = new DAG[] {new DAG(), new DAG(), new DAG(), new DAG(),
+                    new DAG()};
+            return State.COMPLETED;
+        });
+        QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
+                .is()
+                .like()
+                .text("*"));
+        query.setStartIndex(11);
+        query.setPageSize(5);
+
+        SourceResponse sourceResponse = source.query(new QueryRequestImpl(query));
+
+        assertThat(sourceResponse.getHits(), is(16L));
+    }
+
+    @Test
+    public void testConcurrentQueries() throws Exception {
+        int maxConcurrentQueries = 2;
+        source.setMaxConcurrentQueries(maxConcurrentQueries);
+
+        CountDownLatch entered = new CountDownLatch(maxConcurrentQueries);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(submitQueryRequest.complete_DAG_results(any(DAGListHolder.class))).thenAnswer((
+                InvocationOnMock invocationOnMock) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            inFlight.decrementAndGet();
+            DAGListHolder dagListHolder = (DAGListHolder) invocationOnMock.getArguments()[0];
+            dagListHolder.value = getMockDAGArray();
+            return State.COMPLETED;
+        });
+
+        QueryImpl query = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
+                .is()
+                .like()
+                .text("*"));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<SourceResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> source.query(new QueryRequestImpl(query))));
+            }
+
+            assertThat(entered.await(10, TimeUnit.SECONDS), is(true));
+            Thread.sleep(100);
+            assertThat(inFlight.get(), is(maxConcurrentQueries));
+            release.countDown();
+
+            for (Future<SourceResponse> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)
+                        .getHits(), is(LONG));
+            }
+            assertThat(maxInFlight.get(), is(maxConcurrentQueries));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMaxConcurrentQueriesAtLeastOne() {
+        source.setMaxConcurrentQueries(0);
+        assertThat(source.getMaxConcurrentQueries(), is(1));
+    }
+
     @Test(expected = UnsupportedQueryException.class)
     public void testBadQuery() throws Exception {
         QueryImpl propertyIsLikeQuery = new QueryImpl(builder.attribute(Metacard.ANY_TEXT)
@@ -351,9 +507,19 @@ public class NsiliSourceTest {
         configuration.put(NsiliSource.POLL_INTERVAL, 0);
         configuration.put(NsiliSource.MAX_HIT_COUNT, 0);
         configuration.put(NsiliSource.ID, GMTI);
+        configuration.put(NsiliSource.MAX_CONCURRENT_QUERIES, 2);
+        configuration.put(NsiliSource.SKIP_HIT_COUNT, true);
+        configuration.put(NsiliSource.THUMBNAIL_TIMEOUT, 3);
+        configuration.put(NsiliSource.MAX_THUMBNAIL_RETRIEVALS_PER_HOST, 4);
+        configuration.put(NsiliSource.THUMBNAIL_CACHE_TTL, 10);
 
         source.refresh(configuration);
         assertChangedConfiguration(source, GMTI, 0);
+        assertThat(source.getMaxConcurrentQueries(), is(2));
+        assertThat(source.getSkipHitCount(), is(true));
+        assertThat(source.getThumbnailTimeout(), is(3));
+        assertThat(source.getMaxThumbnailRetrievalsPerHost(), is(4));
+        assertThat(source.getThumbnailCacheTtl(), is(10L));
     }
 
     private NsiliSource buildSource() throws Exception {
@@ -402,7 +568,6 @@ public class NsiliSourceTest {
     }
 
     private CatalogMgr getMockCatalogMgr() throws Exception {
-        SubmitQueryRequest submitQueryRequest = mock(SubmitQueryRequest.class);
         HitCountRequest hitCountRequest = mock(HitCountRequest.class);
 
         doReturn(State.COMPLETED).when(hitCountRequest)
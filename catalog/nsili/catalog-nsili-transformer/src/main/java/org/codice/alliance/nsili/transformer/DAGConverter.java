@@ -17,9 +17,12 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,15 +34,11 @@ import org.codice.alliance.catalog.core.api.impl.types.IsrAttributes;
 import org.codice.alliance.catalog.core.api.types.Security;
 import org.codice.alliance.nsili.common.CorbaUtils;
 import org.codice.alliance.nsili.common.NsiliConstants;
-import org.codice.alliance.nsili.common.ResultDAGConverter;
 import org.codice.alliance.nsili.common.UCO.DAG;
 import org.codice.alliance.nsili.common.UCO.Edge;
 import org.codice.alliance.nsili.common.UCO.Node;
 import org.codice.alliance.nsili.common.UCO.NodeType;
 import org.codice.alliance.nsili.common.UCO.RectangleHelper;
-import org.jgrapht.alg.DijkstraShortestPath;
-import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
-import org.jgrapht.traverse.DepthFirstIterator;
 import org.omg.CORBA.Any;
 import org.omg.CORBA.TCKind;
 import org.slf4j.Logger;
@@ -74,6 +73,10 @@ import ddf.catalog.resource.ResourceNotFoundException;
 import ddf.catalog.resource.ResourceNotSupportedException;
 import ddf.catalog.resource.ResourceReader;
 
+/**
+ * Converts the DAGs of NSILI query results to metacards. The converter holds no state of a
+ * conversion, so one instance can convert the results of a query on several threads at once.
+ */
 public class DAGConverter {
 
     private static final long MEGABYTE = 1024L * 1024L;
@@ -82,18 +85,20 @@ public class DAGConverter {
 
     private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
 
-    private static String sourceId;
-
-    private ResourceReader resourceReader;
+    private static final String ANY_IMPL_CLASS_ATTRIBUTE =
+            " class=\"com.sun.corba.se.impl.corba.AnyImpl\"";
 
-    private String relatedFileType;
-
-    private String relatedFileUrl;
+    /**
+     * XStream is thread-safe once it is configured, so all conversions share one instance.
+     */
+    private static final XStream XSTREAM = createXStream();
 
-    private XStream xstream;
+    private final ResourceReader resourceReader;
 
     private MetacardType nsiliMetacardType;
 
+    private ThumbnailRetriever thumbnailRetriever;
+
     public DAGConverter(ResourceReader resourceReader) {
         this.resourceReader = resourceReader;
     }
@@ -102,31 +107,36 @@ public class DAGConverter {
         this.nsiliMetacardType = nsiliMetacardType;
     }
 
+    /**
+     * @param thumbnailRetriever retrieves and caches the thumbnails of the results. If it is null,
+     *                           thumbnails are read with the resource reader and not cached.
+     */
+    public void setThumbnailRetriever(ThumbnailRetriever thumbnailRetriever) {
+        this.thumbnailRetriever = thumbnailRetriever;
+    }
+
     public MetacardImpl convertDAG(DAG dag, boolean swapCoordinates, String logSourceId) {
+        return convertDAG(dag, swapCoordinates, logSourceId, null);
+    }
+
+    /**
+     * Convert a DAG to a metacard without waiting for its thumbnail to be retrieved.
+     *
+     * @param pendingThumbnails receives the thumbnail of the metacard if it is retrieved by the
+     *                          thumbnail retriever. If it is null, the thumbnail is retrieved
+     *                          before this method returns.
+     */
+    public MetacardImpl convertDAG(DAG dag, boolean swapCoordinates, String logSourceId,
+            PendingThumbnails pendingThumbnails) {
         MetacardImpl metacard = null;
-        sourceId = logSourceId;
         String metadata;
 
         //Need to have at least 2 nodes and an edge for anything useful
         if (dag.nodes != null && dag.edges != null) {
-            Map<Integer, Node> nodeMap = ResultDAGConverter.createNodeMap(dag.nodes);
-            DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
-
-            //Build up the graph
-            for (Node node : dag.nodes) {
-                graph.addVertex(node);
-            }
+            NodeGraph graph = NodeGraph.create(dag);
 
-            for (Edge edge : dag.edges) {
-                Node node1 = nodeMap.get(edge.start_node);
-                Node node2 = nodeMap.get(edge.end_node);
-                if (node1 != null && node2 != null) {
-                    graph.addEdge(node1, node2);
-                }
-            }
-
-            metacard = parseGraph(graph, swapCoordinates);
-            metacard.setSourceId(sourceId);
+            metacard = parseGraph(graph, swapCoordinates, pendingThumbnails);
+            metacard.setSourceId(logSourceId);
 
             metadata = dagToXML(dag);
             metacard.setMetadata(metadata);
@@ -135,19 +145,19 @@ public class DAGConverter {
         return metacard;
     }
 
-    private MetacardImpl parseGraph(DirectedAcyclicGraph<Node, Edge> graph,
-            boolean swapCoordinates) {
+    private MetacardImpl parseGraph(NodeGraph graph, boolean swapCoordinates,
+            PendingThumbnails pendingThumbnails) {
         MetacardImpl metacard = new MetacardImpl(nsiliMetacardType);
 
         List<Serializable> associatedCards = new ArrayList<>();
 
         //Traverse the graph
-        DepthFirstIterator<Node, Edge> depthFirstIterator = new DepthFirstIterator<>(graph);
         Node parentEntity = null;
-        Node assocNode = null;
+        BitSet assocNodes = null;
+        RelatedFile relatedFile = null;
 
-        while (depthFirstIterator.hasNext()) {
-            Node node = depthFirstIterator.next();
+        for (int index : graph.depthFirstOrder(null)) {
+            Node node = graph.nodes[index];
 
             if (node.node_type == NodeType.ROOT_NODE
                     && node.attribute_name.equals(NsiliConstants.NSIL_PRODUCT)) {
@@ -155,13 +165,12 @@ public class DAGConverter {
             } else if (node.node_type == NodeType.ENTITY_NODE) {
                 parentEntity = node;
                 if (node.attribute_name.equals(NsiliConstants.NSIL_ASSOCIATION)) {
-                    assocNode = node;
+                    assocNodes = graph.descendants(index);
                 } else if (node.attribute_name.equals(NsiliConstants.NSIL_RELATED_FILE)) {
-                    relatedFileType = "";
-                    relatedFileUrl = "";
+                    relatedFile = new RelatedFile(pendingThumbnails);
                 } else {
-                    if (assocNode != null && !isNodeChildOfStart(graph, assocNode, node)) {
-                        assocNode = null;
+                    if (assocNodes != null && !assocNodes.get(index)) {
+                        assocNodes = null;
                     }
                 }
             } else if (node.node_type == NodeType.RECORD_NODE) {
@@ -170,7 +179,7 @@ public class DAGConverter {
                     && node.value != null) {
                 switch (parentEntity.attribute_name) {
                 case NsiliConstants.NSIL_CARD:
-                    if (assocNode != null) {
+                    if (assocNodes != null) {
                         addNsilAssociation(associatedCards, node);
                     } else {
                         addNsilCardAttribute(metacard, node);
@@ -219,7 +228,7 @@ public class DAGConverter {
                     addNsilVideoAttribute(metacard, node);
                     break;
                 case NsiliConstants.NSIL_RELATED_FILE:
-                    addNsilRelatedFile(metacard, node);
+                    addNsilRelatedFile(metacard, node, relatedFile);
                     break;
                 default:
                     break;
@@ -246,27 +255,6 @@ public class DAGConverter {
         return metacard;
     }
 
-    /**
-     * Determines if the end node is a child of the start node.
-     *
-     * @param graph - The complete graph.
-     * @param start - Starting node.
-     * @param end   - Child node to check
-     * @return true if the end node is a child of the start node in the provided graph.
-     */
-    private static boolean isNodeChildOfStart(DirectedAcyclicGraph<Node, Edge> graph, Node start,
-            Node end) {
-        boolean endNodeInTree = false;
-        DepthFirstIterator<Node, Edge> depthFirstIterator = new DepthFirstIterator<>(graph, start);
-        while (depthFirstIterator.hasNext()) {
-            Node currNode = depthFirstIterator.next();
-            if (currNode.id == end.id) {
-                endNodeInTree = true;
-            }
-        }
-        return endNodeInTree;
-    }
-
     private void addNsilCardAttribute(MetacardImpl metacard, Node node) {
         switch (node.attribute_name) {
         case NsiliConstants.IDENTIFIER:
@@ -662,29 +650,27 @@ public class DAGConverter {
         }
     }
 
-    private String addNsilRelatedFile(MetacardImpl metacard, Node node) {
+    private void addNsilRelatedFile(MetacardImpl metacard, Node node, RelatedFile relatedFile) {
         switch (node.attribute_name) {
         case NsiliConstants.FILE_TYPE:
-            relatedFileType = getString(node.value);
-            if (StringUtils.isNotBlank(relatedFileUrl)) {
-                if (relatedFileType.equalsIgnoreCase(NsiliConstants.THUMBNAIL_TYPE)) {
-                    metacard.setThumbnail(getThumbnail(relatedFileUrl));
+            relatedFile.type = getString(node.value);
+            if (StringUtils.isNotBlank(relatedFile.url)) {
+                if (relatedFile.type.equalsIgnoreCase(NsiliConstants.THUMBNAIL_TYPE)) {
+                    addThumbnail(metacard, relatedFile);
                 }
             }
             break;
         case NsiliConstants.URL:
-            relatedFileUrl = getString(node.value);
-            if (relatedFileType.equalsIgnoreCase(NsiliConstants.THUMBNAIL_TYPE)) {
-                if (StringUtils.isNotBlank(relatedFileUrl)) {
-                    metacard.setThumbnail(getThumbnail(relatedFileUrl));
+            relatedFile.url = getString(node.value);
+            if (relatedFile.type.equalsIgnoreCase(NsiliConstants.THUMBNAIL_TYPE)) {
+                if (StringUtils.isNotBlank(relatedFile.url)) {
+                    addThumbnail(metacard, relatedFile);
                 }
             }
             break;
         default:
             break;
         }
-
-        return relatedFileType;
     }
 
     private String convertShape(Any any, boolean swapCoordinates) {
@@ -867,6 +853,18 @@ public class DAGConverter {
         return thumbnail;
     }
 
+    private void addThumbnail(MetacardImpl metacard, RelatedFile relatedFile) {
+        if (thumbnailRetriever == null) {
+            metacard.setThumbnail(getThumbnail(relatedFile.url));
+        } else if (relatedFile.pendingThumbnails == null) {
+            metacard.setThumbnail(thumbnailRetriever.retrieve(relatedFile.url)
+                    .join());
+        } else {
+            relatedFile.pendingThumbnails.add(metacard,
+                    thumbnailRetriever.retrieve(relatedFile.url));
+        }
+    }
+
     private void addDescription(Metacard metacard, String description) {
         Attribute descAttr = metacard.getAttribute(Core.DESCRIPTION);
         if (descAttr != null) {
@@ -879,39 +877,10 @@ public class DAGConverter {
 
     public static void printDAG(DAG dag) {
         if (dag.nodes != null && dag.edges != null) {
-            Map<Integer, Node> nodeMap = ResultDAGConverter.createNodeMap(dag.nodes);
-            DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
-
-            for (Node node : dag.nodes) {
-                graph.addVertex(node);
-            }
-
-            for (Edge edge : dag.edges) {
-                Node node1 = nodeMap.get(edge.start_node);
-                Node node2 = nodeMap.get(edge.end_node);
-                if (node1 != null && node2 != null) {
-                    graph.addEdge(node1, node2);
-                }
-            }
-
-            DepthFirstIterator<Node, Edge> depthFirstIterator = new DepthFirstIterator<>(graph);
-            Node rootNode = null;
-            while (depthFirstIterator.hasNext()) {
-                depthFirstIterator.setCrossComponentTraversal(false);
-                Node node = depthFirstIterator.next();
-                if (rootNode == null) {
-                    rootNode = node;
-                }
-
-                DijkstraShortestPath<Node, Edge> path = new DijkstraShortestPath<Node, Edge>(graph,
-                        rootNode,
-                        node);
-
-                if (node.node_type == NodeType.ATTRIBUTE_NODE) {
-                    printNode(node, (int) Math.round(path.getPathLength()));
-                } else {
-                    printNode(node, (int) Math.round(path.getPathLength()));
-                }
+            NodeGraph graph = NodeGraph.create(dag);
+            int[] depths = new int[dag.nodes.length];
+            for (int index : graph.depthFirstOrder(depths)) {
+                printNode(graph.nodes[index], depths[index]);
             }
         }
     }
@@ -938,10 +907,12 @@ public class DAGConverter {
         LOGGER.trace(sb.toString());
     }
 
-    private String dagToXML(DAG dag) {
-        final String cleanupStr = " class=\"com.sun.corba.se.impl.corba.AnyImpl\"";
+    private static String dagToXML(DAG dag) {
+        return StringUtils.remove(XSTREAM.toXML(dag), ANY_IMPL_CLASS_ATTRIBUTE);
+    }
 
-        xstream = new XStream();
+    private static XStream createXStream() {
+        XStream xstream = new XStream();
 
         xstream.alias("dag", DAG.class);
         xstream.alias("node", Node.class);
@@ -954,9 +925,147 @@ public class DAGConverter {
         xstream.omitField(Node.class, "id");
         xstream.omitField(Node.class, "node_type");
 
-        String xmlDAG = xstream.toXML(dag);
-        xmlDAG = xmlDAG.replaceAll(cleanupStr, "");
+        return xstream;
+    }
+
+    /**
+     * The type and URL of the NSIL_RELATED_FILE entity that is being converted.
+     */
+    private static class RelatedFile {
+
+        private final PendingThumbnails pendingThumbnails;
+
+        private String type = "";
+
+        private String url = "";
+
+        RelatedFile(PendingThumbnails pendingThumbnails) {
+            this.pendingThumbnails = pendingThumbnails;
+        }
+    }
+
+    /**
+     * The nodes of a DAG with the children of each node, both indexed by the position of the node
+     * in {@link DAG#nodes}.
+     */
+    private static class NodeGraph {
+
+        private final Node[] nodes;
+
+        private final int[][] children;
+
+        private final int edgeCount;
+
+        private NodeGraph(Node[] nodes, int[][] children, int edgeCount) {
+            this.nodes = nodes;
+            this.children = children;
+            this.edgeCount = edgeCount;
+        }
+
+        /**
+         * Edges that refer to unknown nodes, or that start and end at the same node, are ignored.
+         */
+        static NodeGraph create(DAG dag) {
+            Node[] nodes = dag.nodes;
+            Map<Integer, Integer> indexes = new HashMap<>(nodes.length * 2);
+            for (int i = 0; i < nodes.length; i++) {
+                indexes.put(nodes[i].id, i);
+            }
+
+            int[] starts = new int[dag.edges.length];
+            int[] ends = new int[dag.edges.length];
+            int[] childCounts = new int[nodes.length];
+            int edgeCount = 0;
+            for (Edge edge : dag.edges) {
+                Integer start = indexes.get(edge.start_node);
+                Integer end = indexes.get(edge.end_node);
+                if (start != null && end != null && !start.equals(end)) {
+                    starts[edgeCount] = start;
+                    ends[edgeCount] = end;
+                    childCounts[start]++;
+                    edgeCount++;
+                }
+            }
+
+            int[][] children = new int[nodes.length][];
+            for (int i = 0; i < nodes.length; i++) {
+                children[i] = new int[childCounts[i]];
+                childCounts[i] = 0;
+            }
+            for (int i = 0; i < edgeCount; i++) {
+                children[starts[i]][childCounts[starts[i]]++] = ends[i];
+            }
+
+            return new NodeGraph(nodes, children, edgeCount);
+        }
+
+        /**
+         * Returns the indexes of the nodes in depth first order. The traversal starts at the first
+         * node, which is the root of a result DAG, and continues with the next unvisited node once
+         * all nodes reachable from it are visited. The children of a node are visited starting with
+         * the child of its last edge.
+         *
+         * @param depths if not null, receives the depth of each node below the node its traversal
+         *               started at
+         */
+        int[] depthFirstOrder(int[] depths) {
+            int[] order = new int[nodes.length];
+            int visitedCount = 0;
+            boolean[] visited = new boolean[nodes.length];
+            int[] stack = new int[nodes.length + edgeCount];
+            int[] stackDepths = new int[stack.length];
+
+            for (int start = 0; start < nodes.length; start++) {
+                if (visited[start]) {
+                    continue;
+                }
 
-        return xmlDAG;
+                int size = 0;
+                stack[size] = start;
+                stackDepths[size++] = 0;
+                while (size > 0) {
+                    int index = stack[--size];
+                    int depth = stackDepths[size];
+                    if (visited[index]) {
+                        continue;
+                    }
+
+                    visited[index] = true;
+                    order[visitedCount++] = index;
+                    if (depths != null) {
+                        depths[index] = depth;
+                    }
+
+                    for (int child : children[index]) {
+                        if (!visited[child]) {
+                            stack[size] = child;
+                            stackDepths[size++] = depth + 1;
+                        }
+                    }
+                }
+            }
+
+            return order;
+        }
+
+        /**
+         * Returns the indexes of the nodes that can be reached from the node at {@code start},
+         * including the start node itself.
+         */
+        BitSet descendants(int start) {
+            BitSet descendants = new BitSet(nodes.length);
+            Deque<Integer> stack = new ArrayDeque<>();
+            descendants.set(start);
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                for (int child : children[stack.pop()]) {
+                    if (!descendants.get(child)) {
+                        descendants.set(child);
+                        stack.push(child);
+                    }
+                }
+            }
+            return descendants;
+        }
     }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.transformer;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ddf.catalog.data.impl.MetacardImpl;
+
+/**
+ * The thumbnails of the metacards of one query that are still being retrieved. Thumbnails can be
+ * added from several conversion threads at once. {@link #await()} sets the thumbnails that are
+ * retrieved by the deadline, and the other metacards are returned without a thumbnail.
+ */
+public class PendingThumbnails {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PendingThumbnails.class);
+
+    private final long deadline;
+
+    private final Queue<PendingThumbnail> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param timeout the time from now until the deadline
+     * @param unit    the unit of the timeout, non-null
+     */
+    public PendingThumbnails(long timeout, TimeUnit unit) {
+        this.deadline = System.nanoTime() + unit.toNanos(timeout);
+    }
+
+    void add(MetacardImpl metacard, CompletableFuture<byte[]> thumbnail) {
+        pending.add(new PendingThumbnail(metacard, thumbnail));
+    }
+
+    /**
+     * Wait until every thumbnail is retrieved or the deadline passes, and set the retrieved
+     * thumbnails on their metacards. If the calling thread is interrupted, it stops waiting and
+     * the interrupt status is restored.
+     *
+     * @return the number of thumbnails that were not retrieved by the deadline
+     */
+    public int await() {
+        int missed = 0;
+
+        PendingThumbnail pendingThumbnail;
+        while ((pendingThumbnail = pending.poll()) != null) {
+            try {
+                byte[] thumbnail = pendingThumbnail.thumbnail.get(Math.max(
+                        deadline - System.nanoTime(),
+                        0), TimeUnit.NANOSECONDS);
+                if (thumbnail != null) {
+                    pendingThumbnail.metacard.setThumbnail(thumbnail);
+                }
+            } catch (TimeoutException e) {
+                missed++;
+            } catch (ExecutionException e) {
+                LOGGER.debug("Unable to get thumbnail for metacard {}",
+                        pendingThumbnail.metacard.getId(),
+                        e);
+            } catch (InterruptedException e) {
+                LOGGER.debug("Interrupted while waiting for thumbnails.", e);
+                Thread.currentThread()
+                        .interrupt();
+                missed += 1 + pending.size();
+                pending.clear();
+            }
+        }
+
+        return missed;
+    }
+
+    private static class PendingThumbnail {
+
+        private final MetacardImpl metacard;
+
+        private final CompletableFuture<byte[]> thumbnail;
+
+        PendingThumbnail(MetacardImpl metacard, CompletableFuture<byte[]> thumbnail) {
+            this.metacard = metacard;
+            this.thumbnail = thumbnail;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.transformer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.resource.ResourceNotFoundException;
+import ddf.catalog.resource.ResourceNotSupportedException;
+import ddf.catalog.resource.ResourceReader;
+
+/**
+ * Retrieves the thumbnails of NSILI results in the background. At most
+ * {@code maxRetrievalsPerHost} thumbnails are retrieved from one host at the same time, and up to
+ * {@code maxQueuedPerHost} other retrievals for that host wait in line. Requests beyond that, and
+ * retrievals that take longer than {@code readTimeoutSeconds}, complete with no thumbnail.
+ * Retrieved thumbnails are kept in a bounded cache keyed by URL until they expire, and concurrent
+ * requests for the same URL share one retrieval.
+ * <p>
+ * Hit and miss counts are logged at debug level and are available from the getters.
+ */
+public class ThumbnailRetriever {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailRetriever.class);
+
+    public static final int DEFAULT_MAX_RETRIEVALS_PER_HOST = 2;
+
+    public static final long DEFAULT_CACHE_TTL_MINUTES = 60;
+
+    public static final long DEFAULT_MAX_CACHE_BYTES = 32L * 1024 * 1024;
+
+    public static final int DEFAULT_MAX_QUEUED_PER_HOST = 64;
+
+    public static final long DEFAULT_READ_TIMEOUT_SECONDS = 30;
+
+    private static final int MAX_THREADS = 16;
+
+    private static final int MAX_QUEUED_TASKS = 1024;
+
+    private final ThreadPoolExecutor executorService;
+
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    private ResourceReader resourceReader;
+
+    private int maxRetrievalsPerHost = DEFAULT_MAX_RETRIEVALS_PER_HOST;
+
+    private long cacheTtlMinutes = DEFAULT_CACHE_TTL_MINUTES;
+
+    private long maxCacheBytes = DEFAULT_MAX_CACHE_BYTES;
+
+    private int maxQueuedPerHost = DEFAULT_MAX_QUEUED_PER_HOST;
+
+    private long readTimeoutSeconds = DEFAULT_READ_TIMEOUT_SECONDS;
+
+    private volatile Cache<String, byte[]> thumbnails;
+
+    private final Map<String, CompletableFuture<byte[]>> retrievals = new ConcurrentHashMap<>();
+
+    private final Map<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
+
+    /**
+     * @param resourceReader reads the thumbnails, may be set later
+     */
+    public ThumbnailRetriever(ResourceReader resourceReader) {
+        this.resourceReader = resourceReader;
+        this.executorService = new ThreadPoolExecutor(MAX_THREADS,
+                MAX_THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_TASKS));
+        this.executorService.allowCoreThreadTimeOut(true);
+        this.timeoutScheduler = new ScheduledThreadPoolExecutor(1);
+        this.timeoutScheduler.setRemoveOnCancelPolicy(true);
+        init();
+    }
+
+    /**
+     * Build the cache from the current settings. Thumbnails cached before this call are dropped.
+     */
+    public void init() {
+        if (thumbnails != null) {
+            thumbnails.invalidateAll();
+        }
+
+        // a single segment, so the byte bound applies to the whole cache and not to each segment
+        thumbnails = CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumWeight(maxCacheBytes)
+                .weigher((String key, byte[] value) -> value.length)
+                .expireAfterWrite(cacheTtlMinutes, TimeUnit.MINUTES)
+                .recordStats()
+                .build();
+
+        LOGGER.debug("created thumbnail cache: ttl={} minutes, maxBytes={}",
+                cacheTtlMinutes,
+                maxCacheBytes);
+    }
+
+    /**
+     * Stop the retrievals in progress and drop every cached thumbnail. Thumbnails requested after
+     * this call are not retrieved.
+     */
+    public void destroy() {
+        executorService.shutdownNow();
+        timeoutScheduler.shutdownNow();
+        thumbnails.invalidateAll();
+    }
+
+    /**
+     * @param url the URL of the thumbnail, may not be null
+     * @return the thumbnail, completed with null if it cannot be retrieved. It is already complete
+     * if the thumbnail is cached.
+     */
+    public CompletableFuture<byte[]> retrieve(String url) {
+        byte[] thumbnail = thumbnails.getIfPresent(url);
+        logStats();
+        if (thumbnail != null) {
+            return CompletableFuture.completedFuture(thumbnail);
+        }
+
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            LOGGER.debug("Unable to get thumbnail from URL {}", url, e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<byte[]> retrieval = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = retrievals.putIfAbsent(url, retrieval);
+        if (existing != null) {
+            return existing;
+        }
+
+        String host = StringUtils.defaultString(uri.getHost());
+        Retrieval pending = new Retrieval(url, uri, retrieval);
+        while (!hostQueues.computeIfAbsent(host, key -> new HostQueue(key))
+                .submit(pending)) {
+            LOGGER.trace("Host queue for {} was removed, retrying.", host);
+        }
+
+        return retrieval;
+    }
+
+    public long getHitCount() {
+        return thumbnails.stats()
+                .hitCount();
+    }
+
+    public long getMissCount() {
+        return thumbnails.stats()
+                .missCount();
+    }
+
+    public double getHitRate() {
+        return thumbnails.stats()
+                .hitRate();
+    }
+
+    public void setResourceReader(ResourceReader resourceReader) {
+        this.resourceReader = resourceReader;
+    }
+
+    public int getMaxRetrievalsPerHost() {
+        return maxRetrievalsPerHost;
+    }
+
+    /**
+     * @param maxRetrievalsPerHost the number of thumbnails retrieved from one host at the same
+     *                             time, at least 1. Applies to the retrievals that start after
+     *                             this call.
+     */
+    public void setMaxRetrievalsPerHost(int maxRetrievalsPerHost) {
+        this.maxRetrievalsPerHost = Math.max(maxRetrievalsPerHost, 1);
+    }
+
+    public int getMaxQueuedPerHost() {
+        return maxQueuedPerHost;
+    }
+
+    /**
+     * @param maxQueuedPerHost the number of retrievals for one host that wait for a free
+     *                         retrieval, at least 0. Requests beyond that complete with null.
+     */
+    public void setMaxQueuedPerHost(int maxQueuedPerHost) {
+        this.maxQueuedPerHost = Math.max(maxQueuedPerHost, 0);
+    }
+
+    public long getReadTimeoutSeconds() {
+        return readTimeoutSeconds;
+    }
+
+    /**
+     * @param readTimeoutSeconds the time a retrieval may take, at least 1 second. A retrieval that
+     *                           takes longer completes with null, is interrupted and frees its
+     *                           place for the next retrieval of its host.
+     */
+    public void setReadTimeoutSeconds(long readTimeoutSeconds) {
+        this.readTimeoutSeconds = Math.max(readTimeoutSeconds, 1);
+    }
+
+    public long getCacheTtlMinutes() {
+        return cacheTtlMinutes;
+    }
+
+    /**
+     * Takes effect when {@link #init()} is called.
+     */
+    public void setCacheTtlMinutes(long cacheTtlMinutes) {
+        this.cacheTtlMinutes = Math.max(cacheTtlMinutes, 0);
+    }
+
+    public long getMaxCacheBytes() {
+        return maxCacheBytes;
+    }
+
+    /**
+     * Takes effect when {@link #init()} is called.
+     */
+    public void setMaxCacheBytes(long maxCacheBytes) {
+        this.maxCacheBytes = Math.max(maxCacheBytes, 0);
+    }
+
+    private byte[] read(URI uri) {
+        try {
+            ResourceResponse resourceResponse = resourceReader.retrieveResource(uri,
+                    new HashMap<>());
+            return resourceResponse.getResource()
+                    .getByteArray();
+        } catch (ResourceNotSupportedException e) {
+            LOGGER.debug("Resource is not supported: {} ", uri, e);
+        } catch (IOException | ResourceNotFoundException | RuntimeException e) {
+            LOGGER.debug("Unable to get thumbnail from URL {}", uri, e);
+        }
+        return null;
+    }
+
+    private void logStats() {
+        if (LOGGER.isDebugEnabled()) {
+            CacheStats stats = thumbnails.stats();
+            LOGGER.debug("thumbnail cache: hits={} misses={} hitRate={} evictions={}",
+                    stats.hitCount(),
+                    stats.missCount(),
+                    stats.hitRate(),
+                    stats.evictionCount());
+        }
+    }
+
+    private class Retrieval implements Runnable {
+
+        private final String url;
+
+        private final URI uri;
+
+        private final CompletableFuture<byte[]> future;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private volatile ScheduledFuture<?> timeout;
+
+        Retrieval(String url, URI uri, CompletableFuture<byte[]> future) {
+            this.url = url;
+            this.uri = uri;
+            this.future = future;
+        }
+
+        @Override
+        public void run() {
+            byte[] thumbnail = null;
+            try {
+                thumbnail = read(uri);
+                if (thumbnail != null && !completed.get()) {
+                    thumbnails.put(url, thumbnail);
+                }
+            } finally {
+                complete(thumbnail);
+            }
+        }
+
+        /**
+         * @return true if this call completed the retrieval, false if it was already complete
+         */
+        boolean complete(byte[] thumbnail) {
+            if (!completed.compareAndSet(false, true)) {
+                return false;
+            }
+            // the thumbnail is cached before the retrieval is removed, so no request misses both
+            retrievals.remove(url, future);
+            future.complete(thumbnail);
+            return true;
+        }
+
+        /**
+         * @return true the first time it is called, when the retrieval gives up its place in its
+         * host queue
+         */
+        boolean release() {
+            return released.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * The retrievals of one host. Guarded by itself. A queue that has nothing to do removes itself
+     * from {@code hostQueues}, and a removed queue accepts no more retrievals.
+     */
+    private class HostQueue {
+
+        private final String host;
+
+        private final Deque<Retrieval> waiting = new ArrayDeque<>();
+
+        private int active = 0;
+
+        private boolean removed = false;
+
+        HostQueue(String host) {
+            this.host = host;
+        }
+
+        /**
+         * @return false if this queue was removed and the retrieval must be submitted to a new one
+         */
+        synchronized boolean submit(Retrieval retrieval) {
+            if (removed) {
+                return false;
+            }
+
+            if (active < maxRetrievalsPerHost) {
+                active++;
+                execute(retrieval);
+            } else if (waiting.size() < maxQueuedPerHost) {
+                waiting.add(retrieval);
+            } else {
+                LOGGER.debug("Too many thumbnail retrievals waiting for host {}, skipping {}",
+                        host,
+                        retrieval.url);
+                retrieval.complete(null);
+            }
+            return true;
+        }
+
+        /**
+         * Start the next waiting retrieval in the place of one that was released.
+         */
+        private synchronized void next() {
+            Retrieval retrieval = waiting.poll();
+            if (retrieval != null) {
+                execute(retrieval);
+            } else {
+                active--;
+                if (active == 0) {
+                    removed = true;
+                    hostQueues.remove(host, this);
+                }
+            }
+        }
+
+        private void execute(Retrieval retrieval) {
+            try {
+                Future<?> task = executorService.submit(() -> {
+                    try {
+                        retrieval.run();
+                    } finally {
+                        if (retrieval.timeout != null) {
+                            retrieval.timeout.cancel(false);
+                        }
+                        if (retrieval.release()) {
+                            next();
+                        }
+                    }
+                });
+                // a stalled read keeps its thread, but not its place in the host queue
+                retrieval.timeout = timeoutScheduler.schedule(() -> {
+                    if (retrieval.complete(null)) {
+                        LOGGER.debug("Thumbnail retrieval timed out: {}", retrieval.url);
+                        task.cancel(true);
+                    }
+                    if (retrieval.release()) {
+                        next();
+                    }
+                }, readTimeoutSeconds, TimeUnit.SECONDS);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Thumbnail retrieval rejected: {}", retrieval.url, e);
+                retrieval.complete(null);
+                if (retrieval.release()) {
+                    next();
+                }
+            }
+        }
+    }
+}
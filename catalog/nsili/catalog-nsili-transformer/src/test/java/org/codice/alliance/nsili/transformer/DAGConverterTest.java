@@ -13,8 +13,10 @@
  */
 package org.codice.alliance.nsili.transformer;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
@@ -28,12 +30,17 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.codice.alliance.catalog.core.api.impl.types.IsrAttributes;
@@ -41,8 +48,8 @@ import org.codice.alliance.catalog.core.api.impl.types.SecurityAttributes;
 import org.codice.alliance.catalog.core.api.types.Isr;
 import org.codice.alliance.catalog.core.api.types.Security;
 import org.codice.alliance.nsili.common.CorbaUtils;
+import org.codice.alliance.nsili.common.DAGBuilder;
 import org.codice.alliance.nsili.common.NsiliApprovalStatus;
-import org.codice.alliance.nsili.common.NsiliCommonUtils;
 import org.codice.alliance.nsili.common.NsiliConstants;
 import org.codice.alliance.nsili.common.NsiliCxpStatusType;
 import org.codice.alliance.nsili.common.NsiliExploitationSubQualCode;
@@ -68,9 +75,6 @@ import org.codice.alliance.nsili.common.UCO.NodeHelper;
 import org.codice.alliance.nsili.common.UCO.NodeType;
 import org.codice.alliance.nsili.common.UCO.RectangleHelper;
 import org.codice.alliance.nsili.common.UCO.Time;
-import org.jgrapht.Graph;
-import org.jgrapht.experimental.dag.DirectedAcyclicGraph;
-import org.jgrapht.traverse.DepthFirstIterator;
 import org.junit.Before;
 import org.junit.Test;
 import org.omg.CORBA.Any;
@@ -266,6 +270,8 @@ public class DAGConverterTest {
 
     private static final String SOURCE_ID = "myNsiliSource";
 
+    private static final byte[] THUMBNAIL_BYTES = "TEST RETURN".getBytes();
+
     private static final Integer NUM_ASSOCIATIONS = 5;
 
     private static final NsiliApprovalStatus APPROVAL_STATUS = NsiliApprovalStatus.NOT_APPLICABLE;
@@ -334,8 +340,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testImageryViewConversion() {
-        DAG imageryDAG = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -351,10 +356,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        imageryDAG.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        imageryDAG.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG imageryDAG = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(imageryDAG, false, SOURCE_ID);
 
@@ -393,12 +395,69 @@ public class DAGConverterTest {
         DAGConverter.logMetacard(metacard, "123");
     }
 
+    @Test
+    public void testConcurrentConversions() throws Exception {
+        int conversions = 16;
+        List<DAG> dags = new ArrayList<>();
+        for (int i = 0; i < conversions; i++) {
+            dags.add(createImageryDAG());
+        }
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<MetacardImpl>> futures = new ArrayList<>();
+            for (int i = 0; i < conversions; i++) {
+                DAG dag = dags.get(i);
+                String sourceId = SOURCE_ID + i;
+                futures.add(executorService.submit(() -> dagConverter.convertDAG(dag,
+                        false,
+                        sourceId)));
+            }
+
+            String metadata = futures.get(0)
+                    .get()
+                    .getMetadata();
+            assertThat(metadata, not(containsString("AnyImpl")));
+
+            for (int i = 0; i < conversions; i++) {
+                MetacardImpl metacard = futures.get(i)
+                        .get();
+                assertThat(metacard.getSourceId(), is(SOURCE_ID + i));
+                assertThat(metacard.getTitle(), is(IMAGERY_TITLE));
+                assertThat(metacard.getId(), is(CARD_ID));
+                assertThat(metacard.getLocation(), is(WKT_LOCATION));
+                assertThat(metacard.getMetadata(), is(metadata));
+                checkAssociationAttribute(metacard);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPendingThumbnail() {
+        ThumbnailRetriever thumbnailRetriever = new ThumbnailRetriever(mockResourceReader);
+        try {
+            dagConverter.setThumbnailRetriever(thumbnailRetriever);
+            PendingThumbnails pendingThumbnails = new PendingThumbnails(5, TimeUnit.SECONDS);
+
+            MetacardImpl metacard = dagConverter.convertDAG(createImageryDAG(),
+                    false,
+                    SOURCE_ID,
+                    pendingThumbnails);
+
+            assertThat(pendingThumbnails.await(), is(0));
+            assertThat(metacard.getThumbnail(), is(THUMBNAIL_BYTES));
+        } finally {
+            thumbnailRetriever.destroy();
+        }
+    }
+
     @Test
     public void testSwapCoordinates() {
         String swapWktLocation = "POLYGON ((1 1, 1 5, 5 5, 5 1, 1 1))";
 
-        DAG imageryDAG = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -411,12 +470,9 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        removeNode(graph, NsiliConstants.ADVANCED_GEOSPATIAL);
+        removeNode(graph, productNode, NsiliConstants.ADVANCED_GEOSPATIAL);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        imageryDAG.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        imageryDAG.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG imageryDAG = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(imageryDAG, true, SOURCE_ID);
 
@@ -623,8 +679,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testGmtiViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -637,10 +692,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -712,8 +764,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testMessageViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -727,10 +778,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -789,8 +837,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testVideoViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -803,10 +850,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -844,17 +888,13 @@ public class DAGConverterTest {
 
     @Test
     public void testOnlyRootNodeDAG() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = createRootNode();
         graph.addVertex(rootNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(rootNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(rootNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
         assertThat(metacard.getTitle(), nullValue());
@@ -862,8 +902,7 @@ public class DAGConverterTest {
 
     @Test
     public void testRootNodeNotProduct() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = new Node(0,
@@ -876,10 +915,7 @@ public class DAGConverterTest {
         graph.addVertex(attribNode);
         graph.addEdge(rootNode, attribNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(rootNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(rootNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
         assertThat(metacard.getTitle(), nullValue());
@@ -887,8 +923,7 @@ public class DAGConverterTest {
 
     @Test
     public void testAttributeWithNoValue() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = createRootNode();
@@ -905,10 +940,7 @@ public class DAGConverterTest {
         graph.addVertex(attrNode);
         graph.addEdge(entityNode, attrNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(rootNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(rootNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
         assertThat(metacard.getTitle(), nullValue());
@@ -916,8 +948,7 @@ public class DAGConverterTest {
 
     @Test
     public void testRecordNodePresent() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = createRootNode();
@@ -930,10 +961,7 @@ public class DAGConverterTest {
         graph.addVertex(recordNode);
         graph.addEdge(rootNode, recordNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(rootNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(rootNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
         assertThat(metacard.getTitle(), nullValue());
@@ -949,13 +977,13 @@ public class DAGConverterTest {
     @Test
     public void testDAGNoEdges() {
         DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = createRootNode();
         graph.addVertex(rootNode);
 
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        dag.nodes = graph.build(rootNode).nodes;
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
         assertThat(metacard, nullValue());
@@ -964,7 +992,7 @@ public class DAGConverterTest {
     @Test
     public void testStartNodeOfEdgeNull() {
         DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = createRootNode();
@@ -973,7 +1001,7 @@ public class DAGConverterTest {
         Edge[] edges = new Edge[1];
         Edge edge = new Edge(0, 1, "");
         edges[0] = edge;
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        dag.nodes = graph.build(rootNode).nodes;
         dag.edges = edges;
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
@@ -983,7 +1011,7 @@ public class DAGConverterTest {
     @Test
     public void testEndNodeOfEdgeNull() {
         DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         //Create invalid root node
         Node rootNode = createRootNode();
@@ -992,7 +1020,7 @@ public class DAGConverterTest {
         Edge[] edges = new Edge[1];
         Edge edge = new Edge(1, 2, "");
         edges[0] = edge;
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        dag.nodes = graph.build(rootNode).nodes;
         dag.edges = edges;
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
@@ -1062,8 +1090,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testReportViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1076,10 +1103,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1158,8 +1182,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testCCIRMCXPViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1172,10 +1195,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1236,8 +1256,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testCCIRMIRViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1250,10 +1269,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1319,8 +1335,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testCCIRMRFIViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1333,10 +1348,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1429,8 +1441,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testCCIRMTaskViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1443,10 +1454,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1560,8 +1568,7 @@ public class DAGConverterTest {
      */
     @Test
     public void testTdlViewConversion() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1575,10 +1582,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1638,8 +1642,7 @@ public class DAGConverterTest {
 
     @Test
     public void testBadEnumValues() {
-        DAG dag = new DAG();
-        DirectedAcyclicGraph<Node, Edge> graph = new DirectedAcyclicGraph<>(Edge.class);
+        DAGBuilder graph = new DAGBuilder();
 
         Node productNode = createRootNode();
         graph.addVertex(productNode);
@@ -1661,10 +1664,7 @@ public class DAGConverterTest {
 
         graph.addVertex(productNode);
 
-        NsiliCommonUtils.setUCOEdgeIds(graph);
-        NsiliCommonUtils.setUCOEdges(productNode, graph);
-        dag.edges = NsiliCommonUtils.getEdgeArrayFromGraph(graph);
-        dag.nodes = NsiliCommonUtils.getNodeArrayFromGraph(graph);
+        DAG dag = graph.build(productNode);
 
         MetacardImpl metacard = dagConverter.convertDAG(dag, false, SOURCE_ID);
 
@@ -1672,11 +1672,30 @@ public class DAGConverterTest {
         assertThat(metacard.getId(), is(CARD_ID));
     }
 
+    private DAG createImageryDAG() {
+        DAGBuilder graph = new DAGBuilder();
+
+        Node productNode = createRootNode();
+        graph.addVertex(productNode);
+
+        addCardNode(graph, productNode);
+        addFileNode(graph, productNode);
+        addMetadataSecurity(graph, productNode);
+        addSecurityNode(graph, productNode);
+        addImageryPart(graph, productNode);
+        addAssocationNode(graph, productNode);
+        addApprovalNode(graph, productNode);
+        addRelatedFile(graph, productNode);
+
+        DAG imageryDAG = graph.build(productNode);
+        return imageryDAG;
+    }
+
     private Node createRootNode() {
         return new Node(0, NodeType.ROOT_NODE, NsiliConstants.NSIL_PRODUCT, orb.create_any());
     }
 
-    private void addCardNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addCardNode(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node cardNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_CARD, any);
         graph.addVertex(cardNode);
@@ -1701,7 +1720,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addFileNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addFileNode(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node fileNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_FILE, any);
         graph.addVertex(fileNode);
@@ -1750,7 +1769,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addRelatedFile(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addRelatedFile(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node relatedFileNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -1787,7 +1806,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addStreamNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addStreamNode(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node streamNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_STREAM, any);
         graph.addVertex(streamNode);
@@ -1831,7 +1850,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addMetadataSecurity(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addMetadataSecurity(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node metadataSecurityNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -1857,7 +1876,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addSecurityNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addSecurityNode(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node securityNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_SECURITY, any);
         graph.addVertex(securityNode);
@@ -1880,7 +1899,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addAssocationNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addAssocationNode(DAGBuilder graph, Node productNode) {
         //First we create the NSIL_ASSOCATION
         Any assocAny = orb.create_any();
         Node associationNode = new Node(0,
@@ -1926,7 +1945,7 @@ public class DAGConverterTest {
         }
     }
 
-    private void addApprovalNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addApprovalNode(DAGBuilder graph, Node productNode) {
         Any approvalAny = orb.create_any();
         Node approvalNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -1948,7 +1967,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadApprovalNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addBadApprovalNode(DAGBuilder graph, Node productNode) {
         Any approvalAny = orb.create_any();
         Node approvalNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -1964,7 +1983,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadSdsNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addBadSdsNode(DAGBuilder graph, Node productNode) {
         Any sdsAny = orb.create_any();
         Node sdsNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_SDS, sdsAny);
         graph.addVertex(sdsNode);
@@ -1977,7 +1996,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private Node addPartNode(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private Node addPartNode(DAGBuilder graph, Node productNode) {
         Any any = orb.create_any();
         Node partNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_PART, any);
         graph.addVertex(partNode);
@@ -1985,7 +2004,7 @@ public class DAGConverterTest {
         return partNode;
     }
 
-    private void addImageryPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addImageryPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2002,7 +2021,7 @@ public class DAGConverterTest {
         addImageryNode(graph, partNode3);
     }
 
-    private void addGmtiPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addGmtiPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2019,7 +2038,7 @@ public class DAGConverterTest {
         addGmtiNode(graph, partNode3);
     }
 
-    private void addMessagePart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addMessagePart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2036,7 +2055,7 @@ public class DAGConverterTest {
         addMessageNode(graph, partNode3);
     }
 
-    private void addVideoPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addVideoPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2053,7 +2072,7 @@ public class DAGConverterTest {
         addVideoNode(graph, partNode3);
     }
 
-    private void addBadVideoPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addBadVideoPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addBadCommonNode(graph, partNode1);
@@ -2070,7 +2089,7 @@ public class DAGConverterTest {
         addBadVideoNode(graph, partNode3);
     }
 
-    private void addReportPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addReportPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2087,7 +2106,7 @@ public class DAGConverterTest {
         addReportNode(graph, partNode3);
     }
 
-    private void addTdlPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addTdlPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2104,7 +2123,7 @@ public class DAGConverterTest {
         addTdlNode(graph, partNode3);
     }
 
-    private void addCxpPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addCxpPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2121,7 +2140,7 @@ public class DAGConverterTest {
         addCxpNode(graph, partNode3);
     }
 
-    private void addIRPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addIRPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2138,7 +2157,7 @@ public class DAGConverterTest {
         addIRNode(graph, partNode3);
     }
 
-    private void addRFIPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addRFIPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2155,7 +2174,7 @@ public class DAGConverterTest {
         addRFINode(graph, partNode3);
     }
 
-    private void addTaskPart(DirectedAcyclicGraph<Node, Edge> graph, Node productNode) {
+    private void addTaskPart(DAGBuilder graph, Node productNode) {
         Node partNode1 = addPartNode(graph, productNode);
         addSecurityNode(graph, partNode1);
         addCommonNode(graph, partNode1);
@@ -2172,7 +2191,7 @@ public class DAGConverterTest {
         addTaskNode(graph, partNode3);
     }
 
-    private void addCommonNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addCommonNode(DAGBuilder graph, Node parentNode) {
         Any commonAny = orb.create_any();
         Node commonNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_COMMON, commonAny);
         graph.addVertex(commonNode);
@@ -2225,7 +2244,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadCommonNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadCommonNode(DAGBuilder graph, Node parentNode) {
         Any commonAny = orb.create_any();
         Node commonNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_COMMON, commonAny);
         graph.addVertex(commonNode);
@@ -2238,7 +2257,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addImageryNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addImageryNode(DAGBuilder graph, Node parentNode) {
         Any imageryAny = orb.create_any();
         Node imageryNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -2299,7 +2318,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadImageryNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadImageryNode(DAGBuilder graph, Node parentNode) {
         Any imageryAny = orb.create_any();
         Node imageryNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -2320,7 +2339,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addGmtiNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addGmtiNode(DAGBuilder graph, Node parentNode) {
         Any gmtiAny = orb.create_any();
         Node gmtiNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_GMTI, gmtiAny);
         graph.addVertex(gmtiNode);
@@ -2338,7 +2357,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addMessageNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addMessageNode(DAGBuilder graph, Node parentNode) {
         Any messageAny = orb.create_any();
         Node messageNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -2369,7 +2388,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addVideoNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addVideoNode(DAGBuilder graph, Node parentNode) {
         Any videoAny = orb.create_any();
         Node videoNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_VIDEO, videoAny);
         graph.addVertex(videoNode);
@@ -2428,7 +2447,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadVideoNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadVideoNode(DAGBuilder graph, Node parentNode) {
         Any videoAny = orb.create_any();
         Node videoNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_VIDEO, videoAny);
         graph.addVertex(videoNode);
@@ -2456,7 +2475,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addReportNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addReportNode(DAGBuilder graph, Node parentNode) {
         Any reportAny = orb.create_any();
         Node reportNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_REPORT, reportAny);
         graph.addVertex(reportNode);
@@ -2479,7 +2498,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadReportNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadReportNode(DAGBuilder graph, Node parentNode) {
         Any reportAny = orb.create_any();
         Node reportNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_REPORT, reportAny);
         graph.addVertex(reportNode);
@@ -2497,7 +2516,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addTdlNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addTdlNode(DAGBuilder graph, Node parentNode) {
         Any tdlAny = orb.create_any();
         Node tdlNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_TDL, tdlAny);
         graph.addVertex(tdlNode);
@@ -2525,7 +2544,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addCxpNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addCxpNode(DAGBuilder graph, Node parentNode) {
         Any cxpAny = orb.create_any();
         Node cxpNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_CXP, cxpAny);
         graph.addVertex(cxpNode);
@@ -2538,7 +2557,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadCxpNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadCxpNode(DAGBuilder graph, Node parentNode) {
         Any cxpAny = orb.create_any();
         Node cxpNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_CXP, cxpAny);
         graph.addVertex(cxpNode);
@@ -2551,14 +2570,14 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addIRNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addIRNode(DAGBuilder graph, Node parentNode) {
         Any irAny = orb.create_any();
         Node irNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_IR, irAny);
         graph.addVertex(irNode);
         graph.addEdge(parentNode, irNode);
     }
 
-    private void addRFINode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addRFINode(DAGBuilder graph, Node parentNode) {
         Any rfiAny = orb.create_any();
         Node rfiNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_RFI, rfiAny);
         graph.addVertex(rfiNode);
@@ -2591,7 +2610,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadRFINode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadRFINode(DAGBuilder graph, Node parentNode) {
         Any rfiAny = orb.create_any();
         Node rfiNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_RFI, rfiAny);
         graph.addVertex(rfiNode);
@@ -2609,7 +2628,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addTaskNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addTaskNode(DAGBuilder graph, Node parentNode) {
         Any taskAny = orb.create_any();
         Node taskNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_TASK, taskAny);
         graph.addVertex(taskNode);
@@ -2627,7 +2646,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadTaskNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addBadTaskNode(DAGBuilder graph, Node parentNode) {
         Any taskAny = orb.create_any();
         Node taskNode = new Node(0, NodeType.ENTITY_NODE, NsiliConstants.NSIL_TASK, taskAny);
         graph.addVertex(taskNode);
@@ -2640,7 +2659,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addCoverageNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addCoverageNode(DAGBuilder graph, Node parentNode) {
         Any coverageAny = orb.create_any();
         Node coverageNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -2680,7 +2699,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addExpoloitationInfoNode(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode) {
+    private void addExpoloitationInfoNode(DAGBuilder graph, Node parentNode) {
         Any exploitationAny = orb.create_any();
         Node exploitationNode = new Node(0,
                 NodeType.ENTITY_NODE,
@@ -2711,7 +2730,7 @@ public class DAGConverterTest {
                 orb);
     }
 
-    private void addBadExpoloitationInfoNode(DirectedAcyclicGraph<Node, Edge> graph,
+    private void addBadExpoloitationInfoNode(DAGBuilder graph,
             Node parentNode) {
         Any exploitationAny = orb.create_any();
         Node exploitationNode = new Node(0,
@@ -2767,7 +2786,7 @@ public class DAGConverterTest {
                 .collect(Collectors.joining(", "));
     }
 
-    public static void addTestDateAttribute(DirectedAcyclicGraph<Node, Edge> graph, Node parentNode,
+    public static void addTestDateAttribute(DAGBuilder graph, Node parentNode,
             String key, ORB orb) {
         Any any = orb.create_any();
         AbsTime absTime = getTestTime();
@@ -2798,7 +2817,7 @@ public class DAGConverterTest {
     }
 
     private void setupMocks() throws Exception {
-        byte[] testReturn = "TEST RETURN".getBytes();
+        byte[] testReturn = THUMBNAIL_BYTES;
         Resource mockResource = mock(Resource.class);
         ResourceResponse mockResponse = mock(ResourceResponse.class);
         doReturn(Long.valueOf(testReturn.length)).when(mockResource)
@@ -2811,17 +2830,9 @@ public class DAGConverterTest {
                 .retrieveResource(anyObject(), anyMap());
     }
 
-    private void removeNode(Graph<Node, Edge> graph, String nodeName) {
-        DepthFirstIterator<Node, Edge> depthFirstIterator = new DepthFirstIterator<>(graph);
-        List<Node> removeVertices = new ArrayList<>();
-        while (depthFirstIterator.hasNext()) {
-            depthFirstIterator.setCrossComponentTraversal(false);
-            Node node = depthFirstIterator.next();
-            if (node.attribute_name.equals(nodeName)) {
-                removeVertices.add(node);
-            }
-        }
-
-        removeVertices.forEach(graph::removeVertex);
+    private void removeNode(DAGBuilder graph, Node root, String nodeName) {
+        Arrays.stream(graph.build(root).nodes)
+                .filter(node -> node.attribute_name.equals(nodeName))
+                .forEach(graph::removeVertex);
     }
 }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.transformer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class PendingThumbnailsTest {
+
+    private static final byte[] THUMBNAIL = "THUMBNAIL".getBytes();
+
+    @Test
+    public void testRetrievedThumbnailsSet() {
+        PendingThumbnails pendingThumbnails = new PendingThumbnails(1, TimeUnit.SECONDS);
+        MetacardImpl retrieved = new MetacardImpl();
+        MetacardImpl notFound = new MetacardImpl();
+        pendingThumbnails.add(retrieved, CompletableFuture.completedFuture(THUMBNAIL));
+        pendingThumbnails.add(notFound, CompletableFuture.completedFuture(null));
+
+        assertThat(pendingThumbnails.await(), is(0));
+        assertThat(retrieved.getThumbnail(), is(THUMBNAIL));
+        assertThat(notFound.getThumbnail(), nullValue());
+    }
+
+    @Test
+    public void testDeadlinePassed() {
+        PendingThumbnails pendingThumbnails = new PendingThumbnails(50, TimeUnit.MILLISECONDS);
+        MetacardImpl retrieved = new MetacardImpl();
+        MetacardImpl late = new MetacardImpl();
+        CompletableFuture<byte[]> lateThumbnail = new CompletableFuture<>();
+        pendingThumbnails.add(late, lateThumbnail);
+        pendingThumbnails.add(retrieved, CompletableFuture.completedFuture(THUMBNAIL));
+
+        assertThat(pendingThumbnails.await(), is(1));
+        assertThat(retrieved.getThumbnail(), is(THUMBNAIL));
+
+        lateThumbnail.complete(THUMBNAIL);
+        assertThat(late.getThumbnail(), nullValue());
+    }
+
+    @Test
+    public void testRetrievalFailed() {
+        PendingThumbnails pendingThumbnails = new PendingThumbnails(1, TimeUnit.SECONDS);
+        MetacardImpl metacard = new MetacardImpl();
+        CompletableFuture<byte[]> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("unable to retrieve"));
+        pendingThumbnails.add(metacard, failed);
+
+        assertThat(pendingThumbnails.await(), is(0));
+        assertThat(metacard.getThumbnail(), nullValue());
+    }
+
+    @Test
+    public void testInterrupted() {
+        PendingThumbnails pendingThumbnails = new PendingThumbnails(10, TimeUnit.SECONDS);
+        pendingThumbnails.add(new MetacardImpl(), new CompletableFuture<>());
+        pendingThumbnails.add(new MetacardImpl(), new CompletableFuture<>());
+
+        Thread.currentThread()
+                .interrupt();
+
+        assertThat(pendingThumbnails.await(), is(2));
+        assertThat(Thread.interrupted(), is(true));
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.nsili.transformer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.resource.Resource;
+import ddf.catalog.resource.ResourceReader;
+
+public class ThumbnailRetrieverTest {
+
+    private static final String URL = "http://host1/thumbnail.jpg";
+
+    private static final byte[] THUMBNAIL = "THUMBNAIL".getBytes();
+
+    private ResourceReader resourceReader;
+
+    private ResourceResponse resourceResponse;
+
+    private ThumbnailRetriever thumbnailRetriever;
+
+    @Before
+    public void setUp() throws Exception {
+        Resource resource = mock(Resource.class);
+        doReturn(THUMBNAIL).when(resource)
+                .getByteArray();
+        resourceResponse = mock(ResourceResponse.class);
+        doReturn(resource).when(resourceResponse)
+                .getResource();
+
+        resourceReader = mock(ResourceReader.class);
+        doReturn(resourceResponse).when(resourceReader)
+                .retrieveResource(any(URI.class), anyMap());
+
+        thumbnailRetriever = new ThumbnailRetriever(resourceReader);
+    }
+
+    @After
+    public void tearDown() {
+        thumbnailRetriever.destroy();
+    }
+
+    @Test
+    public void testRetrieveCached() throws Exception {
+        byte[] thumbnail = thumbnailRetriever.retrieve(URL)
+                .get(5, TimeUnit.SECONDS);
+        assertThat(thumbnail, is(THUMBNAIL));
+
+        CompletableFuture<byte[]> cached = thumbnailRetriever.retrieve(URL);
+        assertThat(cached.isDone(), is(true));
+        assertThat(cached.get(), is(THUMBNAIL));
+
+        verify(resourceReader, times(1)).retrieveResource(any(URI.class), anyMap());
+        assertThat(thumbnailRetriever.getHitCount(), is(1L));
+        assertThat(thumbnailRetriever.getMissCount(), is(1L));
+        assertThat(thumbnailRetriever.getHitRate(), is(0.5));
+    }
+
+    @Test
+    public void testRetrievalShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return resourceResponse;
+        }).when(resourceReader)
+                .retrieveResource(any(URI.class), anyMap());
+
+        CompletableFuture<byte[]> first = thumbnailRetriever.retrieve(URL);
+        CompletableFuture<byte[]> second = thumbnailRetriever.retrieve(URL);
+        assertThat(second, sameInstance(first));
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS), is(THUMBNAIL));
+        verify(resourceReader, times(1)).retrieveResource(any(URI.class), anyMap());
+    }
+
+    @Test
+    public void testMaxRetrievalsPerHost() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return resourceResponse;
+        }).when(resourceReader)
+                .retrieveResource(any(URI.class), anyMap());
+        thumbnailRetriever.setMaxRetrievalsPerHost(2);
+
+        List<CompletableFuture<byte[]>> retrievals = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            retrievals.add(thumbnailRetriever.retrieve(URL + i));
+        }
+        for (CompletableFuture<byte[]> retrieval : retrievals) {
+            assertThat(retrieval.get(5, TimeUnit.SECONDS), is(THUMBNAIL));
+        }
+
+        assertThat(maxActive.get(), is(2));
+    }
+
+    @Test
+    public void testMaxQueuedPerHost() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return resourceResponse;
+        }).when(resourceReader)
+                .retrieveResource(any(URI.class), anyMap());
+        thumbnailRetriever.setMaxRetrievalsPerHost(1);
+        thumbnailRetriever.setMaxQueuedPerHost(1);
+
+        CompletableFuture<byte[]> active = thumbnailRetriever.retrieve(URL + 1);
+        CompletableFuture<byte[]> queued = thumbnailRetriever.retrieve(URL + 2);
+        CompletableFuture<byte[]> skipped = thumbnailRetriever.retrieve(URL + 3);
+
+        assertThat(skipped.isDone(), is(true));
+        assertThat(skipped.get(), nullValue());
+
+        release.countDown();
+        assertThat(active.get(5, TimeUnit.SECONDS), is(THUMBNAIL));
+        assertThat(queued.get(5, TimeUnit.SECONDS), is(THUMBNAIL));
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return resourceResponse;
+        }).when(resourceReader)
+                .retrieveResource(any(URI.class), anyMap());
+        thumbnailRetriever.setMaxRetrievalsPerHost(1);
+        thumbnailRetriever.setReadTimeoutSeconds(1);
+
+        CompletableFuture<byte[]> stalled = thumbnailRetriever.retrieve(URL + 1);
+        CompletableFuture<byte[]> queued = thumbnailRetriever.retrieve(URL + 2);
+
+        assertThat(stalled.get(5, TimeUnit.SECONDS), nullValue());
+        assertThat(queued.get(5, TimeUnit.SECONDS), nullValue());
+        release.countDown();
+    }
+
+    @Test
+    public void testRetrievalFailed() throws Exception {
+        doThrow(new IOException("unable to read")).when(resourceReader)
+                .retrieveResource(any(URI.class), anyMap());
+
+        assertThat(thumbnailRetriever.retrieve(URL)
+                .get(5, TimeUnit.SECONDS), nullValue());
+        assertThat(thumbnailRetriever.retrieve(URL)
+                .get(5, TimeUnit.SECONDS), nullValue());
+
+        verify(resourceReader, times(2)).retrieveResource(any(URI.class), anyMap());
+    }
+
+    @Test
+    public void testInvalidUrl() throws Exception {
+        CompletableFuture<byte[]> retrieval = thumbnailRetriever.retrieve("http://host 1/a b");
+
+        assertThat(retrieval.isDone(), is(true));
+        assertThat(retrieval.get(), nullValue());
+    }
+
+    @Test
+    public void testInitDropsCache() throws Exception {
+        thumbnailRetriever.retrieve(URL)
+                .get(5, TimeUnit.SECONDS);
+
+        thumbnailRetriever.setCacheTtlMinutes(10);
+        thumbnailRetriever.init();
+        thumbnailRetriever.retrieve(URL)
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(thumbnailRetriever.getCacheTtlMinutes(), is(10L));
+        verify(resourceReader, times(2)).retrieveResource(any(URI.class), anyMap());
+    }
+
+    @Test
+    public void testRetrieveAfterDestroy() throws Exception {
+        thumbnailRetriever.destroy();
+
+        assertThat(thumbnailRetriever.retrieve(URL)
+                .get(5, TimeUnit.SECONDS), nullValue());
+    }
+}
@@ -49,6 +49,14 @@ public class StreamMonitorHelper implements StreamMonitorHelperMBean {
 
     private static final String ID = "id";
 
+    private static final String ROLLOVER_QUEUE_DEPTH = "rolloverQueueDepth";
+
+    private static final String ROLLOVER_AVERAGE_LATENCY = "rolloverAverageLatency";
+
+    private static final String ROLLOVER_DROPPED_COUNT = "rolloverDroppedCount";
+
+    private static final String RECEIVE_DROPPED_COUNT = "receiveDroppedCount";
+
     private ObjectName objectName;
 
     private MBeanServer mBeanServer;
@@ -128,6 +136,19 @@ public class StreamMonitorHelper implements StreamMonitorHelperMBean {
                     map.put(START_TIME, udpStreamMonitor.getStartDateAsString());
                     map.put(UdpStreamMonitor.METATYPE_FILENAME_TEMPLATE,
                             udpStreamMonitor.getFileNameTemplate());
+                    map.put(UdpStreamMonitor.METATYPE_MAX_QUEUED_CHUNKS,
+                            udpStreamMonitor.getMaxQueuedChunks());
+                    map.put(UdpStreamMonitor.METATYPE_ROLLOVER_OVERFLOW_POLICY,
+                            udpStreamMonitor.getRolloverOverflowPolicy());
+                    map.put(ROLLOVER_QUEUE_DEPTH, udpStreamMonitor.getRolloverQueueDepth());
+                    map.put(ROLLOVER_AVERAGE_LATENCY,
+                            udpStreamMonitor.getRolloverAverageLatency());
+                    map.put(ROLLOVER_DROPPED_COUNT, udpStreamMonitor.getRolloverDroppedCount());
+                    map.put(UdpStreamMonitor.METATYPE_RECEIVE_BUFFER_SIZE,
+                            udpStreamMonitor.getReceiveBufferSize());
+                    map.put(UdpStreamMonitor.METATYPE_MAX_DATAGRAM_SIZE,
+                            udpStreamMonitor.getMaxDatagramSize());
+                    map.put(RECEIVE_DROPPED_COUNT, udpStreamMonitor.getReceiveDroppedCount());
                     return map;
                 })
                 .collect(Collectors.toList());
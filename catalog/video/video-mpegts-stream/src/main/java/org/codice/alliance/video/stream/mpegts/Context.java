@@ -15,8 +15,15 @@ package org.codice.alliance.video.stream.mpegts;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
+import org.codice.alliance.video.stream.mpegts.metacard.ParentAggregate;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 
 import ddf.catalog.data.Metacard;
@@ -28,7 +35,9 @@ public class Context {
 
     private final UdpStreamProcessor udpStreamProcessor;
 
-    private Optional<Metacard> parentMetacard = Optional.empty();
+    private volatile Optional<Metacard> parentMetacard = Optional.empty();
+
+    private final Map<MetacardUpdater, ParentAggregate> parentAggregates = new LinkedHashMap<>();
 
     /**
      * @param udpStreamProcessor must be non-null
@@ -54,4 +63,47 @@ public class Context {
         this.parentMetacard = Optional.of(parentMetacard);
     }
 
+    /**
+     * Get the incremental aggregation state that a metacard updater keeps for the parent
+     * metacard, creating it if it does not exist yet.
+     *
+     * @param metacardUpdater must be non-null
+     * @param supplier        must be non-null, creates the initial state
+     * @param <T>             type of the aggregation state
+     * @return the aggregation state
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ParentAggregate> T getParentAggregate(MetacardUpdater metacardUpdater,
+            Supplier<T> supplier) {
+        notNull(metacardUpdater, "metacardUpdater must be non-null");
+        notNull(supplier, "supplier must be non-null");
+        synchronized (parentAggregates) {
+            return (T) parentAggregates.computeIfAbsent(metacardUpdater, key -> supplier.get());
+        }
+    }
+
+    /**
+     * Write all of the incremental aggregation state to the parent metacard. This should be
+     * called just before the parent metacard is submitted to the catalog.
+     *
+     * @param parent must be non-null
+     */
+    public void writeParentAggregates(Metacard parent) {
+        notNull(parent, "parent must be non-null");
+        List<ParentAggregate> aggregates;
+        synchronized (parentAggregates) {
+            aggregates = new ArrayList<>(parentAggregates.values());
+        }
+        aggregates.forEach(parentAggregate -> parentAggregate.writeTo(parent));
+    }
+
+    /**
+     * Discard the incremental aggregation state, e.g. when a new parent metacard is created.
+     */
+    public void clearParentAggregates() {
+        synchronized (parentAggregates) {
+            parentAggregates.clear();
+        }
+    }
+
 }
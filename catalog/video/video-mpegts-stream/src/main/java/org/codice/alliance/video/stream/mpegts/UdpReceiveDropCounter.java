@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the number of datagrams the kernel dropped for a UDP port, usually because the socket
+ * receive buffer was full. The counts come from the Linux {@code /proc/net/udp} and
+ * {@code /proc/net/udp6} tables, which list a {@code drops} column for each socket. The counts of
+ * all sockets bound to the port are added together.
+ */
+class UdpReceiveDropCounter {
+
+    static final long NOT_AVAILABLE = -1;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UdpReceiveDropCounter.class);
+
+    private static final int LOCAL_ADDRESS_COLUMN = 1;
+
+    private static final int MIN_COLUMN_COUNT = 13;
+
+    private final List<Path> udpTables;
+
+    UdpReceiveDropCounter() {
+        this(Arrays.asList(Paths.get("/proc/net/udp"), Paths.get("/proc/net/udp6")));
+    }
+
+    UdpReceiveDropCounter(List<Path> udpTables) {
+        this.udpTables = udpTables;
+    }
+
+    /**
+     * @param port the local port
+     * @return the number of dropped datagrams, or {@link #NOT_AVAILABLE} if the kernel does not
+     * report drops
+     */
+    long getDropCount(int port) {
+        String portSuffix = String.format(":%04X", port);
+        long dropCount = 0;
+        boolean found = false;
+
+        for (Path udpTable : udpTables) {
+            if (!Files.isReadable(udpTable)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(udpTable, StandardCharsets.US_ASCII)) {
+                    String[] columns = line.trim()
+                            .split("\\s+");
+                    if (columns.length >= MIN_COLUMN_COUNT
+                            && columns[LOCAL_ADDRESS_COLUMN].endsWith(portSuffix)) {
+                        dropCount += Long.parseLong(columns[columns.length - 1]);
+                        found = true;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.debug("unable to read the udp drop count: table={}", udpTable, e);
+            }
+        }
+
+        return found ? dropCount : NOT_AVAILABLE;
+    }
+}
@@ -25,27 +25,32 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.metacard.LocationMetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationPlugin;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownPlugin;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
+import org.codice.alliance.video.stream.mpegts.rollover.RolloverQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.MetacardType;
 import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.socket.DatagramChannel;
 
 /**
- * Starts a Netty server with a pipeline specified by {@link UdpStreamProcessor}. The following
- * properties must be set:
+ * Starts a Netty server with a pipeline specified by {@link UdpStreamProcessor}. The channel is
+ * registered with the event loops of a {@link UdpTransport}, which may be shared by many monitors
+ * (see {@link #setUdpTransport(UdpTransport)}). The following properties must be set:
  * <ul>
  * <li>{@link #setMonitoredAddress(String)}
  * <li>{@link #setFilenameTemplate(String)}
@@ -100,6 +105,50 @@ public class UdpStreamMonitor implements StreamMonitor {
 
     public static final String METATYPE_DISTANCE_TOLERANCE = "distanceTolerance";
 
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_MAX_QUEUED_CHUNKS = "maxQueuedChunks";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_ROLLOVER_OVERFLOW_POLICY = "rolloverOverflowPolicy";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_MAX_SPILLED_BYTES = "maxSpilledBytes";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_RECEIVE_BUFFER_SIZE = "receiveBufferSize";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_MAX_DATAGRAM_SIZE = "maxDatagramSize";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_MAX_AGGREGATE_POINTS = "maxAggregatePoints";
+
+    public static final int RECEIVE_BUFFER_SIZE_MIN = 0;
+
+    public static final int RECEIVE_BUFFER_SIZE_MAX = Integer.MAX_VALUE;
+
+    public static final int MAX_DATAGRAM_SIZE_MIN =
+            org.codice.alliance.libs.mpegts.Constants.TS_PACKET_SIZE;
+
+    public static final int MAX_DATAGRAM_SIZE_MAX = 65536;
+
+    /**
+     * The Netty default for datagram channels.
+     */
+    public static final int DEFAULT_MAX_DATAGRAM_SIZE = 2048;
+
     static final int MONITORED_PORT_MIN = 1;
 
     static final int MONITORED_PORT_MAX = 65535;
@@ -117,9 +166,20 @@ public class UdpStreamMonitor implements StreamMonitor {
 
     private Integer monitoredPort;
 
-    private EventLoopGroup eventLoopGroup;
+    private UdpTransport udpTransport;
+
+    /**
+     * The transport created by this monitor when a shared transport was not supplied.
+     */
+    private UdpTransport privateUdpTransport;
+
+    private Channel channel;
 
-    private Thread serverThread;
+    private Integer receiveBufferSize = RECEIVE_BUFFER_SIZE_MIN;
+
+    private Integer maxDatagramSize = DEFAULT_MAX_DATAGRAM_SIZE;
+
+    private UdpReceiveDropCounter udpReceiveDropCounter = new UdpReceiveDropCounter();
 
     private String parentTitle;
 
@@ -169,6 +229,142 @@ public class UdpStreamMonitor implements StreamMonitor {
         udpStreamProcessor.setDistanceTolerance(distanceTolerance);
     }
 
+    public Integer getMaxAggregatePoints() {
+        return udpStreamProcessor.getMaxAggregatePoints();
+    }
+
+    /**
+     * @param maxAggregatePoints the maximum number of points kept in the aggregated location of
+     *                           the parent metacard, must be non-null and &gt;={@link LocationMetacardUpdater#MAX_AGGREGATE_POINTS_MIN} and &lt;={@link LocationMetacardUpdater#MAX_AGGREGATE_POINTS_MAX}
+     */
+    public void setMaxAggregatePoints(Integer maxAggregatePoints) {
+        udpStreamProcessor.setMaxAggregatePoints(maxAggregatePoints);
+    }
+
+    /**
+     * @param rolloverExecutor must be non-null, may be shared by many monitors
+     */
+    public void setRolloverExecutor(ScheduledExecutorService rolloverExecutor) {
+        notNull(rolloverExecutor, "rolloverExecutor must be non-null");
+        udpStreamProcessor.setRolloverExecutor(rolloverExecutor);
+    }
+
+    public Integer getMaxQueuedChunks() {
+        return udpStreamProcessor.getRolloverQueue()
+                .getMaxQueuedChunks();
+    }
+
+    /**
+     * @param maxQueuedChunks must be non-null and &gt;={@link RolloverQueue#MAX_QUEUED_CHUNKS_MIN} and &lt;={@link RolloverQueue#MAX_QUEUED_CHUNKS_MAX}
+     */
+    public void setMaxQueuedChunks(Integer maxQueuedChunks) {
+        udpStreamProcessor.getRolloverQueue()
+                .setMaxQueuedChunks(maxQueuedChunks);
+    }
+
+    public Long getMaxSpilledBytes() {
+        return udpStreamProcessor.getRolloverQueue()
+                .getMaxSpilledBytes();
+    }
+
+    /**
+     * @param maxSpilledBytes must be non-null and &gt;={@link RolloverQueue#MAX_SPILLED_BYTES_MIN}
+     */
+    public void setMaxSpilledBytes(Long maxSpilledBytes) {
+        udpStreamProcessor.getRolloverQueue()
+                .setMaxSpilledBytes(maxSpilledBytes);
+    }
+
+    public String getRolloverOverflowPolicy() {
+        return udpStreamProcessor.getRolloverQueue()
+                .getOverflowPolicy()
+                .name();
+    }
+
+    /**
+     * @param rolloverOverflowPolicy must be non-null and the name of a {@link RolloverQueue.OverflowPolicy}
+     */
+    public void setRolloverOverflowPolicy(String rolloverOverflowPolicy) {
+        notNull(rolloverOverflowPolicy, "rolloverOverflowPolicy must be non-null");
+        udpStreamProcessor.getRolloverQueue()
+                .setOverflowPolicy(RolloverQueue.OverflowPolicy.valueOf(rolloverOverflowPolicy));
+    }
+
+    /**
+     * @return number of rollover files waiting to be ingested
+     */
+    public int getRolloverQueueDepth() {
+        return udpStreamProcessor.getRolloverQueue()
+                .getQueueDepth();
+    }
+
+    /**
+     * @return average milliseconds between a rollover and the end of its ingest
+     */
+    public long getRolloverAverageLatency() {
+        return udpStreamProcessor.getRolloverQueue()
+                .getAverageLatency();
+    }
+
+    /**
+     * @return number of rollover files discarded because the rollover queue was full
+     */
+    public long getRolloverDroppedCount() {
+        return udpStreamProcessor.getRolloverQueue()
+                .getDroppedCount();
+    }
+
+    /**
+     * @param udpTransport must be non-null, may be shared by many monitors
+     */
+    public void setUdpTransport(UdpTransport udpTransport) {
+        notNull(udpTransport, "udpTransport must be non-null");
+        this.udpTransport = udpTransport;
+    }
+
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * @param receiveBufferSize the socket receive buffer size (SO_RCVBUF) in bytes, zero uses
+     *                          the operating system default, must be non-null and &gt;={@link #RECEIVE_BUFFER_SIZE_MIN}
+     */
+    public void setReceiveBufferSize(Integer receiveBufferSize) {
+        notNull(receiveBufferSize, "receiveBufferSize must be non-null");
+        inclusiveBetween(RECEIVE_BUFFER_SIZE_MIN, RECEIVE_BUFFER_SIZE_MAX, receiveBufferSize);
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public Integer getMaxDatagramSize() {
+        return maxDatagramSize;
+    }
+
+    /**
+     * @param maxDatagramSize the size of the buffer allocated for each datagram, larger
+     *                        datagrams are truncated, must be non-null and &gt;={@link #MAX_DATAGRAM_SIZE_MIN} and &lt;={@link #MAX_DATAGRAM_SIZE_MAX}
+     */
+    public void setMaxDatagramSize(Integer maxDatagramSize) {
+        notNull(maxDatagramSize, "maxDatagramSize must be non-null");
+        inclusiveBetween(MAX_DATAGRAM_SIZE_MIN, MAX_DATAGRAM_SIZE_MAX, maxDatagramSize);
+        this.maxDatagramSize = maxDatagramSize;
+    }
+
+    /**
+     * @return number of datagrams dropped by the operating system for the monitored port
+     * (usually because the receive buffer was full), or -1 if the count is not available
+     */
+    public long getReceiveDroppedCount() {
+        if (monitoredPort == null) {
+            return UdpReceiveDropCounter.NOT_AVAILABLE;
+        }
+        return udpReceiveDropCounter.getDropCount(monitoredPort);
+    }
+
+    void setUdpReceiveDropCounter(UdpReceiveDropCounter udpReceiveDropCounter) {
+        this.udpReceiveDropCounter = udpReceiveDropCounter;
+    }
+
     /**
      * @param parentMetacardUpdater must be non-null
      */
@@ -244,10 +440,7 @@ public class UdpStreamMonitor implements StreamMonitor {
         shutdown();
         if (isReady()) {
             udpStreamProcessor.init();
-            serverThread = new Thread(new Server());
-            serverThread.start();
-            monitoring = true;
-            startTime = new Date();
+            bind();
         } else {
             throw new RuntimeException(String.format(
                     "the udp stream monitor cannot be initialized because it is not properly configured: monitoredAddress=%s, monitoredPort=%s, udpStreamProcessor=%s",
@@ -323,29 +516,76 @@ public class UdpStreamMonitor implements StreamMonitor {
     }
 
     private void shutdown() {
-        if(eventLoopGroup != null) {
-            eventLoopGroup.shutdownGracefully();
+        if (channel != null) {
+            LOGGER.debug("closing the udp channel");
+            channel.close()
+                    .awaitUninterruptibly();
+            channel = null;
         }
 
-        if (serverThread != null) {
-            LOGGER.debug("shutting down monitor server thread");
-            joinServerThread();
-            serverThread = null;
+        if (privateUdpTransport != null) {
+            privateUdpTransport.shutdown();
+            privateUdpTransport = null;
         }
 
+        monitoring = false;
+        startTime = null;
+
         if(udpStreamProcessor != null) {
             udpStreamProcessor.shutdown();
         }
     }
 
-    private void joinServerThread() {
+    private UdpTransport getOrCreateUdpTransport() {
+        if (udpTransport != null) {
+            return udpTransport;
+        }
+        privateUdpTransport = new UdpTransport(1, true);
+        return privateUdpTransport;
+    }
+
+    /**
+     * Bind the channel. The channel is serviced by the transport's event loops, so no thread is
+     * started for the monitor.
+     */
+    private void bind() {
+
+        LOGGER.debug("binding udp channel: address={} port={}", monitoredAddress, monitoredPort);
+
+        UdpTransport transport = getOrCreateUdpTransport();
+        Bootstrap bootstrap = transport.configure(new Bootstrap())
+                .option(ChannelOption.RCVBUF_ALLOCATOR,
+                        new FixedRecvByteBufAllocator(maxDatagramSize))
+                .handler(new ChannelInitializer<DatagramChannel>() {
+
+                    @Override
+                    protected void initChannel(DatagramChannel datagramChannel)
+                            throws Exception {
+                        datagramChannel.pipeline()
+                                .addLast(transport.getHandlerExecutorGroup(),
+                                        udpStreamProcessor.createChannelHandlers());
+                    }
+                });
+
+        if (receiveBufferSize > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, receiveBufferSize);
+        }
+
         try {
-            serverThread.join();
+            channel = bootstrap.bind(monitoredAddress, monitoredPort)
+                    .sync()
+                    .channel();
+            monitoring = true;
+            startTime = new Date();
         } catch (InterruptedException e) {
-            LOGGER.debug("interrupted while waiting for server thread to join", e);
-        } finally {
-            monitoring = false;
-            startTime = null;
+            LOGGER.debug("interrupted while binding the udp channel", e);
+            Thread.currentThread()
+                    .interrupt();
+        } catch (Exception e) {
+            LOGGER.warn("unable to bind the udp channel: address={} port={}",
+                    monitoredAddress,
+                    monitoredPort,
+                    e);
         }
     }
 
@@ -408,6 +648,49 @@ public class UdpStreamMonitor implements StreamMonitor {
             setParentTitle((String) properties.get(METATYPE_PARENT_TITLE));
             setDistanceTolerance((Double) properties.get(METATYPE_DISTANCE_TOLERANCE));
 
+            if (properties.get(METATYPE_MAX_QUEUED_CHUNKS) != null && checkMetaTypeClass(
+                    properties,
+                    METATYPE_MAX_QUEUED_CHUNKS,
+                    Integer.class)) {
+                setMaxQueuedChunks((Integer) properties.get(METATYPE_MAX_QUEUED_CHUNKS));
+            }
+
+            if (properties.get(METATYPE_MAX_SPILLED_BYTES) != null && checkMetaTypeClass(
+                    properties,
+                    METATYPE_MAX_SPILLED_BYTES,
+                    Long.class)) {
+                setMaxSpilledBytes((Long) properties.get(METATYPE_MAX_SPILLED_BYTES));
+            }
+
+            if (properties.get(METATYPE_RECEIVE_BUFFER_SIZE) != null && checkMetaTypeClass(
+                    properties,
+                    METATYPE_RECEIVE_BUFFER_SIZE,
+                    Integer.class)) {
+                setReceiveBufferSize((Integer) properties.get(METATYPE_RECEIVE_BUFFER_SIZE));
+            }
+
+            if (properties.get(METATYPE_MAX_DATAGRAM_SIZE) != null && checkMetaTypeClass(
+                    properties,
+                    METATYPE_MAX_DATAGRAM_SIZE,
+                    Integer.class)) {
+                setMaxDatagramSize((Integer) properties.get(METATYPE_MAX_DATAGRAM_SIZE));
+            }
+
+            if (properties.get(METATYPE_MAX_AGGREGATE_POINTS) != null && checkMetaTypeClass(
+                    properties,
+                    METATYPE_MAX_AGGREGATE_POINTS,
+                    Integer.class)) {
+                setMaxAggregatePoints((Integer) properties.get(METATYPE_MAX_AGGREGATE_POINTS));
+            }
+
+            if (properties.get(METATYPE_ROLLOVER_OVERFLOW_POLICY) != null && checkMetaTypeClass(
+                    properties,
+                    METATYPE_ROLLOVER_OVERFLOW_POLICY,
+                    String.class)) {
+                setRolloverOverflowPolicy((String) properties.get(
+                        METATYPE_ROLLOVER_OVERFLOW_POLICY));
+            }
+
             init();
         }
     }
@@ -493,41 +776,4 @@ public class UdpStreamMonitor implements StreamMonitor {
         udpStreamProcessor.setElapsedTimeRolloverCondition(milliseconds);
     }
 
-    private class Server implements Runnable {
-
-        @Override
-        public void run() {
-
-            LOGGER.debug("starting udp listening thread: address={} port={}",
-                    monitoredAddress,
-                    monitoredPort);
-
-            Bootstrap bootstrap = new Bootstrap();
-
-            eventLoopGroup = new NioEventLoopGroup();
-
-            bootstrap.group(eventLoopGroup)
-                    .channel(NioDatagramChannel.class)
-                    .handler(new ChannelInitializer<NioDatagramChannel>() {
-
-                        @Override
-                        protected void initChannel(NioDatagramChannel nioDatagramChannel)
-                                throws Exception {
-                            nioDatagramChannel.pipeline()
-                                    .addLast(udpStreamProcessor.createChannelHandlers());
-                        }
-                    });
-            try {
-                bootstrap.bind(monitoredAddress, monitoredPort)
-                        .sync()
-                        .channel()
-                        .closeFuture()
-                        .await();
-            } catch (InterruptedException e) {
-                LOGGER.debug("interrupted while waiting for shutdown", e);
-            }
-
-        }
-    }
-
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/**
+ * The event loops and channel type used to receive UDP streams. A single instance is shared by
+ * all of the stream monitors, so the number of receive threads does not grow with the number of
+ * configured streams. Each monitor's channel is registered with one of the shared event loops.
+ * <p>
+ * The stream handlers write the packet data to disk, so they run on a separate shared group of
+ * handler threads (see {@link #getHandlerExecutorGroup()}). A slow disk write for one stream
+ * then does not delay the datagrams of the other streams on the same event loop.
+ */
+public class UdpTransport {
+
+    public static final int THREAD_COUNT_MIN = 0;
+
+    public static final int THREAD_COUNT_MAX = 1024;
+
+    private final EventLoopGroup eventLoopGroup;
+
+    private final EventExecutorGroup handlerExecutorGroup;
+
+    private final ByteBufAllocator allocator;
+
+    /**
+     * @param threadCount     number of event loop threads, and of handler threads, shared by all
+     *                        of the streams, zero uses the default (two per core), must be &gt;={@link #THREAD_COUNT_MIN} and &lt;={@link #THREAD_COUNT_MAX}
+     * @param pooledAllocator allocate the receive buffers from a pool
+     */
+    public UdpTransport(int threadCount, boolean pooledAllocator) {
+        inclusiveBetween(THREAD_COUNT_MIN, THREAD_COUNT_MAX, threadCount);
+
+        this.eventLoopGroup = new NioEventLoopGroup(threadCount);
+
+        this.handlerExecutorGroup = new DefaultEventExecutorGroup(threadCount > 0 ?
+                threadCount :
+                Runtime.getRuntime()
+                        .availableProcessors() * 2);
+
+        this.allocator = pooledAllocator ?
+                PooledByteBufAllocator.DEFAULT :
+                UnpooledByteBufAllocator.DEFAULT;
+    }
+
+    public UdpTransport() {
+        this(0, true);
+    }
+
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    /**
+     * @return the threads that run the stream handlers. All of the handlers of one channel run on
+     * the same thread, so the packets of a stream are handled in order.
+     */
+    public EventExecutorGroup getHandlerExecutorGroup() {
+        return handlerExecutorGroup;
+    }
+
+    public ByteBufAllocator getAllocator() {
+        return allocator;
+    }
+
+    public Class<? extends DatagramChannel> getChannelClass() {
+        return NioDatagramChannel.class;
+    }
+
+    /**
+     * Set the event loop group, channel type and transport options on a bootstrap.
+     *
+     * @param bootstrap must be non-null
+     * @return the bootstrap
+     */
+    public Bootstrap configure(Bootstrap bootstrap) {
+        return bootstrap.group(eventLoopGroup)
+                .channel(getChannelClass())
+                .option(ChannelOption.ALLOCATOR, allocator);
+    }
+
+    /**
+     * Called by osgi when the bundle stops.
+     */
+    public void shutdown() {
+        eventLoopGroup.shutdownGracefully();
+        handlerExecutorGroup.shutdownGracefully();
+    }
+
+    @Override
+    public String toString() {
+        return "UdpTransport{" +
+                "allocator=" + allocator.getClass()
+                .getSimpleName() +
+                '}';
+    }
+}
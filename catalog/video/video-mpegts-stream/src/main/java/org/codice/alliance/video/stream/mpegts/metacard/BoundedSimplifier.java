@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metacard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Keeps an aggregated geometry below a maximum number of points by simplifying it with an
+ * increasing distance tolerance. This bounds the cost of the next union or merge no matter how
+ * long the stream runs.
+ */
+class BoundedSimplifier {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedSimplifier.class);
+
+    static final int DEFAULT_MAX_POINTS = 10000;
+
+    private static final double INITIAL_DISTANCE_TOLERANCE = 0.00001;
+
+    private static final int MAX_ATTEMPTS = 16;
+
+    private BoundedSimplifier() {
+    }
+
+    /**
+     * @param geometry  non-null
+     * @param maxPoints the maximum number of points the returned geometry should contain
+     * @return the original geometry if it is already within the bound, otherwise a simplified
+     * geometry
+     */
+    static Geometry simplify(Geometry geometry, int maxPoints) {
+        if (geometry.getNumPoints() <= maxPoints) {
+            return geometry;
+        }
+
+        Geometry simplified = geometry;
+        double distanceTolerance = INITIAL_DISTANCE_TOLERANCE;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && simplified.getNumPoints() > maxPoints;
+                attempt++) {
+            simplified = TopologyPreservingSimplifier.simplify(geometry, distanceTolerance);
+            distanceTolerance *= 2;
+        }
+
+        LOGGER.debug("bounded aggregate geometry: old point count={} new point count={}",
+                geometry.getNumPoints(),
+                simplified.getNumPoints());
+
+        return simplified;
+    }
+}
@@ -13,12 +13,16 @@
  */
 package org.codice.alliance.video.stream.mpegts.metacard;
 
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Optional;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryUtility;
+import org.codice.alliance.video.stream.mpegts.Context;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
@@ -33,10 +37,21 @@ import ddf.catalog.data.impl.AttributeImpl;
 
 public class LineStringMetacardUpdater implements MetacardUpdater {
 
+    /**
+     * The fewest points of a line string.
+     */
+    public static final int MAX_AGGREGATE_POINTS_MIN = 2;
+
+    public static final int MAX_AGGREGATE_POINTS_MAX = 1000000;
+
+    private static final int INITIAL_COORDINATE_CAPACITY = 64;
+
     private final String attributeName;
 
     private final GeometryOperator geometryOperator;
 
+    private int maxAggregatePoints = BoundedSimplifier.DEFAULT_MAX_POINTS;
+
     public LineStringMetacardUpdater(String attributeName) {
         this(attributeName, GeometryOperator.IDENTITY);
     }
@@ -50,6 +65,25 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
         return geometryOperator;
     }
 
+    public int getMaxAggregatePoints() {
+        return maxAggregatePoints;
+    }
+
+    /**
+     * @param maxAggregatePoints the maximum number of coordinates kept in the aggregated line
+     *                           string before it is simplified, must be non-null and &gt;={@link #MAX_AGGREGATE_POINTS_MIN} and &lt;={@link #MAX_AGGREGATE_POINTS_MAX}
+     */
+    public void setMaxAggregatePoints(Integer maxAggregatePoints) {
+        notNull(maxAggregatePoints, "maxAggregatePoints must be non-null");
+        inclusiveBetween(MAX_AGGREGATE_POINTS_MIN,
+                MAX_AGGREGATE_POINTS_MAX,
+                maxAggregatePoints,
+                String.format("maxAggregatePoints must be >=%d and <=%d",
+                        MAX_AGGREGATE_POINTS_MIN,
+                        MAX_AGGREGATE_POINTS_MAX));
+        this.maxAggregatePoints = maxAggregatePoints;
+    }
+
     @Override
     public void accept(Visitor visitor) {
         visitor.visit(this);
@@ -57,22 +91,15 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
 
     @Override
     public void update(Metacard parent, Metacard child) {
-        if (!hasFrameCenter(parent) && hasFrameCenter(child)) {
-            setAttribute(parent, child);
-        } else if (hasFrameCenter(parent) && hasFrameCenter(child)) {
-            WKTReader wktReader = new WKTReader();
-
-            Optional<Geometry> parentGeo = GeometryUtility.wktToGeometry(getValue(parent),
-                    wktReader);
-            Optional<Geometry> childGeo = GeometryUtility.wktToGeometry(getValue(child), wktReader);
-
-            if (parentGeo.isPresent() && childGeo.isPresent()) {
-                Coordinate[] coordinates = getMergedCoordinates(parentGeo, childGeo);
-                LineString lineString = convertCoordinatesToLineString(coordinates);
-                setAttribute(parent, geometryOperator.apply(lineString));
-            }
+        LineStringAggregate lineStringAggregate = new LineStringAggregate(parent);
+        lineStringAggregate.add(child);
+        lineStringAggregate.writeTo(parent);
+    }
 
-        }
+    @Override
+    public void update(Metacard parent, Metacard child, Context context) {
+        context.getParentAggregate(this, () -> new LineStringAggregate(parent))
+                .add(child);
     }
 
     @Override
@@ -80,6 +107,7 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
         return "LineStringMetacardUpdater{" +
                 "attributeName='" + attributeName + '\'' +
                 ", geometryOperator=" + geometryOperator +
+                ", maxAggregatePoints=" + maxAggregatePoints +
                 '}';
     }
 
@@ -87,24 +115,6 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
         return new AttributeImpl(attributeName, value);
     }
 
-    private void setAttribute(Metacard parent, Metacard child) {
-        parent.setAttribute(createAttribute(child.getAttribute(attributeName)
-                .getValue()));
-    }
-
-    private void setAttribute(Metacard parent, Geometry lineString) {
-        WKTWriter wktWriter = new WKTWriter();
-        parent.setAttribute(createAttribute(wktWriter.write(lineString)));
-    }
-
-    private Coordinate[] getMergedCoordinates(Optional<Geometry> parentGeo,
-            Optional<Geometry> childGeo) {
-        return ArrayUtils.addAll(parentGeo.get()
-                        .getCoordinates(),
-                childGeo.get()
-                        .getCoordinates());
-    }
-
     private String getValue(Metacard metacard) {
         return (String) metacard.getAttribute(attributeName)
                 .getValue();
@@ -118,4 +128,92 @@ public class LineStringMetacardUpdater implements MetacardUpdater {
     private LineString convertCoordinatesToLineString(Coordinate[] coordinates) {
         return new GeometryFactory().createLineString(coordinates);
     }
+
+    /**
+     * Keeps the merged coordinates of the child line strings in a growable buffer. The line
+     * string is only built, transformed and converted to WKT when the parent is written. A value
+     * that came from a single metacard is written back unchanged.
+     */
+    private class LineStringAggregate implements ParentAggregate {
+
+        private final WKTReader wktReader = new WKTReader();
+
+        private Coordinate[] coordinates = new Coordinate[INITIAL_COORDINATE_CAPACITY];
+
+        private int size;
+
+        private String value;
+
+        private boolean changed;
+
+        LineStringAggregate(Metacard parent) {
+            if (hasFrameCenter(parent)) {
+                String parentValue = getValue(parent);
+                GeometryUtility.wktToGeometry(parentValue, wktReader)
+                        .ifPresent(geometry -> {
+                            append(geometry.getCoordinates());
+                            value = parentValue;
+                        });
+            }
+        }
+
+        void add(Metacard child) {
+            if (!hasFrameCenter(child)) {
+                return;
+            }
+
+            String childValue = getValue(child);
+
+            if (size == 0) {
+                GeometryUtility.wktToGeometry(childValue, wktReader)
+                        .ifPresent(geometry -> append(geometry.getCoordinates()));
+                value = childValue;
+                changed = true;
+                return;
+            }
+
+            Optional<Geometry> childGeometry = GeometryUtility.wktToGeometry(childValue,
+                    wktReader);
+            if (childGeometry.isPresent()) {
+                append(childGeometry.get()
+                        .getCoordinates());
+                if (size > maxAggregatePoints) {
+                    compact();
+                }
+                value = null;
+                changed = true;
+            }
+        }
+
+        private void append(Coordinate[] newCoordinates) {
+            if (size + newCoordinates.length > coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates,
+                        Math.max(coordinates.length * 2, size + newCoordinates.length));
+            }
+            System.arraycopy(newCoordinates, 0, coordinates, size, newCoordinates.length);
+            size += newCoordinates.length;
+        }
+
+        private void compact() {
+            Coordinate[] simplified = BoundedSimplifier.simplify(convertCoordinatesToLineString(
+                    Arrays.copyOf(coordinates, size)), maxAggregatePoints)
+                    .getCoordinates();
+            size = 0;
+            append(simplified);
+        }
+
+        @Override
+        public void writeTo(Metacard parent) {
+            if (!changed) {
+                return;
+            }
+            if (value == null) {
+                LineString lineString =
+                        convertCoordinatesToLineString(Arrays.copyOf(coordinates, size));
+                value = new WKTWriter().write(geometryOperator.apply(lineString));
+            }
+            parent.setAttribute(createAttribute(value));
+            changed = false;
+        }
+    }
 }
@@ -16,6 +16,8 @@ package org.codice.alliance.video.stream.mpegts.metacard;
 import java.util.Collections;
 import java.util.List;
 
+import org.codice.alliance.video.stream.mpegts.Context;
+
 import ddf.catalog.data.Metacard;
 
 public class ListMetacardUpdater implements MetacardUpdater {
@@ -31,6 +33,13 @@ public class ListMetacardUpdater implements MetacardUpdater {
         metacardUpdaterList.forEach(metacardUpdater -> metacardUpdater.update(parent, child));
     }
 
+    @Override
+    public void update(Metacard parent, Metacard child, Context context) {
+        metacardUpdaterList.forEach(metacardUpdater -> metacardUpdater.update(parent,
+                child,
+                context));
+    }
+
     @Override
     public String toString() {
         return "ListMetacardUpdater{" +
@@ -13,11 +13,16 @@
  */
 package org.codice.alliance.video.stream.mpegts.metacard;
 
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryUtility;
+import org.codice.alliance.video.stream.mpegts.Context;
 
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.WKTReader;
@@ -28,10 +33,26 @@ import ddf.catalog.data.impl.AttributeImpl;
 
 public class LocationMetacardUpdater implements MetacardUpdater {
 
+    /**
+     * The fewest points of a polygon.
+     */
+    public static final int MAX_AGGREGATE_POINTS_MIN = 4;
+
+    public static final int MAX_AGGREGATE_POINTS_MAX = 1000000;
+
     private final GeometryOperator preUnionGeometryOperator;
 
     private final GeometryOperator postUnionGeometryOperator;
 
+    /**
+     * The number of child locations that are buffered before they are merged into the aggregate.
+     */
+    private static final int MAX_PENDING_GEOMETRIES = 256;
+
+    private int maxAggregatePoints = BoundedSimplifier.DEFAULT_MAX_POINTS;
+
+    private Double preUnionDistanceTolerance;
+
     public LocationMetacardUpdater(GeometryOperator preUnionGeometryOperator,
             GeometryOperator postUnionGeometryOperator) {
         this.preUnionGeometryOperator = preUnionGeometryOperator;
@@ -47,39 +68,22 @@ public class LocationMetacardUpdater implements MetacardUpdater {
         return "LocationMetacardUpdater{" +
                 "postUnionGeometryOperator=" + postUnionGeometryOperator +
                 ", preUnionGeometryOperator=" + preUnionGeometryOperator +
+                ", maxAggregatePoints=" + maxAggregatePoints +
+                ", preUnionDistanceTolerance=" + preUnionDistanceTolerance +
                 '}';
     }
 
     @Override
     public void update(Metacard parent, Metacard child) {
-        if (parent.getLocation() == null) {
-            setParentLocation(parent, child.getLocation());
-        } else if (child.getLocation() != null) {
-            locationUnion(parent, child).ifPresent(wkt -> setParentLocation(parent, wkt));
-        }
-    }
-
-    private void setParentLocation(Metacard parent, String location) {
-        parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, location));
+        LocationAggregate locationAggregate = new LocationAggregate(parent);
+        locationAggregate.add(child);
+        locationAggregate.writeTo(parent);
     }
 
-    private Optional<String> locationUnion(Metacard metacard1, Metacard metacard2) {
-
-        WKTReader wktReader = new WKTReader();
-        WKTWriter wktWriter = new WKTWriter();
-
-        Optional<Geometry> parentGeometry = GeometryUtility.wktToGeometry(metacard1.getLocation(),
-                wktReader);
-        Optional<Geometry> childGeometry = GeometryUtility.wktToGeometry(metacard2.getLocation(),
-                wktReader);
-
-        return Stream.of(parentGeometry, childGeometry)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(preUnionGeometryOperator)
-                .reduce(Geometry::union)
-                .map(postUnionGeometryOperator)
-                .map(wktWriter::write);
+    @Override
+    public void update(Metacard parent, Metacard child, Context context) {
+        context.getParentAggregate(this, () -> new LocationAggregate(parent))
+                .add(child);
     }
 
     @Override
@@ -94,4 +98,124 @@ public class LocationMetacardUpdater implements MetacardUpdater {
     public GeometryOperator getPostUnionGeometryOperator() {
         return postUnionGeometryOperator;
     }
+
+    public int getMaxAggregatePoints() {
+        return maxAggregatePoints;
+    }
+
+    /**
+     * @param maxAggregatePoints the maximum number of points kept in the aggregated location
+     *                           before it is simplified, must be non-null and &gt;={@link #MAX_AGGREGATE_POINTS_MIN} and &lt;={@link #MAX_AGGREGATE_POINTS_MAX}
+     */
+    public void setMaxAggregatePoints(Integer maxAggregatePoints) {
+        notNull(maxAggregatePoints, "maxAggregatePoints must be non-null");
+        inclusiveBetween(MAX_AGGREGATE_POINTS_MIN,
+                MAX_AGGREGATE_POINTS_MAX,
+                maxAggregatePoints,
+                String.format("maxAggregatePoints must be >=%d and <=%d",
+                        MAX_AGGREGATE_POINTS_MIN,
+                        MAX_AGGREGATE_POINTS_MAX));
+        this.maxAggregatePoints = maxAggregatePoints;
+    }
+
+    public Double getPreUnionDistanceTolerance() {
+        return preUnionDistanceTolerance;
+    }
+
+    /**
+     * @param preUnionDistanceTolerance if positive, each location is simplified with this
+     *                                  distance tolerance before the union (may be null, the
+     *                                  default, to disable)
+     */
+    public void setPreUnionDistanceTolerance(Double preUnionDistanceTolerance) {
+        this.preUnionDistanceTolerance = preUnionDistanceTolerance;
+    }
+
+    /**
+     * Keeps the union of the child locations as a parsed geometry. Child locations are buffered
+     * and merged with a single cascaded union when the parent is written (or when the buffer is
+     * full), so a large number of children does not cost one union each. The parent is only
+     * written when the geometry has changed, and the WKT is only generated for a geometry that
+     * was produced by a union.
+     */
+    private class LocationAggregate implements ParentAggregate {
+
+        private final WKTReader wktReader = new WKTReader();
+
+        private final List<Geometry> pendingGeometries = new ArrayList<>();
+
+        private Geometry geometry;
+
+        private String wkt;
+
+        private boolean changed;
+
+        LocationAggregate(Metacard parent) {
+            String parentLocation = parent.getLocation();
+            if (parentLocation != null) {
+                GeometryUtility.wktToGeometry(parentLocation, wktReader)
+                        .ifPresent(parentGeometry -> {
+                            geometry = parentGeometry;
+                            wkt = parentLocation;
+                        });
+            }
+        }
+
+        void add(Metacard child) {
+            String childLocation = child.getLocation();
+            if (childLocation == null) {
+                return;
+            }
+
+            Optional<Geometry> childGeometry = GeometryUtility.wktToGeometry(childLocation,
+                    wktReader);
+            if (!childGeometry.isPresent()) {
+                return;
+            }
+
+            if (geometry == null) {
+                geometry = childGeometry.get();
+                wkt = childLocation;
+            } else {
+                pendingGeometries.add(childGeometry.get());
+                if (pendingGeometries.size() >= MAX_PENDING_GEOMETRIES) {
+                    mergePendingGeometries();
+                }
+            }
+            changed = true;
+        }
+
+        private void mergePendingGeometries() {
+            if (pendingGeometries.isEmpty()) {
+                return;
+            }
+
+            List<Geometry> geometries = new ArrayList<>(pendingGeometries.size() + 1);
+            geometries.add(geometry);
+            geometries.addAll(pendingGeometries);
+            pendingGeometries.clear();
+
+            GeometryUtility.createUnionOfGeometries(geometries,
+                    postUnionGeometryOperator,
+                    preUnionGeometryOperator,
+                    preUnionDistanceTolerance)
+                    .ifPresent(union -> {
+                        geometry = BoundedSimplifier.simplify(union, maxAggregatePoints);
+                        wkt = null;
+                    });
+        }
+
+        @Override
+        public void writeTo(Metacard parent) {
+            if (!changed) {
+                return;
+            }
+            mergePendingGeometries();
+            if (wkt == null) {
+                wkt = new WKTWriter().write(geometry);
+            }
+            parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, wkt));
+            changed = false;
+        }
+    }
 }
@@ -13,12 +13,29 @@
  */
 package org.codice.alliance.video.stream.mpegts.metacard;
 
+import org.codice.alliance.video.stream.mpegts.Context;
+
 import ddf.catalog.data.Metacard;
 
 public interface MetacardUpdater {
 
     void update(Metacard parent, Metacard child);
 
+    /**
+     * Update the parent with the child metadata. Updaters that keep incremental state should
+     * store it in the context with {@link Context#getParentAggregate} so that it is written to
+     * the parent by {@link Context#writeParentAggregates(Metacard)} instead of being re-parsed
+     * from the parent for every child. The default implementation delegates to
+     * {@link #update(Metacard, Metacard)}.
+     *
+     * @param parent  non-null
+     * @param child   non-null
+     * @param context non-null
+     */
+    default void update(Metacard parent, Metacard child, Context context) {
+        update(parent, child);
+    }
+
     void accept(Visitor visitor);
 
     interface Visitor {
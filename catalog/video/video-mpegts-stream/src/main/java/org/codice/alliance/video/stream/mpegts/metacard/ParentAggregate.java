@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metacard;
+
+import ddf.catalog.data.Metacard;
+
+/**
+ * In-memory state that a {@link MetacardUpdater} accumulates from the child metacards of a
+ * stream. The state is kept in its parsed form between children and is only converted to
+ * attribute values when the parent metacard is about to be submitted to the catalog.
+ */
+public interface ParentAggregate {
+
+    /**
+     * Write the accumulated state to the parent metacard.
+     *
+     * @param parent must be non-null
+     */
+    void writeTo(Metacard parent);
+
+}
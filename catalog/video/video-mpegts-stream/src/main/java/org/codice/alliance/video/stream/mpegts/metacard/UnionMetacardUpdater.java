@@ -14,11 +14,12 @@
 package org.codice.alliance.video.stream.mpegts.metacard;
 
 import java.io.Serializable;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Set;
+
+import org.codice.alliance.video.stream.mpegts.Context;
 
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
@@ -37,19 +38,15 @@ public class UnionMetacardUpdater implements MetacardUpdater {
 
     @Override
     public final void update(Metacard parent, Metacard child) {
+        UnionAggregate unionAggregate = new UnionAggregate(parent);
+        unionAggregate.add(child);
+        unionAggregate.writeTo(parent);
+    }
 
-        List<Serializable> serializables = Stream.of(parent, child)
-                .map(this::getAttribute)
-                .filter(Objects::nonNull)
-                .map(Attribute::getValues)
-                .filter(Objects::nonNull)
-                .flatMap(Collection::stream)
-                .distinct()
-                .collect(Collectors.toList());
-
-        if (!serializables.isEmpty()) {
-            parent.setAttribute(new AttributeImpl(attributeName, serializables));
-        }
+    @Override
+    public final void update(Metacard parent, Metacard child, Context context) {
+        context.getParentAggregate(this, () -> new UnionAggregate(parent))
+                .add(child);
     }
 
     private Attribute getAttribute(Metacard metacard) {
@@ -60,4 +57,47 @@ public class UnionMetacardUpdater implements MetacardUpdater {
     public final void accept(Visitor visitor) {
         visitor.visit(this);
     }
+
+    /**
+     * Keeps the distinct values of the parent and children in insertion order.
+     */
+    private class UnionAggregate implements ParentAggregate {
+
+        private final Set<Serializable> values = new LinkedHashSet<>();
+
+        private boolean changed;
+
+        UnionAggregate(Metacard parent) {
+            changed = addValues(parent);
+        }
+
+        void add(Metacard child) {
+            if (addValues(child)) {
+                changed = true;
+            }
+        }
+
+        private boolean addValues(Metacard metacard) {
+            Attribute attribute = getAttribute(metacard);
+            if (attribute == null || attribute.getValues() == null) {
+                return false;
+            }
+            boolean added = false;
+            for (Serializable value : attribute.getValues()) {
+                if (value != null && values.add(value)) {
+                    added = true;
+                }
+            }
+            return added;
+        }
+
+        @Override
+        public void writeTo(Metacard parent) {
+            if (changed && !values.isEmpty()) {
+                List<Serializable> serializables = new ArrayList<>(values);
+                parent.setAttribute(new AttributeImpl(attributeName, serializables));
+            }
+            changed = false;
+        }
+    }
 }
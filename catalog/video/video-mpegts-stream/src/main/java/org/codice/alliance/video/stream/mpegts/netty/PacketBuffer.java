@@ -13,24 +13,23 @@
  */
 package org.codice.alliance.video.stream.mpegts.netty;
 
+import static org.apache.commons.lang3.Validate.isTrue;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Date;
-import java.util.List;
 import java.util.Optional;
-import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import org.codice.alliance.video.stream.mpegts.OutputStreamFactory;
 import org.codice.alliance.video.stream.mpegts.filename.TempFileGenerator;
@@ -39,13 +38,22 @@ import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
 /**
  * Buffers raw MPEG-TS packet data and writes the data to a temporary file so that the data
  * written is on a clean IDR boundary. If an IDR boundary cannot be found, the data will be
  * eventually flush on a arbitrary point to avoid memory exhaustion. This implementation
  * is thread-safe.
- *
- *  NOTE: This implementation could probably be improved by using some kind of circular buffer with read and write pointers 
+ * <p>
+ * The packet data is copied into a fixed size, pooled, direct memory ring buffer. Frames are
+ * tracked as end offsets into the ring buffer, so no per-packet objects are retained. A complete
+ * frameset is written to the temp file with a single gathering write. The ring buffer is
+ * allocated on the first write and returned to the pool when the buffer is reset or flushed
+ * during shutdown.
  */
 public class PacketBuffer {
 
@@ -55,6 +63,12 @@ public class PacketBuffer {
      */
     public static final long ACTIVITY_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
 
+    /**
+     * The default number of bytes held by the ring buffer. At 20 Mbps this is several seconds of
+     * video, which is longer than a typical frameset.
+     */
+    public static final int DEFAULT_CAPACITY = 16 * 1024 * 1024;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(PacketBuffer.class);
 
     /**
@@ -62,7 +76,7 @@ public class PacketBuffer {
      * will be exhausted. This limits the frameset size while detecting a complete frameset
      * when flushing to disk.
      */
-    private static final long DEFAULT_MAX_FRAMESET_SIZE = 1000;
+    private static final int DEFAULT_MAX_FRAMESET_SIZE = 1000;
 
     /**
      * The default maximum number of incomplete frame bytes before the data is forcibly
@@ -89,9 +103,27 @@ public class PacketBuffer {
 
     private final Timer timer = new Timer();
 
-    private List<Frame> frames = new ArrayList<>();
+    private final int capacity;
 
-    private List<byte[]> incompleteFrame = new ArrayList<>();
+    private final FrameQueue frames = new FrameQueue(DEFAULT_MAX_FRAMESET_SIZE + 1);
+
+    private ByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+
+    /**
+     * Ring buffer storage. Positions are absolute byte counts and are mapped into the ring buffer
+     * with {@link #ringIndex(long)}.
+     */
+    private ByteBuf ringBuffer;
+
+    /**
+     * Absolute position of the first byte that has not been written to disk.
+     */
+    private long readPosition = 0;
+
+    /**
+     * Absolute position of the next byte to be written into the ring buffer.
+     */
+    private long writePosition = 0;
 
     private Lock lock = new ReentrantLock();
 
@@ -129,6 +161,15 @@ public class PacketBuffer {
     private Supplier<Date> dateSupplier = Date::new;
 
     public PacketBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of bytes held by the ring buffer, must be positive
+     */
+    public PacketBuffer(int capacity) {
+        isTrue(capacity > 0, "capacity must be positive");
+        this.capacity = capacity;
         timer.schedule(new TimerTask() {
             @Override
             public void run() {
@@ -142,6 +183,14 @@ public class PacketBuffer {
         }, 0, ACTIVITY_LOG_PERIOD);
     }
 
+    /**
+     * @param allocator must be non-null
+     */
+    public void setAllocator(ByteBufAllocator allocator) {
+        notNull(allocator, "allocator must be non-null");
+        this.allocator = allocator;
+    }
+
     /**
      * @param tempFileGenerator must be non-null
      */
@@ -171,6 +220,7 @@ public class PacketBuffer {
         return "PacketBuffer{" +
                 "bytesWrittenToTempFile=" + bytesWrittenToTempFile +
                 ", incompleteFrameBytes=" + incompleteFrameBytes +
+                ", bufferedBytes=" + (writePosition - readPosition) +
                 '}';
     }
 
@@ -181,7 +231,7 @@ public class PacketBuffer {
         lock.lock();
         try {
             frames.clear();
-            incompleteFrame.clear();
+            releaseRingBuffer();
             currentTempFile = null;
             tempFileCreateTime = null;
             bytesWrittenToTempFile = 0;
@@ -219,9 +269,9 @@ public class PacketBuffer {
 
     /**
      * Write raw data into the buffer. Empty or null values are handled. If the size of the
-     * incomplete frame data exceeds {@link #maxIncompleteFrameBytes}, then the current
-     * incomplete frame data will be push to the frame list as type {@link FrameType#UNKNOWN}
-     * and a flush to disk will be attempted.
+     * incomplete frame data exceeds {@link #maxIncompleteFrameBytes}, or the ring buffer does not
+     * have room for the data, then the current incomplete frame data will be push to the frame
+     * list as type {@link FrameType#UNKNOWN} and a flush to disk will be attempted.
      *
      * @param rawPacket may be null or empty
      */
@@ -230,17 +280,47 @@ public class PacketBuffer {
         if (rawPacket == null || rawPacket.length == 0) {
             return;
         }
+
+        write(Unpooled.wrappedBuffer(rawPacket), 0, rawPacket.length);
+    }
+
+    /**
+     * Write raw data into the buffer by copying it directly from another buffer. The reader and
+     * writer indexes of the source buffer are not modified and the caller retains ownership of
+     * the source buffer. See {@link #write(byte[])}.
+     *
+     * @param source must be non-null
+     * @param index  index of the first byte in the source buffer
+     * @param length number of bytes to copy
+     */
+    public void write(ByteBuf source, int index, int length) {
+        notNull(source, "source must be non-null");
+
+        if (length == 0) {
+            return;
+        }
         lock.lock();
         try {
             lastActivity = System.currentTimeMillis();
-            incompleteFrame.add(rawPacket);
-            incompleteFrameBytes += rawPacket.length;
-            bytesReceived += rawPacket.length;
+            bytesReceived += length;
             packetsReceived++;
+
+            if (!ensureWritable(length)) {
+                writeThrough(source, index, length);
+                return;
+            }
+
+            int ringIndex = ringIndex(writePosition);
+            int firstLength = Math.min(length, capacity - ringIndex);
+            ringBuffer.setBytes(ringIndex, source, index, firstLength);
+            if (firstLength < length) {
+                ringBuffer.setBytes(0, source, index + firstLength, length - firstLength);
+            }
+            writePosition += length;
+            incompleteFrameBytes += length;
+
             if (incompleteFrameBytes > maxIncompleteFrameBytes) {
-                frames.add(new Frame(FrameType.UNKNOWN, incompleteFrame));
-                incompleteFrame = new ArrayList<>();
-                incompleteFrameBytes = 0;
+                flushIncompleteFrames();
                 flushIfDataAvailable();
             }
         } finally {
@@ -258,8 +338,7 @@ public class PacketBuffer {
         notNull(frameType, "frameType must be non-null");
         lock.lock();
         try {
-            frames.add(new Frame(frameType, incompleteFrame));
-            incompleteFrame = new ArrayList<>();
+            addFrame(frameType);
 
             flushIfDataAvailable();
 
@@ -268,6 +347,69 @@ public class PacketBuffer {
         }
     }
 
+    /**
+     * Make room in the ring buffer for <code>length</code> bytes. If the ring buffer is full, then
+     * all buffered data is forcibly flushed to disk.
+     *
+     * @param length number of bytes to be written
+     * @return <code>false</code> if the data can never fit in the ring buffer
+     */
+    private boolean ensureWritable(int length) {
+        if (ringBuffer == null) {
+            ringBuffer = allocator.directBuffer(capacity, capacity);
+        }
+        if (writePosition - readPosition + length <= capacity) {
+            return true;
+        }
+        LOGGER.debug("packet buffer is full, forcing a flush: capacity={}", capacity);
+        flushAll();
+        return length <= capacity;
+    }
+
+    /**
+     * Write a packet that is larger than the ring buffer directly to the temp file, after all
+     * buffered data has been flushed.
+     */
+    private void writeThrough(ByteBuf source, int index, int length) {
+        try (OutputStream os = outputStreamFactory.create(getTempFile(), true)) {
+            source.getBytes(index, os, length);
+            bytesWrittenToTempFile += length;
+            bytesWritten += length;
+        } catch (IOException e) {
+            LOGGER.debug("unable to write to temp file", e);
+        }
+    }
+
+    /**
+     * Push the incomplete frame data as an {@link FrameType#UNKNOWN} frame and flush all frames to
+     * disk.
+     */
+    private void flushAll() {
+        if (hasIncompleteFrame()) {
+            flushIncompleteFrames();
+        }
+        if (!frames.isEmpty()) {
+            try {
+                flushFrameset(frames.size() - 1);
+            } catch (IOException e) {
+                LOGGER.debug("unable to write to temp file", e);
+            }
+        }
+    }
+
+    private void addFrame(FrameType frameType) {
+        if (frames.isFull()) {
+            LOGGER.debug("frame list is full, forcing a flush");
+            try {
+                flushFrameset(frames.size() - 1);
+            } catch (IOException e) {
+                LOGGER.debug("unable to write to temp file", e);
+            }
+        }
+        frames.add(frameType, writePosition);
+        incompleteFrameBytes = 0;
+    }
+
     /**
      * If a full frameset is in the frame list, then flush the frameset to disk.
      */
@@ -282,27 +424,63 @@ public class PacketBuffer {
     }
 
     /**
+     * The frames are removed from the frame list before the data is written, so a failed write
+     * will drop the frameset instead of retrying it forever.
+     *
      * @param index the index of the last frame of the last frameset
      * @throws IOException
      */
     private void flushFrameset(int index) throws IOException {
 
+        long start = readPosition;
+        long end = frames.endPosition(index);
+        frames.removeFirst(index + 1);
+        readPosition = end;
+
         try (OutputStream os = outputStreamFactory.create(getTempFile(), true)) {
+            int length = (int) (end - start);
+            writeRange(os, start, length);
+            bytesWrittenToTempFile += length;
+            bytesWritten += length;
+        }
 
-            List<byte[]> outgoingPackets = frames.subList(0, index + 1)
-                    .stream()
-                    .flatMap(frame -> frame.packets.stream())
-                    .collect(Collectors.toList());
-            frames = new ArrayList<>(frames.subList(index + 1, frames.size()));
+    }
 
-            for (byte[] outgoingPacket : outgoingPackets) {
-                os.write(outgoingPacket);
-                bytesWrittenToTempFile += outgoingPacket.length;
-                bytesWritten += outgoingPacket.length;
-            }
+    /**
+     * Write a range of the ring buffer to the output stream. File output uses a single gathering
+     * write of at most two buffer segments, other output streams receive a single array.
+     */
+    private void writeRange(OutputStream os, long start, int length) throws IOException {
+
+        if (length == 0) {
+            return;
+        }
 
+        int index = ringIndex(start);
+        int firstLength = Math.min(length, capacity - index);
+
+        if (os instanceof FileOutputStream) {
+            ByteBuffer[] segments = firstLength == length ?
+                    new ByteBuffer[] {ringBuffer.nioBuffer(index, length)} :
+                    new ByteBuffer[] {ringBuffer.nioBuffer(index, firstLength),
+                            ringBuffer.nioBuffer(0, length - firstLength)};
+            FileChannel channel = ((FileOutputStream) os).getChannel();
+            long remaining = length;
+            while (remaining > 0) {
+                remaining -= channel.write(segments);
+            }
+        } else {
+            byte[] data = new byte[length];
+            ringBuffer.getBytes(index, data, 0, firstLength);
+            if (firstLength < length) {
+                ringBuffer.getBytes(0, data, firstLength, length - firstLength);
+            }
+            os.write(data);
         }
+    }
 
+    private int ringIndex(long position) {
+        return (int) (position % capacity);
     }
 
     /**
@@ -319,7 +497,7 @@ public class PacketBuffer {
         try {
             if (isActivityTimeout()) {
                 LOGGER.debug("activity timeout detected, flushing data and rolling over file");
-                if (!incompleteFrame.isEmpty()) {
+                if (hasIncompleteFrame()) {
                     flushIncompleteFrames();
                 }
                 flushIfDataAvailable();
@@ -347,9 +525,12 @@ public class PacketBuffer {
         return Optional.of(tempFile);
     }
 
+    private boolean hasIncompleteFrame() {
+        return writePosition > frames.lastEndPosition(readPosition);
+    }
+
     private void flushIncompleteFrames() {
-        frames.add(new Frame(FrameType.UNKNOWN, incompleteFrame));
-        incompleteFrame = new ArrayList<>();
+        addFrame(FrameType.UNKNOWN);
     }
 
     /**
@@ -363,7 +544,7 @@ public class PacketBuffer {
         lock.lock();
         try {
 
-            if (!incompleteFrame.isEmpty()) {
+            if (hasIncompleteFrame()) {
                 flushIncompleteFrames();
             }
 
@@ -371,6 +552,8 @@ public class PacketBuffer {
                 flushFrameset(frames.size() - 1);
             }
 
+            releaseRingBuffer();
+
             return rotate(ALWAYS_TRUE);
         } finally {
             lock.unlock();
@@ -381,6 +564,18 @@ public class PacketBuffer {
         timer.cancel();
     }
 
+    /**
+     * Return the ring buffer to the pool. It will be reallocated by the next write.
+     */
+    private void releaseRingBuffer() {
+        if (ringBuffer != null) {
+            ringBuffer.release();
+            ringBuffer = null;
+        }
+        readPosition = 0;
+        writePosition = 0;
+    }
+
     private File getTempFile() throws IOException {
         if (currentTempFile == null) {
             tempFileCreateTime = dateSupplier.get()
@@ -392,12 +587,6 @@ public class PacketBuffer {
         return currentTempFile;
     }
 
-    private Set<FrameType> summarizeFrameTypes() {
-        return frames.stream()
-                .map(frame -> frame.frameType)
-                .collect(Collectors.toSet());
-    }
-
     private long millisSinceLastActivity() {
         return lastActivity == 0 ? 0 : System.currentTimeMillis() - lastActivity;
     }
@@ -414,8 +603,8 @@ public class PacketBuffer {
         return frames.size() > DEFAULT_MAX_FRAMESET_SIZE;
     }
 
-    private boolean isAllUnknownFrameType(Set<FrameType> frameTypeSummary) {
-        return frameTypeSummary.size() == 1 && frameTypeSummary.contains(FrameType.UNKNOWN);
+    private boolean isAllUnknownFrameType() {
+        return frames.size() > 0 && frames.count(FrameType.UNKNOWN) == frames.size();
     }
 
     /**
@@ -435,18 +624,16 @@ public class PacketBuffer {
             return allFrames();
         }
 
-        Set<FrameType> frameTypeSummary = summarizeFrameTypes();
-
-        if (isAllUnknownFrameType(frameTypeSummary)) {
+        if (isAllUnknownFrameType()) {
             return allFrames();
         }
 
-        if (!frameTypeSummary.contains(FrameType.IDR)) {
+        if (frames.count(FrameType.IDR) == 0) {
             return Optional.empty();
         }
 
         for (int i = frames.size() - 1; i > 0; i--) {
-            if (frames.get(i).frameType == FrameType.IDR) {
+            if (frames.frameType(i) == FrameType.IDR) {
                 return Optional.of(i - 1);
             }
         }
@@ -462,18 +649,84 @@ public class PacketBuffer {
     }
 
     /**
-     * Contains all of the raw packets associated with a video frame. May contain non-video data
-     * that was intermixed with the video data.
+     * Fixed size circular queue of frames. Each frame is stored as its type and the absolute end
+     * position of its data in the ring buffer. The start of a frame is the end of the previous
+     * frame, or the read position of the ring buffer for the first frame. The number of frames of
+     * each type is maintained so the frameset search does not need to scan the queue.
      */
-    private static class Frame {
+    private static class FrameQueue {
+
+        private final FrameType[] frameTypes;
+
+        private final long[] endPositions;
+
+        private final int[] typeCounts = new int[FrameType.values().length];
+
+        private int head = 0;
+
+        private int size = 0;
+
+        FrameQueue(int capacity) {
+            frameTypes = new FrameType[capacity];
+            endPositions = new long[capacity];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
 
-        private List<byte[]> packets;
+        boolean isFull() {
+            return size == frameTypes.length;
+        }
+
+        int count(FrameType frameType) {
+            return typeCounts[frameType.ordinal()];
+        }
+
+        void add(FrameType frameType, long endPosition) {
+            int slot = slot(size);
+            frameTypes[slot] = frameType;
+            endPositions[slot] = endPosition;
+            typeCounts[frameType.ordinal()]++;
+            size++;
+        }
+
+        FrameType frameType(int index) {
+            return frameTypes[slot(index)];
+        }
 
-        private FrameType frameType;
+        long endPosition(int index) {
+            return endPositions[slot(index)];
+        }
+
+        /**
+         * @param defaultPosition returned when the queue is empty
+         * @return end position of the most recent frame
+         */
+        long lastEndPosition(long defaultPosition) {
+            return size == 0 ? defaultPosition : endPosition(size - 1);
+        }
+
+        void removeFirst(int count) {
+            for (int i = 0; i < count; i++) {
+                typeCounts[frameTypes[head].ordinal()]--;
+                frameTypes[head] = null;
+                head = (head + 1) % frameTypes.length;
+            }
+            size -= count;
+        }
+
+        void clear() {
+            removeFirst(size);
+            head = 0;
+        }
 
-        public Frame(FrameType frameType, List<byte[]> packets) {
-            this.frameType = frameType;
-            this.packets = packets;
+        private int slot(int index) {
+            return (head + index) % frameTypes.length;
         }
     }
 
@@ -15,8 +15,7 @@ package org.codice.alliance.video.stream.mpegts.netty;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
-import java.io.IOException;
-import java.util.List;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 
 import org.codice.alliance.libs.mpegts.Constants;
@@ -30,29 +29,28 @@ import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
-import org.taktik.mpegts.sources.MTSSources;
-import org.taktik.mpegts.sources.ResettableMTSSource;
-
-import com.google.common.io.ByteSource;
 
 import ddf.security.Subject;
 import ddf.security.service.SecurityManager;
 import ddf.security.service.SecurityServiceException;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.handler.codec.MessageToMessageDecoder;
 
 /**
  * Converts datagrams to a series of MTSPackets. Will discard data while looking for the MPEG-TS
  * sync byte.
+ * <p>
+ * Packets are parsed in place: each MTSPacket is a view of the datagram buffer and is passed to
+ * the next handler before the datagram is released. Downstream handlers must consume the packet
+ * payload before returning. Only a packet that is split across two datagrams is copied, into a
+ * small carry-over buffer.
  */
-class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacket> {
+class RawUdpDataToMTSPacketDecoder extends SimpleChannelInboundHandler<DatagramPacket> {
 
     public static final byte TS_SYNC = (byte) 0x47;
 
-    public static final int BUFFER_SIZE = 4096;
-
     public static final int TS_PACKET_SIZE = Constants.TS_PACKET_SIZE;
 
     /**
@@ -63,11 +61,14 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
     private static final Logger LOGGER =
             LoggerFactory.getLogger(RawUdpDataToMTSPacketDecoder.class);
 
-    private ByteBuf byteBuf;
+    /**
+     * Holds the start of a packet that was split across datagrams.
+     */
+    private ByteBuf carryBuf;
 
     private PacketBuffer packetBuffer;
 
-    private MTSParser mtsParser = MTSSources::from;
+    private MTSParser mtsParser = MTSPacket::new;
 
     private UdpStreamProcessor udpStreamProcessor;
 
@@ -84,15 +85,15 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        if (byteBuf != null) {
-            byteBuf.release();
+        if (carryBuf != null) {
+            carryBuf.release();
         }
     }
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
-        byteBuf = ctx.alloc()
-                .buffer(BUFFER_SIZE);
+        carryBuf = ctx.alloc()
+                .buffer(TS_PACKET_SIZE, TS_PACKET_SIZE);
     }
 
     private Subject getSecuritySubject(String ipAddress) throws SecurityServiceException {
@@ -136,44 +137,74 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
     }
 
     @Override
-    protected void decode(ChannelHandlerContext ctx, DatagramPacket msg, List<Object> outputList)
-            throws Exception {
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) throws Exception {
 
         notNull(ctx, "ctx must be non-null");
         notNull(msg, "msg must be non-null");
-        notNull(outputList, "outputList must be non-null");
 
         checkSecuritySubject(msg);
 
-        byteBuf.writeBytes(msg.content());
+        ByteBuf content = msg.content();
 
-        skipToSyncByte();
+        if (carryBuf.isReadable() && !completeCarriedPacket(ctx, content)) {
+            return;
+        }
 
-        while (byteBuf.readableBytes() >= TS_PACKET_SIZE) {
+        skipToSyncByte(content);
 
-            byte[] payload = new byte[TS_PACKET_SIZE];
+        while (content.readableBytes() >= TS_PACKET_SIZE) {
 
-            byteBuf.readBytes(payload);
+            emitPacket(ctx, content, content.readerIndex());
 
-            ResettableMTSSource src = mtsParser.parse(ByteSource.wrap(payload));
+            content.skipBytes(TS_PACKET_SIZE);
 
-            MTSPacket packet = null;
-            try {
-                packet = src.nextPacket();
-            } catch (IOException e) {
-                LOGGER.debug("unable to parse mpegst packet", e);
-            }
+            skipToSyncByte(content);
+        }
 
-            if (packet != null) {
-                packetBuffer.write(payload);
-                outputList.add(packet);
-            }
+        if (content.isReadable()) {
+            carryBuf.writeBytes(content);
+        }
+
+    }
 
-            skipToSyncByte();
+    /**
+     * Fill the carry-over buffer from the start of the datagram. If the carried packet is
+     * complete, then it is emitted and the carry-over buffer is cleared.
+     *
+     * @return <code>true</code> if the carried packet was completed
+     */
+    private boolean completeCarriedPacket(ChannelHandlerContext ctx, ByteBuf content) {
+
+        int length = Math.min(carryBuf.writableBytes(), content.readableBytes());
+
+        carryBuf.writeBytes(content, length);
+
+        if (carryBuf.readableBytes() < TS_PACKET_SIZE) {
+            return false;
         }
 
-        byteBuf.discardReadBytes();
+        emitPacket(ctx, carryBuf, carryBuf.readerIndex());
+        carryBuf.clear();
+        return true;
+    }
+
+    /**
+     * Parse the packet that starts at <code>index</code> without copying it, write the raw packet
+     * to the packet buffer and pass the parsed packet to the next handler.
+     */
+    private void emitPacket(ChannelHandlerContext ctx, ByteBuf buf, int index) {
 
+        MTSPacket packet = null;
+        try {
+            packet = mtsParser.parse(buf.nioBuffer(index, TS_PACKET_SIZE));
+        } catch (RuntimeException e) {
+            LOGGER.debug("unable to parse mpegst packet", e);
+        }
+
+        if (packet != null) {
+            packetBuffer.write(buf, index, TS_PACKET_SIZE);
+            ctx.fireChannelRead(packet);
+        }
     }
 
     private void checkSecuritySubject(DatagramPacket msg) throws SecurityServiceException {
@@ -195,20 +226,22 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
                 .getHostAddress();
     }
 
-    private void skipToSyncByte() {
+    private void skipToSyncByte(ByteBuf byteBuf) {
 
-        int bytesBefore;
+        int bytesBefore = byteBuf.bytesBefore(TS_SYNC);
 
-        if ((bytesBefore = byteBuf.bytesBefore(TS_SYNC)) > 0) {
+        if (bytesBefore > 0) {
             LOGGER.trace("skipping bytes in raw data stream, looking for MPEG-TS sync {}",
                     bytesBefore);
             byteBuf.skipBytes(bytesBefore);
+        } else if (bytesBefore < 0) {
+            byteBuf.skipBytes(byteBuf.readableBytes());
         }
 
     }
 
     public interface MTSParser {
-        ResettableMTSSource parse(ByteSource byteSource) throws IOException;
+        MTSPacket parse(ByteBuffer packetData);
     }
 
 }
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Timer;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.Validate;
@@ -54,6 +55,7 @@ import org.codice.alliance.video.stream.mpegts.rollover.ElapsedTimeRolloverCondi
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverActionException;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
+import org.codice.alliance.video.stream.mpegts.rollover.RolloverQueue;
 import org.codice.ddf.security.common.Security;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +79,11 @@ public class UdpStreamProcessor implements StreamProcessor {
      */
     private static final long DEFAULT_METACARD_UPDATE_INITIAL_DELAY = 2;
 
+    /**
+     * Number of seconds to wait for queued rollover files during shutdown.
+     */
+    private static final long ROLLOVER_QUEUE_SHUTDOWN_TIMEOUT = 30;
+
     private final Context context;
 
     private PacketBuffer packetBuffer = new PacketBuffer();
@@ -111,11 +118,38 @@ public class UdpStreamProcessor implements StreamProcessor {
 
     private Double distanceTolerance;
 
+    private Integer maxAggregatePoints;
+
+    /**
+     * Runs rollovers and schedules catalog update retries. When <code>null</code>, rollovers run
+     * on the thread that detects them.
+     */
+    private ScheduledExecutorService rolloverExecutor;
+
+    private final RolloverQueue rolloverQueue = new RolloverQueue(Runnable::run, this::doRollover);
+
     public UdpStreamProcessor(StreamMonitor streamMonitor) {
         this.streamMonitor = streamMonitor;
         context = new Context(this);
     }
 
+    public ScheduledExecutorService getRolloverExecutor() {
+        return rolloverExecutor;
+    }
+
+    /**
+     * @param rolloverExecutor must be non-null
+     */
+    public void setRolloverExecutor(ScheduledExecutorService rolloverExecutor) {
+        notNull(rolloverExecutor, "rolloverExecutor must be non-null");
+        this.rolloverExecutor = rolloverExecutor;
+        rolloverQueue.setExecutor(rolloverExecutor);
+    }
+
+    public RolloverQueue getRolloverQueue() {
+        return rolloverQueue;
+    }
+
     public Subject getSubject() {
         return subject;
     }
@@ -210,6 +244,76 @@ public class UdpStreamProcessor implements StreamProcessor {
         this.distanceTolerance = distanceTolerance;
     }
 
+    /**
+     * @return the maximum number of points in the aggregated parent locations, or null if the
+     * metacard updaters use their default
+     */
+    public Integer getMaxAggregatePoints() {
+        return maxAggregatePoints;
+    }
+
+    /**
+     * @param maxAggregatePoints must be non-null and &gt;={@link LocationMetacardUpdater#MAX_AGGREGATE_POINTS_MIN} and &lt;={@link LocationMetacardUpdater#MAX_AGGREGATE_POINTS_MAX}
+     */
+    public void setMaxAggregatePoints(Integer maxAggregatePoints) {
+        notNull(maxAggregatePoints, "maxAggregatePoints must be non-null");
+        inclusiveBetween(LocationMetacardUpdater.MAX_AGGREGATE_POINTS_MIN,
+                LocationMetacardUpdater.MAX_AGGREGATE_POINTS_MAX,
+                maxAggregatePoints,
+                String.format("maxAggregatePoints must be >=%d and <=%d",
+                        LocationMetacardUpdater.MAX_AGGREGATE_POINTS_MIN,
+                        LocationMetacardUpdater.MAX_AGGREGATE_POINTS_MAX));
+
+        parentMetacardUpdater.accept(new MetacardUpdater.Visitor() {
+            @Override
+            public void visit(FrameCenterMetacardUpdater frameCenterMetacardUpdater) {
+
+            }
+
+            @Override
+            public void visit(LineStringMetacardUpdater lineStringMetacardUpdater) {
+                lineStringMetacardUpdater.setMaxAggregatePoints(maxAggregatePoints);
+            }
+
+            @Override
+            public void visit(LocationMetacardUpdater locationMetacardUpdater) {
+                locationMetacardUpdater.setMaxAggregatePoints(maxAggregatePoints);
+            }
+
+            @Override
+            public void visit(ModifiedDateMetacardUpdater modifiedDateMetacardUpdater) {
+
+            }
+
+            @Override
+            public void visit(TemporalEndMetacardUpdater temporalEndMetacardUpdater) {
+
+            }
+
+            @Override
+            public void visit(TemporalStartMetacardUpdater temporalStartMetacardUpdater) {
+
+            }
+
+            @Override
+            public void visit(UnionMetacardUpdater unionMetacardUpdater) {
+
+            }
+
+            @Override
+            public void visit(UnionSingleMetacardUpdater unionMetacardUpdater) {
+
+            }
+
+            @Override
+            public void visit(CreatedDateMetacardUpdater createdDateMetacardUpdater) {
+
+            }
+        });
+
+        this.maxAggregatePoints = maxAggregatePoints;
+    }
+
     @Override
     public long getMetacardUpdateInitialDelay() {
         return metacardUpdateInitialDelay;
@@ -248,6 +352,7 @@ public class UdpStreamProcessor implements StreamProcessor {
                 ", rolloverCondition=" + rolloverCondition +
                 ", metacardUpdateInitialDelay=" + metacardUpdateInitialDelay +
                 ", parentMetacardUpdater=" + parentMetacardUpdater +
+                ", rolloverQueue=" + rolloverQueue +
                 '}';
     }
 
@@ -317,11 +422,19 @@ public class UdpStreamProcessor implements StreamProcessor {
         } catch (StreamShutdownException e) {
             LOGGER.debug("unable to shutdown", e);
         }
+        if (!rolloverQueue.awaitIdle(ROLLOVER_QUEUE_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+            LOGGER.debug("timed out waiting for queued rollover files: rolloverQueue={}",
+                    rolloverQueue);
+        }
     }
 
+    /**
+     * Rotate the packet buffer if the rollover condition is met. The rollover file is queued and
+     * handled by {@link #doRollover(File)} on the rollover executor.
+     */
     public void checkForRollover() {
         packetBuffer.rotate(rolloverCondition)
-                .ifPresent(this::doRollover);
+                .ifPresent(rolloverQueue::submit);
     }
 
     public void doRollover(File tempFile) {
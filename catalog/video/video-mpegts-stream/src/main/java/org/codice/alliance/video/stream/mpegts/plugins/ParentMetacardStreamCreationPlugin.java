@@ -113,6 +113,7 @@ public class ParentMetacardStreamCreationPlugin extends BaseStreamCreationPlugin
                 .map(Metacard::getId)
                 .collect(Collectors.toList());
         LOGGER.debug("created parent metacards with ids: {}", createdIds);
+        context.clearParentAggregates();
         context.setParentMetacard(createdMetacards.get(createdMetacards.size() - 1));
     }
 }
@@ -26,12 +26,17 @@ public class RolloverStreamCreationPlugin extends BaseStreamCreationPlugin {
     @Override
     protected void doOnCreate(Context context) throws StreamCreationException {
         UdpStreamProcessor udpStreamProcessor = context.getUdpStreamProcessor();
-        udpStreamProcessor.setRolloverAction(new ListRolloverAction(Arrays.asList(new CreateMetacardRolloverAction(
-                        udpStreamProcessor.getMetacardTypeList()),
+        CatalogRolloverAction catalogRolloverAction =
                 new CatalogRolloverAction(udpStreamProcessor.getFilenameGenerator(),
                         udpStreamProcessor.getFilenameTemplate(),
                         udpStreamProcessor.getCatalogFramework(),
                         context,
-                        udpStreamProcessor.getParentMetacardUpdater()))));
+                        udpStreamProcessor.getParentMetacardUpdater());
+        if (udpStreamProcessor.getRolloverExecutor() != null) {
+            catalogRolloverAction.setUpdateScheduler(udpStreamProcessor.getRolloverExecutor());
+        }
+        udpStreamProcessor.setRolloverAction(new ListRolloverAction(Arrays.asList(new CreateMetacardRolloverAction(
+                        udpStreamProcessor.getMetacardTypeList()),
+                catalogRolloverAction)));
     }
 }
@@ -19,7 +19,10 @@ import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
@@ -53,6 +56,11 @@ import ddf.security.SubjectUtils;
 /**
  * Stores the child content, links the child to the parent, and updates the parent's
  * location with the union of the child's location.
+ * <p>
+ * If an update scheduler is set, then the child and parent update requests are submitted on the
+ * scheduler instead of the calling thread, and failed requests are rescheduled with an
+ * exponential backoff instead of sleeping. Parent updates are coalesced: while a parent update is
+ * waiting to be submitted, the metadata of new children is merged into the same update.
  */
 public class CatalogRolloverAction extends BaseRolloverAction {
 
@@ -72,6 +80,18 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
     private String filenameTemplate;
 
+    private ScheduledExecutorService updateScheduler;
+
+    /**
+     * Guards the parent metacard while it is updated with child metadata and submitted.
+     */
+    private final Lock parentLock = new ReentrantLock();
+
+    /**
+     * <code>true</code> while a parent update has been scheduled but has not succeeded.
+     */
+    private boolean parentUpdatePending = false;
+
     /**
      * @param filenameGenerator     must be non-null
      * @param filenameTemplate      must be non-null
@@ -95,6 +115,14 @@ public class CatalogRolloverAction extends BaseRolloverAction {
         this.parentMetacardUpdater = parentMetacardUpdater;
     }
 
+    /**
+     * @param updateScheduler must be non-null
+     */
+    public void setUpdateScheduler(ScheduledExecutorService updateScheduler) {
+        notNull(updateScheduler, "updateScheduler must be non-null");
+        this.updateScheduler = updateScheduler;
+    }
+
     @Override
     public String toString() {
         return "CatalogRolloverAction{" +
@@ -152,12 +180,59 @@ public class CatalogRolloverAction extends BaseRolloverAction {
             throws RolloverActionException {
         if (context.getParentMetacard()
                 .isPresent()) {
+            parentLock.lock();
+            try {
+                Metacard parentMetacard = context.getParentMetacard()
+                        .get();
+                parentMetacardUpdater.update(parentMetacard, childMetacard, context);
+                if (updateScheduler == null) {
+                    context.writeParentAggregates(parentMetacard);
+                    UpdateRequest updateRequest = createUpdateRequest(parentMetacard.getId(),
+                            parentMetacard);
+                    submitParentUpdateRequest(updateRequest);
+                } else if (parentUpdatePending) {
+                    LOGGER.trace("coalescing child metadata into pending parent update: child={}",
+                            childMetacard.getId());
+                } else {
+                    parentUpdatePending = true;
+                    scheduleUpdateWithRetry(this::submitPendingParentUpdate,
+                            this::clearPendingParentUpdate);
+                }
+            } finally {
+                parentLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Submit the current state of the parent metacard, which includes the metadata of every child
+     * that was added since the update was scheduled.
+     */
+    private void submitPendingParentUpdate() throws RolloverActionException {
+        parentLock.lock();
+        try {
             Metacard parentMetacard = context.getParentMetacard()
                     .get();
-            parentMetacardUpdater.update(parentMetacard, childMetacard);
-            UpdateRequest updateRequest = createUpdateRequest(parentMetacard.getId(),
-                    parentMetacard);
-            submitParentUpdateRequest(updateRequest);
+            context.writeParentAggregates(parentMetacard);
+            submitUpdateRequest(createUpdateRequest(parentMetacard.getId(), parentMetacard),
+                    update -> {
+                        LOGGER.debug("updated parent metacard: newMetacard={}",
+                                update.getNewMetacard()
+                                        .getId());
+                        context.setParentMetacard(update.getNewMetacard());
+                    });
+            parentUpdatePending = false;
+        } finally {
+            parentLock.unlock();
+        }
+    }
+
+    private void clearPendingParentUpdate() {
+        parentLock.lock();
+        try {
+            parentUpdatePending = false;
+        } finally {
+            parentLock.unlock();
         }
     }
 
@@ -176,10 +251,77 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
     private void submitChildUpdateRequest(UpdateRequest updateRequest)
             throws RolloverActionException {
-        submitUpdateRequestWithRetry(updateRequest,
+        Consumer<Update> updateConsumer =
                 update -> LOGGER.debug("updated child metacard with link to parent: child={}",
                         update.getNewMetacard()
-                                .getId()));
+                                .getId());
+        if (updateScheduler == null) {
+            submitUpdateRequestWithRetry(updateRequest, updateConsumer);
+        } else {
+            scheduleUpdateWithRetry(() -> submitUpdateRequest(updateRequest, updateConsumer),
+                    () -> {
+                    });
+        }
+    }
+
+    /**
+     * Schedule an update after the metacard update initial delay. A failed update is rescheduled
+     * with an exponential backoff until {@link #MAX_RETRY_MILLISECONDS} have elapsed. The update
+     * runs as the stream's security subject.
+     *
+     * @param updateTask the update
+     * @param onGiveUp   called if the update never succeeds
+     */
+    private void scheduleUpdateWithRetry(UpdateTask updateTask, Runnable onGiveUp) {
+        Subject subject = context.getUdpStreamProcessor()
+                .getSubject();
+        scheduleUpdate(() -> runAsSubject(subject, updateTask),
+                onGiveUp,
+                TimeUnit.SECONDS.toMillis(context.getUdpStreamProcessor()
+                        .getMetacardUpdateInitialDelay()),
+                INITIAL_RETRY_WAIT_MILLISECONDS,
+                System.currentTimeMillis());
+    }
+
+    private void scheduleUpdate(UpdateTask updateTask, Runnable onGiveUp, long delay, long wait,
+            long start) {
+        updateScheduler.schedule(() -> {
+            try {
+                updateTask.run();
+            } catch (RolloverActionException | RuntimeException e) {
+                long elapsed = System.currentTimeMillis() - start;
+                if (elapsed > MAX_RETRY_MILLISECONDS) {
+                    LOGGER.debug("failed to update catalog, giving up", e);
+                    onGiveUp.run();
+                } else {
+                    LOGGER.debug("failed to update catalog, will retry in {} milliseconds", wait);
+                    scheduleUpdate(updateTask,
+                            onGiveUp,
+                            wait,
+                            Math.min(wait * 2, MAX_RETRY_MILLISECONDS - elapsed),
+                            start);
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void runAsSubject(Subject subject, UpdateTask updateTask)
+            throws RolloverActionException {
+        if (subject == null) {
+            updateTask.run();
+            return;
+        }
+        try {
+            subject.execute(() -> {
+                updateTask.run();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof RolloverActionException) {
+                throw (RolloverActionException) e.getCause();
+            }
+            throw e;
+        }
     }
 
     /**
@@ -317,4 +459,8 @@ public class CatalogRolloverAction extends BaseRolloverAction {
         }
     }
 
+    private interface UpdateTask {
+        void run() throws RolloverActionException;
+    }
+
 }
@@ -0,0 +1,428 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.rollover;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands rollover files for a single stream to a worker pool so that the thread that detects the
+ * rollover is never blocked by catalog operations. Files for a stream are processed one at a
+ * time and in the order they were submitted, while the worker pool may be shared by many streams.
+ * <p>
+ * The queued chunks are temp files, so only a file reference is held in memory. When more than
+ * {@link #getMaxQueuedChunks()} chunks are waiting, the {@link OverflowPolicy} decides whether
+ * the chunks keep accumulating on disk or the oldest chunk is discarded. Chunks only accumulate on
+ * disk up to {@link #getMaxSpilledBytes()}, after which the oldest chunks are discarded.
+ */
+public class RolloverQueue {
+
+    public static final int DEFAULT_MAX_QUEUED_CHUNKS = 10;
+
+    public static final int MAX_QUEUED_CHUNKS_MIN = 1;
+
+    public static final int MAX_QUEUED_CHUNKS_MAX = 10000;
+
+    public static final long DEFAULT_MAX_SPILLED_BYTES = 1024L * 1024 * 1024;
+
+    public static final long MAX_SPILLED_BYTES_MIN = 0;
+
+    public static final long MAX_SPILLED_BYTES_MAX = Long.MAX_VALUE;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RolloverQueue.class);
+
+    private final Deque<QueuedChunk> queue = new ArrayDeque<>();
+
+    private final Lock lock = new ReentrantLock();
+
+    private final Condition idle = lock.newCondition();
+
+    private final Consumer<File> rolloverHandler;
+
+    private Executor executor;
+
+    private int maxQueuedChunks = DEFAULT_MAX_QUEUED_CHUNKS;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.SPILL_TO_DISK;
+
+    private long maxSpilledBytes = DEFAULT_MAX_SPILLED_BYTES;
+
+    /**
+     * The total size of the queued chunks.
+     */
+    private long queuedBytes = 0;
+
+    /**
+     * <code>true</code> while a worker is processing chunks for this queue.
+     */
+    private boolean draining = false;
+
+    private long submittedCount = 0;
+
+    private long completedCount = 0;
+
+    private long droppedCount = 0;
+
+    private long spilledCount = 0;
+
+    private long totalLatency = 0;
+
+    private long maxLatency = 0;
+
+    /**
+     * @param executor        must be non-null
+     * @param rolloverHandler must be non-null, is responsible for deleting the file
+     */
+    public RolloverQueue(Executor executor, Consumer<File> rolloverHandler) {
+        notNull(executor, "executor must be non-null");
+        notNull(rolloverHandler, "rolloverHandler must be non-null");
+        this.executor = executor;
+        this.rolloverHandler = rolloverHandler;
+    }
+
+    /**
+     * @param executor must be non-null
+     */
+    public void setExecutor(Executor executor) {
+        notNull(executor, "executor must be non-null");
+        this.executor = executor;
+    }
+
+    public int getMaxQueuedChunks() {
+        return maxQueuedChunks;
+    }
+
+    /**
+     * @param maxQueuedChunks must be non-null and &gt;={@link #MAX_QUEUED_CHUNKS_MIN} and &lt;={@link #MAX_QUEUED_CHUNKS_MAX}
+     */
+    public void setMaxQueuedChunks(Integer maxQueuedChunks) {
+        notNull(maxQueuedChunks, "maxQueuedChunks must be non-null");
+        inclusiveBetween(MAX_QUEUED_CHUNKS_MIN,
+                MAX_QUEUED_CHUNKS_MAX,
+                maxQueuedChunks,
+                String.format("maxQueuedChunks must be >=%d and <=%d",
+                        MAX_QUEUED_CHUNKS_MIN,
+                        MAX_QUEUED_CHUNKS_MAX));
+        this.maxQueuedChunks = maxQueuedChunks;
+    }
+
+    public long getMaxSpilledBytes() {
+        return maxSpilledBytes;
+    }
+
+    /**
+     * @param maxSpilledBytes the total size of the queued chunks allowed while the queue holds more
+     *                        than {@link #getMaxQueuedChunks()} chunks with the {@link OverflowPolicy#SPILL_TO_DISK}
+     *                        policy, must be non-null and &gt;={@link #MAX_SPILLED_BYTES_MIN}
+     */
+    public void setMaxSpilledBytes(Long maxSpilledBytes) {
+        notNull(maxSpilledBytes, "maxSpilledBytes must be non-null");
+        inclusiveBetween(MAX_SPILLED_BYTES_MIN,
+                MAX_SPILLED_BYTES_MAX,
+                maxSpilledBytes,
+                String.format("maxSpilledBytes must be >=%d", MAX_SPILLED_BYTES_MIN));
+        this.maxSpilledBytes = maxSpilledBytes;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @param overflowPolicy must be non-null
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        notNull(overflowPolicy, "overflowPolicy must be non-null");
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Queue a rollover file. Returns immediately.
+     *
+     * @param tempFile must be non-null
+     */
+    public void submit(File tempFile) {
+        notNull(tempFile, "tempFile must be non-null");
+
+        boolean startWorker;
+
+        QueuedChunk chunk = new QueuedChunk(tempFile, System.currentTimeMillis());
+
+        lock.lock();
+        try {
+            if (queue.size() >= maxQueuedChunks) {
+                handleOverflow(chunk);
+            }
+            queue.addLast(chunk);
+            queuedBytes += chunk.size;
+            submittedCount++;
+            startWorker = !draining;
+            draining = true;
+        } finally {
+            lock.unlock();
+        }
+
+        if (startWorker) {
+            startWorker();
+        }
+    }
+
+    private void startWorker() {
+        try {
+            executor.execute(this::drain);
+        } catch (RuntimeException e) {
+            // the chunks stay queued and the next submit tries to start a worker again
+            LOGGER.debug("unable to start the rollover worker: queueDepth={}",
+                    getQueueDepth(),
+                    e);
+            lock.lock();
+            try {
+                draining = false;
+                idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void handleOverflow(QueuedChunk chunk) {
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            dropOldest();
+        } else if (queuedBytes + chunk.size > maxSpilledBytes) {
+            LOGGER.debug(
+                    "rollover queue is full and the queued chunks exceed maxSpilledBytes, dropping oldest chunks: queuedBytes={} maxSpilledBytes={}",
+                    queuedBytes,
+                    maxSpilledBytes);
+            while (!queue.isEmpty() && queuedBytes + chunk.size > maxSpilledBytes) {
+                dropOldest();
+            }
+        } else {
+            spilledCount++;
+            LOGGER.debug(
+                    "rollover queue is full, chunk will wait on disk: queueDepth={} maxQueuedChunks={}",
+                    queue.size(),
+                    maxQueuedChunks);
+        }
+    }
+
+    private void dropOldest() {
+        QueuedChunk oldest = queue.removeFirst();
+        queuedBytes -= oldest.size;
+        droppedCount++;
+        LOGGER.debug("rollover queue is full, dropping oldest chunk: tempFile={} queueDepth={}",
+                oldest.file,
+                queue.size());
+        if (!oldest.file.delete()) {
+            LOGGER.debug("unable to delete temp file: filename={}", oldest.file);
+        }
+    }
+
+    /**
+     * Process queued chunks until the queue is empty.
+     */
+    private void drain() {
+        while (true) {
+            QueuedChunk chunk;
+            lock.lock();
+            try {
+                chunk = queue.pollFirst();
+                if (chunk == null) {
+                    draining = false;
+                    idle.signalAll();
+                    return;
+                }
+                queuedBytes -= chunk.size;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                rolloverHandler.accept(chunk.file);
+            } catch (RuntimeException e) {
+                LOGGER.debug("unable to handle rollover file: tempFile={}", chunk.file, e);
+            }
+
+            recordCompletion(System.currentTimeMillis() - chunk.queuedTime);
+        }
+    }
+
+    private void recordCompletion(long latency) {
+        lock.lock();
+        try {
+            completedCount++;
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until all queued chunks have been processed.
+     *
+     * @param timeout  maximum time to wait
+     * @param timeUnit unit of the timeout
+     * @return <code>true</code> if the queue is idle
+     */
+    public boolean awaitIdle(long timeout, TimeUnit timeUnit) {
+        long remaining = timeUnit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (draining) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = idle.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            LOGGER.debug("interrupted while waiting for the rollover queue", e);
+            Thread.currentThread()
+                    .interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of chunks waiting to be processed
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSubmittedCount() {
+        lock.lock();
+        try {
+            return submittedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCompletedCount() {
+        lock.lock();
+        try {
+            return completedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSpilledCount() {
+        lock.lock();
+        try {
+            return spilledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return average milliseconds between submitting a chunk and finishing its rollover
+     */
+    public long getAverageLatency() {
+        lock.lock();
+        try {
+            return completedCount == 0 ? 0 : totalLatency / completedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return maximum milliseconds between submitting a chunk and finishing its rollover
+     */
+    public long getMaxLatency() {
+        lock.lock();
+        try {
+            return maxLatency;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RolloverQueue{" +
+                "maxQueuedChunks=" + maxQueuedChunks +
+                ", overflowPolicy=" + overflowPolicy +
+                ", maxSpilledBytes=" + maxSpilledBytes +
+                ", queueDepth=" + getQueueDepth() +
+                ", submittedCount=" + getSubmittedCount() +
+                ", completedCount=" + getCompletedCount() +
+                ", droppedCount=" + getDroppedCount() +
+                '}';
+    }
+
+    /**
+     * Determines what happens to a new chunk when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Keep the chunk as a temp file on disk until a worker is available, as long as the queued
+         * chunks fit in {@link RolloverQueue#getMaxSpilledBytes()}.
+         */
+        SPILL_TO_DISK,
+
+        /**
+         * Delete the oldest queued chunk to make room for the new chunk.
+         */
+        DROP_OLDEST
+    }
+
+    private static class QueuedChunk {
+
+        private final File file;
+
+        private final long queuedTime;
+
+        private final long size;
+
+        QueuedChunk(File file, long queuedTime) {
+            this.file = file;
+            this.queuedTime = queuedTime;
+            this.size = file.length();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UdpReceiveDropCounterTest {
+
+    private static final String HEADER =
+            "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  timeout inode ref pointer drops";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testDropCount() throws IOException {
+        File udp = temporaryFolder.newFile("udp");
+        Files.write(udp.toPath(),
+                Arrays.asList(HEADER,
+                        " 1: 0100007F:C350 00000000:0000 07 00000000:00000000 00:00000000 00000000     0        0 1001 2 0000000000000000 12",
+                        " 2: 00000000:0044 00000000:0000 07 00000000:00000000 00:00000000 00000000     0        0 1002 2 0000000000000000 99"),
+                StandardCharsets.US_ASCII);
+
+        File udp6 = temporaryFolder.newFile("udp6");
+        Files.write(udp6.toPath(),
+                Arrays.asList(HEADER,
+                        " 1: 00000000000000000000000000000000:C350 00000000000000000000000000000000:0000 07 00000000:00000000 00:00000000 00000000     0        0 1003 2 0000000000000000 3"),
+                StandardCharsets.US_ASCII);
+
+        UdpReceiveDropCounter counter = new UdpReceiveDropCounter(Arrays.asList(udp.toPath(),
+                udp6.toPath()));
+
+        assertThat(counter.getDropCount(50000), is(15L));
+        assertThat(counter.getDropCount(68), is(99L));
+        assertThat(counter.getDropCount(50001), is(UdpReceiveDropCounter.NOT_AVAILABLE));
+    }
+
+    @Test
+    public void testMissingTable() {
+        UdpReceiveDropCounter counter = new UdpReceiveDropCounter(Collections.singletonList(
+                temporaryFolder.getRoot()
+                        .toPath()
+                        .resolve("missing")));
+
+        assertThat(counter.getDropCount(50000), is(UdpReceiveDropCounter.NOT_AVAILABLE));
+    }
+}
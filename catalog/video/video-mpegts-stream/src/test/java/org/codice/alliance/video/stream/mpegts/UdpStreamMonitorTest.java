@@ -17,6 +17,7 @@ import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.List;
@@ -60,6 +61,12 @@ public class UdpStreamMonitorTest {
         udpStreamMonitor.setElapsedTimeRolloverCondition(UdpStreamMonitor.ELAPSED_TIME_MIN - 10);
     }
 
+    @Test
+    public void testSetMaxAggregatePoints() {
+        udpStreamMonitor.setMaxAggregatePoints(100);
+        verify(udpStreamProcessor).setMaxAggregatePoints(100);
+    }
+
     @Test
     public void testSetStartImmediately() {
         assertThat(udpStreamMonitor.getStartImmediately(), is(false));
@@ -203,4 +210,50 @@ public class UdpStreamMonitorTest {
         verify(udpStreamProcessor).setFilenameGenerator(filenameGenerator);
     }
 
+    @Test
+    public void testSetReceiveBufferSize() {
+        assertThat(udpStreamMonitor.getReceiveBufferSize(),
+                is(UdpStreamMonitor.RECEIVE_BUFFER_SIZE_MIN));
+        udpStreamMonitor.setReceiveBufferSize(1 << 20);
+        assertThat(udpStreamMonitor.getReceiveBufferSize(), is(1 << 20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetReceiveBufferSizeBelowRangeArg() {
+        udpStreamMonitor.setReceiveBufferSize(UdpStreamMonitor.RECEIVE_BUFFER_SIZE_MIN - 1);
+    }
+
+    @Test
+    public void testSetMaxDatagramSize() {
+        assertThat(udpStreamMonitor.getMaxDatagramSize(),
+                is(UdpStreamMonitor.DEFAULT_MAX_DATAGRAM_SIZE));
+        udpStreamMonitor.setMaxDatagramSize(UdpStreamMonitor.MAX_DATAGRAM_SIZE_MAX);
+        assertThat(udpStreamMonitor.getMaxDatagramSize(),
+                is(UdpStreamMonitor.MAX_DATAGRAM_SIZE_MAX));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxDatagramSizeBelowRangeArg() {
+        udpStreamMonitor.setMaxDatagramSize(UdpStreamMonitor.MAX_DATAGRAM_SIZE_MIN - 1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetUdpTransportNullArg() {
+        udpStreamMonitor.setUdpTransport(null);
+    }
+
+    @Test
+    public void testGetReceiveDroppedCount() {
+        UdpReceiveDropCounter udpReceiveDropCounter = mock(UdpReceiveDropCounter.class);
+        when(udpReceiveDropCounter.getDropCount(50000)).thenReturn(7L);
+        udpStreamMonitor.setUdpReceiveDropCounter(udpReceiveDropCounter);
+
+        assertThat(udpStreamMonitor.getReceiveDroppedCount(),
+                is(UdpReceiveDropCounter.NOT_AVAILABLE));
+
+        udpStreamMonitor.setMonitoredAddress("udp://127.0.0.1:50000");
+
+        assertThat(udpStreamMonitor.getReceiveDroppedCount(), is(7L));
+    }
+
 }
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+
+public class UdpTransportTest {
+
+    private UdpTransport udpTransport;
+
+    @After
+    public void teardown() {
+        if (udpTransport != null) {
+            udpTransport.shutdown();
+        }
+    }
+
+    @Test
+    public void testNio() {
+        udpTransport = new UdpTransport(1, true);
+        assertThat(udpTransport.getEventLoopGroup(), instanceOf(NioEventLoopGroup.class));
+        assertThat(udpTransport.getHandlerExecutorGroup(),
+                instanceOf(DefaultEventExecutorGroup.class));
+        assertThat(udpTransport.getChannelClass() == NioDatagramChannel.class, is(true));
+        assertThat(udpTransport.getAllocator(), is(PooledByteBufAllocator.DEFAULT));
+    }
+
+    @Test
+    public void testUnpooledAllocator() {
+        udpTransport = new UdpTransport(1, false);
+        assertThat(udpTransport.getAllocator(), is(UnpooledByteBufAllocator.DEFAULT));
+    }
+
+    @Test
+    public void testConfigure() {
+        udpTransport = new UdpTransport();
+        Bootstrap bootstrap = new Bootstrap();
+        assertThat(udpTransport.configure(bootstrap), is(bootstrap));
+        assertThat(bootstrap.group(), is(udpTransport.getEventLoopGroup()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreadCount() {
+        new UdpTransport(-1, true);
+    }
+}
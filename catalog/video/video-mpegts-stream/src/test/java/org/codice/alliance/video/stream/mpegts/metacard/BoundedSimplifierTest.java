@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metacard;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class BoundedSimplifierTest {
+
+    @Test
+    public void testWithinBound() {
+        Geometry geometry = createLineString(10);
+        assertThat(BoundedSimplifier.simplify(geometry, 10), sameInstance(geometry));
+    }
+
+    @Test
+    public void testExceedsBound() {
+        Geometry geometry = createLineString(1000);
+        Geometry simplified = BoundedSimplifier.simplify(geometry, 100);
+        assertThat(simplified.getNumPoints(), lessThanOrEqualTo(100));
+        assertThat(simplified.getCoordinates()[0], is(geometry.getCoordinates()[0]));
+    }
+
+    private Geometry createLineString(int pointCount) {
+        Coordinate[] coordinates = new Coordinate[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            coordinates[i] = new Coordinate(i * 0.001, (i % 2) * 0.00001);
+        }
+        return new GeometryFactory().createLineString(coordinates);
+    }
+}
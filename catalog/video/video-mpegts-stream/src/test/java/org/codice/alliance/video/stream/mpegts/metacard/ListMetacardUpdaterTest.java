@@ -21,6 +21,8 @@ import static org.mockito.Mockito.verify;
 import java.util.Arrays;
 import java.util.Collections;
 
+import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.junit.Test;
 
 import ddf.catalog.data.Metacard;
@@ -46,6 +48,26 @@ public class ListMetacardUpdaterTest {
 
     }
 
+    @Test
+    public void testUpdateWithContext() {
+
+        MetacardUpdater updater1 = mock(MetacardUpdater.class);
+        MetacardUpdater updater2 = mock(MetacardUpdater.class);
+
+        ListMetacardUpdater listMetacardUpdater = new ListMetacardUpdater(Arrays.asList(updater1,
+                updater2));
+
+        Metacard parent = mock(Metacard.class);
+        Metacard child = mock(Metacard.class);
+        Context context = new Context(mock(UdpStreamProcessor.class));
+
+        listMetacardUpdater.update(parent, child, context);
+
+        verify(updater1).update(parent, child, context);
+        verify(updater2).update(parent, child, context);
+
+    }
+
     @Test
     public void testToString() {
         ListMetacardUpdater listMetacardUpdater = new ListMetacardUpdater(Collections.emptyList());
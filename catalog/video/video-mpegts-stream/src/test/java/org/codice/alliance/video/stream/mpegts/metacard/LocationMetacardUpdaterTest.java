@@ -16,11 +16,24 @@ package org.codice.alliance.video.stream.mpegts.metacard;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
 
 public class LocationMetacardUpdaterTest {
 
@@ -33,6 +46,24 @@ public class LocationMetacardUpdaterTest {
                 is(GeometryOperator.IDENTITY));
     }
 
+    @Test
+    public void testSetMaxAggregatePoints() {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        updater.setMaxAggregatePoints(LocationMetacardUpdater.MAX_AGGREGATE_POINTS_MIN);
+        assertThat(updater.getMaxAggregatePoints(),
+                is(LocationMetacardUpdater.MAX_AGGREGATE_POINTS_MIN));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetMaxAggregatePointsNullArg() {
+        new LocationMetacardUpdater().setMaxAggregatePoints(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetMaxAggregatePointsBelowRangeArg() {
+        new LocationMetacardUpdater().setMaxAggregatePoints(0);
+    }
+
     @Test
     public void testToString() {
         assertThat(new LocationMetacardUpdater().toString(), notNullValue());
@@ -56,4 +87,76 @@ public class LocationMetacardUpdaterTest {
         verify(visitor).visit(updater);
     }
 
+    @Test
+    public void testChildOnly() {
+        Metacard parent = mock(Metacard.class);
+        Metacard child = mock(Metacard.class);
+        String childWkt = "POLYGON (( 0 0, 1 0, 1 1, 0 1, 0 0 ))";
+        when(child.getLocation()).thenReturn(childWkt);
+
+        new LocationMetacardUpdater().update(parent, child);
+
+        ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+        verify(parent).setAttribute(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue()
+                .getValue(), is(childWkt));
+    }
+
+    @Test
+    public void testContextAggregatesChildren() throws ParseException {
+        Context context = new Context(mock(UdpStreamProcessor.class));
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+
+        Metacard parent = mock(Metacard.class);
+        Metacard child1 = mock(Metacard.class);
+        Metacard child2 = mock(Metacard.class);
+        when(child1.getLocation()).thenReturn("POLYGON (( 0 0, 1 0, 1 1, 0 1, 0 0 ))");
+        when(child2.getLocation()).thenReturn("POLYGON (( 1 0, 2 0, 2 1, 1 1, 1 0 ))");
+
+        updater.update(parent, child1, context);
+        updater.update(parent, child2, context);
+
+        verify(parent, never()).setAttribute(any(Attribute.class));
+
+        context.writeParentAggregates(parent);
+        context.writeParentAggregates(parent);
+
+        ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+        verify(parent, times(1)).setAttribute(argumentCaptor.capture());
+        assertThat(new WKTReader().read((String) argumentCaptor.getValue()
+                .getValue())
+                .getArea(), is(2.0));
+    }
+
+    @Test
+    public void testContextAggregatesManyChildren() throws ParseException {
+        Context context = new Context(mock(UdpStreamProcessor.class));
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        updater.setPreUnionDistanceTolerance(0.0001);
+
+        Metacard parent = mock(Metacard.class);
+
+        int childCount = 600;
+        for (int i = 0; i < childCount; i++) {
+            Metacard child = mock(Metacard.class);
+            when(child.getLocation()).thenReturn(String.format(
+                    "POLYGON (( %d 0, %d 0, %d 1, %d 1, %d 0 ))",
+                    i,
+                    i + 1,
+                    i + 1,
+                    i,
+                    i));
+            updater.update(parent, child, context);
+        }
+
+        context.writeParentAggregates(parent);
+
+        ArgumentCaptor<Attribute> argumentCaptor = ArgumentCaptor.forClass(Attribute.class);
+        verify(parent).setAttribute(argumentCaptor.capture());
+        assertThat(new WKTReader().read((String) argumentCaptor.getValue()
+                .getValue())
+                .getArea(), is((double) childCount));
+        assertThat(updater.getPreUnionDistanceTolerance(), is(0.0001));
+    }
+
 }
@@ -17,6 +17,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -28,8 +29,11 @@ import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.codice.alliance.libs.klv.AttributeNameConstants;
@@ -312,4 +316,40 @@ public class CatalogRolloverActionTest {
 
     }
 
+    /**
+     * With an update scheduler, the updates are not submitted by doAction. The second child is
+     * merged into the pending parent update, so only one parent update is submitted.
+     */
+    @Test
+    public void testScheduledParentUpdatesAreCoalesced()
+            throws RolloverActionException, SourceUnavailableException, IngestException {
+
+        List<Runnable> scheduledTasks = new LinkedList<>();
+        ScheduledExecutorService updateScheduler = mock(ScheduledExecutorService.class);
+        when(updateScheduler.schedule(any(Runnable.class),
+                anyLong(),
+                any(TimeUnit.class))).then(invocation -> {
+            scheduledTasks.add((Runnable) invocation.getArguments()[0]);
+            return null;
+        });
+
+        catalogRolloverAction.setUpdateScheduler(updateScheduler);
+
+        when(catalogFramework.update(any(UpdateRequest.class))).thenReturn(childUpdateResponse)
+                .thenReturn(parentUpdateResponse)
+                .thenReturn(childUpdateResponse);
+
+        catalogRolloverAction.doAction(tempFile);
+        catalogRolloverAction.doAction(tempFile);
+
+        verify(catalogFramework, times(0)).update(any(UpdateRequest.class));
+
+        while (!scheduledTasks.isEmpty()) {
+            scheduledTasks.remove(0)
+                    .run();
+        }
+
+        verify(catalogFramework, times(3)).update(any(UpdateRequest.class));
+    }
+
 }
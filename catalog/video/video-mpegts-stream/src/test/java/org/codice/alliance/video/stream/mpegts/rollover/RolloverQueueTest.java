@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.rollover;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RolloverQueueTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<Runnable> pendingTasks;
+
+    private List<File> handledFiles;
+
+    private RolloverQueue rolloverQueue;
+
+    @Before
+    public void setup() {
+        pendingTasks = new LinkedList<>();
+        handledFiles = new LinkedList<>();
+        rolloverQueue = new RolloverQueue(pendingTasks::add, handledFiles::add);
+    }
+
+    @Test
+    public void testSubmitIsHandledInOrder() throws IOException {
+        File file1 = temporaryFolder.newFile();
+        File file2 = temporaryFolder.newFile();
+
+        rolloverQueue.submit(file1);
+        rolloverQueue.submit(file2);
+
+        assertThat(pendingTasks.size(), is(1));
+        assertThat(rolloverQueue.getQueueDepth(), is(2));
+
+        pendingTasks.remove(0)
+                .run();
+
+        assertThat(handledFiles, contains(file1, file2));
+        assertThat(rolloverQueue.getQueueDepth(), is(0));
+        assertThat(rolloverQueue.getCompletedCount(), is(2L));
+        assertThat(rolloverQueue.awaitIdle(0, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void testDropOldest() throws IOException {
+        File file1 = temporaryFolder.newFile();
+        File file2 = temporaryFolder.newFile();
+
+        rolloverQueue.setMaxQueuedChunks(1);
+        rolloverQueue.setOverflowPolicy(RolloverQueue.OverflowPolicy.DROP_OLDEST);
+
+        rolloverQueue.submit(file1);
+        rolloverQueue.submit(file2);
+
+        pendingTasks.remove(0)
+                .run();
+
+        assertThat(handledFiles, contains(file2));
+        assertThat(file1.exists(), is(false));
+        assertThat(rolloverQueue.getDroppedCount(), is(1L));
+    }
+
+    @Test
+    public void testSpillToDisk() throws IOException {
+        File file1 = temporaryFolder.newFile();
+        File file2 = temporaryFolder.newFile();
+
+        rolloverQueue.setMaxQueuedChunks(1);
+
+        rolloverQueue.submit(file1);
+        rolloverQueue.submit(file2);
+
+        pendingTasks.remove(0)
+                .run();
+
+        assertThat(handledFiles, contains(file1, file2));
+        assertThat(rolloverQueue.getSpilledCount(), is(1L));
+        assertThat(rolloverQueue.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    public void testSpillToDiskDropsOldestOverMaxSpilledBytes() throws IOException {
+        File file1 = newFile(10);
+        File file2 = newFile(10);
+        File file3 = newFile(10);
+
+        rolloverQueue.setMaxQueuedChunks(1);
+        rolloverQueue.setMaxSpilledBytes(25L);
+
+        rolloverQueue.submit(file1);
+        rolloverQueue.submit(file2);
+        rolloverQueue.submit(file3);
+
+        pendingTasks.remove(0)
+                .run();
+
+        assertThat(handledFiles, contains(file2, file3));
+        assertThat(file1.exists(), is(false));
+        assertThat(rolloverQueue.getSpilledCount(), is(1L));
+        assertThat(rolloverQueue.getDroppedCount(), is(1L));
+    }
+
+    @Test
+    public void testRejectedWorkerIsRetried() throws IOException {
+        List<Runnable> acceptedTasks = new LinkedList<>();
+        boolean[] reject = {true};
+        rolloverQueue.setExecutor(task -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException();
+            }
+            acceptedTasks.add(task);
+        });
+        File file1 = temporaryFolder.newFile();
+        File file2 = temporaryFolder.newFile();
+
+        rolloverQueue.submit(file1);
+        assertThat(rolloverQueue.awaitIdle(0, TimeUnit.SECONDS), is(true));
+
+        reject[0] = false;
+        rolloverQueue.submit(file2);
+        acceptedTasks.remove(0)
+                .run();
+
+        assertThat(handledFiles, contains(file1, file2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxSpilledBytesTooSmall() {
+        rolloverQueue.setMaxSpilledBytes(-1L);
+    }
+
+    @Test
+    public void testAwaitIdleTimeout() throws IOException {
+        rolloverQueue.submit(temporaryFolder.newFile());
+
+        assertThat(rolloverQueue.awaitIdle(1, TimeUnit.MILLISECONDS), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxQueuedChunksTooSmall() {
+        rolloverQueue.setMaxQueuedChunks(0);
+    }
+
+    private File newFile(int size) throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), new byte[size]);
+        return file;
+    }
+
+}
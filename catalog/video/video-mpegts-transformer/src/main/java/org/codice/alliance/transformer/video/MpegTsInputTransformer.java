@@ -23,12 +23,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.codice.alliance.libs.klv.AttributeNameConstants;
+import org.codice.alliance.libs.klv.GeoBoxHandler;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
 import org.codice.alliance.libs.klv.KlvProcessor;
+import org.codice.alliance.libs.klv.LocationKlvProcessor;
 import org.codice.alliance.libs.klv.Stanag4609ParseException;
 import org.codice.alliance.libs.klv.Stanag4609Parser;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
@@ -36,7 +42,7 @@ import org.codice.alliance.libs.klv.StanagParserFactory;
 import org.codice.alliance.libs.mpegts.MpegStreamType;
 import org.codice.alliance.libs.mpegts.PESPacket;
 import org.codice.alliance.libs.mpegts.TSStream;
-import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.mpegts.TransportStreamDemuxer;
 import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +85,8 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     private Function<MpegStreamType, String> streamTypeToString = MpegStreamType::toString;
 
+    private boolean singlePass = true;
+
     /**
      * @param inputTransformer    inner input transformer (must be non-null)
      * @param metacardTypes       list of usable metacard types (must be non-null)
@@ -115,6 +123,20 @@ public class MpegTsInputTransformer implements InputTransformer {
         this.subsampleCount = subsampleCount;
     }
 
+    /**
+     * @param singlePass if true, the transport stream is demultiplexed while the inner transformer
+     *                   reads it, otherwise the stream is copied to a temporary file that is read
+     *                   once by the inner transformer, once for the KLV metadata and once for the
+     *                   stream types (may be null, defaults to true)
+     */
+    public void setSinglePass(Boolean singlePass) {
+        this.singlePass = singlePass == null || singlePass;
+    }
+
+    public boolean isSinglePass() {
+        return singlePass;
+    }
+
     /**
      * @param distanceTolerance may be null, must be non-negative
      */
@@ -138,6 +160,10 @@ public class MpegTsInputTransformer implements InputTransformer {
 
         LOGGER.debug("processing video input for id = {}", id);
 
+        if (singlePass) {
+            return transformSinglePass(inputStream, id);
+        }
+
         try (TemporaryFileBackedOutputStream fileBackedOutputStream = new TemporaryFileBackedOutputStream()) {
 
             populateFileBackedOutputStream(inputStream, fileBackedOutputStream);
@@ -153,12 +179,62 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     }
 
+    /**
+     * Demultiplex the transport stream while the inner transformer reads it. The PESPackets are
+     * passed to a single collector that decodes the KLV metadata and records the stream types,
+     * so the content is read exactly once and is not copied to a temporary file. The bytes that
+     * the inner transformer does not read are drained through the demultiplexer. Each decoded KLV
+     * metadata packet is passed to the handlers immediately and is not retained.
+     */
+    private Metacard transformSinglePass(InputStream inputStream, String id)
+            throws IOException, CatalogTransformerException {
+
+        Map<String, KlvHandler> handlers = createKlvHandlers();
+
+        MpegTsMetadataCollector collector =
+                new MpegTsMetadataCollector((packetId, packet) -> stanag4609Processor.handle(
+                        handlers,
+                        defaultKlvHandler,
+                        packet));
+
+        MetacardImpl metacard;
+        try (TransportStreamDemuxer demuxer = new TransportStreamDemuxer(collector);
+                InputStream teeInputStream = new NonResettableTeeInputStream(inputStream,
+                        demuxer)) {
+
+            metacard = extractInnerTransformerMetadata(id, teeInputStream);
+
+            drainInputStream(teeInputStream);
+        }
+
+        processKlvHandlers(handlers, metacard);
+
+        setMediaEncodings(metacard,
+                collector.getStreamTypes()
+                        .stream());
+
+        return metacard;
+    }
+
+    private void drainInputStream(InputStream inputStream) throws CatalogTransformerException {
+        try {
+            long c = IOUtils.copyLarge(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+            LOGGER.debug("demultiplexed {} bytes that were not read by the inner transformer", c);
+        } catch (IOException e) {
+            throw new CatalogTransformerException("Could not read bytes of content message.", e);
+        }
+    }
+
     private void extractMediaEncodings(Metacard metacard, TemporaryFileBackedOutputStream fbos)
             throws IOException {
+        setMediaEncodings(metacard,
+                TSStream.from(fbos.asByteSource())
+                        .map(PESPacket::getStreamType));
+    }
+
+    private void setMediaEncodings(Metacard metacard, Stream<MpegStreamType> streamTypes) {
 
-        List<Serializable> serializables = TSStream.from(fbos.asByteSource())
-                .map(PESPacket::getStreamType)
-                .distinct()
+        List<Serializable> serializables = streamTypes.distinct()
                 .map(streamTypeToString)
                 .collect(Collectors.<Serializable>toList());
 
@@ -193,20 +269,25 @@ public class MpegTsInputTransformer implements InputTransformer {
 
         try (InputStream inputStream = fileBackedOutputStream.asByteSource()
                 .openStream()) {
+            return extractInnerTransformerMetadata(id, inputStream);
+        }
+    }
 
-            MetacardType metacardType = metacardTypes.stream()
-                    .findFirst()
-                    .orElseThrow(() -> new CatalogTransformerException(
-                            "no matching metacard type found! id = " + id));
+    private MetacardImpl extractInnerTransformerMetadata(String id, InputStream inputStream)
+            throws IOException, CatalogTransformerException {
 
-            Metacard innerMetacard = innerTransformer.transform(inputStream, id);
+        MetacardType metacardType = metacardTypes.stream()
+                .findFirst()
+                .orElseThrow(() -> new CatalogTransformerException(
+                        "no matching metacard type found! id = " + id));
 
-            MetacardImpl metacard = new MetacardImpl(innerMetacard, metacardType);
+        Metacard innerMetacard = innerTransformer.transform(inputStream, id);
 
-            metacard.setContentTypeName(CONTENT_TYPE);
+        MetacardImpl metacard = new MetacardImpl(innerMetacard, metacardType);
 
-            return metacard;
-        }
+        metacard.setContentTypeName(CONTENT_TYPE);
+
+        return metacard;
     }
 
     private void extractStanag4609Metadata(MetacardImpl metacard,
@@ -214,16 +295,41 @@ public class MpegTsInputTransformer implements InputTransformer {
 
         Stanag4609Parser stanag4609Parser = stanagParserFactory.createParser(fbos.asByteSource());
 
-        Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata;
+        Map<String, KlvHandler> handlers = createKlvHandlers();
+
         try {
-            decodedMetadata = stanag4609Parser.parse();
+            stanag4609Parser.parse((packetId, packet) -> stanag4609Processor.handle(handlers,
+                    defaultKlvHandler,
+                    packet));
         } catch (Stanag4609ParseException e) {
             throw new CatalogTransformerException("failed to extract STANAG 4609 metadata", e);
         }
 
+        processKlvHandlers(handlers, metacard);
+    }
+
+    /**
+     * Create the KLV handlers. The corner handler only needs to keep enough values for the
+     * location subsample, so it is bounded to twice the subsample count.
+     */
+    private Map<String, KlvHandler> createKlvHandlers() {
+
         Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
 
-        stanag4609Processor.handle(handlers, defaultKlvHandler, decodedMetadata);
+        if (subsampleCount != null && subsampleCount >= LocationKlvProcessor.MIN_SUBSAMPLE_COUNT) {
+            handlers.values()
+                    .stream()
+                    .filter(GeoBoxHandler.class::isInstance)
+                    .map(GeoBoxHandler.class::cast)
+                    .filter(handler -> AttributeNameConstants.CORNER.equals(
+                            handler.getAttributeName()))
+                    .forEach(handler -> handler.setMaxSize(subsampleCount * 2));
+        }
+
+        return handlers;
+    }
+
+    private void processKlvHandlers(Map<String, KlvHandler> handlers, MetacardImpl metacard) {
 
         KlvProcessor.Configuration klvProcessConfiguration = new KlvProcessor.Configuration();
         klvProcessConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, subsampleCount);
@@ -232,4 +338,52 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     }
 
+    /**
+     * Copies the bytes that are read to the demultiplexer. The inner transformer may close the
+     * stream, but the caller's stream is left open so that the remaining bytes can be drained.
+     * Mark and reset are not supported, because a reset would send the same bytes to the
+     * demultiplexer twice. Skipped bytes are read, so that they are demultiplexed as well.
+     */
+    private static class NonResettableTeeInputStream extends TeeInputStream {
+
+        private static final int SKIP_BUFFER_SIZE = 4096;
+
+        private byte[] skipBuffer;
+
+        NonResettableTeeInputStream(InputStream inputStream, TransportStreamDemuxer demuxer) {
+            super(new CloseShieldInputStream(inputStream), demuxer);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            // mark is not supported
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("mark/reset is not supported");
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (skipBuffer == null) {
+                skipBuffer = new byte[SKIP_BUFFER_SIZE];
+            }
+            long remaining = n;
+            while (remaining > 0) {
+                int count = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, remaining));
+                if (count < 0) {
+                    break;
+                }
+                remaining -= count;
+            }
+            return n - remaining;
+        }
+    }
+
 }
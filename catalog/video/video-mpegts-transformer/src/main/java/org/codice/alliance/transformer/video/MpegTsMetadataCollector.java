@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.codice.alliance.libs.mpegts.MpegStreamType;
+import org.codice.alliance.libs.mpegts.PESPacket;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.PESUtilities;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvDecoder;
+
+/**
+ * Collects the stream types from the PESPackets of a single demultiplexing pass over a transport
+ * stream, and passes each decoded KLV metadata packet to a callback as soon as it is decoded.
+ */
+class MpegTsMetadataCollector implements Consumer<PESPacket> {
+
+    private final Set<MpegStreamType> streamTypes = new LinkedHashSet<>();
+
+    private final KlvDecoder klvDecoder =
+            new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT);
+
+    private final BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback;
+
+    /**
+     * @param metadataCallback called with the packet ID of the metadata stream and each decoded
+     *                         KLV metadata packet (must be non-null)
+     */
+    MpegTsMetadataCollector(BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback) {
+        notNull(metadataCallback, "metadataCallback must be non-null");
+        this.metadataCallback = metadataCallback;
+    }
+
+    @Override
+    public void accept(PESPacket pesPacket) {
+        streamTypes.add(pesPacket.getStreamType());
+        if (PESUtilities.isMetadataPacket(pesPacket.getPayload())) {
+            Stanag4609TransportStreamParser.handleMetadataPacket(pesPacket.getPacketId(),
+                    pesPacket.getPayload(),
+                    klvDecoder,
+                    metadataCallback);
+        }
+    }
+
+    /**
+     * @return the distinct stream types, in the order in which they were encountered
+     */
+    Set<MpegStreamType> getStreamTypes() {
+        return Collections.unmodifiableSet(streamTypes);
+    }
+
+}
@@ -14,36 +14,56 @@
 package org.codice.alliance.transformer.video;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.FrameCenterKlvProcessor;
 import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.libs.klv.ImageCoordSystemKlvProcessor;
+import org.codice.alliance.libs.klv.ImageSourceSensorKlvProcessor;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
+import org.codice.alliance.libs.klv.KlvHandlerFactoryImpl;
 import org.codice.alliance.libs.klv.KlvProcessor;
 import org.codice.alliance.libs.klv.ListKlvProcessor;
 import org.codice.alliance.libs.klv.LocationKlvProcessor;
+import org.codice.alliance.libs.klv.LoggingKlvHandler;
+import org.codice.alliance.libs.klv.MissionIdKlvProcessor;
+import org.codice.alliance.libs.klv.PlatformDesignationKlvProcessor;
 import org.codice.alliance.libs.klv.SimplifyGeometryFunction;
 import org.codice.alliance.libs.klv.Stanag4609ParseException;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
+import org.codice.alliance.libs.klv.Stanag4609ProcessorImpl;
 import org.codice.alliance.libs.klv.StanagParserFactory;
+import org.codice.alliance.libs.klv.StanagParserFactoryImpl;
+import org.codice.alliance.libs.klv.TrimmingPostProcessor;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.MetacardType;
 import ddf.catalog.data.impl.BasicTypes;
@@ -55,6 +75,48 @@ public class MpegTsInputTransformerTest {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MpegTsInputTransformerTest.class);
 
+    private static final int PMT_PID = 0x1000;
+
+    private static final int VIDEO_PID = 0x100;
+
+    private static final int KLV_PID = 0x101;
+
+    private static final int STREAM_TYPE_H264 = 0x1B;
+
+    private static final int STREAM_TYPE_PRIVATE_DATA = 0x06;
+
+    private static final byte[] VIDEO_PES_PACKET =
+            new byte[] {0x00, 0x00, 0x01, (byte) 0xe0, 0x00, 0x00, (byte) 0x80, 0x00, 0x00, 0x00,
+                    0x00, 0x00, 0x01, 0x09, (byte) 0xf0};
+
+    /**
+     * An asynchronous KLV metadata packet, see the STANAG 4609 MetadataPacketTest.
+     */
+    private static final byte[] KLV_PES_PACKET = new byte[] {
+            0x00, 0x00, 0x01, (byte) 0xbd, 0x01, 0x08, (byte) 0x84, (byte) 0x80, 0x05, 0x21, 0x00,
+            0x09, 0x41, (byte) 0xd9, 0x06, 0x0e, 0x2b, 0x34, 0x02, 0x0b, 0x01, 0x01, 0x0e, 0x01,
+            0x03, 0x01, 0x01, 0x00, 0x00, 0x00, (byte) 0x82, 0x00, (byte) 0xed, 0x02, 0x08, 0x00,
+            0x04, (byte) 0xe4, (byte) 0xea, (byte) 0xad, 0x53, (byte) 0xfb, 0x48, 0x03, 0x05, 0x30,
+            0x30, 0x30, 0x30, 0x31, 0x04, 0x03, 0x30, 0x30, 0x31, 0x05, 0x02, 0x5a, (byte) 0xb6,
+            0x06, 0x02, 0x00, 0x00, 0x07, 0x02, 0x00, 0x00, 0x0a, 0x08, 0x56, 0x52, 0x53, 0x47,
+            0x20, 0x35, 0x2e, 0x36, 0x0b, 0x18, 0x56, 0x52, 0x53, 0x47, 0x20, 0x56, 0x35, 0x2e,
+            0x36, 0x2e, 0x37, 0x32, 0x20, 0x41, 0x70, 0x72, 0x20, 0x20, 0x37, 0x20, 0x32, 0x30,
+            0x31, 0x31, 0x0c, 0x0e, 0x47, 0x65, 0x6f, 0x64, 0x65, 0x74, 0x69, 0x63, 0x20, 0x57,
+            0x47, 0x53, 0x38, 0x34, 0x0d, 0x04, 0x30, (byte) 0xf7, 0x04, (byte) 0xea, 0x0e, 0x04,
+            0x31, 0x2d, (byte) 0xb4, 0x76, 0x0f, 0x02, 0x3f, 0x08, 0x10, 0x02, 0x03, (byte) 0x89,
+            0x11, 0x02, 0x02, (byte) 0xa7, 0x12, 0x04, 0x06, (byte) 0xfd, 0x6b, (byte) 0xff, 0x13,
+            0x04, (byte) 0xd7, (byte) 0xc3, 0x3c, (byte) 0xce, 0x14, 0x04, 0x00, 0x00, 0x00, 0x00,
+            0x15, 0x04, 0x00, 0x21, (byte) 0xac, 0x7e, 0x16, 0x02, 0x02, (byte) 0xdb, 0x17, 0x04,
+            0x30, (byte) 0xf3, (byte) 0x98, 0x3a, 0x18, 0x04, 0x31, 0x2f, (byte) 0x99, 0x59, 0x19,
+            0x02, 0x23, 0x72, 0x1a, 0x02, (byte) 0xff, (byte) 0xfe, 0x1b, 0x02, 0x01, 0x6e, 0x1c,
+            0x02, (byte) 0xfe, (byte) 0xc7, 0x1d, 0x02, (byte) 0xff, (byte) 0xee, 0x1e, 0x02,
+            (byte) 0xff, (byte) 0xf8, 0x1f, 0x02, (byte) 0xfe, (byte) 0xa6, 0x20, 0x02, 0x01, 0x22,
+            0x21, 0x02, 0x00, 0x22, 0x30, 0x20, 0x01, 0x01, 0x01, 0x02, 0x01, 0x01, 0x03, 0x04,
+            0x2f, 0x2f, 0x55, 0x53, 0x06, 0x05, 0x43, 0x41, 0x20, 0x55, 0x53, 0x0c, 0x01, 0x01,
+            0x0d, 0x04, 0x2f, 0x2f, 0x55, 0x53, 0x16, 0x02, 0x00, 0x07, 0x41, 0x01, 0x01, 0x48,
+            0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x02, (byte) 0xb7,
+            (byte) 0x8d};
+
     private List<MetacardType> metacardTypes;
 
     private Stanag4609Processor stanag4609Processor;
@@ -136,6 +198,8 @@ public class MpegTsInputTransformerTest {
                 stanagParserFactory,
                 klvProcessor);
 
+        t.setSinglePass(false);
+
         try (InputStream inputStream = new ByteArrayInputStream(new byte[] {})) {
             t.transform(inputStream);
         }
@@ -160,6 +224,108 @@ public class MpegTsInputTransformerTest {
 
     }
 
+    @Test
+    public void testMultiPassInputStreamReadError() throws Exception {
+
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor);
+
+        t.setSinglePass(false);
+
+        InputStream inputStream = mock(InputStream.class);
+        when(inputStream.read(any())).thenThrow(new IOException());
+
+        try {
+            t.transform(inputStream);
+            fail("expected a CatalogTransformerException");
+        } catch (CatalogTransformerException e) {
+            verify(stanagParserFactory, never()).createParser(any());
+        }
+
+    }
+
+    /**
+     * In single pass mode the inner transformer reads the content and the stanag parser is not
+     * used. The bytes that the inner transformer does not read are still consumed.
+     */
+    @Test
+    public void testSinglePass() throws Exception {
+
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor);
+
+        assertThat(t.isSinglePass(), is(true));
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(new byte[1024]);
+
+        Metacard finalMetacard = t.transform(inputStream);
+
+        assertThat(inputStream.available(), is(0));
+        assertThat(finalMetacard.getContentTypeName(), is(MpegTsInputTransformer.CONTENT_TYPE));
+        assertThat(finalMetacard.getAttribute(AttributeNameConstants.MEDIA_ENCODING)
+                .getValues(), is(empty()));
+        verify(stanagParserFactory, never()).createParser(any());
+        verify(klvProcessor).process(any(), eq(finalMetacard), any());
+
+    }
+
+    /**
+     * In multi pass mode each decoded packet is passed to the processor as it is parsed.
+     */
+    @Test
+    public void testMultiPassHandlesEachPacket() throws Exception {
+
+        DecodedKLVMetadataPacket packet1 = mock(DecodedKLVMetadataPacket.class);
+        DecodedKLVMetadataPacket packet2 = mock(DecodedKLVMetadataPacket.class);
+
+        when(streamParser.parse()).thenReturn(Collections.singletonMap(1,
+                Arrays.asList(packet1, packet2)));
+
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor);
+
+        t.setSinglePass(false);
+
+        try (InputStream inputStream = new ByteArrayInputStream(new byte[] {})) {
+            t.transform(inputStream);
+        }
+
+        verify(stanag4609Processor).handle(any(), eq(defaultKlvHandler), eq(packet1));
+        verify(stanag4609Processor).handle(any(), eq(defaultKlvHandler), eq(packet2));
+        verify(klvProcessor).process(any(), any(), any());
+
+    }
+
+    @Test
+    public void testSetSinglePass() {
+        MpegTsInputTransformer t = new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor);
+        t.setSinglePass(false);
+        assertThat(t.isSinglePass(), is(false));
+        t.setSinglePass(null);
+        assertThat(t.isSinglePass(), is(true));
+    }
+
     @Test
     public void testSetDistanceTolerance() {
         SimplifyGeometryFunction geometryFunction1 = new SimplifyGeometryFunction();
@@ -184,4 +350,164 @@ public class MpegTsInputTransformerTest {
                 .get(), closeTo(value, 0.1));
 
     }
-}
\ No newline at end of file
+
+    /**
+     * The single pass metacard of a transport stream with KLV metadata is the same as the multi
+     * pass metacard, even if the inner transformer skips part of the content.
+     */
+    @Test
+    public void testSinglePassMatchesMultiPass() throws Exception {
+
+        byte[] transportStream = createTransportStream();
+
+        Metacard multiPassMetacard = createKlvTransformer(false).transform(new ByteArrayInputStream(
+                transportStream));
+
+        Metacard singlePassMetacard = createKlvTransformer(true).transform(new ByteArrayInputStream(
+                transportStream));
+
+        assertThat(multiPassMetacard.getAttribute(AttributeNameConstants.MISSION_ID)
+                .getValue(), is("00001"));
+
+        for (String attributeName : Arrays.asList(AttributeNameConstants.MISSION_ID,
+                AttributeNameConstants.PLATFORM_DESIGNATION,
+                AttributeNameConstants.IMAGE_SOURCE_SENSOR,
+                AttributeNameConstants.IMAGE_COORDINATE_SYSTEM,
+                AttributeNameConstants.MEDIA_ENCODING)) {
+            assertThat(attributeName,
+                    getValues(singlePassMetacard, attributeName),
+                    is(getValues(multiPassMetacard, attributeName)));
+        }
+
+    }
+
+    /**
+     * Create a transformer with the KLV handlers and processors used in production, and an inner
+     * transformer that skips most of the content like a transformer that only reads the parts it
+     * needs.
+     */
+    private MpegTsInputTransformer createKlvTransformer(boolean singlePass) throws Exception {
+        InputTransformer skippingTransformer = mock(InputTransformer.class);
+        when(skippingTransformer.transform(any(), any())).thenAnswer(invocation -> {
+            InputStream inputStream = (InputStream) invocation.getArguments()[0];
+            inputStream.read(new byte[10]);
+            inputStream.skip(4 * 188);
+            return new MetacardImpl(BasicTypes.BASIC_METACARD);
+        });
+
+        MpegTsInputTransformer t = new MpegTsInputTransformer(skippingTransformer,
+                Collections.singletonList(BasicTypes.BASIC_METACARD),
+                new Stanag4609ProcessorImpl(new TrimmingPostProcessor()),
+                new KlvHandlerFactoryImpl(),
+                new LoggingKlvHandler(),
+                new StanagParserFactoryImpl(),
+                new ListKlvProcessor(Arrays.asList(new MissionIdKlvProcessor(),
+                        new PlatformDesignationKlvProcessor(),
+                        new ImageSourceSensorKlvProcessor(),
+                        new ImageCoordSystemKlvProcessor())));
+        t.setSinglePass(singlePass);
+        return t;
+    }
+
+    private List<?> getValues(Metacard metacard, String attributeName) {
+        Attribute attribute = metacard.getAttribute(attributeName);
+        return attribute == null ? null : attribute.getValues();
+    }
+
+    private byte[] createTransportStream() {
+        TransportStreamBuilder builder = new TransportStreamBuilder();
+
+        builder.addSection(0, new byte[] {0x00, (byte) 0xb0, 0x0d, 0x00, 0x01, (byte) 0xc1, 0x00,
+                0x00, 0x00, 0x01, (byte) (0xe0 | PMT_PID >> 8), (byte) PMT_PID});
+
+        builder.addSection(PMT_PID, new byte[] {0x02, (byte) 0xb0, 0x17, 0x00, 0x01, (byte) 0xc1,
+                0x00, 0x00, (byte) (0xe0 | VIDEO_PID >> 8), (byte) VIDEO_PID, (byte) 0xf0, 0x00,
+                STREAM_TYPE_H264, (byte) (0xe0 | VIDEO_PID >> 8), (byte) VIDEO_PID, (byte) 0xf0,
+                0x00, STREAM_TYPE_PRIVATE_DATA, (byte) (0xe0 | KLV_PID >> 8), (byte) KLV_PID,
+                (byte) 0xf0, 0x00});
+
+        for (int i = 0; i < 3; i++) {
+            builder.addPesPacket(VIDEO_PID, VIDEO_PES_PACKET);
+            builder.addPesPacket(KLV_PID, KLV_PES_PACKET);
+        }
+
+        return builder.toByteArray();
+    }
+
+    /**
+     * Writes PSI sections and PES packets as 188 byte MPEG-TS packets.
+     */
+    private static class TransportStreamBuilder {
+
+        private static final int PACKET_SIZE = 188;
+
+        private static final int HEADER_SIZE = 4;
+
+        private static final int PAYLOAD_SIZE = PACKET_SIZE - HEADER_SIZE;
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        private final Map<Integer, Integer> continuityCounters = new HashMap<>();
+
+        /**
+         * @param section the section without the CRC, which is appended
+         */
+        void addSection(int pid, byte[] section) {
+            byte[] payload = new byte[PAYLOAD_SIZE];
+            Arrays.fill(payload, (byte) 0xff);
+            payload[0] = 0x00;
+            System.arraycopy(section, 0, payload, 1, section.length);
+            int crc = crc32(section);
+            for (int i = 0; i < 4; i++) {
+                payload[1 + section.length + i] = (byte) (crc >>> (24 - 8 * i));
+            }
+            writeHeader(pid, true, false);
+            outputStream.write(payload, 0, payload.length);
+        }
+
+        void addPesPacket(int pid, byte[] pesPacket) {
+            for (int offset = 0; offset < pesPacket.length; offset += PAYLOAD_SIZE) {
+                int length = Math.min(PAYLOAD_SIZE, pesPacket.length - offset);
+                boolean stuffing = length < PAYLOAD_SIZE;
+                writeHeader(pid, offset == 0, stuffing);
+                if (stuffing) {
+                    int adaptationFieldLength = PAYLOAD_SIZE - length - 1;
+                    outputStream.write(adaptationFieldLength);
+                    if (adaptationFieldLength > 0) {
+                        outputStream.write(0x00);
+                        for (int i = 1; i < adaptationFieldLength; i++) {
+                            outputStream.write(0xff);
+                        }
+                    }
+                }
+                outputStream.write(pesPacket, offset, length);
+            }
+        }
+
+        byte[] toByteArray() {
+            return outputStream.toByteArray();
+        }
+
+        private void writeHeader(int pid, boolean payloadUnitStart, boolean adaptationField) {
+            int continuityCounter = continuityCounters.merge(pid, 1, (a, b) -> (a + b) & 0x0f);
+            outputStream.write(0x47);
+            outputStream.write((payloadUnitStart ? 0x40 : 0x00) | pid >> 8);
+            outputStream.write(pid & 0xff);
+            outputStream.write((adaptationField ? 0x30 : 0x10) | continuityCounter);
+        }
+
+        /**
+         * The MPEG-2 CRC-32 of a PSI section.
+         */
+        private int crc32(byte[] bytes) {
+            int crc = 0xffffffff;
+            for (byte b : bytes) {
+                crc ^= (b & 0xff) << 24;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04c11db7 : crc << 1;
+                }
+            }
+            return crc;
+        }
+    }
+}
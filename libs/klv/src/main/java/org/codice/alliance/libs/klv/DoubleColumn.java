@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Growable column of primitive double values. Used by the geo handlers so that long streams do
+ * not box every latitude and longitude value.
+ */
+class DoubleColumn {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    private int size;
+
+    void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size++] = value;
+    }
+
+    double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+        }
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Discard the values at and after {@code newSize}.
+     */
+    void truncate(int newSize) {
+        if (newSize < size) {
+            size = Math.max(newSize, 0);
+        }
+    }
+
+    /**
+     * Keep the values at even indices.
+     */
+    void decimate() {
+        int kept = 0;
+        for (int i = 0; i < size; i += 2) {
+            values[kept++] = values[i];
+        }
+        size = kept;
+    }
+
+    /**
+     * @return a read-only view of the column (changes to the column are visible in the view)
+     */
+    List<Double> asList() {
+        return new ListView();
+    }
+
+    private class ListView extends AbstractList<Double> implements RandomAccess {
+
+        @Override
+        public Double get(int index) {
+            return DoubleColumn.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
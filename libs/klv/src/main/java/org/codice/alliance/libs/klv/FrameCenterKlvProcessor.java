@@ -64,11 +64,30 @@ public class FrameCenterKlvProcessor extends MultipleFieldKlvProcessor {
         return geometryOperator;
     }
 
+    /**
+     * A {@link LatitudeLongitudeHandler} supplies its coordinates directly, so the frame center
+     * does not need to be parsed from WKT.
+     */
+    @Override
+    protected void doProcess(KlvHandler handler, Metacard metacard) {
+        if (handler instanceof LatitudeLongitudeHandler) {
+            setFrameCenter(((LatitudeLongitudeHandler) handler).asCoordinates(), metacard);
+        } else {
+            super.doProcess(handler, metacard);
+        }
+    }
+
     @Override
     protected void doProcess(Attribute attribute, Metacard metacard) {
         List<String> points = getAttributeStrings(attribute);
 
-        Coordinate[] coordinates = listToArray(convertWktToCoordinates(points));
+        setFrameCenter(listToArray(convertWktToCoordinates(points)), metacard);
+    }
+
+    private void setFrameCenter(Coordinate[] coordinates, Metacard metacard) {
+        if (coordinates.length == 0) {
+            return;
+        }
 
         Geometry geometry = convertCoordinatesToGeometry(coordinates);
 
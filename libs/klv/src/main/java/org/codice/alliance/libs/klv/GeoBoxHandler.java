@@ -14,6 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,10 +25,16 @@ import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
 import ddf.catalog.data.Attribute;
 
 /**
  * This handler expects four latitude-longitude pairs. It generates a WKT polygon for each four-pair set.
+ * The values are stored in primitive columns and {@link #asGeometries(GeometryFactory)} builds the
+ * polygons directly, without going through WKT.
  */
 public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
@@ -49,7 +56,13 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
     private String longitude4;
 
-    private Map<String, List<Double>> map = new HashMap<>();
+    private final Map<String, DoubleColumn> map = new HashMap<>();
+
+    private final Map<String, Long> acceptCounts = new HashMap<>();
+
+    private final Map<String, Integer> strides = new HashMap<>();
+
+    private int maxSize;
 
     /**
      * @param attributeName the name of the metacard attribute being generated
@@ -113,8 +126,30 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
         return longitude4;
     }
 
+    /**
+     * @return a read-only view of the values for each field
+     */
     public Map<String, List<Double>> getRawGeoData() {
-        return map;
+        Map<String, List<Double>> rawGeoData = new HashMap<>();
+        map.forEach((name, column) -> rawGeoData.put(name, column.asList()));
+        return Collections.unmodifiableMap(rawGeoData);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Limit the number of values that are kept for each field. When a field exceeds the limit,
+     * every other value is discarded and from then on only every other incoming value is kept, so
+     * the values that are kept stay evenly spaced over the whole stream. This bounds the memory
+     * used by long streams when only a subsample of the values is needed.
+     *
+     * @param maxSize the maximum number of values kept for each field, or zero (the default) to
+     *                keep every value
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
     }
 
     @Override
@@ -122,53 +157,104 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
         int minimumListSize = getMinimumListSize();
 
-        List<String> polygonsWkts = new ArrayList<>();
+        if (minimumListSize == 0) {
+            return Optional.empty();
+        }
+
+        DoubleColumn lat1 = map.get(latitude1);
+        DoubleColumn lon1 = map.get(longitude1);
+        DoubleColumn lat2 = map.get(latitude2);
+        DoubleColumn lon2 = map.get(longitude2);
+        DoubleColumn lat3 = map.get(latitude3);
+        DoubleColumn lon3 = map.get(longitude3);
+        DoubleColumn lat4 = map.get(latitude4);
+        DoubleColumn lon4 = map.get(longitude4);
+
+        List<String> polygonsWkts = new ArrayList<>(minimumListSize);
 
         for (int i = 0; i < minimumListSize; i++) {
             polygonsWkts.add(String.format("POLYGON ((%f %f, %f %f, %f %f, %f %f, %f %f))",
-                    map.get(longitude1)
-                            .get(i),
-                    map.get(latitude1)
-                            .get(i),
-                    map.get(longitude2)
-                            .get(i),
-                    map.get(latitude2)
-                            .get(i),
-                    map.get(longitude3)
-                            .get(i),
-                    map.get(latitude3)
-                            .get(i),
-                    map.get(longitude4)
-                            .get(i),
-                    map.get(latitude4)
-                            .get(i),
-                    map.get(longitude1)
-                            .get(i),
-                    map.get(latitude1)
-                            .get(i)));
+                    lon1.get(i),
+                    lat1.get(i),
+                    lon2.get(i),
+                    lat2.get(i),
+                    lon3.get(i),
+                    lat3.get(i),
+                    lon4.get(i),
+                    lat4.get(i),
+                    lon1.get(i),
+                    lat1.get(i)));
         }
 
         return asAttribute(polygonsWkts);
     }
 
+    /**
+     * Build one polygon for each four-pair set directly from the stored values.
+     *
+     * @param geometryFactory non-null
+     * @return list of polygons (may be empty)
+     */
+    public List<Geometry> asGeometries(GeometryFactory geometryFactory) {
+
+        int minimumListSize = getMinimumListSize();
+
+        if (minimumListSize == 0) {
+            return Collections.emptyList();
+        }
+
+        DoubleColumn lat1 = map.get(latitude1);
+        DoubleColumn lon1 = map.get(longitude1);
+        DoubleColumn lat2 = map.get(latitude2);
+        DoubleColumn lon2 = map.get(longitude2);
+        DoubleColumn lat3 = map.get(latitude3);
+        DoubleColumn lon3 = map.get(longitude3);
+        DoubleColumn lat4 = map.get(latitude4);
+        DoubleColumn lon4 = map.get(longitude4);
+
+        List<Geometry> polygons = new ArrayList<>(minimumListSize);
+
+        for (int i = 0; i < minimumListSize; i++) {
+            Coordinate first = new Coordinate(lon1.get(i), lat1.get(i));
+            polygons.add(geometryFactory.createPolygon(new Coordinate[] {first,
+                    new Coordinate(lon2.get(i), lat2.get(i)),
+                    new Coordinate(lon3.get(i), lat3.get(i)),
+                    new Coordinate(lon4.get(i), lat4.get(i)), new Coordinate(first)}));
+        }
+
+        return polygons;
+    }
+
     /**
      * Trim the arrays of lat and lon values to the same length.
      */
     @Override
     public void trim() {
 
-        int minListSize = getMinimumListSize();
+        int minListSize = map.values()
+                .stream()
+                .mapToInt(DoubleColumn::size)
+                .min()
+                .orElse(0);
 
-        map.keySet()
-                .forEach(key -> map.computeIfPresent(key,
-                        (fieldName, list) -> list.size() > minListSize ?
-                                list.subList(0, minListSize) :
-                                list));
+        map.values()
+                .forEach(column -> column.truncate(minListSize));
 
     }
 
+    /**
+     * The number of values in the shortest field. Fields that have not been seen are treated as
+     * empty, so a partial set of corners produces no polygons.
+     */
     private int getMinimumListSize() {
-        return getMinimumListSize(map.values());
+        String[] fieldNames = {latitude1, longitude1, latitude2, longitude2, latitude3, longitude3,
+                latitude4, longitude4};
+        int minimumListSize = Integer.MAX_VALUE;
+        for (String fieldName : fieldNames) {
+            DoubleColumn column = map.get(fieldName);
+            minimumListSize = Math.min(minimumListSize, column == null ? 0 : column.size());
+        }
+        return minimumListSize;
     }
 
     @Override
@@ -188,11 +274,30 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
     @Override
     public void reset() {
         map.clear();
+        acceptCounts.clear();
+        strides.clear();
     }
 
     public void accept(String name, Double value) {
-        map.putIfAbsent(name, new ArrayList<>());
-        map.get(name)
-                .add(value);
+        DoubleColumn values = map.computeIfAbsent(name, key -> new DoubleColumn());
+
+        if (maxSize <= 0) {
+            values.add(value);
+            return;
+        }
+
+        long acceptCount = acceptCounts.merge(name, 1L, Long::sum) - 1;
+        int stride = strides.getOrDefault(name, 1);
+
+        if (acceptCount % stride != 0) {
+            return;
+        }
+
+        values.add(value);
+
+        if (values.size() > maxSize) {
+            values.decimate();
+            strides.put(name, stride * 2);
+        }
     }
 }
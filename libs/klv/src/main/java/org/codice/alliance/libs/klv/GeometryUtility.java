@@ -13,8 +13,12 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +27,8 @@ import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
+import com.vividsolutions.jts.operation.union.UnaryUnionOp;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
 
 import ddf.catalog.data.Attribute;
 
@@ -63,17 +69,88 @@ public class GeometryUtility {
             WKTWriter wktWriter, Attribute attribute,
             UnaryOperator<Geometry> postUnionGeometryOperator,
             UnaryOperator<Geometry> preUnionGeometryOperator) {
-        return attribute.getValues()
+        List<Geometry> geometries = attribute.getValues()
                 .stream()
                 .filter(String.class::isInstance)
                 .map(String.class::cast)
                 .map(wkt -> wktToGeometry(wkt, wktReader))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
+                .collect(Collectors.toList());
+        return createUnionOfGeometries(geometries,
+                postUnionGeometryOperator,
+                preUnionGeometryOperator).map(wktWriter::write);
+    }
+
+    /**
+     * Create the union of a collection of geometries. This is the same as
+     * {@link #createUnionOfGeometryAttribute(WKTReader, WKTWriter, Attribute, UnaryOperator, UnaryOperator)}
+     * but works on {@link Geometry} objects, so callers that already have geometries do not need
+     * to round-trip through WKT. If the collection is empty, then this method returns
+     * {@link Optional#empty()}.
+     *
+     * @param geometries                non-null
+     * @param postUnionGeometryOperator non-null, transform the geometry (e.g. simplify or normalize)
+     * @param preUnionGeometryOperator  non-null, transform the geometry just before the union operation (e.g. reduce precision)
+     * @return optional geometry
+     */
+    public static Optional<Geometry> createUnionOfGeometries(
+            Collection<? extends Geometry> geometries,
+            UnaryOperator<Geometry> postUnionGeometryOperator,
+            UnaryOperator<Geometry> preUnionGeometryOperator) {
+        return createUnionOfGeometries(geometries,
+                postUnionGeometryOperator,
+                preUnionGeometryOperator,
+                null);
+    }
+
+    /**
+     * Create the union of a collection of geometries with a cascaded union, which repeatedly
+     * unions small, spatially close groups of geometries instead of folding each geometry into
+     * one ever-growing result. This keeps the cost close to linear for large sets of overlapping
+     * polygons, such as the corner footprints of a video. If the collection is empty, then this
+     * method returns {@link Optional#empty()}.
+     *
+     * @param geometries                 non-null
+     * @param postUnionGeometryOperator  non-null, transform the geometry (e.g. simplify or normalize)
+     * @param preUnionGeometryOperator   non-null, transform the geometry just before the union operation (e.g. reduce precision)
+     * @param preUnionDistanceTolerance  if positive, each geometry is simplified with this distance tolerance before the union, may be null
+     * @return optional geometry
+     */
+    public static Optional<Geometry> createUnionOfGeometries(
+            Collection<? extends Geometry> geometries,
+            UnaryOperator<Geometry> postUnionGeometryOperator,
+            UnaryOperator<Geometry> preUnionGeometryOperator, Double preUnionDistanceTolerance) {
+
+        UnaryOperator<Geometry> preSimplify = isPositive(preUnionDistanceTolerance) ?
+                geometry -> TopologyPreservingSimplifier.simplify(geometry,
+                        preUnionDistanceTolerance) :
+                UnaryOperator.identity();
+
+        List<Geometry> preparedGeometries = geometries.stream()
+                .map(Geometry.class::cast)
+                .map(preSimplify)
                 .map(preUnionGeometryOperator)
-                .reduce(Geometry::union)
-                .map(postUnionGeometryOperator)
-                .map(wktWriter::write);
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        if (preparedGeometries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        if (preparedGeometries.size() == 1) {
+            return Optional.of(preparedGeometries.get(0))
+                    .map(postUnionGeometryOperator);
+        }
+
+        LOGGER.trace("computing cascaded union: geometry count={}", preparedGeometries.size());
+
+        return Optional.ofNullable(UnaryUnionOp.union(preparedGeometries))
+                .map(postUnionGeometryOperator);
+    }
+
+    private static boolean isPositive(Double value) {
+        return value != null && value > 0;
     }
 
     public static Optional<Geometry> wktToGeometry(String wkt, WKTReader wktReader) {
@@ -14,6 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,16 +25,20 @@ import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.vividsolutions.jts.geom.Coordinate;
+
 import ddf.catalog.data.Attribute;
 
 /**
- * This handler expects pairs of latitude and longitude values. It generates WKT Points.
+ * This handler expects pairs of latitude and longitude values. It generates WKT Points. The
+ * values are stored in primitive columns and {@link #asCoordinates()} returns them without going
+ * through WKT.
  */
 public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LatitudeLongitudeHandler.class);
 
-    private Map<String, List<Double>> map = new HashMap<>();
+    private final Map<String, DoubleColumn> map = new HashMap<>();
 
     private String latitudeFieldName;
 
@@ -54,8 +59,13 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
         return latitudeFieldName;
     }
 
+    /**
+     * @return a read-only view of the values for each field
+     */
     public Map<String, List<Double>> getRawGeoData() {
-        return map;
+        Map<String, List<Double>> rawGeoData = new HashMap<>();
+        map.forEach((name, column) -> rawGeoData.put(name, column.asList()));
+        return Collections.unmodifiableMap(rawGeoData);
     }
 
     @Override
@@ -63,21 +73,48 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
 
         int minimumListSize = getMinimumListSize();
 
-        List<String> pairs = new ArrayList<>();
+        if (minimumListSize == 0) {
+            return Optional.empty();
+        }
+
+        DoubleColumn latitudes = map.get(latitudeFieldName);
+        DoubleColumn longitudes = map.get(longitudeFieldName);
+
+        List<String> pairs = new ArrayList<>(minimumListSize);
 
         for (int i = 0; i < minimumListSize; i++) {
-            pairs.add(String.format("POINT (%f %f)",
-                    map.get(longitudeFieldName)
-                            .get(i),
-                    map.get(latitudeFieldName)
-                            .get(i)));
+            pairs.add(String.format("POINT (%f %f)", longitudes.get(i), latitudes.get(i)));
         }
 
         return asAttribute(pairs);
     }
 
+    /**
+     * @return the longitude-latitude pairs as coordinates (may be empty)
+     */
+    public Coordinate[] asCoordinates() {
+
+        int minimumListSize = getMinimumListSize();
+
+        DoubleColumn latitudes = map.get(latitudeFieldName);
+        DoubleColumn longitudes = map.get(longitudeFieldName);
+
+        Coordinate[] coordinates = new Coordinate[minimumListSize];
+
+        for (int i = 0; i < minimumListSize; i++) {
+            coordinates[i] = new Coordinate(longitudes.get(i), latitudes.get(i));
+        }
+
+        return coordinates;
+    }
+
     private int getMinimumListSize() {
-        return getMinimumListSize(map.values());
+        DoubleColumn latitudes = map.get(latitudeFieldName);
+        DoubleColumn longitudes = map.get(longitudeFieldName);
+        if (latitudes == null || longitudes == null) {
+            return 0;
+        }
+        return Math.min(latitudes.size(), longitudes.size());
     }
 
     /**
@@ -85,13 +122,14 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
      */
     @Override
     public void trim() {
-        int minListSize = getMinimumListSize();
-
-        map.keySet()
-                .forEach(key -> map.computeIfPresent(key,
-                        (fieldName, list) -> list.size() > minListSize ?
-                                list.subList(0, minListSize) :
-                                list));
+        int minListSize = map.values()
+                .stream()
+                .mapToInt(DoubleColumn::size)
+                .min()
+                .orElse(0);
+
+        map.values()
+                .forEach(column -> column.truncate(minListSize));
     }
 
     @Override
@@ -103,8 +141,7 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
                     klvDataElement);
             return;
         }
-        map.putIfAbsent(klvDataElement.getName(), new ArrayList<>());
-        map.get(klvDataElement.getName())
+        map.computeIfAbsent(klvDataElement.getName(), key -> new DoubleColumn())
                 .add(((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
     }
 
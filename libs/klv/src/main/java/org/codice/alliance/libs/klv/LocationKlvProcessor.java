@@ -21,10 +21,9 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.io.WKTWriter;
 
-import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 
@@ -43,6 +42,8 @@ public class LocationKlvProcessor implements KlvProcessor {
 
     private final GeometryOperator preUnionGeometryOperator;
 
+    private Double preUnionDistanceTolerance;
+
     public LocationKlvProcessor() {
         this(GeometryOperator.IDENTITY, GeometryOperator.IDENTITY);
     }
@@ -63,6 +64,19 @@ public class LocationKlvProcessor implements KlvProcessor {
         return postUnionGeometryOperator;
     }
 
+    public Double getPreUnionDistanceTolerance() {
+        return preUnionDistanceTolerance;
+    }
+
+    /**
+     * @param preUnionDistanceTolerance if positive, each corner polygon is simplified with this
+     *                                  distance tolerance before the union (may be null, the
+     *                                  default, to disable)
+     */
+    public void setPreUnionDistanceTolerance(Double preUnionDistanceTolerance) {
+        this.preUnionDistanceTolerance = preUnionDistanceTolerance;
+    }
+
     private Optional<KlvHandler> find(Map<String, KlvHandler> handlers, String name) {
         return handlers.values()
                 .stream()
@@ -87,9 +101,8 @@ public class LocationKlvProcessor implements KlvProcessor {
 
         find(handlers, AttributeNameConstants.CORNER).ifPresent(cornerHandler -> {
             if (cornerHandler instanceof GeoBoxHandler) {
-                subsample((GeoBoxHandler) cornerHandler, subsampleCount).asAttribute()
-                        .ifPresent(attribute -> setLocationFromCornerAttribute(metacard,
-                                attribute));
+                setLocationFromCorners(metacard,
+                        subsample((GeoBoxHandler) cornerHandler, subsampleCount));
             }
         });
 
@@ -100,15 +113,16 @@ public class LocationKlvProcessor implements KlvProcessor {
         visitor.visit(this);
     }
 
-    private void setLocationFromCornerAttribute(Metacard metacard, Attribute attribute) {
-        WKTReader wktReader = new WKTReader();
-        WKTWriter wktWriter = new WKTWriter();
-
-        GeometryUtility.createUnionOfGeometryAttribute(wktReader,
-                wktWriter,
-                attribute,
+    /**
+     * The corner polygons are built directly from the handler's values and the WKT is only
+     * written once, for the final location.
+     */
+    private void setLocationFromCorners(Metacard metacard, GeoBoxHandler geoBoxHandler) {
+        GeometryUtility.createUnionOfGeometries(geoBoxHandler.asGeometries(new GeometryFactory()),
                 postUnionGeometryOperator,
-                preUnionGeometryOperator)
+                preUnionGeometryOperator,
+                preUnionDistanceTolerance)
+                .map(new WKTWriter()::write)
                 .ifPresent(location -> metacard.setAttribute(new AttributeImpl(
                         AttributeNameConstants.GEOGRAPHY,
                         location)));
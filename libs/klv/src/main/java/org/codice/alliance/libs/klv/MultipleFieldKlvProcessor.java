@@ -43,8 +43,7 @@ public abstract class MultipleFieldKlvProcessor implements KlvProcessor {
     private void callFirstHandler(Metacard metacard, List<KlvHandler> stanagHandlers) {
         stanagHandlers.stream()
                 .findFirst()
-                .ifPresent(handler -> handler.asAttribute()
-                        .ifPresent(attribute -> doProcess(attribute, metacard)));
+                .ifPresent(handler -> doProcess(handler, metacard));
     }
 
     private boolean areAllHandlersFound(List<KlvHandler> stanagHandlers) {
@@ -59,5 +58,15 @@ public abstract class MultipleFieldKlvProcessor implements KlvProcessor {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Process the first handler. By default, this generates the handler's attribute and passes
+     * it to {@link #doProcess(Attribute, Metacard)}. Subclasses may override this to read the
+     * handler's values directly.
+     */
+    protected void doProcess(KlvHandler handler, Metacard metacard) {
+        handler.asAttribute()
+                .ifPresent(attribute -> doProcess(attribute, metacard));
+    }
+
     protected abstract void doProcess(Attribute attribute, Metacard metacard);
 }
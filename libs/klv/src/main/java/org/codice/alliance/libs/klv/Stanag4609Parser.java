@@ -15,9 +15,25 @@ package org.codice.alliance.libs.klv;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 
 public interface Stanag4609Parser {
     Map<Integer, List<DecodedKLVMetadataPacket>> parse() throws Stanag4609ParseException;
+
+    /**
+     * Parse the STANAG 4609 data and pass each decoded KLV metadata packet to the callback as soon
+     * as it is decoded, so that the packets do not have to be retained. The default implementation
+     * calls {@link #parse()} and passes the packets from the result.
+     *
+     * @param callback called with the packet ID of the metadata stream and the decoded packet
+     *                 (must be non-null)
+     * @throws Stanag4609ParseException
+     */
+    default void parse(BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
+            throws Stanag4609ParseException {
+        parse().forEach((packetId, packets) -> packets.forEach(packet -> callback.accept(packetId,
+                packet)));
+    }
 }
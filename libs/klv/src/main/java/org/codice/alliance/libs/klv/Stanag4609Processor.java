@@ -29,6 +29,9 @@ public interface Stanag4609Processor {
     void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHander,
             Map<Integer, List<DecodedKLVMetadataPacket>> stanagMetadata);
 
+    void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler,
+            DecodedKLVMetadataPacket decodedKLVMetadataPacket);
+
     void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler, KlvContext klvContext,
             Map<String, KlvDataElement> dataElements);
 
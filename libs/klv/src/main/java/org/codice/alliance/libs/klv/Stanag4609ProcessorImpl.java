@@ -44,19 +44,28 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
         stanagMetadata.values()
                 .stream()
                 .flatMap(List::stream)
-                .forEach(decodedKLVMetadataPacket -> {
+                .forEach(decodedKLVMetadataPacket -> handle(handlers,
+                        defaultHander,
+                        decodedKLVMetadataPacket));
 
-                    Map<String, KlvDataElement> dataElements = new HashMap<>();
+    }
 
-                    handle(handlers,
-                            defaultHander,
-                            decodedKLVMetadataPacket.getDecodedKLV(),
-                            dataElements);
+    /**
+     * Pass a single {@link DecodedKLVMetadataPacket} to the handlers and the post processor. This
+     * allows the packets to be handled as they are decoded, instead of being collected first.
+     *
+     * @param handlers                 map of klv handers
+     * @param decodedKLVMetadataPacket klv metadata packet
+     */
+    @Override
+    public void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler,
+            DecodedKLVMetadataPacket decodedKLVMetadataPacket) {
 
-                    postProcessor.postProcess(dataElements, handlers);
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
 
-                });
+        handle(handlers, defaultHandler, decodedKLVMetadataPacket.getDecodedKLV(), dataElements);
 
+        postProcessor.postProcess(dataElements, handlers);
     }
 
     /**
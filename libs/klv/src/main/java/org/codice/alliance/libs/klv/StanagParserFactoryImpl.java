@@ -13,6 +13,11 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 
 import com.google.common.io.ByteSource;
@@ -24,11 +29,25 @@ public class StanagParserFactoryImpl implements StanagParserFactory {
 
     @Override
     public Stanag4609Parser createParser(ByteSource byteSource) {
-        return () -> {
-            try {
-                return new Stanag4609TransportStreamParser(byteSource).parse();
-            } catch (Exception e) {
-                throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+        return new Stanag4609Parser() {
+            @Override
+            public Map<Integer, List<DecodedKLVMetadataPacket>> parse()
+                    throws Stanag4609ParseException {
+                try {
+                    return new Stanag4609TransportStreamParser(byteSource).parse();
+                } catch (Exception e) {
+                    throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+                }
+            }
+
+            @Override
+            public void parse(BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
+                    throws Stanag4609ParseException {
+                try {
+                    new Stanag4609TransportStreamParser(byteSource).parse(callback);
+                } catch (Exception e) {
+                    throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+                }
             }
         };
     }
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DoubleColumnTest {
+
+    private DoubleColumn doubleColumn;
+
+    @Before
+    public void setup() {
+        doubleColumn = new DoubleColumn();
+        for (int i = 0; i < 100; i++) {
+            doubleColumn.add(i);
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        assertThat(doubleColumn.size(), is(100));
+        assertThat(doubleColumn.get(99), is(99.0));
+    }
+
+    @Test
+    public void testTruncate() {
+        doubleColumn.truncate(3);
+        assertThat(doubleColumn.asList(), contains(0.0, 1.0, 2.0));
+    }
+
+    @Test
+    public void testDecimate() {
+        doubleColumn.truncate(5);
+        doubleColumn.decimate();
+        assertThat(doubleColumn.asList(), contains(0.0, 2.0, 4.0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        doubleColumn.truncate(1);
+        doubleColumn.get(1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testListViewIsReadOnly() {
+        doubleColumn.asList()
+                .add(1.0);
+    }
+}
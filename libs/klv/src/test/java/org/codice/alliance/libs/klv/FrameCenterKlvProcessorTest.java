@@ -28,9 +28,11 @@ import java.util.Map;
 import java.util.Optional;
 
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvDecodingException;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
@@ -72,6 +74,44 @@ public class FrameCenterKlvProcessorTest {
         verifyFrameCenter(Collections.singletonList("POINT(1 2)"), "POINT(1 2)");
     }
 
+    @Test
+    public void testLatitudeLongitudeHandler() throws KlvDecodingException, ParseException {
+        LatitudeLongitudeHandler latitudeLongitudeHandler = new LatitudeLongitudeHandler(
+                AttributeNameConstants.FRAME_CENTER,
+                Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE);
+
+        latitudeLongitudeHandler.accept(KlvUtilities.createTestFloat(
+                Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                0));
+        latitudeLongitudeHandler.accept(KlvUtilities.createTestFloat(
+                Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                0));
+        latitudeLongitudeHandler.accept(KlvUtilities.createTestFloat(
+                Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                1));
+        latitudeLongitudeHandler.accept(KlvUtilities.createTestFloat(
+                Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                2));
+
+        handlerMap.put(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                latitudeLongitudeHandler);
+        handlerMap.put(Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                latitudeLongitudeHandler);
+
+        Metacard metacard = new MetacardImpl();
+
+        frameCenterKlvProcessor.process(handlerMap, metacard, new KlvProcessor.Configuration());
+
+        String frameCenterWkt = (String) metacard.getAttribute(Media.FRAME_CENTER)
+                .getValue();
+
+        Geometry frameCenter = new WKTReader().read(frameCenterWkt);
+
+        assertThat(frameCenter.equalsExact(new WKTReader().read("LINESTRING(0 0, 2 1)"), 0.01),
+                is(true));
+    }
+
     private void verifyFrameCenter(List<Serializable> coordinates, String frameCenterWkt)
             throws ParseException {
         when(attribute.getValues()).thenReturn(coordinates);
@@ -27,6 +27,11 @@ import org.codice.ddf.libs.klv.data.numerical.KlvInt;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
 public class GeoBoxHandlerTest {
 
     private static final String LAT1 = "lat1";
@@ -70,6 +75,23 @@ public class GeoBoxHandlerTest {
                 .get(0), closeTo(10.0, EPSILON));
     }
 
+    @Test
+    public void testMaxSize() {
+        geoBoxHandler.setMaxSize(4);
+        for (int i = 0; i < 10; i++) {
+            geoBoxHandler.accept(LAT1, (double) i);
+        }
+
+        List<Double> values = geoBoxHandler.getRawGeoData()
+                .get(LAT1);
+
+        assertThat(geoBoxHandler.getMaxSize(), is(4));
+        assertThat(values, hasSize(3));
+        assertThat(values.get(0), closeTo(0.0, EPSILON));
+        assertThat(values.get(1), closeTo(4.0, EPSILON));
+        assertThat(values.get(2), closeTo(8.0, EPSILON));
+    }
+
     @Test
     public void testGetLatitude1() {
         assertThat(geoBoxHandler.getLatitude1(), is(LAT1));
@@ -147,6 +169,37 @@ public class GeoBoxHandlerTest {
 
     }
 
+    @Test
+    public void testAsGeometries() throws KlvDecodingException, ParseException {
+
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LAT1, 1));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LON1, 2));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LAT2, 3));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LON2, 4));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LAT3, 5));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LON3, 6));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LAT4, 7));
+        geoBoxHandler.accept(KlvUtilities.createTestFloat(LON4, 8));
+
+        List<Geometry> geometries = geoBoxHandler.asGeometries(new GeometryFactory());
+
+        assertThat(geometries, hasSize(1));
+        assertThat(geometries.get(0)
+                        .equalsExact(new WKTReader().read("POLYGON ((2 1, 4 3, 6 5, 8 7, 2 1))"),
+                                EPSILON),
+                is(true));
+    }
+
+    @Test
+    public void testAsGeometriesMissingCorner() {
+        geoBoxHandler.accept(LAT1, 1.0);
+        geoBoxHandler.accept(LON1, 2.0);
+
+        assertThat(geoBoxHandler.asGeometries(new GeometryFactory()), hasSize(0));
+        assertThat(geoBoxHandler.asAttribute()
+                .isPresent(), is(false));
+    }
+
     @Test
     public void testTrim() throws KlvDecodingException {
 
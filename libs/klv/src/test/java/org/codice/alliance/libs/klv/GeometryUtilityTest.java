@@ -16,9 +16,12 @@ package org.codice.alliance.libs.klv;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -67,6 +70,78 @@ public class GeometryUtilityTest {
 
     }
 
+    @Test
+    public void testUnionOfGeometries() throws ParseException {
+
+        List<Geometry> geometries = Arrays.asList(wktReader.read(
+                "POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))"),
+                wktReader.read("POLYGON (( 5 5, 15 5, 15 15, 5 15, 5 5))"));
+
+        Optional<Geometry> union = GeometryUtility.createUnionOfGeometries(geometries,
+                UnaryOperator.identity(),
+                UnaryOperator.identity());
+
+        Geometry expected = wktReader.read(
+                "POLYGON (( 0 0, 10 0, 10 5, 15 5, 15 15, 5 15, 5 10, 0 10, 0 0 ))")
+                .norm();
+
+        assertThat(union.get()
+                .norm(), is(expected));
+
+    }
+
+    @Test
+    public void testUnionOfManyGeometries() throws ParseException {
+
+        List<Geometry> geometries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            geometries.add(wktReader.read(String.format("POLYGON (( %d 0, %d 0, %d 1, %d 1, %d 0))",
+                    i,
+                    i + 1,
+                    i + 1,
+                    i,
+                    i)));
+        }
+
+        Optional<Geometry> union = GeometryUtility.createUnionOfGeometries(geometries,
+                UnaryOperator.identity(),
+                UnaryOperator.identity());
+
+        assertThat(union.get()
+                .getArea(), is(1000.0));
+
+    }
+
+    @Test
+    public void testUnionOfGeometriesWithPreSimplification() throws ParseException {
+
+        // the middle vertex of the bottom edge is removed by the pre-union simplification
+        List<Geometry> geometries = Arrays.asList(wktReader.read(
+                "POLYGON (( 0 0, 5 0.0001, 10 0, 10 10, 0 10, 0 0))"),
+                wktReader.read("POLYGON (( 5 5, 15 5, 15 15, 5 15, 5 5))"));
+
+        Optional<Geometry> union = GeometryUtility.createUnionOfGeometries(geometries,
+                UnaryOperator.identity(),
+                UnaryOperator.identity(),
+                0.01);
+
+        Geometry expected = wktReader.read(
+                "POLYGON (( 0 0, 10 0, 10 5, 15 5, 15 15, 5 15, 5 10, 0 10, 0 0 ))")
+                .norm();
+
+        assertThat(union.get()
+                .norm(), is(expected));
+
+    }
+
+    @Test
+    public void testUnionOfNoGeometries() {
+        assertThat(GeometryUtility.createUnionOfGeometries(Collections.emptyList(),
+                UnaryOperator.identity(),
+                UnaryOperator.identity())
+                .isPresent(), is(false));
+    }
+
     @Test
     public void testEmptyData() {
 
@@ -29,6 +29,8 @@ import org.codice.ddf.libs.klv.data.numerical.KlvInt;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vividsolutions.jts.geom.Coordinate;
+
 public class LatitudeLongitudeHandlerTest {
 
     private static final String LAT = "lat";
@@ -105,6 +107,30 @@ public class LatitudeLongitudeHandlerTest {
 
     }
 
+    @Test
+    public void testAsCoordinates() throws KlvDecodingException {
+        klvHandler.accept(KlvUtilities.createTestFloat(LAT, 1));
+        klvHandler.accept(KlvUtilities.createTestFloat(LON, 2));
+        klvHandler.accept(KlvUtilities.createTestFloat(LAT, 3));
+        klvHandler.accept(KlvUtilities.createTestFloat(LON, 4));
+
+        // unpaired latitude is ignored
+        klvHandler.accept(KlvUtilities.createTestFloat(LAT, 5));
+
+        Coordinate[] coordinates = klvHandler.asCoordinates();
+
+        assertThat(coordinates.length, is(2));
+        assertThat(coordinates[0].x, is(closeTo(2, EPSILON)));
+        assertThat(coordinates[0].y, is(closeTo(1, EPSILON)));
+        assertThat(coordinates[1].x, is(closeTo(4, EPSILON)));
+        assertThat(coordinates[1].y, is(closeTo(3, EPSILON)));
+    }
+
+    @Test
+    public void testAsCoordinatesEmpty() {
+        assertThat(klvHandler.asCoordinates().length, is(0));
+    }
+
     @Test
     public void testTrim() throws KlvDecodingException {
         double lat = 1;
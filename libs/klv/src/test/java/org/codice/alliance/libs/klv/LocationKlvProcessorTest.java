@@ -17,6 +17,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -31,6 +32,10 @@ import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.BasicTypes;
@@ -53,7 +58,7 @@ public class LocationKlvProcessorTest {
     private GeometryOperator geometryFunction;
 
     @Before
-    public void setup() {
+    public void setup() throws ParseException {
         wkt = "POLYGON ((0 0, 5 0, 5 5, 0 5, 0 0))";
         geometryFunction = GeometryOperator.IDENTITY;
         locationKlvProcessor = new LocationKlvProcessor(GeometryOperator.IDENTITY,
@@ -62,6 +67,8 @@ public class LocationKlvProcessorTest {
         Attribute attribute = mock(Attribute.class);
         when(attribute.getValues()).thenReturn(Collections.singletonList(wkt));
         when(klvHandler.asAttribute()).thenReturn(Optional.of(attribute));
+        when(klvHandler.asGeometries(any(GeometryFactory.class))).thenReturn(
+                Collections.singletonList(new WKTReader().read(wkt)));
         when(klvHandler.getAttributeName()).thenReturn(AttributeNameConstants.CORNER);
         metacard = new MetacardImpl(BasicTypes.BASIC_METACARD);
         klvConfiguration = new KlvProcessor.Configuration();
@@ -73,6 +80,18 @@ public class LocationKlvProcessorTest {
         assertThat(locationKlvProcessor.getGeometryFunction(), is(geometryFunction));
     }
 
+    @Test
+    public void testPreUnionDistanceTolerance() {
+
+        locationKlvProcessor.setPreUnionDistanceTolerance(0.001);
+        klvConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, 50);
+
+        locationKlvProcessor.process(handlers, metacard, klvConfiguration);
+
+        assertThat(locationKlvProcessor.getPreUnionDistanceTolerance(), is(0.001));
+        assertThat(metacard.getLocation(), is(wkt));
+    }
+
     @Test
     public void testAccept() {
         KlvProcessor.Visitor visitor = mock(KlvProcessor.Visitor.class);
@@ -144,4 +144,25 @@ public class Stanag4609ProcessorImplTest {
 
     }
 
+    @Test
+    public void testHandleWithSinglePacket() throws KlvDecodingException {
+
+        PostProcessor postProcessor = mock(PostProcessor.class);
+        stanag4609Processor = new Stanag4609ProcessorImpl(postProcessor);
+
+        DecodedKLVMetadataPacket packet = mock(DecodedKLVMetadataPacket.class);
+        when(packet.getDecodedKLV()).thenReturn(new KlvContext(Klv.KeyLength.OneByte,
+                Klv.LengthEncoding.OneByte,
+                Collections.singleton(klvIntegerEncodedFloatingPoint)));
+
+        Map<String, KlvHandler> handlers = Collections.singletonMap(FIELD_NAME, klvHandler);
+
+        stanag4609Processor.handle(handlers, defaultKlvHandler, packet);
+
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+        verify(postProcessor).postProcess(Collections.singletonMap(FIELD_NAME,
+                klvIntegerEncodedFloatingPoint), handlers);
+
+    }
+
 }
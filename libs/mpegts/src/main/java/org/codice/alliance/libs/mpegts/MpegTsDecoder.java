@@ -28,4 +28,13 @@ public interface MpegTsDecoder {
      * @throws IOException
      */
     void read(MTSPacket mtsPacket, Consumer<PESPacket> callback) throws IOException;
+
+    /**
+     * Pass the PESPackets that are still being assembled to {@code callback}, e.g. at the end of
+     * the stream. The default implementation does nothing.
+     *
+     * @param callback must be non-null
+     */
+    default void flush(Consumer<PESPacket> callback) {
+    }
 }
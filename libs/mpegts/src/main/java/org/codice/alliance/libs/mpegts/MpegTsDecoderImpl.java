@@ -23,20 +23,23 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.jcodec.containers.mps.psi.PMTSection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
 import org.taktik.mpegts.PATSection;
 
 public class MpegTsDecoderImpl implements MpegTsDecoder {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(MpegTsDecoderImpl.class);
+
     private static final int BYTE_MASK = 0xFF;
 
     private final Set<Integer> programMapTablePacketIdDirectory = new HashSet<>();
 
     private final Map<Integer, PMTSection.PMTStream> programElementaryStreams = new HashMap<>();
 
-    private final Map<Integer, byte[]> currentPacketBytesByStream = new HashMap<>();
+    private final Map<Integer, PESPacketAssembler> assemblersByStream = new HashMap<>();
 
     private PATSectionParser patSectionParser = PATSection::parse;
 
@@ -65,34 +68,71 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
 
     }
 
+    /**
+     * Append the payload of an elementary stream packet to the PES packet being assembled for
+     * its PID. A PES packet is complete when the next packet with the payload unit start indicator
+     * is received. If the continuity counter shows that packets were lost, then the PES packet
+     * being assembled is dropped. Duplicate packets are ignored.
+     */
     private void handleElementaryStream(MTSPacket mtsPacket, int pid,
             Consumer<PESPacket> callback) {
         if (mtsPacket.isContainsPayload()) {
-            final PMTSection.PMTStream stream = programElementaryStreams.get(pid);
 
-            final byte[] currentPacketBytes = currentPacketBytesByStream.get(pid);
+            final PESPacketAssembler assembler =
+                    assemblersByStream.computeIfAbsent(pid, key -> new PESPacketAssembler());
 
-            final boolean startingNewPacket = mtsPacket.isPayloadUnitStartIndicator();
-            final boolean currentPacketToHandle = currentPacketBytes != null;
-            final boolean reachedEndOfCurrentPacket = startingNewPacket && currentPacketToHandle;
+            final PESPacketAssembler.Continuity continuity =
+                    assembler.checkContinuity(mtsPacket.getContinuityCounter(),
+                            isDiscontinuity(mtsPacket));
+
+            if (continuity == PESPacketAssembler.Continuity.DUPLICATE) {
+                return;
+            }
 
-            final byte[] payloadBytes = getByteBufferAsBytes(mtsPacket.getPayload());
+            if (continuity == PESPacketAssembler.Continuity.LOST_PACKETS
+                    && assembler.isAssembling()) {
+                LOGGER.debug("dropping PES packet, MPEG-TS packets were lost: pid={}", pid);
+                assembler.drop();
+            }
 
-            if (reachedEndOfCurrentPacket) {
-                callback.accept(new PESPacket(currentPacketBytes,
+            final boolean startingNewPacket = mtsPacket.isPayloadUnitStartIndicator();
+
+            if (startingNewPacket && assembler.isAssembling()) {
+                final PMTSection.PMTStream stream = programElementaryStreams.get(pid);
+                callback.accept(new PESPacket(assembler.toByteArray(),
                         MpegStreamType.lookup(stream.getStreamType()),
                         pid));
-                currentPacketBytesByStream.put(pid, payloadBytes);
-            } else if (startingNewPacket) {
-                currentPacketBytesByStream.put(pid, payloadBytes);
-            } else if (currentPacketToHandle) {
-                final byte[] concatenatedPacket = ArrayUtils.addAll(currentPacketBytes,
-                        payloadBytes);
-                currentPacketBytesByStream.put(pid, concatenatedPacket);
+            }
+
+            if (startingNewPacket) {
+                assembler.start(mtsPacket.getPayload());
+            } else if (assembler.isAssembling()) {
+                assembler.append(mtsPacket.getPayload());
             }
         }
     }
 
+    @Override
+    public void flush(Consumer<PESPacket> callback) {
+        notNull(callback, "callback must be non-null");
+
+        assemblersByStream.forEach((pid, assembler) -> {
+            if (assembler.isAssembling()) {
+                final PMTSection.PMTStream stream = programElementaryStreams.get(pid);
+                callback.accept(new PESPacket(assembler.toByteArray(),
+                        MpegStreamType.lookup(stream.getStreamType()),
+                        pid));
+                assembler.drop();
+            }
+        });
+    }
+
+    private boolean isDiscontinuity(MTSPacket mtsPacket) {
+        return mtsPacket.isAdaptationFieldExist() && mtsPacket.getAdaptationField() != null
+                && mtsPacket.getAdaptationField()
+                .isDiscontinuityIndicator();
+    }
+
     private boolean isElementaryStream(int pid) {
         return pid != Constants.PROGRAM_ASSOCIATION_TABLE_PID
                 && !programMapTablePacketIdDirectory.contains(pid)
@@ -137,12 +177,6 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
         }
     }
 
-    private byte[] getByteBufferAsBytes(final ByteBuffer buffer) {
-        final byte[] bytes = new byte[buffer.remaining()];
-        buffer.get(bytes);
-        return bytes;
-    }
-
     public void setPatSectionParser(PATSectionParser patSectionParser) {
         this.patSectionParser = patSectionParser;
     }
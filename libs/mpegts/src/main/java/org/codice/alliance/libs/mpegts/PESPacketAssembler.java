@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reassembles the payloads of the MPEG-TS packets for a single packet identifier into a PES
+ * packet. The payloads are appended to a growable array that is reused for each PES packet, so
+ * the cost of reassembly is linear in the size of the PES packet. The continuity counter of each
+ * MPEG-TS packet is checked and a PES packet with missing MPEG-TS packets is dropped.
+ */
+class PESPacketAssembler {
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+    private static final int CONTINUITY_COUNTER_MODULUS = 16;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * Offset of the PES_packet_length field in the PES header.
+     */
+    private static final int PES_PACKET_LENGTH_OFFSET = 4;
+
+    /**
+     * Number of bytes in the PES header before the PES_packet_length field and the field itself.
+     */
+    private static final int PES_PACKET_LENGTH_HEADER_SIZE = 6;
+
+    private byte[] data = new byte[INITIAL_CAPACITY];
+
+    private int length = 0;
+
+    /**
+     * <code>true</code> if a PES packet is being assembled.
+     */
+    private boolean assembling = false;
+
+    private int lastContinuityCounter = -1;
+
+    /**
+     * Check the continuity counter of an MPEG-TS packet that carries a payload.
+     *
+     * @param continuityCounter the continuity counter of the packet
+     * @param discontinuity     <code>true</code> if the packet signals a discontinuity
+     * @return a status describing the packet
+     */
+    Continuity checkContinuity(int continuityCounter, boolean discontinuity) {
+        int expected = (lastContinuityCounter + 1) % CONTINUITY_COUNTER_MODULUS;
+        int last = lastContinuityCounter;
+        lastContinuityCounter = continuityCounter;
+
+        if (last < 0 || discontinuity || continuityCounter == expected) {
+            return Continuity.CONTINUOUS;
+        }
+        if (continuityCounter == last) {
+            return Continuity.DUPLICATE;
+        }
+        return Continuity.LOST_PACKETS;
+    }
+
+    /**
+     * @return <code>true</code> if a PES packet is being assembled
+     */
+    boolean isAssembling() {
+        return assembling;
+    }
+
+    /**
+     * Discard the PES packet that is being assembled. Payloads are ignored until the next
+     * {@link #start(ByteBuffer)}.
+     */
+    void drop() {
+        assembling = false;
+        length = 0;
+    }
+
+    /**
+     * Start a new PES packet with the payload of the MPEG-TS packet that has the payload unit
+     * start indicator set. Any PES packet that is being assembled is discarded.
+     *
+     * @param payload must be non-null
+     */
+    void start(ByteBuffer payload) {
+        length = 0;
+        assembling = true;
+        ensureCapacity(expectedLength(payload));
+        append(payload);
+    }
+
+    /**
+     * Append the payload of an MPEG-TS packet to the PES packet being assembled.
+     *
+     * @param payload must be non-null
+     */
+    void append(ByteBuffer payload) {
+        int remaining = payload.remaining();
+        ensureCapacity(length + remaining);
+        payload.get(data, length, remaining);
+        length += remaining;
+    }
+
+    /**
+     * @return a copy of the bytes of the PES packet being assembled
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(data, length);
+    }
+
+    /**
+     * When the PES packet declares its length, then the buffer can be sized once.
+     */
+    private int expectedLength(ByteBuffer payload) {
+        if (payload.remaining() < PES_PACKET_LENGTH_HEADER_SIZE) {
+            return 0;
+        }
+        int position = payload.position() + PES_PACKET_LENGTH_OFFSET;
+        int pesPacketLength =
+                ((payload.get(position) & BYTE_MASK) << 8) | (payload.get(position + 1)
+                        & BYTE_MASK);
+        return pesPacketLength == 0 ? 0 : pesPacketLength + PES_PACKET_LENGTH_HEADER_SIZE;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    enum Continuity {
+        CONTINUOUS, DUPLICATE, LOST_PACKETS
+    }
+
+}
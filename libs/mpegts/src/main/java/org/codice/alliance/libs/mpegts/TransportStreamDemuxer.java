@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.taktik.mpegts.MTSPacket;
+
+/**
+ * Demultiplexes an MPEG-TS as it is written to this output stream. The bytes are split into
+ * MPEG-TS packets, which are decoded into PESPackets that are passed to the callback. This allows
+ * the transport stream to be demultiplexed while it is copied somewhere else (e.g. with a
+ * {@link org.apache.commons.io.input.TeeInputStream}), instead of reading it again afterwards.
+ * <p>
+ * Bytes that precede a sync byte are skipped. If the decoder fails on a packet, then the packet is
+ * dropped and demultiplexing resumes at the next sync byte, so that a corrupt packet neither
+ * affects the other consumers of the stream nor the rest of the metadata. When the stream is
+ * closed, the incomplete PESPackets are passed to the callback.
+ */
+public class TransportStreamDemuxer extends OutputStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransportStreamDemuxer.class);
+
+    private static final byte SYNC_BYTE = 0x47;
+
+    private final MpegTsDecoder mpegTsDecoder;
+
+    private final Consumer<PESPacket> callback;
+
+    private final byte[] packet = new byte[Constants.TS_PACKET_SIZE];
+
+    private final ByteBuffer packetBuffer = ByteBuffer.wrap(packet);
+
+    private int packetLength;
+
+    private long packetCount;
+
+    private long skippedByteCount;
+
+    private long failedPacketCount;
+
+    private boolean closed;
+
+    /**
+     * @param callback must be non-null
+     */
+    public TransportStreamDemuxer(Consumer<PESPacket> callback) {
+        this(new MpegTsDecoderImpl(), callback);
+    }
+
+    /**
+     * @param mpegTsDecoder must be non-null
+     * @param callback      must be non-null
+     */
+    public TransportStreamDemuxer(MpegTsDecoder mpegTsDecoder, Consumer<PESPacket> callback) {
+        notNull(mpegTsDecoder, "mpegTsDecoder must be non-null");
+        notNull(callback, "callback must be non-null");
+        this.mpegTsDecoder = mpegTsDecoder;
+        this.callback = callback;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        notNull(bytes, "bytes must be non-null");
+        if (closed) {
+            throw new IOException("the demuxer is closed");
+        }
+
+        int index = offset;
+        int end = offset + length;
+
+        while (index < end) {
+            if (packetLength == 0) {
+                index = skipToSyncByte(bytes, index, end);
+                if (index == end) {
+                    return;
+                }
+            }
+
+            int count = Math.min(end - index, packet.length - packetLength);
+            System.arraycopy(bytes, index, packet, packetLength, count);
+            packetLength += count;
+            index += count;
+
+            if (packetLength == packet.length) {
+                packetLength = 0;
+                decodePacket();
+            }
+        }
+    }
+
+    /**
+     * Pass the incomplete PESPackets to the callback. Bytes written after the stream is closed are
+     * rejected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        mpegTsDecoder.flush(callback);
+        LOGGER.debug("demuxed transport stream: packets={} failedPackets={} skippedBytes={}",
+                packetCount,
+                failedPacketCount,
+                skippedByteCount);
+    }
+
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    public long getSkippedByteCount() {
+        return skippedByteCount;
+    }
+
+    public long getFailedPacketCount() {
+        return failedPacketCount;
+    }
+
+    private int skipToSyncByte(byte[] bytes, int index, int end) {
+        int syncIndex = index;
+        while (syncIndex < end && bytes[syncIndex] != SYNC_BYTE) {
+            syncIndex++;
+        }
+        skippedByteCount += syncIndex - index;
+        return syncIndex;
+    }
+
+    private void decodePacket() {
+        packetBuffer.clear();
+        packetCount++;
+        try {
+            mpegTsDecoder.read(new MTSPacket(packetBuffer), callback);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("unable to decode transport stream packet, resyncing", e);
+            failedPacketCount++;
+            resync();
+        }
+    }
+
+    /**
+     * Keep the bytes of the failed packet that follow its first sync byte, starting at the next
+     * sync byte, so that a packet that was not aligned with the stream does not hide the packets
+     * that follow it.
+     */
+    private void resync() {
+        int syncIndex = skipToSyncByte(packet, 1, packet.length);
+        skippedByteCount++;
+        packetLength = packet.length - syncIndex;
+        System.arraycopy(packet, syncIndex, packet, 0, packetLength);
+    }
+
+}
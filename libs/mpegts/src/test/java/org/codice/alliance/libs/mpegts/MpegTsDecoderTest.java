@@ -37,18 +37,96 @@ import org.taktik.mpegts.PATSection;
 
 public class MpegTsDecoderTest {
 
+    private static final MTSUtils.StreamType STREAM_TYPE = MTSUtils.StreamType.VIDEO_H264;
+
+    private static final int PROGRAM_MAP_TABLE_ID = 1;
+
+    private static final int VIDEO_PACKET_ID = 2;
+
     @Test
     public void testRead() {
 
-        MTSUtils.StreamType streamType = MTSUtils.StreamType.VIDEO_H264;
-
         byte expectedByte1 = 0x01;
         byte expectedByte2 = 0x02;
         byte expectedByte3 = 0x03;
         byte expectedByte4 = 0x04;
 
-        int programMapTableId = 1;
-        int videoPacketId = 2;
+        int videoPacketId = VIDEO_PACKET_ID;
+
+        List<Object> outputList = decode(createElementary(true, videoPacketId, expectedByte1, 0),
+                createElementary(false, videoPacketId, expectedByte2, 1),
+                createElementary(false, videoPacketId, expectedByte3, 2),
+                createElementary(false, videoPacketId, expectedByte4, 3),
+                createElementary(true, videoPacketId, (byte) 0x00, 4));
+
+        assertThat(outputList, hasSize(1));
+        assertThat(outputList.get(0), is(instanceOf(PESPacket.class)));
+        PESPacket pesPacket = (PESPacket) outputList.get(0);
+        assertThat(pesPacket.getPacketId(), is(videoPacketId));
+        assertThat(pesPacket.getStreamType(), is(MpegStreamType.lookup(STREAM_TYPE)));
+        assertThat(pesPacket.getPayload(),
+                is(new byte[] {expectedByte1, expectedByte2, expectedByte3, expectedByte4}));
+    }
+
+    /**
+     * A gap in the continuity counters drops the PES packet, the following PES packet is still
+     * decoded.
+     */
+    @Test
+    public void testReadWithLostPacket() {
+
+        List<Object> outputList = decode(createElementary(true, VIDEO_PACKET_ID, (byte) 0x01, 0),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x02, 1),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x04, 3),
+                createElementary(true, VIDEO_PACKET_ID, (byte) 0x05, 4),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x06, 5),
+                createElementary(true, VIDEO_PACKET_ID, (byte) 0x00, 6));
+
+        assertThat(outputList, hasSize(1));
+        assertThat(((PESPacket) outputList.get(0)).getPayload(), is(new byte[] {0x05, 0x06}));
+    }
+
+    /**
+     * A repeated continuity counter is a duplicate packet and is ignored.
+     */
+    @Test
+    public void testReadWithDuplicatePacket() {
+
+        List<Object> outputList = decode(createElementary(true, VIDEO_PACKET_ID, (byte) 0x01, 14),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x02, 15),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x02, 15),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x03, 0),
+                createElementary(true, VIDEO_PACKET_ID, (byte) 0x00, 1));
+
+        assertThat(outputList, hasSize(1));
+        assertThat(((PESPacket) outputList.get(0)).getPayload(),
+                is(new byte[] {0x01, 0x02, 0x03}));
+    }
+
+    /**
+     * Flushing the decoder returns the PES packet that is still being assembled.
+     */
+    @Test
+    public void testFlush() {
+
+        List<Object> outputList = decode(true,
+                createElementary(true, VIDEO_PACKET_ID, (byte) 0x01, 0),
+                createElementary(false, VIDEO_PACKET_ID, (byte) 0x02, 1));
+
+        assertThat(outputList, hasSize(1));
+        assertThat(((PESPacket) outputList.get(0)).getPayload(), is(new byte[] {0x01, 0x02}));
+    }
+
+    private List<Object> decode(MTSPacket... elementaryStreamPackets) {
+        return decode(false, elementaryStreamPackets);
+    }
+
+    private List<Object> decode(boolean flush, MTSPacket... elementaryStreamPackets) {
+
+        MTSUtils.StreamType streamType = STREAM_TYPE;
+
+        int programMapTableId = PROGRAM_MAP_TABLE_ID;
+        int videoPacketId = VIDEO_PACKET_ID;
 
         MpegTsDecoderImpl decoder = new MpegTsDecoderImpl();
 
@@ -83,21 +161,10 @@ public class MpegTsDecoderTest {
         when(programMapTablePacket.isPayloadUnitStartIndicator()).thenReturn(true);
         when(programMapTablePacket.getPayload()).thenReturn(ByteBuffer.wrap(new byte[] {0x00}));
 
-        MTSPacket elementaryStreamPacket1 = createElementary(true, videoPacketId, expectedByte1);
-        MTSPacket elementaryStreamPacket2 = createElementary(false, videoPacketId, expectedByte2);
-        MTSPacket elementaryStreamPacket3 = createElementary(false, videoPacketId, expectedByte3);
-        MTSPacket elementaryStreamPacket4 = createElementary(false, videoPacketId, expectedByte4);
-        MTSPacket elementaryStreamPacket5 = createElementary(true, videoPacketId, (byte) 0x00);
-
         List<Object> outputList = new LinkedList<>();
 
-        Stream.of(programAssociationTablePacket,
-                programMapTablePacket,
-                elementaryStreamPacket1,
-                elementaryStreamPacket2,
-                elementaryStreamPacket3,
-                elementaryStreamPacket4,
-                elementaryStreamPacket5)
+        Stream.concat(Stream.of(programAssociationTablePacket, programMapTablePacket),
+                Stream.of(elementaryStreamPackets))
                 .forEach(mtsPacket -> {
                     try {
                         decoder.read(mtsPacket, outputList::add);
@@ -106,21 +173,21 @@ public class MpegTsDecoderTest {
                     }
                 });
 
-        assertThat(outputList, hasSize(1));
-        assertThat(outputList.get(0), is(instanceOf(PESPacket.class)));
-        PESPacket pesPacket = (PESPacket) outputList.get(0);
-        assertThat(pesPacket.getPacketId(), is(videoPacketId));
-        assertThat(pesPacket.getStreamType(), is(MpegStreamType.lookup(streamType)));
-        assertThat(pesPacket.getPayload(),
-                is(new byte[] {expectedByte1, expectedByte2, expectedByte3, expectedByte4}));
+        if (flush) {
+            decoder.flush(outputList::add);
+        }
+
+        return outputList;
     }
 
-    private MTSPacket createElementary(boolean isStart, int pid, byte data) {
+    private MTSPacket createElementary(boolean isStart, int pid, byte data,
+            int continuityCounter) {
         MTSPacket elementaryStreamPacket = mock(MTSPacket.class);
         when(elementaryStreamPacket.getPid()).thenReturn(pid);
         when(elementaryStreamPacket.isPayloadUnitStartIndicator()).thenReturn(isStart);
         when(elementaryStreamPacket.getPayload()).thenReturn(ByteBuffer.wrap(new byte[] {data}));
         when(elementaryStreamPacket.isContainsPayload()).thenReturn(true);
+        when(elementaryStreamPacket.getContinuityCounter()).thenReturn(continuityCounter);
         return elementaryStreamPacket;
     }
 }
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.mpegts;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.taktik.mpegts.MTSPacket;
+
+public class TransportStreamDemuxerTest {
+
+    private MpegTsDecoder mpegTsDecoder;
+
+    private Consumer<PESPacket> callback;
+
+    private TransportStreamDemuxer demuxer;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setup() {
+        mpegTsDecoder = mock(MpegTsDecoder.class);
+        callback = mock(Consumer.class);
+        demuxer = new TransportStreamDemuxer(mpegTsDecoder, callback);
+    }
+
+    @Test
+    public void testPacketsSplitAcrossWrites() throws IOException {
+        byte[] bytes = createPackets(3);
+
+        demuxer.write(bytes, 0, 100);
+        demuxer.write(bytes, 100, 200);
+        demuxer.write(bytes, 300, bytes.length - 300);
+
+        verify(mpegTsDecoder, times(3)).read(any(MTSPacket.class), any());
+        assertThat(demuxer.getPacketCount(), is(3L));
+    }
+
+    @Test
+    public void testSkipToSyncByte() throws IOException {
+        byte[] packets = createPackets(2);
+        byte[] bytes = new byte[packets.length + 5];
+        System.arraycopy(packets, 0, bytes, 5, packets.length);
+
+        demuxer.write(bytes);
+
+        verify(mpegTsDecoder, times(2)).read(any(MTSPacket.class), any());
+        assertThat(demuxer.getSkippedByteCount(), is(5L));
+    }
+
+    @Test
+    public void testDecoderFailureDecodesRemainingPackets() throws IOException {
+        doThrow(new IOException()).doNothing()
+                .when(mpegTsDecoder)
+                .read(any(MTSPacket.class), any());
+
+        demuxer.write(createPackets(3));
+        demuxer.close();
+
+        verify(mpegTsDecoder, times(3)).read(any(MTSPacket.class), any());
+        verify(mpegTsDecoder, times(1)).flush(callback);
+        assertThat(demuxer.getFailedPacketCount(), is(1L));
+    }
+
+    /**
+     * A packet that is cut short is followed by a sync byte inside the 188 bytes that were
+     * decoded, so demultiplexing resumes there instead of at the end of the failed packet.
+     */
+    @Test
+    public void testDecoderFailureResyncsAtNextSyncByte() throws IOException {
+        doThrow(new IOException()).doNothing()
+                .when(mpegTsDecoder)
+                .read(any(MTSPacket.class), any());
+
+        byte[] packets = createPackets(3);
+        int truncated = 100;
+        byte[] bytes = new byte[packets.length - truncated];
+        System.arraycopy(packets, 0, bytes, 0, Constants.TS_PACKET_SIZE - truncated);
+        System.arraycopy(packets,
+                Constants.TS_PACKET_SIZE,
+                bytes,
+                Constants.TS_PACKET_SIZE - truncated,
+                packets.length - Constants.TS_PACKET_SIZE);
+
+        demuxer.write(bytes);
+
+        verify(mpegTsDecoder, times(3)).read(any(MTSPacket.class), any());
+        assertThat(demuxer.getFailedPacketCount(), is(1L));
+        assertThat(demuxer.getSkippedByteCount(),
+                is((long) Constants.TS_PACKET_SIZE - truncated));
+    }
+
+    @Test
+    public void testCloseFlushesDecoder() throws IOException {
+        demuxer.write(createPackets(1));
+        demuxer.close();
+        demuxer.close();
+
+        verify(mpegTsDecoder, times(1)).flush(callback);
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        demuxer.close();
+        demuxer.write(createPackets(1));
+    }
+
+    private byte[] createPackets(int count) {
+        byte[] bytes = new byte[Constants.TS_PACKET_SIZE * count];
+        for (int i = 0; i < count; i++) {
+            int offset = i * Constants.TS_PACKET_SIZE;
+            Arrays.fill(bytes, offset, offset + Constants.TS_PACKET_SIZE, (byte) 0xFF);
+            bytes[offset] = 0x47;
+            bytes[offset + 1] = 0x1F;
+            bytes[offset + 2] = (byte) 0xFF;
+            bytes[offset + 3] = 0x10;
+        }
+        return bytes;
+    }
+}
@@ -30,6 +30,23 @@ public class PESUtilities {
 
     private static final int PRIVATE_STREAM_ID = 0xBD;
 
+    private static final int STREAM_ID_OFFSET = 3;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    /**
+     * @param pesPacketBytes the bytes of a PES packet, starting with its header
+     * @return true if the PES packet belongs to a synchronous or asynchronous metadata stream,
+     * which are the packets that {@link #handlePESPacketBytes(byte[], KlvDecoder)} decodes
+     */
+    public static boolean isMetadataPacket(final byte[] pesPacketBytes) {
+        if (pesPacketBytes == null || pesPacketBytes.length <= STREAM_ID_OFFSET) {
+            return false;
+        }
+        final int streamId = pesPacketBytes[STREAM_ID_OFFSET] & BYTE_MASK;
+        return streamId == METADATA_STREAM_ID || streamId == PRIVATE_STREAM_ID;
+    }
+
     public static DecodedKLVMetadataPacket handlePESPacketBytes(final byte[] pesPacketBytes,
             KlvDecoder decoder) throws KlvDecodingException {
         final MPSDemuxer.PESPacket pesHeader =
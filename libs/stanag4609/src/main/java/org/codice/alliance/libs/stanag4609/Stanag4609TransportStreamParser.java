@@ -382,19 +382,39 @@ public class Stanag4609TransportStreamParser {
      */
     public void parse(final BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
             throws Exception {
-        extractor.getMetadata((klvStreamPid, pesPacketBytes) -> {
-            try {
-                final DecodedKLVMetadataPacket decodedKLVMetadataPacket = handlePESPacketBytes(
-                        pesPacketBytes);
-                if (decodedKLVMetadataPacket != null) {
-                    callback.accept(klvStreamPid, decodedKLVMetadataPacket);
-                }
-            } catch (KlvDecodingException e) {
-                LOGGER.debug("The KLV could not be decoded.", e);
-            } catch (RuntimeException e) {
-                LOGGER.debug("An error occurred while handling the metadata packet bytes.", e);
+        extractor.getMetadata((klvStreamPid, pesPacketBytes) -> handleMetadataPacket(
+                klvStreamPid,
+                pesPacketBytes,
+                decoder,
+                callback));
+    }
+
+    /**
+     * Decodes the KLV metadata of a single PES packet of a metadata stream and calls the given
+     * callback if a KLV metadata packet was decoded. This allows the metadata streams of a
+     * transport stream that is demultiplexed elsewhere to be decoded the same way as by
+     * {@link #parse(BiConsumer)}. Packets that cannot be decoded are logged and skipped.
+     *
+     * @param klvStreamPid   the packet ID of the metadata stream
+     * @param pesPacketBytes the bytes of the PES packet, starting with its header
+     * @param decoder        the decoder for the UAS Datalink Local Set, see
+     *                       {@link #UAS_DATALINK_LOCAL_SET_CONTEXT}
+     * @param callback       called with the packet ID and the decoded KLV metadata packet
+     */
+    public static void handleMetadataPacket(final int klvStreamPid, final byte[] pesPacketBytes,
+            final KlvDecoder decoder,
+            final BiConsumer<Integer, DecodedKLVMetadataPacket> callback) {
+        try {
+            final DecodedKLVMetadataPacket decodedKLVMetadataPacket =
+                    PESUtilities.handlePESPacketBytes(pesPacketBytes, decoder);
+            if (decodedKLVMetadataPacket != null) {
+                callback.accept(klvStreamPid, decodedKLVMetadataPacket);
             }
-        });
+        } catch (KlvDecodingException e) {
+            LOGGER.debug("The KLV could not be decoded.", e);
+        } catch (RuntimeException e) {
+            LOGGER.debug("An error occurred while handling the metadata packet bytes.", e);
+        }
     }
 
     /**
@@ -419,9 +439,4 @@ public class Stanag4609TransportStreamParser {
 
         return decodedStreams;
     }
-
-    private DecodedKLVMetadataPacket handlePESPacketBytes(final byte[] pesPacketBytes)
-            throws KlvDecodingException {
-        return PESUtilities.handlePESPacketBytes(pesPacketBytes, decoder);
-    }
 }
@@ -185,4 +185,15 @@ public class MetadataPacketTest {
                 new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
         packet.decodeKLV();
     }
+
+    @Test
+    public void testIsMetadataPacket() {
+        assertThat(PESUtilities.isMetadataPacket(new byte[] {0x00, 0x00, 0x01, (byte) 0xfc}),
+                is(true));
+        assertThat(PESUtilities.isMetadataPacket(new byte[] {0x00, 0x00, 0x01, (byte) 0xbd}),
+                is(true));
+        assertThat(PESUtilities.isMetadataPacket(new byte[] {0x00, 0x00, 0x01, (byte) 0xe0}),
+                is(false));
+        assertThat(PESUtilities.isMetadataPacket(new byte[] {0x00, 0x00, 0x01}), is(false));
+    }
 }